@@ -0,0 +1,138 @@
+package edu.ucdenver.ccp.common.collections;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+/**
+ * A growable array of <code>double</code> values, used to load a column of numbers without boxing each
+ * value, see
+ * {@link edu.ucdenver.ccp.common.file.FileReaderUtil#loadDoubleColumnFromDelimitedFile(java.io.File, edu.ucdenver.ccp.common.file.CharacterEncoding, String, String, int)}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DoubleColumn {
+
+	/**
+	 * The largest array size that can be allocated on all JVMs
+	 */
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	private double[] values;
+
+	private int size = 0;
+
+	public DoubleColumn() {
+		this(16);
+	}
+
+	/**
+	 * @param initialCapacity
+	 *            the number of values that can be added before the column needs to grow
+	 */
+	public DoubleColumn(int initialCapacity) {
+		if (initialCapacity < 0) {
+			throw new IllegalArgumentException("Initial capacity cannot be negative: " + initialCapacity);
+		}
+		values = new double[initialCapacity];
+	}
+
+	/**
+	 * Appends the input value to the end of this column
+	 * 
+	 * @param value
+	 */
+	public void add(double value) {
+		if (size == values.length) {
+			grow();
+		}
+		values[size++] = value;
+	}
+
+	/**
+	 * @param index
+	 * @return the value at the input index
+	 * @throws IndexOutOfBoundsException
+	 *             if the index is not less than the size of this column
+	 */
+	public double get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + " Size: " + size);
+		}
+		return values[index];
+	}
+
+	/**
+	 * @return the number of values in this column
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if this column contains no values
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return a new array containing the values of this column
+	 */
+	public double[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	/**
+	 * Reduces the capacity of this column to its size
+	 */
+	public void trimToSize() {
+		if (values.length > size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	/**
+	 * Doubles the capacity of this column (up to the maximum array size)
+	 */
+	private void grow() {
+		if (size == MAX_CAPACITY) {
+			throw new IllegalStateException("Column cannot hold more than " + MAX_CAPACITY + " values");
+		}
+		int capacity = (int) Math.min(Math.max(16L, 2L * values.length), MAX_CAPACITY);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+}
@@ -34,10 +34,14 @@ package edu.ucdenver.ccp.common.file;
  */
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 
 /**
  * This enum ties together various character encodings with canonical file suffixes used to indicate
@@ -71,6 +75,16 @@ public enum CharacterEncoding {
 	 */
 	private final String fileSuffix;
 
+	/**
+	 * The character set, looked up once rather than each time an encoder or decoder is created
+	 */
+	private final Charset charset;
+
+	/**
+	 * The largest char value that is encoded as a single byte with the same value
+	 */
+	private final char maxSingleByteChar;
+
 	/**
 	 * Private constructor for initializing CharacterEncoding enum elements
 	 * 
@@ -80,6 +94,8 @@ public enum CharacterEncoding {
 	private CharacterEncoding(String characterSetName, String fileSuffix) {
 		this.characterSetName = characterSetName;
 		this.fileSuffix = fileSuffix;
+		this.charset = Charset.forName(characterSetName);
+		this.maxSingleByteChar = characterSetName.equals("ISO-8859-1") ? '\u00ff' : '\u007f';
 	}
 
 	/**
@@ -98,24 +114,108 @@ public enum CharacterEncoding {
 	}
 
 	/**
-	 * @return a <code>CharsetEncoder</code> used to encode characters. Fails loudly if an encoding
-	 *         discrepancy is observed.
+	 * @return the character set
+	 */
+	public Charset getCharset() {
+		return charset;
+	}
+
+	/**
+	 * @return a new <code>CharsetEncoder</code> used to encode characters. Fails loudly if an
+	 *         encoding discrepancy is observed.
 	 */
 	public CharsetEncoder getEncoder() {
-		return Charset.forName(getCharacterSetName()).newEncoder().onMalformedInput(CodingErrorAction.REPORT)
+		return charset.newEncoder().onMalformedInput(CodingErrorAction.REPORT)
 				.onUnmappableCharacter(CodingErrorAction.REPORT);
 	}
 
 	/**
 	 * 
-	 * @return a <code>CharsetDecoder</code> used to decode characters. Fails loudly if an encoding
-	 *         discrepancy is observed.
+	 * @return a new <code>CharsetDecoder</code> used to decode characters. Fails loudly if an
+	 *         encoding discrepancy is observed.
 	 */
 	public CharsetDecoder getDecoder() {
-		return Charset.forName(getCharacterSetName()).newDecoder().onMalformedInput(CodingErrorAction.REPORT)
+		return charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT)
 				.onUnmappableCharacter(CodingErrorAction.REPORT);
 	}
 
+	/**
+	 * Decodes the specified bytes. Bytes that are all ASCII (or any bytes in the case of
+	 * ISO-8859-1) are converted directly; otherwise a decoder that is reused by the current thread
+	 * is used.
+	 * 
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return the decoded text
+	 * @throws CharacterCodingException
+	 *             if the bytes are not valid in this encoding
+	 */
+	public String decode(byte[] bytes, int offset, int length) throws CharacterCodingException {
+		if (this == ISO_8859_1 || isAscii(bytes, offset, length)) {
+			return new String(bytes, offset, length, StandardCharsets.ISO_8859_1);
+		}
+		return ThreadCoders.get().getDecoder(this).decode(ByteBuffer.wrap(bytes, offset, length)).toString();
+	}
+
+	/**
+	 * Encodes the input text. Text consisting of characters that are encoded as a single byte of
+	 * the same value (ASCII, or ISO-8859-1 in the case of ISO-8859-1) is converted directly;
+	 * otherwise an encoder that is reused by the current thread is used.
+	 * 
+	 * @param text
+	 * @return the encoded bytes
+	 * @throws CharacterCodingException
+	 *             if the text cannot be encoded in this encoding
+	 */
+	public byte[] encode(String text) throws CharacterCodingException {
+		int length = text.length();
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c > maxSingleByteChar) {
+				ByteBuffer encoded = ThreadCoders.get().getEncoder(this).encode(CharBuffer.wrap(text));
+				bytes = new byte[encoded.remaining()];
+				encoded.get(bytes);
+				return bytes;
+			}
+			bytes[i] = (byte) c;
+		}
+		return bytes;
+	}
+
+	/**
+	 * @param bytes
+	 * @param offset
+	 * @param length
+	 * @return true if the specified bytes are all in the ASCII range, in which case they decode to
+	 *         the same chars in all of the encodings
+	 */
+	public static boolean isAscii(byte[] bytes, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			if (bytes[i] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 * @return true if the specified chars are all in the ASCII range, in which case each is encoded
+	 *         as a single byte (and is a single code point) in all of the encodings
+	 */
+	public static boolean isAscii(char[] chars, int offset, int length) {
+		for (int i = offset; i < offset + length; i++) {
+			if (chars[i] > '\u007f') {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Given a file name as input, this method returns the character encoding-specific file name by
 	 * appending the encoding-specific file suffix if necessary
@@ -179,4 +279,57 @@ public enum CharacterEncoding {
 		return CharacterEncoding.valueOf(encodingStr.replaceAll("-", "_").toUpperCase());
 	}
 
+	/**
+	 * Releases the decoders and encoders that {@link #decode(byte[], int, int)} and
+	 * {@link #encode(String)} have cached for the current thread. Pooled threads (e.g. in a
+	 * servlet container) can call this before being returned to the pool.
+	 */
+	public static void releaseThreadCoders() {
+		ThreadCoders.THREAD_CODERS.remove();
+	}
+
+	/**
+	 * The decoders and encoders reused by a single thread, one of each per encoding, created when
+	 * first needed. They are held by a single static <code>ThreadLocal</code> rather than by the
+	 * enum constants, so that they can be released with {@link CharacterEncoding#releaseThreadCoders()}.
+	 */
+	private static final class ThreadCoders {
+
+		private static final ThreadLocal<ThreadCoders> THREAD_CODERS = new ThreadLocal<ThreadCoders>() {
+			@Override
+			protected ThreadCoders initialValue() {
+				return new ThreadCoders();
+			}
+		};
+
+		private final CharsetDecoder[] decoders = new CharsetDecoder[CharacterEncoding.values().length];
+
+		private final CharsetEncoder[] encoders = new CharsetEncoder[CharacterEncoding.values().length];
+
+		/**
+		 * @return the coders of the current thread
+		 */
+		static ThreadCoders get() {
+			return THREAD_CODERS.get();
+		}
+
+		CharsetDecoder getDecoder(CharacterEncoding encoding) {
+			CharsetDecoder decoder = decoders[encoding.ordinal()];
+			if (decoder == null) {
+				decoder = encoding.getDecoder();
+				decoders[encoding.ordinal()] = decoder;
+			}
+			return decoder;
+		}
+
+		CharsetEncoder getEncoder(CharacterEncoding encoding) {
+			CharsetEncoder encoder = encoders[encoding.ordinal()];
+			if (encoder == null) {
+				encoder = encoding.getEncoder();
+				encoders[encoding.ordinal()] = encoder;
+			}
+			return encoder;
+		}
+	}
+
 }
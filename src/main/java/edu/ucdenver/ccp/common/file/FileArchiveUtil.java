@@ -52,7 +52,6 @@ import java.util.jar.JarOutputStream;
 import java.util.zip.Adler32;
 import java.util.zip.CheckedInputStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -60,12 +59,15 @@ import org.apache.commons.io.IOUtils;
 
 import org.apache.log4j.Logger;
 
+import org.apache.tools.bzip2.CBZip2InputStream;
 import org.apache.tools.tar.TarEntry;
 import org.apache.tools.tar.TarInputStream;
 import org.apache.tools.tar.TarOutputStream;
 
 import HTTPClient.UncompressInputStreamWrapper;
 
+import edu.ucdenver.ccp.common.io.ParallelGzipOutputStream;
+import edu.ucdenver.ccp.common.io.ReadAheadInputStream;
 import edu.ucdenver.ccp.common.string.StringUtil;
 
 
@@ -109,7 +111,7 @@ public class FileArchiveUtil {
 	private static final String tar_suffix = ".tar";
 
 	/**
-	 * Returns an InputStream for the specified file. This method can handle both .gz and .zip
+	 * Returns an InputStream for the specified file. This method can handle .gz, .zip, .Z and .bz2
 	 * files.
 	 * 
 	 * TODO: investigate apache commons-compress.. see if it can replace some/all of the code in
@@ -119,35 +121,66 @@ public class FileArchiveUtil {
 	 * @return
 	 * @throws FileNotFoundException
 	 * @throws IOException
-	 * @throws IllegalArgumentException
-	 *             - if a file using an unsupported compression format is detected.
 	 */
-	public static InputStream getInputStream(File file) throws FileNotFoundException, IOException,
-			IllegalArgumentException {
+	public static InputStream getInputStream(File file) throws FileNotFoundException, IOException {
 		if (isGzipFile(file)) {
 			return getGzipInputStream(file);
 		} else if (isZipFile(file)) {
 			return getZipInputStream(file);
 		} else if (isUnixCompressFile(file)) {
 			return getUncompressInputStream(file);
-		} else if (isUnsupportedZipFormatFile(file)) {
-			throw new IllegalArgumentException(String.format(
-					"Method for reading compressed format is not supported for file: %s", file.getAbsolutePath()));
+		} else if (isBZipFile(file)) {
+			return getBZip2InputStream(file);
 		} else {
 			return new FileInputStream(file);
 		}
 	}
 
 	/**
-	 * GZIPs the input file and places the output file as specified by the zippedFile parameter
+	 * Returns an InputStream over the decompressed content of the specified file. For compressed
+	 * files (see {@link #isZippedFile(File)}) decompression is performed on a background thread
+	 * that stays a bounded number of blocks ahead of the returned stream (see
+	 * {@link ReadAheadInputStream}), so decompression overlaps with whatever the caller does with
+	 * the content. A .zip file is positioned at its first entry. Uncompressed files are returned as
+	 * a plain FileInputStream.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws FileNotFoundException
+	 * @throws IOException
+	 */
+	public static InputStream getDecompressedInputStream(File file) throws FileNotFoundException, IOException {
+		if (!isZippedFile(file)) {
+			return new FileInputStream(file);
+		}
+		InputStream inputStream = getInputStream(file);
+		if (inputStream instanceof ZipInputStream && ((ZipInputStream) inputStream).getNextEntry() == null) {
+			inputStream.close();
+			throw new IOException(String.format("Zip file contains no entries: %s", file.getAbsolutePath()));
+		}
+		return new ReadAheadInputStream(inputStream);
+	}
+
+	/**
+	 * GZIPs the input file and places the output file as specified by the zippedFile parameter.
+	 * Blocks of the file are compressed concurrently, see {@link ParallelGzipOutputStream}.
 	 * 
 	 * @param inputFile
 	 * @param zippedFile
 	 * @throws IOException
 	 */
 	public static void gzipFile(File inputFile, File zippedFile) throws IOException {
-		GZIPOutputStream gzipStream = new GZIPOutputStream(new FileOutputStream(zippedFile));
-		FileUtil.copy(inputFile, gzipStream);
+		FileInputStream inputStream = new FileInputStream(inputFile);
+		try {
+			ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(new FileOutputStream(zippedFile));
+			try {
+				IOUtils.copyLarge(inputStream, gzipStream);
+			} finally {
+				gzipStream.close();
+			}
+		} finally {
+			inputStream.close();
+		}
 	}
 	
 	
@@ -234,14 +267,20 @@ public class FileArchiveUtil {
 	}
 
 	/**
-	 * Returns false if the input file is a zip file that is not handled by this class. TODO: Check
-	 * to see if UnixCompress should still be an unsupported zip file format
+	 * Returns a CBZip2InputStream for a .bz2 file. The CBZip2InputStream expects the two byte "BZ"
+	 * magic number to have been consumed already.
 	 * 
 	 * @param file
 	 * @return
+	 * @throws IOException
 	 */
-	private static boolean isUnsupportedZipFormatFile(File file) {
-		return isBZipFile(file) || isUnixCompressFile(file);
+	private static InputStream getBZip2InputStream(File file) throws IOException {
+		InputStream fileStream = new BufferedInputStream(new FileInputStream(file));
+		if (fileStream.read() != 'B' || fileStream.read() != 'Z') {
+			fileStream.close();
+			throw new IOException(String.format("Not a bzip2 file: %s", file.getAbsolutePath()));
+		}
+		return new CBZip2InputStream(fileStream);
 	}
 
 	/**
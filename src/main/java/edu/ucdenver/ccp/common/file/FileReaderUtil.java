@@ -39,14 +39,26 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.zip.GZIPInputStream;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
-import edu.ucdenver.ccp.common.file.reader.Line;
+import edu.ucdenver.ccp.common.collections.DoubleColumn;
+import edu.ucdenver.ccp.common.collections.IntColumn;
+import edu.ucdenver.ccp.common.collections.LongColumn;
+import edu.ucdenver.ccp.common.file.reader.DelimitedColumnHandler;
+import edu.ucdenver.ccp.common.file.reader.DelimitedRecord;
+import edu.ucdenver.ccp.common.file.reader.DelimitedRecordReader;
+import edu.ucdenver.ccp.common.file.reader.ParallelDelimitedReader;
+import edu.ucdenver.ccp.common.file.reader.ParallelDelimitedReader.RecordOrder;
 import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+import edu.ucdenver.ccp.common.io.DecodingReader;
+import edu.ucdenver.ccp.common.io.IoOptions;
+import edu.ucdenver.ccp.common.io.ReadAheadInputStream;
+import edu.ucdenver.ccp.common.string.CsvTokenizer;
 import edu.ucdenver.ccp.common.string.StringUtil;
 
 /**
@@ -66,7 +78,9 @@ public class FileReaderUtil {
 	/* @formatter:on */
 
 	/**
-	 * Returns a BufferedReader initialized to read the input character encoding from the input File
+	 * Returns a BufferedReader initialized to read the input character encoding from the input File.
+	 * Compressed files (.gz, .zip, .Z, .bz2) are decompressed on a background thread, see
+	 * {@link FileArchiveUtil#getDecompressedInputStream(File)}.
 	 * 
 	 * @param file
 	 * @param encoding
@@ -74,10 +88,36 @@ public class FileReaderUtil {
 	 * @throws IOException 
 	 */
 	public static BufferedReader initBufferedReader(File file, CharacterEncoding encoding) throws IOException {
-		if (file.getName().endsWith(".gz")) {
-			return initBufferedReader(new GZIPInputStream(new FileInputStream(file)), encoding);
+		return initBufferedReader(file, encoding, IoOptions.DEFAULT);
+	}
+
+	/**
+	 * Returns a BufferedReader initialized to read the input character encoding from the input File
+	 * using the buffer size, buffer type and read-ahead specified by the input {@link IoOptions}.
+	 * Compressed files (.gz, .zip, .Z, .bz2) are decompressed on a background thread, see
+	 * {@link FileArchiveUtil#getDecompressedInputStream(File)}.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param options
+	 * @return
+	 * @throws IOException
+	 */
+	public static BufferedReader initBufferedReader(File file, CharacterEncoding encoding, IoOptions options)
+			throws IOException {
+		if (FileArchiveUtil.isZippedFile(file)) {
+			return initBufferedReader(FileArchiveUtil.getDecompressedInputStream(file), encoding, options);
+		}
+		if (options.isSequentialReadAhead()) {
+			return initBufferedReader(new ReadAheadInputStream(new FileInputStream(file), options.getBufferSize(),
+					ReadAheadInputStream.DEFAULT_QUEUE_CAPACITY), encoding, options);
 		}
-		return initBufferedReader(new FileInputStream(file), encoding);
+		if (options.isDirectBuffers()) {
+			FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			return new BufferedReader(new DecodingReader(channel, encoding.getDecoder(),
+					ByteBuffer.allocateDirect(options.getBufferSize())), options.getBufferSize());
+		}
+		return initBufferedReader(new FileInputStream(file), encoding, options);
 	}
 
 	/**
@@ -89,7 +129,23 @@ public class FileReaderUtil {
 	 * @return
 	 */
 	public static BufferedReader initBufferedReader(InputStream inputStream, CharacterEncoding encoding) {
-		return new BufferedReader(new InputStreamReader(inputStream, encoding.getDecoder()));
+		return initBufferedReader(inputStream, encoding, IoOptions.DEFAULT);
+	}
+
+	/**
+	 * Returns a BufferedReader initialized to read the input character encoding from the specified
+	 * InputStream, reading from the stream in blocks of the buffer size specified by the input
+	 * {@link IoOptions}
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param options
+	 * @return
+	 */
+	public static BufferedReader initBufferedReader(InputStream inputStream, CharacterEncoding encoding,
+			IoOptions options) {
+		return new BufferedReader(new DecodingReader(inputStream, encoding.getDecoder(), options.getBufferSize()),
+				options.getBufferSize());
 	}
 
 	/**
@@ -114,8 +170,12 @@ public class FileReaderUtil {
 	public static List<String[]> loadColumnsFromDelimitedFile(File inputFile, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int... columnIndexes) throws IOException,
 			ArrayIndexOutOfBoundsException, IllegalArgumentException {
-		return loadColumnsFromDelimitedFile(new FileInputStream(inputFile), encoding, delimiter, commentIndicator,
-				columnIndexes);
+		InputStream inputStream = FileArchiveUtil.getDecompressedInputStream(inputFile);
+		try {
+			return loadColumnsFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndexes);
+		} finally {
+			inputStream.close();
+		}
 	}
 
 	/**
@@ -151,14 +211,54 @@ public class FileReaderUtil {
 							+ "set the delimiter to be null.", delimiter));
 		}
 		List<String[]> outputColumns = new ArrayList<String[]>();
-		for (StreamLineIterator lineIter = new StreamLineIterator(inputStream, encoding, commentIndicator); lineIter
-				.hasNext();) {
-			Line line = lineIter.next();
-			outputColumns.add(getColumnsFromLine(line.getText(), delimiter, columnIndexes));
+		if (delimiter == null) {
+			for (StreamLineIterator lineIter = new StreamLineIterator(inputStream, encoding, commentIndicator); lineIter
+					.hasNext();) {
+				outputColumns.add(new String[] { lineIter.next().getText() });
+			}
+			return outputColumns;
+		}
+		DelimitedRecordReader reader = new DelimitedRecordReader(inputStream, encoding, delimiter, commentIndicator);
+		reader.setColumns(columnIndexes);
+		DelimitedRecord record;
+		while ((record = reader.nextRecord()) != null) {
+			outputColumns.add(record.toArray());
 		}
 		return outputColumns;
 	}
 
+	/**
+	 * Extracts the requested columns from each line of the input file using multiple threads and
+	 * passes them to the input handler, so that nothing needs to be collected in memory. The file is
+	 * divided into line-aligned chunks that are parsed concurrently, see
+	 * {@link ParallelDelimitedReader}. Compressed files are parsed sequentially.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 *            a regular expression matching the field delimiter
+	 * @param commentIndicator
+	 *            prefix indicating comment line
+	 * @param order
+	 *            {@link RecordOrder#ORDERED} to pass the columns to the handler on the calling
+	 *            thread in file order, or {@link RecordOrder#UNORDERED} to pass them concurrently
+	 *            from the worker threads as soon as they are parsed
+	 * @param handler
+	 *            callback that processes the columns of each line; it must be thread-safe if the
+	 *            order is {@link RecordOrder#UNORDERED}
+	 * @param columnIndexes
+	 *            the columns to extract; if none are specified, all columns are extracted
+	 * @throws IOException
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             - if a requested column index does not exist
+	 */
+	public static void loadColumnsFromDelimitedFileInParallel(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, RecordOrder order, DelimitedColumnHandler handler,
+			int... columnIndexes) throws IOException, ArrayIndexOutOfBoundsException {
+		ParallelDelimitedReader.readColumns(inputFile, encoding, delimiter, commentIndicator, order, handler,
+				columnIndexes);
+	}
+
 	/**
 	 * Parses the input line and returns a String[] containing the requested columns of that line.
 	 * If the delimiter is null or if there are no column indexes specified, the entire line is
@@ -178,7 +278,8 @@ public class FileReaderUtil {
 	/**
 	 * Returns the columns extracted from the input line using a regular expression delimiter. If
 	 * the field enclosure regex is also set, then any delimiters inside a field are not treated as
-	 * column delimiters.
+	 * column delimiters. To remove field enclosures and unescape doubled enclosure characters, use
+	 * {@link #getColumnsFromRfc4180Line(String, CsvTokenizer, int...)} instead.
 	 * 
 	 * @param line
 	 * @param delimiterRegex
@@ -193,6 +294,33 @@ public class FileReaderUtil {
 		}
 
 		String[] lineTokens = StringUtil.splitWithFieldEnclosure(line, delimiterRegex, fieldEnclosingRegex);
+		return selectColumns(line, lineTokens, columnIndexes);
+	}
+
+	/**
+	 * Returns the columns extracted from the input line by the input {@link CsvTokenizer}, as
+	 * described by RFC 4180: field enclosures are removed, doubled enclosure characters are
+	 * unescaped and field values are not trimmed.
+	 * 
+	 * @param line
+	 * @param tokenizer
+	 *            the tokenizer splitting the line, e.g. {@link CsvTokenizer#RFC_4180}
+	 * @param columnIndexes
+	 *            the indexes of the columns to return; if none are specified, all columns are
+	 *            returned
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the line ends inside an enclosed field
+	 */
+	public static String[] getColumnsFromRfc4180Line(String line, CsvTokenizer tokenizer, int... columnIndexes) {
+		return selectColumns(line, tokenizer.split(line), columnIndexes);
+	}
+
+	/**
+	 * @return the tokens of the input line at the input column indexes, or all tokens if no indexes
+	 *         are specified
+	 */
+	private static String[] selectColumns(String line, String[] lineTokens, int... columnIndexes) {
 		int[] cIndexes = columnIndexes;
 		if (columnIndexes == null || columnIndexes.length == 0) {
 			cIndexes = CollectionsUtil.createZeroBasedSequence(lineTokens.length);
@@ -220,8 +348,12 @@ public class FileReaderUtil {
 	 */
 	public static List<String> loadColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int columnIndex) throws IOException {
-		return loadColumnFromDelimitedFile(new FileInputStream(inputFile), encoding, delimiter, commentIndicator,
-				columnIndex);
+		InputStream inputStream = FileArchiveUtil.getDecompressedInputStream(inputFile);
+		try {
+			return loadColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndex);
+		} finally {
+			inputStream.close();
+		}
 	}
 
 	/**
@@ -238,16 +370,200 @@ public class FileReaderUtil {
 	 */
 	public static List<String> loadColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
 			String delimiter, String commentIndicator, int columnIndex) throws IOException {
-		List<String[]> singleColumnAsArrayList = loadColumnsFromDelimitedFile(inputStream, encoding, delimiter,
-				commentIndicator, columnIndex);
-		List<String> outputList = new ArrayList<String>(singleColumnAsArrayList.size());
-		while (!singleColumnAsArrayList.isEmpty()) {
-			outputList.add(singleColumnAsArrayList.get(0)[0]);
-			singleColumnAsArrayList.remove(0);
+		List<String> outputList = new ArrayList<String>();
+		DelimitedRecordReader reader = initColumnReader(inputStream, encoding, delimiter, commentIndicator);
+		int index = (delimiter == null) ? 0 : columnIndex;
+		DelimitedRecord record;
+		while ((record = reader.nextRecord()) != null) {
+			outputList.add(record.getField(index));
 		}
 		return outputList;
 	}
 
+	/**
+	 * Returns the values of the requested column of the input file parsed as ints. The values are
+	 * parsed directly from the reader's buffer, without creating a String for each value.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid int
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static IntColumn loadIntColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		InputStream inputStream = FileArchiveUtil.getDecompressedInputStream(inputFile);
+		try {
+			return loadIntColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndex);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Returns the values of the requested column of the input stream parsed as ints. The values are
+	 * parsed directly from the reader's buffer, without creating a String for each value.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid int
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static IntColumn loadIntColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		IntColumn column = new IntColumn();
+		DelimitedRecordReader reader = initColumnReader(inputStream, encoding, delimiter, commentIndicator);
+		int index = (delimiter == null) ? 0 : columnIndex;
+		DelimitedRecord record;
+		while ((record = reader.nextRecord()) != null) {
+			column.add(record.getFieldAsInt(index));
+		}
+		column.trimToSize();
+		return column;
+	}
+
+	/**
+	 * Returns the values of the requested column of the input file parsed as longs. The values are
+	 * parsed directly from the reader's buffer, without creating a String for each value.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid long
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static LongColumn loadLongColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		InputStream inputStream = FileArchiveUtil.getDecompressedInputStream(inputFile);
+		try {
+			return loadLongColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndex);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Returns the values of the requested column of the input stream parsed as longs. The values
+	 * are parsed directly from the reader's buffer, without creating a String for each value.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid long
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static LongColumn loadLongColumnFromDelimitedFile(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		LongColumn column = new LongColumn();
+		DelimitedRecordReader reader = initColumnReader(inputStream, encoding, delimiter, commentIndicator);
+		int index = (delimiter == null) ? 0 : columnIndex;
+		DelimitedRecord record;
+		while ((record = reader.nextRecord()) != null) {
+			column.add(record.getFieldAsLong(index));
+		}
+		column.trimToSize();
+		return column;
+	}
+
+	/**
+	 * Returns the values of the requested column of the input file parsed as doubles. Plain
+	 * decimal values (e.g. "-12.375") are parsed directly from the reader's buffer, without
+	 * creating a String for each value.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid double
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static DoubleColumn loadDoubleColumnFromDelimitedFile(File inputFile, CharacterEncoding encoding,
+			String delimiter, String commentIndicator, int columnIndex) throws IOException {
+		InputStream inputStream = FileArchiveUtil.getDecompressedInputStream(inputFile);
+		try {
+			return loadDoubleColumnFromDelimitedFile(inputStream, encoding, delimiter, commentIndicator, columnIndex);
+		} finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Returns the values of the requested column of the input stream parsed as doubles. Plain
+	 * decimal values (e.g. "-12.375") are parsed directly from the reader's buffer, without
+	 * creating a String for each value.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiter
+	 *            if null, each entire line is parsed
+	 * @param commentIndicator
+	 * @param columnIndex
+	 * @return
+	 * @throws IOException
+	 * @throws NumberFormatException
+	 *             if a value is not a valid double
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the requested column does not exist on a line
+	 */
+	public static DoubleColumn loadDoubleColumnFromDelimitedFile(InputStream inputStream,
+			CharacterEncoding encoding, String delimiter, String commentIndicator, int columnIndex)
+			throws IOException {
+		DoubleColumn column = new DoubleColumn();
+		DelimitedRecordReader reader = initColumnReader(inputStream, encoding, delimiter, commentIndicator);
+		int index = (delimiter == null) ? 0 : columnIndex;
+		DelimitedRecord record;
+		while ((record = reader.nextRecord()) != null) {
+			column.add(record.getFieldAsDouble(index));
+		}
+		column.trimToSize();
+		return column;
+	}
+
+	/**
+	 * @return a reader over the records of the input stream. If the delimiter is null, each entire
+	 *         line is returned as a single field (a line never contains a line feed).
+	 */
+	private static DelimitedRecordReader initColumnReader(InputStream inputStream, CharacterEncoding encoding,
+			String delimiter, String commentIndicator) {
+		return new DelimitedRecordReader(inputStream, encoding, (delimiter == null) ? "\n" : delimiter,
+				commentIndicator);
+	}
+
 	/**
 	 * Returns a List<String> containing the lines loaded from the input File
 	 * 
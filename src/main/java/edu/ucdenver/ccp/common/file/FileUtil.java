@@ -45,6 +45,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -281,16 +282,20 @@ public class FileUtil {
 	}
 
 	/**
-	 * Copies the contents of the InputStream to the specified File
+	 * Copies the contents of the InputStream to the specified File. If the InputStream is a
+	 * {@link FileInputStream} the copy is done by channel transfer (see
+	 * {@link #copy(InputStream, OutputStream)}) and the output is not buffered.
 	 * 
 	 * @param is
 	 * @param file
 	 * @throws IOException
 	 */
 	public static void copy(InputStream is, File file) throws IOException {
-		BufferedOutputStream outStream = null;
+		OutputStream outStream = null;
 		try {
-			outStream = new BufferedOutputStream(new FileOutputStream(file));
+			outStream = new FileOutputStream(file);
+			if (!(is instanceof FileInputStream))
+				outStream = new BufferedOutputStream(outStream);
 			copy(is, outStream);
 		} finally {
 			IOUtils.closeQuietly(outStream);
@@ -405,7 +410,13 @@ public class FileUtil {
 	}
 
 	/**
-	 * Copies the specified InputStream to the specified OutputStream
+	 * Copies the specified InputStream to the specified OutputStream. When both streams are backed
+	 * by files (a {@link FileInputStream} and a {@link FileOutputStream}) the bytes are moved using
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, which lets
+	 * the operating system copy the data directly between the files (e.g. via sendfile or
+	 * copy_file_range on Linux) without passing it through heap buffers. Any other combination of
+	 * streams is copied with {@link IOUtils#copyLarge(InputStream, OutputStream)}. The
+	 * OutputStream is closed when the copy completes.
 	 * 
 	 * @param is
 	 * @param os
@@ -413,12 +424,44 @@ public class FileUtil {
 	 */
 	public static void copy(InputStream is, OutputStream os) throws IOException {
 		try {
-			IOUtils.copyLarge(is, os);
+			if (is instanceof FileInputStream && os instanceof FileOutputStream)
+				transfer((FileInputStream) is, (FileOutputStream) os);
+			else
+				IOUtils.copyLarge(is, os);
 		} finally {
 			IOUtils.closeQuietly(os);
 		}
 	}
 
+	/**
+	 * Copies the remaining content of the input stream, starting at its current position, to the
+	 * output stream. The size reported by the source channel is transferred using
+	 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}; whatever
+	 * that does not cover is then copied through the streams. This includes the content of files
+	 * that report a size of zero (procfs and sysfs files, pipes, character devices), content left
+	 * behind when a transfer stops early, and content appended after the size was read.
+	 * 
+	 * @param is
+	 * @param os
+	 * @throws IOException
+	 */
+	private static void transfer(FileInputStream is, FileOutputStream os) throws IOException {
+		FileChannel source = is.getChannel();
+		long size = source.size();
+		if (size > 0) {
+			FileChannel target = os.getChannel();
+			long position = source.position();
+			while (position < size) {
+				long transferred = source.transferTo(position, size - position, target);
+				if (transferred <= 0)
+					break;
+				position += transferred;
+			}
+			source.position(position);
+		}
+		IOUtils.copyLarge(is, os);
+	}
+
 	/**
 	 * Creates a file name filter that accepts files based on the fileSuffix input parameter
 	 * 
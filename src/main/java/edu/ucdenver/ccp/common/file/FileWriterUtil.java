@@ -33,6 +33,7 @@ package edu.ucdenver.ccp.common.file;
  * #L%
  */
 
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
@@ -43,11 +44,21 @@ import java.io.OutputStreamWriter;
 
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
 
 import org.apache.log4j.Logger;
 
 import org.apache.commons.io.IOUtils;
 
+import edu.ucdenver.ccp.common.file.writer.AsyncLineWriter;
+import edu.ucdenver.ccp.common.io.AtomicFileBatch;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream.SyncPolicy;
+import edu.ucdenver.ccp.common.io.AtomicFileWriter;
+import edu.ucdenver.ccp.common.io.IoOptions;
+import edu.ucdenver.ccp.common.io.ParallelGzipOutputStream;
+
 /**
  * Utility class for writing files
  * 
@@ -80,7 +91,16 @@ public class FileWriterUtil {
 		 * Use WriteMode.OVERWRITE if you want to overwrite a file (and in the process delete any
 		 * previous content)
 		 */
-		OVERWRITE(false);
+		OVERWRITE(false),
+		/**
+		 * Use WriteMode.ATOMIC if you want to replace a file atomically: the content is written to
+		 * a temporary file in the same directory, which is flushed to the storage device and
+		 * renamed to the output file when the writer is closed (see {@link AtomicFileOutputStream}).
+		 * Other processes never see a partially written file. If writing fails the file is not
+		 * published; writers created with this mode are {@link AtomicFileWriter}s, which can also
+		 * be aborted explicitly.
+		 */
+		ATOMIC(false);
 
 		/**
 		 * If set to true, append will allow files to be appended to instead of overwritten
@@ -149,6 +169,94 @@ public class FileWriterUtil {
 	 */
 	public static BufferedWriter initBufferedWriter(File outputFile, CharacterEncoding encoding, WriteMode writeMode,
 			FileSuffixEnforcement suffixEnforcement) throws FileNotFoundException {
+		return initBufferedWriter(outputFile, encoding, writeMode, suffixEnforcement, IoOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates a BufferedWriter that uses proper character encoding validation. If the directory for
+	 * the specified output file does not exist it is created and a log message is generated stating
+	 * that it was created.
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @param writeMode
+	 *            WriteMode.APPEND to append to the output file, WriteMode.OVERWRITE to overwrite
+	 *            the output file
+	 * @param suffixEnforcement
+	 *            if FileSuffixEnforcement.ON then the output file must have the appropriate
+	 *            character encoding-specific file suffix to avoid an IllegalArgumentException. If
+	 *            FileSuffixEnforcement.OFF then the file name suffix is not checked. (any suffix
+	 *            will be permitted).
+	 * @param options
+	 *            specifies the size of the character buffer of the writer and of the blocks of bytes
+	 *            written to the output file
+	 * @return an initialized {@link BufferedWriter}
+	 * @throws FileNotFoundException
+	 * @throws IllegalArgumentException
+	 *             thrown if file suffix enforcement is active and the specified output file name
+	 *             suffix does not match the expected character encoding-specific suffix
+	 * 
+	 */
+	public static BufferedWriter initBufferedWriter(File outputFile, CharacterEncoding encoding, WriteMode writeMode,
+			FileSuffixEnforcement suffixEnforcement, IoOptions options) throws FileNotFoundException {
+		prepareOutputFile(outputFile, encoding, suffixEnforcement);
+		if (writeMode == WriteMode.ATOMIC) {
+			return new AtomicFileWriter(new AtomicFileOutputStream(outputFile, SyncPolicy.SYNC_ON_CLOSE), encoding,
+					options.getBufferSize());
+		}
+		return initBufferedWriter(new FileOutputStream(outputFile, writeMode.append()), encoding, options);
+	}
+
+	/**
+	 * Creates a writer that replaces the output file atomically when it is closed, see
+	 * {@link WriteMode#ATOMIC}. If writing to the writer fails, or it is aborted, the output file is
+	 * left untouched. If the directory for the specified output file does not exist it is created
+	 * and a log message is generated stating that it was created.
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @return an initialized {@link AtomicFileWriter}
+	 * @throws FileNotFoundException
+	 */
+	public static AtomicFileWriter initAtomicBufferedWriter(File outputFile, CharacterEncoding encoding)
+			throws FileNotFoundException {
+		return (AtomicFileWriter) initBufferedWriter(outputFile, encoding, WriteMode.ATOMIC,
+				FileSuffixEnforcement.OFF, IoOptions.DEFAULT);
+	}
+
+	/**
+	 * Creates a BufferedWriter that writes to a temporary file that is published as the output
+	 * file when the input batch is committed, see {@link AtomicFileBatch}. If the directory for the
+	 * specified output file does not exist it is created and a log message is generated stating
+	 * that it was created.
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @param batch
+	 *            the batch that publishes the output file once the writer has been closed
+	 * @return an initialized {@link AtomicFileWriter}; if writing to it fails, or it is aborted,
+	 *         the output file is not published
+	 * @throws FileNotFoundException
+	 */
+	public static AtomicFileWriter initBufferedWriter(File outputFile, CharacterEncoding encoding,
+			AtomicFileBatch batch) throws FileNotFoundException {
+		prepareOutputFile(outputFile, encoding, FileSuffixEnforcement.OFF);
+		return new AtomicFileWriter(batch.openOutputStream(outputFile), encoding, IoOptions.DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Creates the directory for the output file if it does not exist and checks the file name
+	 * suffix if file suffix enforcement is active
+	 * 
+	 * @throws IllegalArgumentException
+	 *             thrown if file suffix enforcement is active and the specified output file name
+	 *             suffix does not match the expected character encoding-specific suffix
+	 */
+	private static void prepareOutputFile(File outputFile, CharacterEncoding encoding,
+			FileSuffixEnforcement suffixEnforcement) {
 		if (outputFile.isAbsolute() && !outputFile.getParentFile().exists()) {
 			FileUtil.mkdir(outputFile.getParentFile());
 			logger.info("Directory for output file does not exist so it has been created: "
@@ -164,8 +272,75 @@ public class FileWriterUtil {
 								encoding.getFileSuffix(), outputFile.getAbsolutePath());
 				throw new IllegalArgumentException(errorMessage);
 			}
-		return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile, writeMode.append()),
-				encoding.getEncoder()));
+	}
+
+	/**
+	 * Creates a BufferedWriter whose output is gzip-compressed using multiple threads, see
+	 * {@link ParallelGzipOutputStream}. The output consists of independently compressed gzip
+	 * members, which together form a valid gzip file. Appending to an existing gzip file adds
+	 * further members to it, which is also valid. If the directory for the specified output file
+	 * does not exist it is created and a log message is generated stating that it was created.
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @param writeMode
+	 *            WriteMode.APPEND to append to the output file, WriteMode.OVERWRITE to overwrite
+	 *            the output file
+	 * @param format
+	 *            plain gzip members, or BGZF members as used by SAMtools and tabix
+	 * @return an initialized {@link BufferedWriter}
+	 * @throws FileNotFoundException
+	 */
+	public static BufferedWriter initParallelGzipBufferedWriter(File outputFile, CharacterEncoding encoding,
+			WriteMode writeMode, ParallelGzipOutputStream.Format format) throws FileNotFoundException {
+		prepareOutputFile(outputFile, encoding, FileSuffixEnforcement.OFF);
+		AtomicFileOutputStream atomicStream = null;
+		OutputStream outStream;
+		if (writeMode == WriteMode.ATOMIC) {
+			atomicStream = new AtomicFileOutputStream(outputFile, SyncPolicy.SYNC_ON_CLOSE);
+			/* the gzip trailer must be written before the file is published */
+			outStream = atomicStream.getContentStream();
+		} else {
+			outStream = new FileOutputStream(outputFile, writeMode.append());
+		}
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(outStream, format,
+				ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, pool, pool.getParallelism());
+		OutputStreamWriter writer = new OutputStreamWriter(gzipStream, encoding.getEncoder());
+		if (atomicStream != null) {
+			return new AtomicFileWriter(writer, ParallelGzipOutputStream.BGZF_BLOCK_SIZE, atomicStream);
+		}
+		return new BufferedWriter(writer, ParallelGzipOutputStream.BGZF_BLOCK_SIZE);
+	}
+
+	/**
+	 * Creates an {@link AsyncLineWriter} that encodes and writes lines on a background thread. If
+	 * the directory for the specified output file does not exist it is created and a log message is
+	 * generated stating that it was created.
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @param writeMode
+	 *            WriteMode.APPEND to append to the output file, WriteMode.OVERWRITE to overwrite
+	 *            the output file
+	 * @param suffixEnforcement
+	 *            if FileSuffixEnforcement.ON then the output file must have the appropriate
+	 *            character encoding-specific file suffix to avoid an IllegalArgumentException. If
+	 *            FileSuffixEnforcement.OFF then the file name suffix is not checked. (any suffix
+	 *            will be permitted).
+	 * @return an initialized {@link AsyncLineWriter}
+	 * @throws IOException
+	 * @throws IllegalArgumentException
+	 *             thrown if file suffix enforcement is active and the specified output file name
+	 *             suffix does not match the expected character encoding-specific suffix
+	 */
+	public static AsyncLineWriter initAsyncLineWriter(File outputFile, CharacterEncoding encoding,
+			WriteMode writeMode, FileSuffixEnforcement suffixEnforcement) throws IOException {
+		prepareOutputFile(outputFile, encoding, suffixEnforcement);
+		return new AsyncLineWriter(outputFile, encoding, writeMode, AsyncLineWriter.DEFAULT_BLOCK_SIZE,
+				AsyncLineWriter.DEFAULT_QUEUE_CAPACITY, false);
 	}
 
 	/**
@@ -204,6 +379,22 @@ public class FileWriterUtil {
 		return new BufferedWriter(new OutputStreamWriter(outputStream, encoding.getEncoder()));
 	}
 
+	/**
+	 * Creates a BufferedWriter that uses proper character encoding validation and writes to the
+	 * output stream in blocks of the buffer size specified by the input {@link IoOptions}
+	 * 
+	 * @param outputStream
+	 * @param encoding
+	 *            the CharacterEncoding to use when writing to the output file
+	 * @param options
+	 * @return an initialized {@link BufferedWriter}
+	 */
+	public static BufferedWriter initBufferedWriter(OutputStream outputStream, CharacterEncoding encoding,
+			IoOptions options) {
+		return new BufferedWriter(new OutputStreamWriter(new BufferedOutputStream(outputStream,
+				options.getBufferSize()), encoding.getEncoder()), options.getBufferSize());
+	}
+
 	/**
 	 * Prints the input list of lines to the input PrintStream
 	 * 
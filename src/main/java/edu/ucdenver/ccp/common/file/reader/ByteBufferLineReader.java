@@ -0,0 +1,339 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * Base class for {@link LineReader} implementations that locate lines by scanning raw bytes held in
+ * a {@link ByteBuffer} window and decode only the bytes of each line. Because the scan happens
+ * before decoding, the byte offset of every line (including the bytes of all preceding line
+ * terminators and skipped lines) is known exactly and no line ever needs to be re-encoded.
+ * <p>
+ * Line terminators are detected at the byte level, which is valid for all of the
+ * {@link CharacterEncoding}s supported by this library as each encodes CR and LF as the single bytes
+ * 0x0D and 0x0A, and neither byte can occur within a multi-byte UTF-8 sequence.
+ * <p>
+ * Subclasses supply the bytes by implementing {@link #fillWindow(long)}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public abstract class ByteBufferLineReader extends LineReader<Line> {
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	/**
+	 * Used to decode lines that contain non-ASCII bytes
+	 */
+	private final CharsetDecoder decoder;
+
+	/**
+	 * true if each byte decodes to exactly one char (ISO-8859-1)
+	 */
+	private final boolean singleByteEncoding;
+
+	/**
+	 * The bytes currently available for scanning
+	 */
+	private ByteBuffer window = ByteBuffer.allocate(0);
+
+	/**
+	 * The byte offset (from the beginning of the input) of index 0 of the window
+	 */
+	private long windowOffset = 0;
+
+	/**
+	 * The byte offset of the first byte that has not yet been scanned
+	 */
+	private long byteOffset = 0;
+
+	/**
+	 * Set once {@link #fillWindow(long)} reports that no more bytes are available
+	 */
+	private boolean eof = false;
+
+	/**
+	 * Used to store the line number
+	 */
+	private long lineNumber = 0;
+
+	/**
+	 * Reusable storage for the bytes of the line being decoded
+	 */
+	private byte[] lineBytes = new byte[256];
+
+	/**
+	 * Reusable storage for the chars of the line being decoded
+	 */
+	private CharBuffer lineChars = CharBuffer.allocate(256);
+
+	/**
+	 * Index in the window of the first byte of the line most recently scanned
+	 */
+	private int lineStart;
+
+	/**
+	 * Index in the window one past the last byte (excluding the terminator) of the line most
+	 * recently scanned
+	 */
+	private int lineEnd;
+
+	/**
+	 * The terminator of the line most recently scanned
+	 */
+	private LineTerminator lineTerminator;
+
+	/**
+	 * The number of code points in the line most recently decoded
+	 */
+	private int lineCodePointCount;
+
+	/**
+	 * @param encoding
+	 *            the encoding of the bytes being read
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 */
+	protected ByteBufferLineReader(CharacterEncoding encoding, String skipLinePrefix) {
+		this(encoding, skipLinePrefix, new FileChunk(0, 0, 0, 0, 0));
+	}
+
+	/**
+	 * Initializes a reader that starts reading at the beginning of the input chunk. The line
+	 * numbers and offsets of the lines returned continue from those recorded in the chunk.
+	 * 
+	 * @param encoding
+	 *            the encoding of the bytes being read
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param start
+	 *            the position of the first line to read
+	 */
+	protected ByteBufferLineReader(CharacterEncoding encoding, String skipLinePrefix, FileChunk start) {
+		super(skipLinePrefix, start.getCharacterOffset(), start.getCodePointOffset());
+		this.decoder = encoding.getDecoder();
+		this.singleByteEncoding = (encoding == CharacterEncoding.ISO_8859_1);
+		this.windowOffset = start.getStartByteOffset();
+		this.byteOffset = start.getStartByteOffset();
+		this.lineNumber = start.getLineNumber();
+	}
+
+	/**
+	 * Makes more bytes available to the reader by calling {@link #setWindow(ByteBuffer, long)}. The
+	 * new window must start at or before <code>retainFrom</code> and must extend beyond the end of
+	 * the current window.
+	 * 
+	 * @param retainFrom
+	 *            the byte offset of the first byte of the current window that is still needed
+	 * @return false if there are no more bytes to read, true otherwise
+	 * @throws IOException
+	 */
+	protected abstract boolean fillWindow(long retainFrom) throws IOException;
+
+	/**
+	 * Sets the bytes available for scanning. Bytes from index 0 up to the limit of the window are
+	 * scanned; the position of the window is ignored.
+	 * 
+	 * @param window
+	 * @param windowOffset
+	 *            the byte offset (from the beginning of the input) of index 0 of the window
+	 */
+	protected final void setWindow(ByteBuffer window, long windowOffset) {
+		this.window = window;
+		this.windowOffset = windowOffset;
+	}
+
+	/**
+	 * @return the current window
+	 */
+	protected final ByteBuffer getWindow() {
+		return window;
+	}
+
+	/**
+	 * @return the byte offset of the first byte following the most recently read line (and its
+	 *         terminator)
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@Override
+	protected Line getNextLine() throws IOException {
+		while (true) {
+			long lineByteOffset = byteOffset;
+			if (!scanLine()) {
+				return null;
+			}
+			String lineText = decodeLine();
+			if (skipLine(lineText)) {
+				updateCharacterOffset(lineText.length(), lineCodePointCount, lineTerminator);
+				lineNumber++;
+				continue;
+			}
+			return new Line(lineText, lineTerminator, getCharacterOffset(), getCodePointOffset(), lineNumber++,
+					lineByteOffset);
+		}
+	}
+
+	/**
+	 * @return the code point count of the most recently returned line, computed while it was
+	 *         decoded
+	 */
+	@Override
+	protected int getCodePointCount(Line line) {
+		return lineCodePointCount;
+	}
+
+	/**
+	 * Scans the window for the next line terminator, requesting more bytes as needed
+	 * 
+	 * @return true if a line was found, false if the end of the input was reached
+	 * @throws IOException
+	 */
+	private boolean scanLine() throws IOException {
+		long start = byteOffset;
+		int index = (int) (start - windowOffset);
+		while (true) {
+			ByteBuffer buf = window;
+			int limit = buf.limit();
+			while (index < limit) {
+				byte b = buf.get(index);
+				if (b == LF) {
+					return setLine(start, index, LineTerminator.LF, 1);
+				}
+				if (b == CR) {
+					if (index + 1 == limit && !eof) {
+						/* a LF may be the first byte that has not been read yet */
+						long crOffset = windowOffset + index;
+						eof = !fillWindow(start);
+						index = (int) (crOffset - windowOffset);
+						buf = window;
+						limit = buf.limit();
+					}
+					if (index + 1 < limit && buf.get(index + 1) == LF) {
+						return setLine(start, index, LineTerminator.CRLF, 2);
+					}
+					return setLine(start, index, LineTerminator.CR, 1);
+				}
+				index++;
+			}
+			if (!eof) {
+				long scannedTo = windowOffset + index;
+				eof = !fillWindow(start);
+				index = (int) (scannedTo - windowOffset);
+			} else {
+				if (windowOffset + index == start) {
+					return false;
+				}
+				return setLine(start, index, LineTerminator.LF, 0);
+			}
+		}
+	}
+
+	/**
+	 * Records the location of the line that was just scanned and advances the byte offset past it
+	 * and its terminator
+	 * 
+	 * @return true
+	 */
+	private boolean setLine(long start, int end, LineTerminator terminator, int terminatorByteCount) {
+		lineStart = (int) (start - windowOffset);
+		lineEnd = end;
+		lineTerminator = terminator;
+		byteOffset = windowOffset + end + terminatorByteCount;
+		return true;
+	}
+
+	/**
+	 * @return the text of the line most recently scanned. Lines consisting solely of ASCII bytes
+	 *         (or any line if the encoding is ISO-8859-1) are converted without invoking the
+	 *         decoder. The code point count of the line is recorded as well; it is only counted
+	 *         separately if the decoder was invoked and code points are being tracked.
+	 * @throws IOException
+	 *             if the line contains bytes that are not valid in the encoding
+	 */
+	private String decodeLine() throws IOException {
+		int length = lineEnd - lineStart;
+		lineCodePointCount = length;
+		if (length == 0) {
+			return "";
+		}
+		if (lineBytes.length < length) {
+			lineBytes = new byte[Math.max(length, lineBytes.length * 2)];
+		}
+		ByteBuffer bytes = window.duplicate();
+		bytes.limit(lineEnd).position(lineStart);
+		bytes.get(lineBytes, 0, length);
+		if (singleByteEncoding || CharacterEncoding.isAscii(lineBytes, 0, length)) {
+			return new String(lineBytes, 0, length, StandardCharsets.ISO_8859_1);
+		}
+		/* none of the supported encodings produce more chars than bytes */
+		if (lineChars.capacity() < length) {
+			lineChars = CharBuffer.allocate(Math.max(length, lineChars.capacity() * 2));
+		}
+		lineChars.clear();
+		decoder.reset();
+		CoderResult result = decoder.decode(ByteBuffer.wrap(lineBytes, 0, length), lineChars, true);
+		if (!result.isUnderflow()) {
+			result.throwException();
+		}
+		result = decoder.flush(lineChars);
+		if (!result.isUnderflow()) {
+			result.throwException();
+		}
+		lineChars.flip();
+		if (isTrackingCodePoints()) {
+			lineCodePointCount = Character.codePointCount(lineChars.array(), 0, lineChars.limit());
+		}
+		return lineChars.toString();
+	}
+
+}
@@ -0,0 +1,103 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * This class is used to iterate over lines read by a {@link ByteChannelLineReader}, i.e. lines with
+ * exact byte offsets.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ByteChannelLineIterator extends LineIterator<Line> {
+
+	/**
+	 * Logger used to output name of file being iterated over
+	 */
+	private static final Logger logger = Logger.getLogger(ByteChannelLineIterator.class);
+
+	/**
+	 * Initializes a <code>ByteChannelLineReader</code> to read from the input
+	 * <code>InputStream</code>
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public ByteChannelLineIterator(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix)
+			throws IOException {
+		super(inputStream, encoding, skipLinePrefix);
+	}
+
+	/**
+	 * Initializes a <code>ByteChannelLineReader</code> to read from the input <code>File</code>
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public ByteChannelLineIterator(File inputFile, CharacterEncoding encoding, String skipLinePrefix)
+			throws IOException {
+		super(inputFile, encoding, skipLinePrefix);
+		logger.debug(String.format("Iterating through lines for file: %s", inputFile.getAbsolutePath()));
+	}
+
+	public ByteChannelLineIterator(File inputFile, CharacterEncoding encoding) throws IOException {
+		this(inputFile, encoding, null);
+	}
+
+	/**
+	 * Initializes a new <code>ByteChannelLineReader</code> to be used by the
+	 * <code>ByteChannelLineIterator</code>
+	 */
+	@Override
+	public ByteChannelLineReader initLineReader(Object fileOrStream, CharacterEncoding encoding,
+			String skipLinePrefix) throws IOException {
+		if (fileOrStream instanceof File) {
+			return new ByteChannelLineReader((File) fileOrStream, encoding, skipLinePrefix);
+		}
+		return new ByteChannelLineReader((InputStream) fileOrStream, encoding, skipLinePrefix);
+	}
+
+}
@@ -0,0 +1,174 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.file.StandardOpenOption;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A {@link ByteBufferLineReader} that reads bytes from a {@link ReadableByteChannel}. Unlike
+ * {@link StreamLineReader}, the byte offset of each {@link Line} returned is the exact number of
+ * bytes (in the declared encoding, including line terminators) that precede the line in the input.
+ * Reading blocks until input is available; non-blocking channels are not supported.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ByteChannelLineReader extends ByteBufferLineReader {
+
+	/**
+	 * The default size (in bytes) of the read buffer
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The channel from which bytes are read
+	 */
+	private final ReadableByteChannel channel;
+
+	/**
+	 * The read buffer. It is grown if a single line does not fit.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * The byte offset (from the beginning of the input) of index 0 of the read buffer
+	 */
+	private long bufferOffset = 0;
+
+	/**
+	 * Initializes a new <code>ByteChannelLineReader</code> to read from the input channel. The
+	 * channel must be in blocking mode.
+	 * 
+	 * @param channel
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param bufferSize
+	 *            the initial size (in bytes) of the read buffer
+	 * @throws IllegalArgumentException
+	 *             if the channel is a {@link SelectableChannel} in non-blocking mode
+	 */
+	public ByteChannelLineReader(ReadableByteChannel channel, CharacterEncoding encoding, String skipLinePrefix,
+			int bufferSize) {
+		super(encoding, skipLinePrefix);
+		if (bufferSize < 2) {
+			throw new IllegalArgumentException("Buffer size must be at least 2 but was: " + bufferSize);
+		}
+		if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+			throw new IllegalArgumentException("Non-blocking channels are not supported.");
+		}
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(bufferSize);
+		this.buffer.limit(0);
+	}
+
+	/**
+	 * Initializes a new <code>ByteChannelLineReader</code> to read from the input
+	 * <code>InputStream</code>
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 */
+	public ByteChannelLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix) {
+		this(Channels.newChannel(inputStream), encoding, skipLinePrefix, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Initializes a new <code>ByteChannelLineReader</code> to read from the input file
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public ByteChannelLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix)
+			throws IOException {
+		this(FileChannel.open(inputFile.toPath(), StandardOpenOption.READ), encoding, skipLinePrefix,
+				DEFAULT_BUFFER_SIZE);
+	}
+
+	public ByteChannelLineReader(File inputFile, CharacterEncoding encoding) throws IOException {
+		this(inputFile, encoding, null);
+	}
+
+	/**
+	 * Discards the bytes preceding <code>retainFrom</code> (growing the buffer if nothing can be
+	 * discarded and it is full) and then reads from the channel into the remainder of the buffer
+	 * 
+	 * @see edu.ucdenver.ccp.common.file.reader.ByteBufferLineReader#fillWindow(long)
+	 */
+	@Override
+	protected boolean fillWindow(long retainFrom) throws IOException {
+		int retainIndex = (int) (retainFrom - bufferOffset);
+		if (retainIndex > 0) {
+			buffer.position(retainIndex);
+			buffer.compact();
+			bufferOffset = retainFrom;
+		} else if (buffer.limit() == buffer.capacity()) {
+			ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+			grown.put(buffer);
+			buffer = grown;
+		} else {
+			buffer.position(buffer.limit());
+			buffer.limit(buffer.capacity());
+		}
+		/* the buffer always has space, so a blocking channel reads at least one byte or reports EOF */
+		int read = channel.read(buffer);
+		if (read == 0) {
+			throw new IOException("No bytes were read from the channel; non-blocking channels are not supported.");
+		}
+		buffer.flip();
+		setWindow(buffer, bufferOffset);
+		return read > 0;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
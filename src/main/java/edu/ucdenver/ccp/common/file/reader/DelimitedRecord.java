@@ -0,0 +1,473 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import edu.ucdenver.ccp.common.string.StringUtil;
+
+/**
+ * A reusable, mutable view of the fields of a single delimited line returned by a
+ * {@link DelimitedRecordReader}. Field boundaries are located lazily: only as much of the line is
+ * scanned as is needed to locate the fields that are accessed, and no String is created for a
+ * field unless {@link #getField(int)} or {@link #toArray()} is called. The characters of a field can
+ * also be accessed directly from {@link LineView#getBuffer()} using {@link #getFieldStart(int)} and
+ * {@link #getFieldEnd(int)}.
+ * <p>
+ * Fields are split in the same manner as {@link String#split(String, int)} with a negative limit,
+ * i.e. empty fields (including trailing ones) are retained and field values are not trimmed.
+ * <p>
+ * A DelimitedRecord is only valid until the next record is read.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DelimitedRecord {
+
+	/**
+	 * Powers of ten that are exactly representable as doubles
+	 */
+	private static final double[] POWERS_OF_TEN = new double[] { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9,
+			1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+	/**
+	 * The delimiter character if the delimiter is a single character, otherwise unused
+	 */
+	private final char delimiter;
+
+	/**
+	 * Used to locate delimiters if the delimiter is not a single character, otherwise null
+	 */
+	private final Matcher matcher;
+
+	/**
+	 * The columns returned by {@link #toArray()}, or null for all columns
+	 */
+	private int[] columns;
+
+	private LineView line;
+
+	/**
+	 * The buffer indexes of the fields located so far
+	 */
+	private int[] fieldStarts = new int[16];
+	private int[] fieldEnds = new int[16];
+
+	/**
+	 * The number of fields located so far
+	 */
+	private int locatedFieldCount;
+
+	/**
+	 * true once the last field of the line has been located
+	 */
+	private boolean allFieldsLocated;
+
+	/**
+	 * The buffer index of the field following the last field located
+	 */
+	private int nextFieldStart;
+
+	/**
+	 * Initializes a new <code>DelimitedRecord</code> for the input delimiter
+	 * 
+	 * @param delimiterRegex
+	 *            a regular expression matching the delimiter. Delimiters that match a single
+	 *            character (e.g. "\t", "\\t", ",", "\\|") are located without using the regular
+	 *            expression engine.
+	 */
+	DelimitedRecord(String delimiterRegex) {
+		int delimiterChar = StringUtil.getRegexLiteralCharacter(delimiterRegex);
+		if (delimiterChar == -1) {
+			this.delimiter = 0;
+			this.matcher = Pattern.compile(delimiterRegex).matcher("");
+		} else {
+			this.delimiter = (char) delimiterChar;
+			this.matcher = null;
+		}
+	}
+
+	/**
+	 * Positions this record on the input line
+	 */
+	void set(LineView line) {
+		this.line = line;
+		locatedFieldCount = 0;
+		allFieldsLocated = false;
+		if (matcher != null) {
+			matcher.reset(line);
+		}
+	}
+
+	/**
+	 * @param columns
+	 *            the columns returned by {@link #toArray()}, or null for all columns
+	 */
+	void setColumns(int[] columns) {
+		this.columns = columns;
+	}
+
+	/**
+	 * @return the line containing this record
+	 */
+	public LineView getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the line number of the line containing this record
+	 */
+	public long getLineNumber() {
+		return line.getLineNumber();
+	}
+
+	/**
+	 * @return the number of fields in this record (this requires the entire line to be scanned)
+	 */
+	public int getFieldCount() {
+		while (!allFieldsLocated) {
+			locateNextField();
+		}
+		return locatedFieldCount;
+	}
+
+	/**
+	 * @param index
+	 * @return true if this record has a field with the input index
+	 */
+	public boolean hasField(int index) {
+		while (locatedFieldCount <= index && !allFieldsLocated) {
+			locateNextField();
+		}
+		return index >= 0 && index < locatedFieldCount;
+	}
+
+	/**
+	 * @param index
+	 * @return the index in the line buffer of the first character of the requested field
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	public int getFieldStart(int index) {
+		ensureFieldExists(index);
+		return fieldStarts[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the index in the line buffer one past the last character of the requested field
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	public int getFieldEnd(int index) {
+		ensureFieldExists(index);
+		return fieldEnds[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the number of characters in the requested field
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	public int getFieldLength(int index) {
+		ensureFieldExists(index);
+		return fieldEnds[index] - fieldStarts[index];
+	}
+
+	/**
+	 * @param index
+	 * @return a new String containing the requested field
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	public String getField(int index) {
+		ensureFieldExists(index);
+		return new String(line.getBuffer(), fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+	}
+
+	/**
+	 * @param index
+	 * @param text
+	 * @return true if the requested field is equal to the input text (without creating a String for
+	 *         the field)
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	public boolean fieldEquals(int index, CharSequence text) {
+		ensureFieldExists(index);
+		int start = fieldStarts[index];
+		int length = fieldEnds[index] - start;
+		if (length != text.length()) {
+			return false;
+		}
+		char[] buffer = line.getBuffer();
+		for (int i = 0; i < length; i++) {
+			if (buffer[start + i] != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param index
+	 * @return the requested field parsed as a decimal int (without creating a String for the field
+	 *         unless it has more than 9 digits)
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 * @throws NumberFormatException
+	 *             if the field is not a valid int
+	 */
+	public int getFieldAsInt(int index) {
+		ensureFieldExists(index);
+		if (!isShortDecimal(index, 9)) {
+			return Integer.parseInt(getField(index));
+		}
+		return (int) parseShortDecimal(index);
+	}
+
+	/**
+	 * @param index
+	 * @return the requested field parsed as a decimal long (without creating a String for the field
+	 *         unless it has more than 18 digits)
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 * @throws NumberFormatException
+	 *             if the field is not a valid long
+	 */
+	public long getFieldAsLong(int index) {
+		ensureFieldExists(index);
+		if (!isShortDecimal(index, 18)) {
+			return Long.parseLong(getField(index));
+		}
+		return parseShortDecimal(index);
+	}
+
+	/**
+	 * @param index
+	 * @return the requested field parsed as a double, see {@link Double#parseDouble(String)}. Plain
+	 *         decimal numbers with at most 15 digits (e.g. "-12.375") are parsed without creating a
+	 *         String for the field.
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 * @throws NumberFormatException
+	 *             if the field is not a valid double
+	 */
+	public double getFieldAsDouble(int index) {
+		ensureFieldExists(index);
+		double value = parseShortDouble(index);
+		if (Double.isNaN(value)) {
+			return Double.parseDouble(getField(index));
+		}
+		return value;
+	}
+
+	/**
+	 * Parses fields consisting of an optional sign and at most 15 digits with an optional decimal
+	 * point. Both the digits (as an integer) and the power of ten are then exactly representable,
+	 * so a single division yields the correctly rounded result, i.e. the same result as
+	 * {@link Double#parseDouble(String)}.
+	 * 
+	 * @return the parsed value, or NaN if the field is not of this form
+	 */
+	private double parseShortDouble(int index) {
+		char[] buffer = line.getBuffer();
+		int i = fieldStarts[index];
+		int end = fieldEnds[index];
+		boolean negative = false;
+		if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+			negative = (buffer[i] == '-');
+			i++;
+		}
+		long digits = 0;
+		int digitCount = 0;
+		int fractionDigitCount = -1;
+		for (; i < end; i++) {
+			char c = buffer[i];
+			if (c >= '0' && c <= '9') {
+				digits = digits * 10 + (c - '0');
+				if (++digitCount > 15) {
+					return Double.NaN;
+				}
+				if (fractionDigitCount >= 0) {
+					fractionDigitCount++;
+				}
+			} else if (c == '.' && fractionDigitCount < 0) {
+				fractionDigitCount = 0;
+			} else {
+				return Double.NaN;
+			}
+		}
+		if (digitCount == 0) {
+			return Double.NaN;
+		}
+		double value = (fractionDigitCount > 0) ? digits / POWERS_OF_TEN[fractionDigitCount] : digits;
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @return true if the requested field consists of an optional sign followed by between 1 and
+	 *         the specified number of characters, in which case it is parsed without creating a
+	 *         String (longer fields are parsed by the JDK so that overflow is handled consistently)
+	 */
+	private boolean isShortDecimal(int index, int maxDigits) {
+		int start = fieldStarts[index];
+		if (start == fieldEnds[index]) {
+			return false;
+		}
+		char first = line.getBuffer()[start];
+		int digitCount = fieldEnds[index] - start - ((first == '-' || first == '+') ? 1 : 0);
+		return digitCount > 0 && digitCount <= maxDigits;
+	}
+
+	/**
+	 * @return the requested field parsed as a decimal number, see {@link #isShortDecimal(int, int)}
+	 */
+	private long parseShortDecimal(int index) {
+		char[] buffer = line.getBuffer();
+		int i = fieldStarts[index];
+		int end = fieldEnds[index];
+		boolean negative = (buffer[i] == '-');
+		if (negative || buffer[i] == '+') {
+			i++;
+		}
+		long value = 0;
+		for (; i < end; i++) {
+			int digit = buffer[i] - '0';
+			if (digit < 0 || digit > 9) {
+				throw new NumberFormatException("For input string: \"" + getField(index) + "\"");
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * @param columnIndexes
+	 * @return new Strings containing the requested fields, in the requested order
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested field does not exist
+	 */
+	public String[] getFields(int... columnIndexes) {
+		String[] fields = new String[columnIndexes.length];
+		for (int i = 0; i < columnIndexes.length; i++) {
+			fields[i] = getField(columnIndexes[i]);
+		}
+		return fields;
+	}
+
+	/**
+	 * @return new Strings containing the columns selected using
+	 *         {@link DelimitedRecordReader#setColumns(int...)}, or all fields if no columns have
+	 *         been selected
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a selected column does not exist
+	 */
+	public String[] toArray() {
+		if (columns != null) {
+			return getFields(columns);
+		}
+		String[] fields = new String[getFieldCount()];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = getField(i);
+		}
+		return fields;
+	}
+
+	/**
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if the field does not exist
+	 */
+	private void ensureFieldExists(int index) {
+		if (!hasField(index)) {
+			throw new ArrayIndexOutOfBoundsException(String.format(
+					"Column index %d does not exist on line. There are only %d columns on line: %s", index,
+					getFieldCount(), line));
+		}
+	}
+
+	/**
+	 * Locates the field following the last field located
+	 */
+	private void locateNextField() {
+		int start = (locatedFieldCount == 0) ? line.getStart() : nextFieldStart;
+		int end;
+		if (matcher == null) {
+			char[] buffer = line.getBuffer();
+			int lineEnd = line.getEnd();
+			end = start;
+			while (end < lineEnd && buffer[end] != delimiter) {
+				end++;
+			}
+			if (end == lineEnd) {
+				allFieldsLocated = true;
+			} else {
+				nextFieldStart = end + 1;
+			}
+		} else {
+			end = line.getEnd();
+			allFieldsLocated = true;
+			int lineStart = line.getStart();
+			while (matcher.find()) {
+				/* as with String.split(), a zero-width match at the beginning does not create a field */
+				if (matcher.end() == 0) {
+					continue;
+				}
+				end = lineStart + matcher.start();
+				nextFieldStart = lineStart + matcher.end();
+				allFieldsLocated = false;
+				break;
+			}
+		}
+		if (locatedFieldCount == fieldStarts.length) {
+			fieldStarts = Arrays.copyOf(fieldStarts, locatedFieldCount * 2);
+			fieldEnds = Arrays.copyOf(fieldEnds, locatedFieldCount * 2);
+		}
+		fieldStarts[locatedFieldCount] = start;
+		fieldEnds[locatedFieldCount] = end;
+		locatedFieldCount++;
+	}
+
+	/**
+	 * @return a new String containing the text of the line
+	 */
+	@Override
+	public String toString() {
+		return line.toString();
+	}
+
+}
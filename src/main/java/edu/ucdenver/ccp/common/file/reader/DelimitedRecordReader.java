@@ -0,0 +1,181 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Reads a delimited file (e.g. TSV) one record at a time without loading the file into memory.
+ * Each call to {@link #nextRecord()} returns the same reusable {@link DelimitedRecord}, positioned
+ * on the next line; fields are located lazily and Strings are only created for the fields that are
+ * requested. Use {@link #setColumns(int...)} to select the columns returned by
+ * {@link DelimitedRecord#toArray()}.
+ * 
+ * <pre>
+ * DelimitedRecordReader reader = new DelimitedRecordReader(file, CharacterEncoding.UTF_8, &quot;\t&quot;, &quot;#&quot;);
+ * try {
+ * 	DelimitedRecord record;
+ * 	while ((record = reader.nextRecord()) != null) {
+ * 		if (record.fieldEquals(2, &quot;gene&quot;)) {
+ * 			total += record.getFieldAsLong(4);
+ * 		}
+ * 	}
+ * } finally {
+ * 	reader.close();
+ * }
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DelimitedRecordReader implements Closeable {
+
+	/**
+	 * Supplies the lines of the input
+	 */
+	private final LineViewReader lineReader;
+
+	/**
+	 * The record returned for every line
+	 */
+	private final DelimitedRecord record;
+
+	/**
+	 * Initializes a new <code>DelimitedRecordReader</code> to read from the input
+	 * <code>InputStream</code>
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter. Delimiters that match a single
+	 *            character (e.g. "\t", "\\t", ",", "\\|") are located without using the regular
+	 *            expression engine.
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 */
+	public DelimitedRecordReader(InputStream inputStream, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix) {
+		this(new LineViewReader(inputStream, encoding, skipLinePrefix), delimiterRegex);
+	}
+
+	/**
+	 * Initializes a new <code>DelimitedRecordReader</code> to read from the input file. Compressed
+	 * files are decompressed, see {@link edu.ucdenver.ccp.common.file.FileReaderUtil#initBufferedReader(File, CharacterEncoding)}.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter. Delimiters that match a single
+	 *            character (e.g. "\t", "\\t", ",", "\\|") are located without using the regular
+	 *            expression engine.
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 * @throws IOException
+	 */
+	public DelimitedRecordReader(File inputFile, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix) throws IOException {
+		this(new LineViewReader(inputFile, encoding, skipLinePrefix), delimiterRegex);
+	}
+
+	/**
+	 * Initializes a new <code>DelimitedRecordReader</code> over the lines returned by the input
+	 * <code>LineViewReader</code>
+	 * 
+	 * @param lineReader
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter
+	 */
+	public DelimitedRecordReader(LineViewReader lineReader, String delimiterRegex) {
+		if (delimiterRegex == null || delimiterRegex.isEmpty()) {
+			throw new IllegalArgumentException("A delimiter must be specified.");
+		}
+		this.lineReader = lineReader;
+		this.record = new DelimitedRecord(delimiterRegex);
+	}
+
+	/**
+	 * Selects the columns returned by {@link DelimitedRecord#toArray()}
+	 * 
+	 * @param columnIndexes
+	 *            the indexes of the columns to return, in the order in which they are to be
+	 *            returned. If no indexes are specified, all columns are returned.
+	 */
+	public void setColumns(int... columnIndexes) {
+		record.setColumns((columnIndexes == null || columnIndexes.length == 0) ? null : columnIndexes.clone());
+	}
+
+	/**
+	 * Advances to the next record
+	 * 
+	 * @return the reusable record, now positioned on the next line, or null if there are no more
+	 *         lines. The record is only valid until the next call to this method.
+	 * @throws IOException
+	 */
+	public DelimitedRecord nextRecord() throws IOException {
+		LineView line = lineReader.nextLine();
+		if (line == null) {
+			return null;
+		}
+		record.set(line);
+		return record;
+	}
+
+	/**
+	 * Passes each remaining record to the input handler
+	 * 
+	 * @param handler
+	 * @throws IOException
+	 *             if an error occurs while reading or handling a record
+	 */
+	public void readRecords(DelimitedRecordHandler handler) throws IOException {
+		DelimitedRecord nextRecord;
+		while ((nextRecord = nextRecord()) != null) {
+			handler.handleRecord(nextRecord);
+		}
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		lineReader.close();
+	}
+
+}
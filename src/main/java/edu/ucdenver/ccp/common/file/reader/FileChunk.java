@@ -0,0 +1,146 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Describes a contiguous region of a file that begins at the start of a line and ends immediately
+ * after a line terminator (or at the end of the file). Along with its byte range, a chunk records
+ * the line number, character offset and code point offset of its first line so that the lines it
+ * contains can be read independently of the rest of the file. See {@link FileChunkSplitter}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class FileChunk {
+
+	/**
+	 * The byte offset of the first byte of the chunk
+	 */
+	private final long startByteOffset;
+
+	/**
+	 * The byte offset one past the last byte of the chunk
+	 */
+	private final long endByteOffset;
+
+	/**
+	 * The line number of the first line in the chunk
+	 */
+	private final long lineNumber;
+
+	/**
+	 * The number of characters in the file that precede the chunk
+	 */
+	private final long characterOffset;
+
+	/**
+	 * The number of code points in the file that precede the chunk
+	 */
+	private final long codePointOffset;
+
+	/**
+	 * Initializes a new {@link FileChunk}
+	 * 
+	 * @param startByteOffset
+	 *            the byte offset of the first byte of the chunk
+	 * @param endByteOffset
+	 *            the byte offset one past the last byte of the chunk
+	 * @param lineNumber
+	 *            the line number of the first line in the chunk
+	 * @param characterOffset
+	 *            the number of characters in the file that precede the chunk
+	 * @param codePointOffset
+	 *            the number of code points in the file that precede the chunk
+	 */
+	public FileChunk(long startByteOffset, long endByteOffset, long lineNumber, long characterOffset,
+			long codePointOffset) {
+		this.startByteOffset = startByteOffset;
+		this.endByteOffset = endByteOffset;
+		this.lineNumber = lineNumber;
+		this.characterOffset = characterOffset;
+		this.codePointOffset = codePointOffset;
+	}
+
+	/**
+	 * @return the byte offset of the first byte of the chunk
+	 */
+	public long getStartByteOffset() {
+		return startByteOffset;
+	}
+
+	/**
+	 * @return the byte offset one past the last byte of the chunk
+	 */
+	public long getEndByteOffset() {
+		return endByteOffset;
+	}
+
+	/**
+	 * @return the number of bytes in the chunk
+	 */
+	public long getByteLength() {
+		return endByteOffset - startByteOffset;
+	}
+
+	/**
+	 * @return the line number of the first line in the chunk
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the number of characters in the file that precede the chunk
+	 */
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+	/**
+	 * @return the number of code points in the file that precede the chunk
+	 */
+	public long getCodePointOffset() {
+		return codePointOffset;
+	}
+
+	/**
+	 * Returns a string representation of this chunk
+	 */
+	@Override
+	public String toString() {
+		return String.format("(Chunk bytes:[%d,%d) Line:%d Offset:%d)", startByteOffset, endByteOffset, lineNumber,
+				characterOffset);
+	}
+
+}
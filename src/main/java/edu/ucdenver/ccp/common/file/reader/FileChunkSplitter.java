@@ -0,0 +1,256 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Utility for dividing a file into {@link FileChunk}s that are aligned to line boundaries so that
+ * the chunks can be read concurrently, e.g. by a {@link MappedLineReader} per chunk.
+ * <p>
+ * Chunks are found by moving approximately evenly-spaced byte offsets forward to the next line
+ * boundary, which only reads a few bytes per chunk. {@link #splitAtLineBoundaries(File, int)} stops
+ * there: the line numbers and character and code point offsets of the chunks it returns are zero,
+ * so lines read from a chunk are numbered relative to the chunk, while their byte offsets remain
+ * relative to the file. {@link #split(File, CharacterEncoding, int, ForkJoinPool)} additionally
+ * counts the line terminators, characters and code points in each chunk in parallel by scanning the
+ * raw bytes (no decoding is required). Running totals of these counts give each chunk the line
+ * number and offsets of its first line, so that lines read from any chunk carry the same line
+ * numbers and offsets as they would if the whole file had been read sequentially. The counting pass
+ * reads the whole file before any chunk is processed, so it should only be used when numbering
+ * relative to the file is required.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class FileChunkSplitter {
+
+	/**
+	 * The size (in bytes) of the segments mapped when counting the content of a chunk
+	 */
+	private static final int COUNT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private FileChunkSplitter() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Splits the input file into approximately <code>chunkCount</code> line-aligned chunks using
+	 * the common {@link ForkJoinPool} to count the content of each chunk
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param chunkCount
+	 * @return the chunks in file order
+	 * @throws IOException
+	 */
+	public static List<FileChunk> split(File file, CharacterEncoding encoding, int chunkCount) throws IOException {
+		return split(file, encoding, chunkCount, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Splits the input file into at most <code>chunkCount</code> line-aligned chunks numbered
+	 * relative to the beginning of the file. Fewer chunks are returned if the file contains lines
+	 * longer than the target chunk size.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param chunkCount
+	 *            the desired number of chunks
+	 * @param pool
+	 *            the pool used to count the content of the chunks
+	 * @return the chunks in file order
+	 * @throws IOException
+	 */
+	public static List<FileChunk> split(File file, final CharacterEncoding encoding, int chunkCount,
+			ForkJoinPool pool) throws IOException {
+		if (chunkCount < 1) {
+			throw new IllegalArgumentException("Chunk count must be positive but was: " + chunkCount);
+		}
+		final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			final List<Long> boundaries = findLineBoundaries(channel, chunkCount);
+			List<ForkJoinTask<long[]>> counts = new ArrayList<ForkJoinTask<long[]>>();
+			for (int i = 0; i < boundaries.size() - 1; i++) {
+				final long start = boundaries.get(i);
+				final long end = boundaries.get(i + 1);
+				counts.add(pool.submit(new Callable<long[]>() {
+					@Override
+					public long[] call() throws IOException {
+						return count(channel, encoding, start, end);
+					}
+				}));
+			}
+			List<FileChunk> chunks = new ArrayList<FileChunk>(counts.size());
+			long lineNumber = 0;
+			long characterOffset = 0;
+			long codePointOffset = 0;
+			int index = 0;
+			for (long[] count : ParallelLineProcessor.getResults(counts)) {
+				chunks.add(new FileChunk(boundaries.get(index), boundaries.get(index + 1), lineNumber,
+						characterOffset, codePointOffset));
+				lineNumber += count[0];
+				characterOffset += count[1];
+				codePointOffset += count[2];
+				index++;
+			}
+			return chunks;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Splits the input file into at most <code>chunkCount</code> line-aligned chunks without
+	 * counting their content. The line number, character offset and code point offset of each chunk
+	 * are zero, i.e. lines read from a chunk are numbered relative to the beginning of the chunk.
+	 * Fewer chunks are returned if the file contains lines longer than the target chunk size.
+	 * 
+	 * @param file
+	 * @param chunkCount
+	 *            the desired number of chunks
+	 * @return the chunks in file order
+	 * @throws IOException
+	 */
+	public static List<FileChunk> splitAtLineBoundaries(File file, int chunkCount) throws IOException {
+		if (chunkCount < 1) {
+			throw new IllegalArgumentException("Chunk count must be positive but was: " + chunkCount);
+		}
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			List<Long> boundaries = findLineBoundaries(channel, chunkCount);
+			List<FileChunk> chunks = new ArrayList<FileChunk>(boundaries.size() - 1);
+			for (int i = 0; i < boundaries.size() - 1; i++) {
+				chunks.add(new FileChunk(boundaries.get(i), boundaries.get(i + 1), 0, 0, 0));
+			}
+			return chunks;
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return the start offsets of each chunk followed by the size of the file
+	 * @throws IOException
+	 */
+	private static List<Long> findLineBoundaries(FileChannel channel, int chunkCount) throws IOException {
+		long size = channel.size();
+		long targetChunkSize = Math.max(1, (size + chunkCount - 1) / chunkCount);
+		List<Long> boundaries = new ArrayList<Long>();
+		boundaries.add(0L);
+		long previous = 0;
+		for (int i = 1; i < chunkCount; i++) {
+			long candidate = i * targetChunkSize;
+			if (candidate >= size) {
+				break;
+			}
+			if (candidate <= previous) {
+				continue;
+			}
+			long boundary = nextLineBoundary(channel, candidate, size);
+			if (boundary >= size) {
+				break;
+			}
+			boundaries.add(boundary);
+			previous = boundary;
+		}
+		boundaries.add(size);
+		return boundaries;
+	}
+
+	/**
+	 * @return the offset of the first line that starts at or after the input offset, or the size
+	 *         of the file if there is none
+	 * @throws IOException
+	 */
+	private static long nextLineBoundary(FileChannel channel, long offset, long size) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8192);
+		/* start one byte early; the offset is a boundary if it follows a terminator */
+		long position = offset - 1;
+		boolean previousCR = false;
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (previousCR) {
+					return (b == '\n') ? position + i + 1 : position + i;
+				}
+				if (b == '\n') {
+					return position + i + 1;
+				}
+				previousCR = (b == '\r');
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * Counts the line terminators, characters and code points in the specified byte range
+	 * 
+	 * @return {lines, characters, code points}
+	 * @throws IOException
+	 */
+	private static long[] count(FileChannel channel, CharacterEncoding encoding, long start, long end)
+			throws IOException {
+		LineCounter counter = new LineCounter(encoding, start, null);
+		for (long position = start; position < end; position += COUNT_SEGMENT_SIZE) {
+			int length = (int) Math.min(COUNT_SEGMENT_SIZE, end - position);
+			counter.count(channel.map(MapMode.READ_ONLY, position, length));
+		}
+		counter.finish();
+		return new long[] { counter.getLineCount(), counter.getCharacterCount(), counter.getCodePointCount() };
+	}
+
+}
@@ -0,0 +1,265 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A <code>Spliterator</code> over the lines of an uncompressed local file. The file is read as a
+ * sequence of line-aligned {@link FileChunk}s, each by its own {@link MappedLineReader}, and splits
+ * divide the remaining chunks in half. Line numbers and offsets are relative to the beginning of the
+ * file regardless of how the file was split.
+ * <p>
+ * When the chunks come from a {@link LineIndex} the number of lines in each chunk is known and the
+ * spliterator is {@link #SIZED} and {@link #SUBSIZED}. Otherwise the file is only divided into
+ * chunks (by the {@link FileChunkSplitter}) the first time a split is requested, so sequential
+ * traversal does not pay for counting the content of the file.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+class FileLineSpliterator implements Spliterator<Line> {
+
+	private final File file;
+	private final CharacterEncoding encoding;
+
+	/**
+	 * The readers opened by this spliterator and the spliterators split from it that have not been
+	 * closed yet
+	 */
+	private final Queue<MappedLineReader> openReaders;
+
+	/**
+	 * The chunks of the file; only the chunks from index <code>from</code> (inclusive) to
+	 * <code>to</code> (exclusive) belong to this spliterator
+	 */
+	private List<FileChunk> chunks;
+	private int from;
+	private int to;
+
+	/**
+	 * The number of lines in the file, or -1 if unknown
+	 */
+	private final long lineCount;
+
+	/**
+	 * True if the chunk list consists of a single chunk spanning the whole file that has not been
+	 * divided yet
+	 */
+	private boolean undivided;
+
+	/**
+	 * The reader of the chunk at index <code>from</code>, null if reading has not started
+	 */
+	private MappedLineReader reader;
+
+	/**
+	 * The number of lines returned from the chunk at index <code>from</code>
+	 */
+	private long linesReadFromChunk = 0;
+
+	/**
+	 * Initializes a spliterator over a file that has not been divided into chunks
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param openReaders
+	 */
+	FileLineSpliterator(File file, CharacterEncoding encoding, Queue<MappedLineReader> openReaders) {
+		this(file, encoding, openReaders, (file.length() == 0) ? Collections.<FileChunk> emptyList() : Collections
+				.singletonList(new FileChunk(0, file.length(), 0, 0, 0)), -1);
+		this.undivided = !chunks.isEmpty();
+	}
+
+	/**
+	 * Initializes a spliterator over the lines of the input chunks
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param openReaders
+	 * @param chunks
+	 *            line-aligned chunks covering the whole file
+	 * @param lineCount
+	 *            the number of lines in the file, or -1 if unknown
+	 */
+	FileLineSpliterator(File file, CharacterEncoding encoding, Queue<MappedLineReader> openReaders,
+			List<FileChunk> chunks, long lineCount) {
+		this(file, encoding, openReaders, chunks, 0, chunks.size(), lineCount);
+	}
+
+	private FileLineSpliterator(File file, CharacterEncoding encoding, Queue<MappedLineReader> openReaders,
+			List<FileChunk> chunks, int from, int to, long lineCount) {
+		this.file = file;
+		this.encoding = encoding;
+		this.openReaders = openReaders;
+		this.chunks = chunks;
+		this.from = from;
+		this.to = to;
+		this.lineCount = lineCount;
+	}
+
+	/**
+	 * @return a new queue suitable for tracking the readers opened by a spliterator
+	 */
+	static Queue<MappedLineReader> createReaderQueue() {
+		return new ConcurrentLinkedQueue<MappedLineReader>();
+	}
+
+	/**
+	 * Closes the input readers; used to release the readers of a stream that was not traversed
+	 * completely
+	 * 
+	 * @param openReaders
+	 */
+	static void closeReaders(Queue<MappedLineReader> openReaders) {
+		IOException exception = null;
+		MappedLineReader reader;
+		while ((reader = openReaders.poll()) != null) {
+			try {
+				reader.close();
+			} catch (IOException e) {
+				exception = e;
+			}
+		}
+		if (exception != null) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super Line> action) {
+		try {
+			while (from < to) {
+				if (reader == null) {
+					reader = new MappedLineReader(file, encoding, null, MappedLineReader.DEFAULT_SEGMENT_SIZE,
+							chunks.get(from));
+					openReaders.add(reader);
+				}
+				Line line = reader.readLine();
+				if (line != null) {
+					linesReadFromChunk++;
+					action.accept(line);
+					return true;
+				}
+				openReaders.remove(reader);
+				reader.close();
+				reader = null;
+				linesReadFromChunk = 0;
+				from++;
+			}
+			return false;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Splits off the first half of the chunks that have not been started yet. A file that has not
+	 * been divided into chunks is divided first.
+	 */
+	@Override
+	public Spliterator<Line> trySplit() {
+		if (reader != null) {
+			return null;
+		}
+		if (undivided) {
+			divide();
+		}
+		int mid = (from + to) >>> 1;
+		if (mid <= from) {
+			return null;
+		}
+		FileLineSpliterator prefix = new FileLineSpliterator(file, encoding, openReaders, chunks, from, mid,
+				lineCount);
+		from = mid;
+		return prefix;
+	}
+
+	/**
+	 * Divides the file into line-aligned chunks using the {@link FileChunkSplitter}
+	 */
+	private void divide() {
+		undivided = false;
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		try {
+			chunks = FileChunkSplitter.split(file, encoding, pool.getParallelism()
+					* ParallelLineProcessor.CHUNKS_PER_THREAD, pool);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		from = 0;
+		/* the divided chunks cover the whole file, as did the single undivided chunk */
+		to = chunks.size();
+	}
+
+	/**
+	 * @return the exact number of lines remaining if the number of lines in the file is known,
+	 *         otherwise the number of bytes remaining (an upper bound on the number of lines, as
+	 *         each line occupies at least one byte)
+	 */
+	@Override
+	public long estimateSize() {
+		if (from >= to) {
+			return 0;
+		}
+		if (lineCount >= 0) {
+			long endLineNumber = (to < chunks.size()) ? chunks.get(to).getLineNumber() : lineCount;
+			return endLineNumber - chunks.get(from).getLineNumber() - linesReadFromChunk;
+		}
+		long endByteOffset = chunks.get(to - 1).getEndByteOffset();
+		long startByteOffset = (reader != null) ? reader.getByteOffset() : chunks.get(from).getStartByteOffset();
+		return endByteOffset - startByteOffset;
+	}
+
+	@Override
+	public int characteristics() {
+		int characteristics = ORDERED | NONNULL | IMMUTABLE;
+		if (lineCount >= 0) {
+			characteristics |= SIZED | SUBSIZED;
+		}
+		return characteristics;
+	}
+
+}
@@ -0,0 +1,328 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.Arrays;
+
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * A batch of consecutive lines, filled by {@link LineReader#readLines(LineBatch, int)}. Rather than
+ * holding one {@link Line} object per line, the text of all lines is stored in a single shared
+ * <code>char[]</code> (see {@link #getBuffer()}) with the start and end of each line, its
+ * terminator, line number and offsets held in parallel arrays. A batch can be reused for successive
+ * reads, in which case its arrays are only reallocated when a larger batch is read.
+ * <p>
+ * Batches are a convenient unit of work to hand to a thread pool; the lines of a batch are
+ * accessed by index, from 0 to {@link #size()} - 1.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineBatch {
+
+	private static final int DEFAULT_LINE_CAPACITY = 256;
+	private static final int DEFAULT_CHAR_CAPACITY = 16 * 1024;
+
+	/**
+	 * The text of all lines in the batch, one after the other (excluding terminators)
+	 */
+	private char[] text;
+
+	/**
+	 * The number of characters of the text buffer in use
+	 */
+	private int textLength;
+
+	/**
+	 * The number of lines in the batch
+	 */
+	private int size;
+
+	private int[] starts;
+	private int[] ends;
+	private LineTerminator[] lineTerminators;
+	private long[] lineNumbers;
+	private long[] characterOffsets;
+	private long[] codePointOffsets;
+	private long[] byteOffsets;
+
+	/**
+	 * Initializes an empty <code>LineBatch</code>
+	 */
+	public LineBatch() {
+		this(DEFAULT_LINE_CAPACITY, DEFAULT_CHAR_CAPACITY);
+	}
+
+	/**
+	 * Initializes an empty <code>LineBatch</code> with the specified initial capacity
+	 * 
+	 * @param lineCapacity
+	 *            the number of lines that can be added before the line arrays are enlarged
+	 * @param charCapacity
+	 *            the number of characters that can be added before the text buffer is enlarged
+	 */
+	public LineBatch(int lineCapacity, int charCapacity) {
+		lineCapacity = Math.max(lineCapacity, 1);
+		text = new char[Math.max(charCapacity, 1)];
+		starts = new int[lineCapacity];
+		ends = new int[lineCapacity];
+		lineTerminators = new LineTerminator[lineCapacity];
+		lineNumbers = new long[lineCapacity];
+		characterOffsets = new long[lineCapacity];
+		codePointOffsets = new long[lineCapacity];
+		byteOffsets = new long[lineCapacity];
+	}
+
+	/**
+	 * Removes all lines from the batch; the arrays are retained for reuse
+	 */
+	public void clear() {
+		size = 0;
+		textLength = 0;
+	}
+
+	/**
+	 * Appends a copy of the input line to the batch
+	 * 
+	 * @param line
+	 */
+	void add(Line line) {
+		String lineText = line.getText();
+		int length = lineText.length();
+		int start = reserve(length);
+		lineText.getChars(0, length, text, start);
+		setLine(start, length, line.getLineTerminator(), line.getLineNumber(), line.getCharacterOffset(),
+				line.getCodePointOffset(), line.getByteOffset());
+	}
+
+	/**
+	 * Appends a line whose text is copied from the input buffer
+	 * 
+	 * @param buffer
+	 * @param offset
+	 *            the index in the buffer of the first character of the line
+	 * @param length
+	 *            the number of characters in the line (excluding the terminator)
+	 */
+	void add(char[] buffer, int offset, int length, LineTerminator lineTerminator, long lineNumber,
+			long characterOffset, long codePointOffset, long byteOffset) {
+		int start = reserve(length);
+		System.arraycopy(buffer, offset, text, start, length);
+		setLine(start, length, lineTerminator, lineNumber, characterOffset, codePointOffset, byteOffset);
+	}
+
+	/**
+	 * Ensures there is room for another line of the specified length
+	 * 
+	 * @return the index in the text buffer at which the line is to be stored
+	 */
+	private int reserve(int length) {
+		if (textLength + length > text.length) {
+			text = Arrays.copyOf(text, Math.max(textLength + length, text.length * 2));
+		}
+		if (size == starts.length) {
+			int capacity = size * 2;
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+			lineTerminators = Arrays.copyOf(lineTerminators, capacity);
+			lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+			characterOffsets = Arrays.copyOf(characterOffsets, capacity);
+			codePointOffsets = Arrays.copyOf(codePointOffsets, capacity);
+			byteOffsets = Arrays.copyOf(byteOffsets, capacity);
+		}
+		return textLength;
+	}
+
+	private void setLine(int start, int length, LineTerminator lineTerminator, long lineNumber,
+			long characterOffset, long codePointOffset, long byteOffset) {
+		textLength += length;
+		starts[size] = start;
+		ends[size] = start + length;
+		lineTerminators[size] = lineTerminator;
+		lineNumbers[size] = lineNumber;
+		characterOffsets[size] = characterOffset;
+		codePointOffsets[size] = codePointOffset;
+		byteOffsets[size] = byteOffset;
+		size++;
+	}
+
+	/**
+	 * @return the number of lines in the batch
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if the batch contains no lines
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * @return the buffer holding the text of all lines in the batch; the text of line
+	 *         <code>i</code> occupies the indexes from {@link #getStart(int)} (inclusive) to
+	 *         {@link #getEnd(int)} (exclusive). The buffer may be replaced when lines are added.
+	 */
+	public char[] getBuffer() {
+		return text;
+	}
+
+	/**
+	 * @param index
+	 * @return the index in the buffer of the first character of the line
+	 */
+	public int getStart(int index) {
+		checkIndex(index);
+		return starts[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the index in the buffer one past the last character of the line
+	 */
+	public int getEnd(int index) {
+		checkIndex(index);
+		return ends[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the number of characters in the line (excluding its terminator)
+	 */
+	public int getLength(int index) {
+		checkIndex(index);
+		return ends[index] - starts[index];
+	}
+
+	/**
+	 * @param index
+	 * @return a new String containing the text of the line
+	 */
+	public String getText(int index) {
+		checkIndex(index);
+		return new String(text, starts[index], ends[index] - starts[index]);
+	}
+
+	/**
+	 * @param index
+	 * @return the terminator of the line
+	 */
+	public LineTerminator getLineTerminator(int index) {
+		checkIndex(index);
+		return lineTerminators[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the line number of the line
+	 */
+	public long getLineNumber(int index) {
+		checkIndex(index);
+		return lineNumbers[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the character offset of the line, see {@link Line#getCharacterOffset()}
+	 */
+	public long getCharacterOffset(int index) {
+		checkIndex(index);
+		return characterOffsets[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the code point offset of the line, see {@link Line#getCodePointOffset()}
+	 */
+	public long getCodePointOffset(int index) {
+		checkIndex(index);
+		return codePointOffsets[index];
+	}
+
+	/**
+	 * @param index
+	 * @return the byte offset of the line, see {@link Line#getByteOffset()}
+	 */
+	public long getByteOffset(int index) {
+		checkIndex(index);
+		return byteOffsets[index];
+	}
+
+	/**
+	 * @param index
+	 * @return a new {@link Line} equivalent to the line at the input index
+	 */
+	public Line getLine(int index) {
+		return new Line(getText(index), lineTerminators[index], characterOffsets[index], codePointOffsets[index],
+				lineNumbers[index], byteOffsets[index]);
+	}
+
+	/**
+	 * Returns a new {@link LineView} of the line at the input index, without copying its text. The
+	 * view is valid until this batch is cleared or refilled; it can then be reused with
+	 * {@link #getLineView(int, LineView)}.
+	 * 
+	 * @param index
+	 * @return a view of the line
+	 */
+	public LineView getLineView(int index) {
+		return getLineView(index, new LineView());
+	}
+
+	/**
+	 * Points the input {@link LineView} at the line at the input index, without copying its text.
+	 * The view is valid until this batch is cleared or refilled.
+	 * 
+	 * @param index
+	 * @param view
+	 *            the view to reuse, e.g. one returned by {@link #getLineView(int)}
+	 * @return the input view
+	 */
+	public LineView getLineView(int index, LineView view) {
+		checkIndex(index);
+		view.set(text, starts[index], ends[index], lineTerminators[index], lineNumbers[index],
+				characterOffsets[index]);
+		return view;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException(String.format("Index: %d, batch size: %d", index, size));
+		}
+	}
+
+}
@@ -0,0 +1,204 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Counts lines, characters and code points by scanning raw bytes, without decoding them. Bytes are
+ * supplied in order through one or more calls to {@link #count(ByteBuffer)}, followed by a call to
+ * {@link #finish()}. Counts match those that would be accumulated by a {@link LineReader} reading
+ * the same bytes.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+class LineCounter {
+
+	/**
+	 * Notified each time a new line starts
+	 */
+	static interface LineStartListener {
+		/**
+		 * Called when a line terminator has been consumed
+		 * 
+		 * @param lineNumber
+		 *            the number of the line that starts at the byte offset
+		 * @param byteOffset
+		 *            the byte offset of the first byte of the new line. Equals the end of the input
+		 *            if the input ends with a line terminator.
+		 * @param characterOffset
+		 *            the number of characters preceding the new line
+		 * @param codePointOffset
+		 *            the number of code points preceding the new line
+		 * @throws IOException
+		 */
+		void lineStarted(long lineNumber, long byteOffset, long characterOffset, long codePointOffset)
+				throws IOException;
+	}
+
+	/**
+	 * true if characters must be counted as UTF-8; all other supported encodings use one byte per
+	 * character
+	 */
+	private final boolean utf8;
+
+	/**
+	 * Notified when lines start, may be null
+	 */
+	private final LineStartListener listener;
+
+	/**
+	 * The byte offset of the next byte to be counted
+	 */
+	private long byteOffset;
+
+	/**
+	 * The number of line terminators counted
+	 */
+	private long lineCount = 0;
+
+	/**
+	 * The number of characters counted
+	 */
+	private long characterCount = 0;
+
+	/**
+	 * The number of code points counted
+	 */
+	private long codePointCount = 0;
+
+	/**
+	 * true if the last byte counted was a CR
+	 */
+	private boolean previousCR = false;
+
+	/**
+	 * @param encoding
+	 *            the encoding of the bytes
+	 * @param startByteOffset
+	 *            the byte offset of the first byte to be counted
+	 * @param listener
+	 *            notified when lines start, may be null
+	 */
+	LineCounter(CharacterEncoding encoding, long startByteOffset, LineStartListener listener) {
+		this.utf8 = (encoding == CharacterEncoding.UTF_8);
+		this.byteOffset = startByteOffset;
+		this.listener = listener;
+	}
+
+	/**
+	 * Counts the bytes from index 0 to the limit of the input buffer
+	 * 
+	 * @param bytes
+	 * @throws IOException
+	 *             if thrown by the listener
+	 */
+	void count(ByteBuffer bytes) throws IOException {
+		int limit = bytes.limit();
+		for (int i = 0; i < limit; i++) {
+			byte b = bytes.get(i);
+			if (previousCR && b != '\n') {
+				lineStarted();
+			}
+			if (utf8) {
+				if ((b & 0xC0) != 0x80) {
+					codePointCount++;
+					/* 4-byte sequences decode to a surrogate pair */
+					characterCount += ((b & 0xF8) == 0xF0) ? 2 : 1;
+				}
+			} else {
+				codePointCount++;
+				characterCount++;
+			}
+			byteOffset++;
+			if (b == '\n') {
+				lineStarted();
+			}
+			previousCR = (b == '\r');
+		}
+	}
+
+	/**
+	 * Completes counting; a trailing CR is counted as a line terminator
+	 * 
+	 * @throws IOException
+	 *             if thrown by the listener
+	 */
+	void finish() throws IOException {
+		if (previousCR) {
+			lineStarted();
+			previousCR = false;
+		}
+	}
+
+	private void lineStarted() throws IOException {
+		lineCount++;
+		if (listener != null) {
+			listener.lineStarted(lineCount, byteOffset, characterCount, codePointCount);
+		}
+	}
+
+	/**
+	 * @return the number of line terminators counted
+	 */
+	long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the number of characters counted
+	 */
+	long getCharacterCount() {
+		return characterCount;
+	}
+
+	/**
+	 * @return the number of code points counted
+	 */
+	long getCodePointCount() {
+		return codePointCount;
+	}
+
+	/**
+	 * @return the byte offset of the next byte to be counted
+	 */
+	long getByteOffset() {
+		return byteOffset;
+	}
+
+}
@@ -0,0 +1,496 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.collections.LongColumn;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream.SyncPolicy;
+
+/**
+ * A sparse index of the lines in a file. The byte offset (along with the character and code point
+ * offsets) of every Nth line is recorded so that reading can begin close to any requested line or
+ * byte offset rather than at the beginning of the file. At most N-1 lines need to be read to reach
+ * a requested line, regardless of the size of the file.
+ * <p>
+ * An index is built with a single pass over the raw bytes of the file and can be persisted as a
+ * sidecar file next to the data file (see {@link #getSidecarFile(File)} and
+ * {@link #loadOrBuild(File, CharacterEncoding, int)}). The size and last-modified time of the data
+ * file are stored with the index so that stale sidecar files are detected and rebuilt.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineIndex {
+
+	private static final Logger logger = Logger.getLogger(LineIndex.class);
+
+	/**
+	 * The suffix appended to the name of a data file to create the name of its index sidecar file
+	 */
+	public static final String SIDECAR_SUFFIX = ".lidx";
+
+	/**
+	 * The default number of lines between indexed lines
+	 */
+	public static final int DEFAULT_INTERVAL = 1024;
+
+	/**
+	 * Identifies a sidecar file
+	 */
+	private static final int MAGIC = 0x4c494458;
+
+	/**
+	 * The version of the sidecar file format
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The size (in bytes) of the segments mapped while building an index
+	 */
+	private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/**
+	 * The encoding used to compute character and code point offsets
+	 */
+	private final CharacterEncoding encoding;
+
+	/**
+	 * The number of lines between indexed lines
+	 */
+	private final int interval;
+
+	/**
+	 * The size of the data file when it was indexed
+	 */
+	private final long fileSize;
+
+	/**
+	 * The last-modified time of the data file when it was indexed
+	 */
+	private final long fileLastModified;
+
+	/**
+	 * The number of lines in the data file
+	 */
+	private final long lineCount;
+
+	/**
+	 * The byte offsets of lines 0, N, 2N, ...
+	 */
+	private final long[] byteOffsets;
+
+	/**
+	 * The character offsets of lines 0, N, 2N, ...
+	 */
+	private final long[] characterOffsets;
+
+	/**
+	 * The code point offsets of lines 0, N, 2N, ...
+	 */
+	private final long[] codePointOffsets;
+
+	/**
+	 * Private constructor; indexes are created by {@link #build(File, CharacterEncoding, int)} or
+	 * {@link #load(File)}
+	 */
+	private LineIndex(CharacterEncoding encoding, int interval, long fileSize, long fileLastModified,
+			long lineCount, long[] byteOffsets, long[] characterOffsets, long[] codePointOffsets) {
+		this.encoding = encoding;
+		this.interval = interval;
+		this.fileSize = fileSize;
+		this.fileLastModified = fileLastModified;
+		this.lineCount = lineCount;
+		this.byteOffsets = byteOffsets;
+		this.characterOffsets = characterOffsets;
+		this.codePointOffsets = codePointOffsets;
+	}
+
+	/**
+	 * Builds an index of the input file
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param interval
+	 *            the number of lines between indexed lines
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static LineIndex build(File file, CharacterEncoding encoding, final int interval) throws IOException {
+		if (interval < 1) {
+			throw new IllegalArgumentException("Interval must be positive but was: " + interval);
+		}
+		long lastModified = file.lastModified();
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			final long size = channel.size();
+			final LongColumn bytes = new LongColumn();
+			final LongColumn chars = new LongColumn();
+			final LongColumn codePoints = new LongColumn();
+			if (size > 0) {
+				bytes.add(0);
+				chars.add(0);
+				codePoints.add(0);
+			}
+			LineCounter counter = new LineCounter(encoding, 0, new LineCounter.LineStartListener() {
+				@Override
+				public void lineStarted(long lineNumber, long byteOffset, long characterOffset, long codePointOffset) {
+					if (lineNumber % interval == 0 && byteOffset < size) {
+						bytes.add(byteOffset);
+						chars.add(characterOffset);
+						codePoints.add(codePointOffset);
+					}
+				}
+			});
+			for (long position = 0; position < size; position += SEGMENT_SIZE) {
+				counter.count(channel.map(MapMode.READ_ONLY, position, Math.min(SEGMENT_SIZE, size - position)));
+			}
+			counter.finish();
+			long lineCount = counter.getLineCount();
+			if (size > 0 && lastByteIsNotTerminator(channel, size)) {
+				/* the final line has no terminator */
+				lineCount++;
+			}
+			return new LineIndex(encoding, interval, size, lastModified, lineCount, bytes.toArray(), chars.toArray(),
+					codePoints.toArray());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * @return true if the last byte of the file is neither a CR nor a LF
+	 */
+	private static boolean lastByteIsNotTerminator(FileChannel channel, long size) throws IOException {
+		ByteBuffer lastByte = ByteBuffer.allocate(1);
+		channel.read(lastByte, size - 1);
+		byte b = lastByte.get(0);
+		return b != '\n' && b != '\r';
+	}
+
+	/**
+	 * @param dataFile
+	 * @return the sidecar file used to persist the index of the input data file
+	 */
+	public static File getSidecarFile(File dataFile) {
+		return new File(dataFile.getPath() + SIDECAR_SUFFIX);
+	}
+
+	/**
+	 * Returns the index of the input data file, loading it from the sidecar file if a current index
+	 * with the requested interval and encoding exists there, otherwise building the index and
+	 * saving it to the sidecar file.
+	 * 
+	 * @param dataFile
+	 * @param encoding
+	 * @param interval
+	 * @return the index
+	 * @throws IOException
+	 */
+	public static LineIndex loadOrBuild(File dataFile, CharacterEncoding encoding, int interval) throws IOException {
+		File sidecarFile = getSidecarFile(dataFile);
+		if (sidecarFile.exists()) {
+			try {
+				LineIndex index = load(sidecarFile);
+				if (index.isCurrent(dataFile) && index.encoding == encoding && index.interval == interval) {
+					return index;
+				}
+			} catch (IOException e) {
+				logger.warn("Unable to load line index, rebuilding: " + sidecarFile.getAbsolutePath(), e);
+			}
+		}
+		LineIndex index = build(dataFile, encoding, interval);
+		index.save(sidecarFile);
+		return index;
+	}
+
+	/**
+	 * Loads an index from a sidecar file
+	 * 
+	 * @param sidecarFile
+	 * @return the index
+	 * @throws IOException
+	 *             if the file cannot be read or is not a line index
+	 */
+	public static LineIndex load(File sidecarFile) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecarFile)));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Not a line index file: " + sidecarFile.getAbsolutePath());
+			}
+			CharacterEncoding encoding = CharacterEncoding.valueOf(in.readUTF());
+			int interval = in.readInt();
+			long fileSize = in.readLong();
+			long fileLastModified = in.readLong();
+			long lineCount = in.readLong();
+			int entryCount = in.readInt();
+			long[] byteOffsets = new long[entryCount];
+			long[] characterOffsets = new long[entryCount];
+			long[] codePointOffsets = new long[entryCount];
+			for (int i = 0; i < entryCount; i++) {
+				byteOffsets[i] = in.readLong();
+				characterOffsets[i] = in.readLong();
+				codePointOffsets[i] = in.readLong();
+			}
+			return new LineIndex(encoding, interval, fileSize, fileLastModified, lineCount, byteOffsets,
+					characterOffsets, codePointOffsets);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Saves this index to a sidecar file. The index is written to a temporary file that then
+	 * replaces the sidecar file (see {@link AtomicFileOutputStream}), so a save that is interrupted
+	 * never leaves a partially written index behind.
+	 * 
+	 * @param sidecarFile
+	 * @throws IOException
+	 */
+	public void save(File sidecarFile) throws IOException {
+		AtomicFileOutputStream fileStream = new AtomicFileOutputStream(sidecarFile, SyncPolicy.NO_SYNC);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream.getContentStream()));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeUTF(encoding.name());
+			out.writeInt(interval);
+			out.writeLong(fileSize);
+			out.writeLong(fileLastModified);
+			out.writeLong(lineCount);
+			out.writeInt(byteOffsets.length);
+			for (int i = 0; i < byteOffsets.length; i++) {
+				out.writeLong(byteOffsets[i]);
+				out.writeLong(characterOffsets[i]);
+				out.writeLong(codePointOffsets[i]);
+			}
+			out.close();
+		} catch (IOException e) {
+			fileStream.abort();
+			throw e;
+		} catch (RuntimeException e) {
+			fileStream.abort();
+			throw e;
+		}
+		fileStream.close();
+	}
+
+	/**
+	 * @param dataFile
+	 * @return true if the size and last-modified time of the input file match those recorded when
+	 *         this index was built
+	 */
+	public boolean isCurrent(File dataFile) {
+		return dataFile.length() == fileSize && dataFile.lastModified() == fileLastModified;
+	}
+
+	/**
+	 * @return the number of lines in the indexed file
+	 */
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	/**
+	 * @return the number of lines between indexed lines
+	 */
+	public int getInterval() {
+		return interval;
+	}
+
+	/**
+	 * @return the encoding used to compute character and code point offsets
+	 */
+	public CharacterEncoding getEncoding() {
+		return encoding;
+	}
+
+	/**
+	 * @param lineNumber
+	 * @return the region of the file from the closest indexed line at or before the input line to
+	 *         the end of the file
+	 */
+	public FileChunk getChunkForLine(long lineNumber) {
+		if (lineNumber < 0 || lineNumber >= lineCount) {
+			throw new IndexOutOfBoundsException(String.format("Line %d does not exist. The file contains %d lines.",
+					lineNumber, lineCount));
+		}
+		return getChunk((int) (lineNumber / interval));
+	}
+
+	/**
+	 * @param byteOffset
+	 * @return the region of the file from the closest indexed line starting at or before the input
+	 *         byte offset to the end of the file
+	 */
+	public FileChunk getChunkForByteOffset(long byteOffset) {
+		if (byteOffset < 0 || byteOffset >= fileSize) {
+			throw new IndexOutOfBoundsException(String.format(
+					"Byte offset %d is outside of the file, which contains %d bytes.", byteOffset, fileSize));
+		}
+		int entry = Arrays.binarySearch(byteOffsets, byteOffset);
+		return getChunk((entry >= 0) ? entry : -entry - 2);
+	}
+
+	/**
+	 * Divides the indexed file into at most <code>maxChunkCount</code> line-aligned chunks of
+	 * approximately equal numbers of lines. Unlike {@link FileChunkSplitter}, the file does not need
+	 * to be read to compute the offsets of the chunks.
+	 * 
+	 * @param maxChunkCount
+	 * @return the chunks in file order; an empty list if the file is empty
+	 */
+	public List<FileChunk> getChunks(int maxChunkCount) {
+		if (maxChunkCount < 1) {
+			throw new IllegalArgumentException("Chunk count must be positive but was: " + maxChunkCount);
+		}
+		int entryCount = byteOffsets.length;
+		int chunkCount = Math.min(maxChunkCount, entryCount);
+		List<FileChunk> chunks = new ArrayList<FileChunk>(chunkCount);
+		for (int i = 0; i < chunkCount; i++) {
+			int firstEntry = (int) ((long) i * entryCount / chunkCount);
+			int endEntry = (int) ((long) (i + 1) * entryCount / chunkCount);
+			long endByteOffset = (endEntry < entryCount) ? byteOffsets[endEntry] : fileSize;
+			chunks.add(new FileChunk(byteOffsets[firstEntry], endByteOffset, (long) firstEntry * interval,
+					characterOffsets[firstEntry], codePointOffsets[firstEntry]));
+		}
+		return chunks;
+	}
+
+	private FileChunk getChunk(int entry) {
+		return new FileChunk(byteOffsets[entry], fileSize, (long) entry * interval, characterOffsets[entry],
+				codePointOffsets[entry]);
+	}
+
+	/**
+	 * Opens a reader positioned so that the next line it returns is the requested line
+	 * 
+	 * @param dataFile
+	 *            the indexed file
+	 * @param lineNumber
+	 * @return a reader whose next line is the requested line
+	 * @throws IOException
+	 */
+	public MappedLineReader openReaderAtLine(File dataFile, long lineNumber) throws IOException {
+		FileChunk chunk = getChunkForLine(lineNumber);
+		MappedLineReader reader = new MappedLineReader(dataFile, encoding, null,
+				MappedLineReader.DEFAULT_SEGMENT_SIZE, chunk);
+		try {
+			for (long i = chunk.getLineNumber(); i < lineNumber; i++) {
+				reader.readLine();
+			}
+		} catch (IOException e) {
+			IOUtils.closeQuietly(reader);
+			throw e;
+		} catch (RuntimeException e) {
+			IOUtils.closeQuietly(reader);
+			throw e;
+		}
+		return reader;
+	}
+
+	/**
+	 * Opens a reader positioned so that the next line it returns is the first line that starts at
+	 * or after the input byte offset
+	 * 
+	 * @param dataFile
+	 *            the indexed file
+	 * @param byteOffset
+	 * @return a reader whose next line is the first line starting at or after the byte offset
+	 * @throws IOException
+	 */
+	public MappedLineReader openReaderAtByteOffset(File dataFile, long byteOffset) throws IOException {
+		FileChunk chunk = getChunkForByteOffset(byteOffset);
+		MappedLineReader reader = new MappedLineReader(dataFile, encoding, null,
+				MappedLineReader.DEFAULT_SEGMENT_SIZE, chunk);
+		try {
+			while (reader.getByteOffset() < byteOffset && reader.readLine() != null) {
+				continue;
+			}
+		} catch (IOException e) {
+			IOUtils.closeQuietly(reader);
+			throw e;
+		} catch (RuntimeException e) {
+			IOUtils.closeQuietly(reader);
+			throw e;
+		}
+		return reader;
+	}
+
+	/**
+	 * Returns a range of lines from the indexed file
+	 * 
+	 * @param dataFile
+	 *            the indexed file
+	 * @param firstLineNumber
+	 *            the number of the first line to return
+	 * @param count
+	 *            the maximum number of lines to return
+	 * @return the requested lines; fewer than <code>count</code> lines are returned if the end of
+	 *         the file is reached
+	 * @throws IOException
+	 */
+	public List<Line> getLines(File dataFile, long firstLineNumber, int count) throws IOException {
+		List<Line> lines = new ArrayList<Line>((int) Math.max(0, Math.min(count, lineCount - firstLineNumber)));
+		MappedLineReader reader = openReaderAtLine(dataFile, firstLineNumber);
+		try {
+			Line line;
+			while (lines.size() < count && (line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+}
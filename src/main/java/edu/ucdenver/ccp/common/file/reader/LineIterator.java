@@ -33,9 +33,14 @@ package edu.ucdenver.ccp.common.file.reader;
  * #L%
  */
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 
@@ -46,7 +51,7 @@ import edu.ucdenver.ccp.common.file.CharacterEncoding;
  * 
  * @param <T>
  */
-public abstract class LineIterator<T extends Line> implements Iterator<T> {
+public abstract class LineIterator<T extends Line> implements Iterator<T>, Closeable {
 
 	/**
 	 * Stores the next line to return
@@ -70,6 +75,16 @@ public abstract class LineIterator<T extends Line> implements Iterator<T> {
 		reader = initLineReader(fileOrStream, encoding, skipLinePrefix);
 	}
 
+	/**
+	 * Initializes a new <code>LineIterator</code> over the lines returned by the input
+	 * <code>LineReader</code>
+	 * 
+	 * @param reader
+	 */
+	protected LineIterator(LineReader<T> reader) {
+		this.reader = reader;
+	}
+
 	/**
 	 * Helper method for initializing the <code>LineReader</code>. To be implemented by subclasses
 	 * of <code>LineIterator</code>
@@ -125,7 +140,29 @@ public abstract class LineIterator<T extends Line> implements Iterator<T> {
 		throw new UnsupportedOperationException(
 				"The remove() operation is not supported by LineIterator and its subclasses.");
 	}
-	
+
+	/**
+	 * Returns a sequential <code>Stream</code> over the lines remaining in this iterator. Closing
+	 * the stream closes this iterator (and its reader), so the stream can be used in a
+	 * try-with-resources statement.
+	 * 
+	 * @return the stream of lines
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(
+				new Runnable() {
+					@Override
+					public void run() {
+						close();
+					}
+				});
+	}
+
+	/**
+	 * Closes the underlying <code>LineReader</code>
+	 */
+	@Override
 	public void close() {
 		try {
 			reader.close();
@@ -0,0 +1,121 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.util.regex.Pattern;
+
+/**
+ * Factory methods for commonly used {@link LinePredicate}s
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LinePredicates {
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private LinePredicates() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Returns a predicate that matches lines that, ignoring leading and trailing whitespace, start
+	 * with any of the input prefixes. For a single prefix this is equivalent to
+	 * <code>line.trim().startsWith(prefix)</code>, however the line is examined in place and no
+	 * objects are created.
+	 * 
+	 * @param prefixes
+	 * @return a predicate matching lines that start with any of the prefixes
+	 */
+	public static LinePredicate startsWith(final String... prefixes) {
+		if (prefixes == null || prefixes.length == 0) {
+			throw new IllegalArgumentException("At least one prefix must be specified.");
+		}
+		return new LinePredicate() {
+			@Override
+			public boolean matches(CharSequence line) {
+				int start = 0;
+				int end = line.length();
+				while (start < end && line.charAt(start) <= ' ') {
+					start++;
+				}
+				while (end > start && line.charAt(end - 1) <= ' ') {
+					end--;
+				}
+				for (String prefix : prefixes) {
+					if (regionStartsWith(line, start, end, prefix)) {
+						return true;
+					}
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a predicate that matches lines for which the input pattern matches a prefix of the
+	 * line (see {@link java.util.regex.Matcher#lookingAt()})
+	 * 
+	 * @param pattern
+	 * @return a predicate matching lines that begin with a match of the pattern
+	 */
+	public static LinePredicate lookingAt(final Pattern pattern) {
+		return new LinePredicate() {
+			@Override
+			public boolean matches(CharSequence line) {
+				return pattern.matcher(line).lookingAt();
+			}
+		};
+	}
+
+	/**
+	 * @return true if the characters of the input line from start (inclusive) to end (exclusive)
+	 *         begin with the prefix
+	 */
+	private static boolean regionStartsWith(CharSequence line, int start, int end, String prefix) {
+		int prefixLength = prefix.length();
+		if (end - start < prefixLength) {
+			return false;
+		}
+		for (int i = 0; i < prefixLength; i++) {
+			if (line.charAt(start + i) != prefix.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -36,6 +36,8 @@ package edu.ucdenver.ccp.common.file.reader;
 import java.io.Closeable;
 import java.io.IOException;
 
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
 /**
  * Abstract class for reading a collection of {@link Line} objects.
  * 
@@ -44,6 +46,24 @@ import java.io.IOException;
  */
 public abstract class LineReader<T extends Line> implements Closeable {
 
+	/**
+	 * Indicates which offsets are computed for each line read by a <code>LineReader</code>
+	 */
+	public enum OffsetTracking {
+		/**
+		 * Character and code point offsets are computed for every line (the default)
+		 */
+		ALL,
+		/**
+		 * Only character offsets are computed. Counting code points requires an additional scan of
+		 * lines that are not known to consist solely of BMP characters; when code point offsets are
+		 * not needed this bookkeeping can be avoided. {@link Line#getCodePointOffset()} returns -1
+		 * for lines read in this mode, as does {@link Line#getByteOffset()} for readers that would
+		 * need to re-encode each line in order to compute it.
+		 */
+		CHARACTER_OFFSETS_ONLY
+	}
+
 	/**
 	 * The skipLinePrefix member variable is used as an indication that a line should be skipped
 	 * (and not "read" by the LineReader). If a line starts with the skip line prefix then it is
@@ -51,6 +71,13 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 */
 	protected final String skipLinePrefix;
 
+	/**
+	 * If a line matches the skip line predicate then it is skipped (and not "read" by the
+	 * LineReader). When a skip line prefix is specified the predicate matches lines starting with
+	 * the prefix.
+	 */
+	protected final LinePredicate skipLinePredicate;
+
 	/**
 	 * Tracks the character offset for each line (the number of characters to appear before a line)
 	 */
@@ -64,6 +91,11 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 */
 	private long cumulativeCodePointOffset;
 
+	/**
+	 * Indicates which offsets are computed for each line
+	 */
+	private OffsetTracking offsetTracking = OffsetTracking.ALL;
+
 	/**
 	 * Constructor for the abstract LineReader
 	 * 
@@ -72,9 +104,40 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 *            by the LineReader)
 	 */
 	public LineReader(String skipLinePrefix) {
+		this(skipLinePrefix, 0, 0);
+	}
+
+	/**
+	 * Constructor for a LineReader that starts reading part-way through a larger collection of
+	 * lines
+	 * 
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param characterOffset
+	 *            the number of characters that precede the first line to be read
+	 * @param codePointOffset
+	 *            the number of code points that precede the first line to be read
+	 */
+	protected LineReader(String skipLinePrefix, long characterOffset, long codePointOffset) {
+		this.cumulativeCharacterOffset = characterOffset;
+		this.cumulativeCodePointOffset = codePointOffset;
+		this.skipLinePrefix = skipLinePrefix;
+		this.skipLinePredicate = (skipLinePrefix == null) ? null : LinePredicates.startsWith(skipLinePrefix);
+	}
+
+	/**
+	 * Constructor for a LineReader that skips lines matching a predicate
+	 * 
+	 * @param skipLinePredicate
+	 *            if a line matches the predicate, then it is skipped (and not returned by the
+	 *            LineReader). May be null if no lines are to be skipped.
+	 */
+	protected LineReader(LinePredicate skipLinePredicate) {
 		this.cumulativeCharacterOffset = 0;
 		this.cumulativeCodePointOffset = 0;
-		this.skipLinePrefix = skipLinePrefix;
+		this.skipLinePrefix = null;
+		this.skipLinePredicate = skipLinePredicate;
 	}
 
 	/**
@@ -86,24 +149,136 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	 */
 	public final T readLine() throws IOException {
 		T line = getNextLine();
-		updateCharacterOffset(line);
+		if (line != null) {
+			updateCharacterOffset(line.getText().length(), getCodePointCount(line), line.getLineTerminator());
+		}
 		return line;
 	}
 
 	/**
-	 * Updates the character offset by adding the number of characters in the current line to the
-	 * cumulative count plus the length of the line terminator used
+	 * Reads up to <code>maxLineCount</code> lines into a new {@link LineBatch}
+	 * 
+	 * @param maxLineCount
+	 * @return the lines read; the batch is empty if there are no more lines
+	 * @throws IOException
+	 *             if there's an error while reading the lines
+	 */
+	public final LineBatch readLines(int maxLineCount) throws IOException {
+		LineBatch batch = new LineBatch();
+		readLines(batch, maxLineCount);
+		return batch;
+	}
+
+	/**
+	 * Clears the input batch and fills it with up to <code>maxLineCount</code> lines. Reusing a
+	 * batch for successive reads avoids reallocating its arrays.
+	 * 
+	 * @param batch
+	 * @param maxLineCount
+	 * @return the number of lines read; 0 if there are no more lines
+	 * @throws IOException
+	 *             if there's an error while reading the lines
+	 */
+	public final int readLines(LineBatch batch, int maxLineCount) throws IOException {
+		batch.clear();
+		while (batch.size() < maxLineCount && readLineInto(batch)) {
+			continue;
+		}
+		return batch.size();
+	}
+
+	/**
+	 * Reads the next line and appends it to the input batch. By default the line is read by
+	 * {@link #readLine()} and copied into the batch; implementations that can copy the text of a
+	 * line directly into the batch should override this method (and update the offsets) to avoid
+	 * creating a {@link Line} for each line.
+	 * 
+	 * @param batch
+	 * @return false if there are no more lines, true otherwise
+	 * @throws IOException
+	 */
+	protected boolean readLineInto(LineBatch batch) throws IOException {
+		T line = readLine();
+		if (line == null) {
+			return false;
+		}
+		batch.add(line);
+		return true;
+	}
+
+	/**
+	 * Sets which offsets are computed for each line. This should be set before the first line is
+	 * read.
+	 * 
+	 * @param offsetTracking
+	 */
+	public void setOffsetTracking(OffsetTracking offsetTracking) {
+		this.offsetTracking = offsetTracking;
+	}
+
+	/**
+	 * @return which offsets are computed for each line
+	 */
+	public OffsetTracking getOffsetTracking() {
+		return offsetTracking;
+	}
+
+	/**
+	 * @return true if code point offsets are being computed
+	 */
+	protected final boolean isTrackingCodePoints() {
+		return offsetTracking == OffsetTracking.ALL;
+	}
+
+	/**
+	 * Returns the number of code points in the text of the input line, which was just returned by
+	 * {@link #getNextLine()}. Implementations that already know the count (e.g. because the line
+	 * was found to consist solely of ASCII characters while it was read) should override this
+	 * method to avoid scanning the line a second time. The returned value is ignored when code
+	 * points are not being tracked.
 	 * 
 	 * @param line
-	 *            the line whose characters must be counted and added to the cumulative character
-	 *            offset count (plus the length of the line terminator used)
+	 * @return the number of code points in the text of the line (excluding its terminator)
 	 */
-	private void updateCharacterOffset(Line line) {
-		if (line != null) {
-			cumulativeCharacterOffset += (line.getText().toCharArray().length + line.getLineTerminator().length());
-			cumulativeCodePointOffset += (line.getText().codePointCount(0, line.getText().length()) + line
-					.getLineTerminator().terminator().codePointCount(0, line.getLineTerminator().terminator().length()));
+	protected int getCodePointCount(T line) {
+		if (!isTrackingCodePoints()) {
+			return 0;
 		}
+		String text = line.getText();
+		return text.codePointCount(0, text.length());
+	}
+
+	/**
+	 * Adds the characters (and code points) of the input line text and its terminator to the
+	 * cumulative offsets. Implementations that do not return skipped lines can use this method to
+	 * keep the offsets of subsequent lines relative to the start of the input.
+	 * 
+	 * @param lineText
+	 *            the text of the line
+	 * @param lineTerminator
+	 *            the terminator that followed the line
+	 */
+	protected final void updateCharacterOffset(String lineText, LineTerminator lineTerminator) {
+		int codePointCount = isTrackingCodePoints() ? lineText.codePointCount(0, lineText.length()) : 0;
+		updateCharacterOffset(lineText.length(), codePointCount, lineTerminator);
+	}
+
+	/**
+	 * Adds the input character and code point counts of a line, plus its terminator, to the
+	 * cumulative offsets
+	 * 
+	 * @param characterCount
+	 *            the number of characters in the line (excluding the terminator)
+	 * @param codePointCount
+	 *            the number of code points in the line (excluding the terminator), ignored if code
+	 *            points are not being tracked
+	 * @param lineTerminator
+	 *            the terminator that followed the line
+	 */
+	protected final void updateCharacterOffset(int characterCount, int codePointCount, LineTerminator lineTerminator) {
+		/* line terminators consist solely of BMP characters */
+		cumulativeCharacterOffset += (characterCount + lineTerminator.length());
+		cumulativeCodePointOffset += (codePointCount + lineTerminator.length());
 	}
 
 	/**
@@ -115,16 +290,29 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	protected abstract T getNextLine() throws IOException;
 
 	/**
-	 * This method checks to see if a line should be skipped. It returns true if the line starts
-	 * with the skip line prefix, fale otherwise.
+	 * This method checks to see if a line should be skipped. It returns true if the line matches
+	 * the skip line predicate (by default, if the line starts with the skip line prefix), false
+	 * otherwise.
 	 * 
 	 * @param line
 	 * @return
 	 */
 	protected boolean skipLine(String line) {
-		if (skipLinePrefix == null)
+		return skipLine((CharSequence) line);
+	}
+
+	/**
+	 * Checks whether a line should be skipped without requiring a String to be created for the
+	 * line
+	 * 
+	 * @param line
+	 *            the text of the line, possibly a reusable view such as a {@link LineView}
+	 * @return true if the line matches the skip line predicate, false otherwise
+	 */
+	protected boolean skipLine(CharSequence line) {
+		if (skipLinePredicate == null)
 			return false;
-		return line.trim().startsWith(skipLinePrefix);
+		return skipLinePredicate.matches(line);
 	}
 
 	/**
@@ -136,9 +324,13 @@ public abstract class LineReader<T extends Line> implements Closeable {
 	}
 
 	/**
-	 * @return the cumulative code point offset up to the current line
+	 * @return the cumulative code point offset up to the current line, or -1 if code points are
+	 *         not being tracked
 	 */
 	protected long getCodePointOffset() {
+		if (!isTrackingCodePoints()) {
+			return -1;
+		}
 		return cumulativeCodePointOffset;
 	}
 
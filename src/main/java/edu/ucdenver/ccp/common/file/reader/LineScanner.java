@@ -0,0 +1,272 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * Splits the characters supplied by a {@link Reader} into lines. Rather than reading one character
+ * at a time, the scanner fills a large, reusable char[] window and searches it in bulk for CR, LF
+ * and CRLF line terminators. The text of the most recently scanned line remains available in the
+ * window (see {@link #getBuffer()}, {@link #getLineStart()} and {@link #getLineEnd()}) until the
+ * next call to {@link #nextLine()}.
+ * <p>
+ * Line semantics match those historically used by {@link StreamLineReader}: a CR immediately
+ * followed by a LF is treated as a single CRLF terminator, and a final line that is not followed by
+ * a terminator is reported with a LF terminator.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineScanner implements Closeable {
+
+	/**
+	 * The default size (in chars) of the scanning window
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The source of the characters being scanned
+	 */
+	private final Reader reader;
+
+	/**
+	 * The scanning window. It is grown if a single line does not fit.
+	 */
+	private char[] buffer;
+
+	/**
+	 * Index of the next unscanned character in the window
+	 */
+	private int position = 0;
+
+	/**
+	 * Index one past the last valid character in the window
+	 */
+	private int limit = 0;
+
+	/**
+	 * Set once the underlying reader has been exhausted
+	 */
+	private boolean eof = false;
+
+	/**
+	 * Index of the first character of the current line in the window
+	 */
+	private int lineStart = 0;
+
+	/**
+	 * Index one past the last character (excluding the terminator) of the current line
+	 */
+	private int lineEnd = 0;
+
+	/**
+	 * The terminator of the current line
+	 */
+	private LineTerminator lineTerminator = null;
+
+	/**
+	 * Initializes a new {@link LineScanner} using the default window size
+	 * 
+	 * @param reader
+	 */
+	public LineScanner(Reader reader) {
+		this(reader, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Initializes a new {@link LineScanner}
+	 * 
+	 * @param reader
+	 *            the source of characters to scan
+	 * @param bufferSize
+	 *            the initial size (in chars) of the scanning window
+	 */
+	public LineScanner(Reader reader, int bufferSize) {
+		if (bufferSize < 2) {
+			throw new IllegalArgumentException("Buffer size must be at least 2 but was: " + bufferSize);
+		}
+		this.reader = reader;
+		this.buffer = new char[bufferSize];
+	}
+
+	/**
+	 * Advances to the next line
+	 * 
+	 * @return true if a line was found, false if the end of the input has been reached
+	 * @throws IOException
+	 *             if an error occurs while reading from the underlying reader
+	 */
+	public boolean nextLine() throws IOException {
+		int start = position;
+		int index = start;
+		while (true) {
+			char[] buf = buffer;
+			int lim = limit;
+			while (index < lim) {
+				char c = buf[index];
+				if (c == '\n') {
+					return setLine(start, index, LineTerminator.LF, index + 1);
+				}
+				if (c == '\r') {
+					if (index + 1 == lim) {
+						/* a LF may follow in the next window */
+						int shift = fill(start);
+						start -= shift;
+						index -= shift;
+						buf = buffer;
+						lim = limit;
+					}
+					if (index + 1 < lim && buf[index + 1] == '\n') {
+						return setLine(start, index, LineTerminator.CRLF, index + 2);
+					}
+					return setLine(start, index, LineTerminator.CR, index + 1);
+				}
+				index++;
+			}
+			if (eof) {
+				if (index == start) {
+					position = index;
+					return false;
+				}
+				return setLine(start, index, LineTerminator.LF, index);
+			}
+			int shift = fill(start);
+			start -= shift;
+			index -= shift;
+		}
+	}
+
+	/**
+	 * Records the boundaries of the line that was just found
+	 * 
+	 * @return true
+	 */
+	private boolean setLine(int start, int end, LineTerminator terminator, int nextPosition) {
+		lineStart = start;
+		lineEnd = end;
+		lineTerminator = terminator;
+		position = nextPosition;
+		return true;
+	}
+
+	/**
+	 * Moves the characters starting at keepFrom to the beginning of the window (growing the window
+	 * if it is already full) and then reads as many characters as will fit into the remainder of the
+	 * window. Sets the eof flag if the underlying reader is exhausted.
+	 * 
+	 * @param keepFrom
+	 *            the index of the first character in the window that must be retained
+	 * @return the distance the retained characters were shifted towards the start of the window
+	 * @throws IOException
+	 */
+	private int fill(int keepFrom) throws IOException {
+		int retained = limit - keepFrom;
+		if (keepFrom > 0) {
+			System.arraycopy(buffer, keepFrom, buffer, 0, retained);
+		} else if (retained == buffer.length) {
+			char[] grown = new char[buffer.length * 2];
+			System.arraycopy(buffer, 0, grown, 0, retained);
+			buffer = grown;
+		}
+		limit = retained;
+		position -= keepFrom;
+		if (!eof) {
+			int read = reader.read(buffer, limit, buffer.length - limit);
+			if (read < 0) {
+				eof = true;
+			} else {
+				limit += read;
+			}
+		}
+		return keepFrom;
+	}
+
+	/**
+	 * @return the window holding the text of the current line. Its content is only valid until the
+	 *         next call to {@link #nextLine()}.
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the index in {@link #getBuffer()} of the first character of the current line
+	 */
+	public int getLineStart() {
+		return lineStart;
+	}
+
+	/**
+	 * @return the index in {@link #getBuffer()} one past the last character of the current line
+	 *         (excluding the line terminator)
+	 */
+	public int getLineEnd() {
+		return lineEnd;
+	}
+
+	/**
+	 * @return the number of characters in the current line (excluding the line terminator)
+	 */
+	public int getLineLength() {
+		return lineEnd - lineStart;
+	}
+
+	/**
+	 * @return the terminator of the current line
+	 */
+	public LineTerminator getLineTerminator() {
+		return lineTerminator;
+	}
+
+	/**
+	 * @return a new String containing the text of the current line
+	 */
+	public String getLineText() {
+		return new String(buffer, lineStart, lineEnd - lineStart);
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
@@ -0,0 +1,176 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileArchiveUtil;
+import edu.ucdenver.ccp.common.file.FileUtil;
+
+/**
+ * Utility methods that expose the lines of a file or stream as a <code>java.util.stream.Stream</code>
+ * of {@link Line}s. Streams over uncompressed local files can be processed in parallel: the file is
+ * split into line-aligned byte ranges, each read by its own {@link MappedLineReader}, and line
+ * numbers and offsets remain relative to the beginning of the file. If a current {@link LineIndex}
+ * is available the split is computed from the index and the stream is <code>SIZED</code>.
+ * <p>
+ * The returned streams hold open files and should be closed, e.g. using try-with-resources:
+ * 
+ * <pre>
+ * try (Stream&lt;Line&gt; lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+ * 	long count = lines.parallel().filter(...).count();
+ * }
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineStreams {
+
+	private static final Logger logger = Logger.getLogger(LineStreams.class);
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private LineStreams() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Returns a stream over the lines of the input file. Compressed files (see
+	 * {@link FileArchiveUtil#isZippedFile(File)}) are read sequentially by a
+	 * {@link StreamLineIterator}. Uncompressed files are split into line-aligned chunks when the
+	 * stream is processed in parallel; if the file has a current {@link LineIndex} sidecar file for
+	 * the input encoding the chunks are taken from the index.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @return a sequential stream over the lines of the file, which may be made parallel
+	 * @throws FileNotFoundException
+	 *             if the input file does not exist or is not a file
+	 * @throws IOException
+	 */
+	public static Stream<Line> lines(File file, CharacterEncoding encoding) throws IOException {
+		FileUtil.validateFile(file);
+		if (FileArchiveUtil.isZippedFile(file)) {
+			return new StreamLineIterator(file, encoding).stream();
+		}
+		LineIndex index = loadCurrentIndex(file, encoding);
+		if (index != null) {
+			return lines(file, index);
+		}
+		final Queue<MappedLineReader> openReaders = FileLineSpliterator.createReaderQueue();
+		return toStream(new FileLineSpliterator(file, encoding, openReaders), openReaders);
+	}
+
+	/**
+	 * Returns a <code>SIZED</code> stream over the lines of the input file using the input index to
+	 * split the file when the stream is processed in parallel
+	 * 
+	 * @param file
+	 *            the indexed file
+	 * @param index
+	 *            a current index of the file
+	 * @return a sequential stream over the lines of the file, which may be made parallel
+	 */
+	public static Stream<Line> lines(File file, LineIndex index) {
+		if (!index.isCurrent(file)) {
+			throw new IllegalArgumentException("The line index is not current for file: " + file.getAbsolutePath());
+		}
+		final Queue<MappedLineReader> openReaders = FileLineSpliterator.createReaderQueue();
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		FileLineSpliterator spliterator = new FileLineSpliterator(file, index.getEncoding(), openReaders,
+				index.getChunks(pool.getParallelism() * ParallelLineProcessor.CHUNKS_PER_THREAD),
+				index.getLineCount());
+		return toStream(spliterator, openReaders);
+	}
+
+	/**
+	 * Returns a sequential stream over the lines of the input stream. Closing the returned stream
+	 * closes the input stream.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @return a sequential stream over the lines of the input stream
+	 * @throws IOException
+	 */
+	public static Stream<Line> lines(InputStream inputStream, CharacterEncoding encoding) throws IOException {
+		return new StreamLineIterator(inputStream, encoding, null).stream();
+	}
+
+	/**
+	 * @return a stream using the input spliterator that closes any readers left open by the
+	 *         spliterator when the stream is closed
+	 */
+	private static Stream<Line> toStream(FileLineSpliterator spliterator, final Queue<MappedLineReader> openReaders) {
+		return StreamSupport.stream(spliterator, false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				FileLineSpliterator.closeReaders(openReaders);
+			}
+		});
+	}
+
+	/**
+	 * @return the index stored in the sidecar file of the input file if it is current and was
+	 *         built using the input encoding, null otherwise
+	 */
+	private static LineIndex loadCurrentIndex(File file, CharacterEncoding encoding) {
+		File sidecarFile = LineIndex.getSidecarFile(file);
+		if (!sidecarFile.exists()) {
+			return null;
+		}
+		try {
+			LineIndex index = LineIndex.load(sidecarFile);
+			if (index.isCurrent(file) && index.getEncoding() == encoding) {
+				return index;
+			}
+		} catch (IOException e) {
+			logger.warn("Unable to load line index, ignoring it: " + sidecarFile.getAbsolutePath(), e);
+		}
+		return null;
+	}
+
+}
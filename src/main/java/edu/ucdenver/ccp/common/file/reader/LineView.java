@@ -0,0 +1,185 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * A reusable, mutable view of a single line held in the internal buffer of a
+ * {@link LineViewReader}. Unlike {@link Line}, no String is created for the text of the line; the
+ * characters are accessed directly from the reader's buffer via the {@link CharSequence} methods or
+ * via {@link #getBuffer()}, {@link #getStart()} and {@link #getEnd()}.
+ * <p>
+ * A LineView is only valid until the next line is read. Callers that need to retain the text of a
+ * line must copy it, e.g. by calling {@link #toString()}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineView implements CharSequence {
+
+	/**
+	 * The buffer containing the text of the line
+	 */
+	private char[] buffer;
+
+	/**
+	 * The index in the buffer of the first character of the line
+	 */
+	private int start;
+
+	/**
+	 * The index in the buffer one past the last character of the line
+	 */
+	private int end;
+
+	/**
+	 * The terminator that indicated the end of this line
+	 */
+	private LineTerminator lineTerminator;
+
+	/**
+	 * The line number (relative to the specific collection from where the line was read)
+	 */
+	private long lineNumber;
+
+	/**
+	 * The number of characters that appear before this line
+	 */
+	private long characterOffset;
+
+	/**
+	 * Package-private constructor; views are created by the {@link LineViewReader} and
+	 * {@link LineBatch#getLineView(int)}
+	 */
+	LineView() {
+		buffer = new char[0];
+	}
+
+	/**
+	 * Points this view at a new line
+	 */
+	void set(char[] buffer, int start, int end, LineTerminator lineTerminator, long lineNumber, long characterOffset) {
+		this.buffer = buffer;
+		this.start = start;
+		this.end = end;
+		this.lineTerminator = lineTerminator;
+		this.lineNumber = lineNumber;
+		this.characterOffset = characterOffset;
+	}
+
+	/**
+	 * @return the buffer containing the text of this line. The buffer must not be modified.
+	 */
+	public char[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * @return the index in {@link #getBuffer()} of the first character of this line
+	 */
+	public int getStart() {
+		return start;
+	}
+
+	/**
+	 * @return the index in {@link #getBuffer()} one past the last character of this line
+	 */
+	public int getEnd() {
+		return end;
+	}
+
+	/**
+	 * @return the line terminator found on this particular line
+	 */
+	public LineTerminator getLineTerminator() {
+		return lineTerminator;
+	}
+
+	/**
+	 * @return the line number for this particular line
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the character offset for this line (the number of characters that have appeared
+	 *         before this line)
+	 */
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+	/**
+	 * @see java.lang.CharSequence#length()
+	 */
+	@Override
+	public int length() {
+		return end - start;
+	}
+
+	/**
+	 * @see java.lang.CharSequence#charAt(int)
+	 */
+	@Override
+	public char charAt(int index) {
+		if (index < 0 || index >= end - start) {
+			throw new IndexOutOfBoundsException("Index: " + index + " Length: " + (end - start));
+		}
+		return buffer[start + index];
+	}
+
+	/**
+	 * @return a new String containing the requested characters
+	 * @see java.lang.CharSequence#subSequence(int, int)
+	 */
+	@Override
+	public CharSequence subSequence(int subSequenceStart, int subSequenceEnd) {
+		if (subSequenceStart < 0 || subSequenceEnd > end - start || subSequenceStart > subSequenceEnd) {
+			throw new IndexOutOfBoundsException(String.format("Invalid range [%d,%d) for length %d",
+					subSequenceStart, subSequenceEnd, end - start));
+		}
+		return new String(buffer, start + subSequenceStart, subSequenceEnd - subSequenceStart);
+	}
+
+	/**
+	 * @return a new String containing the text of this line
+	 */
+	@Override
+	public String toString() {
+		return new String(buffer, start, end - start);
+	}
+
+}
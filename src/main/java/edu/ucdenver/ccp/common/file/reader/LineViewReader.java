@@ -0,0 +1,252 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+
+/**
+ * Reads lines without creating a String or {@link Line} per line. Each line is exposed through a
+ * single reusable {@link LineView} over the internal buffer of a {@link LineScanner}, so callers
+ * that only filter or tokenize lines can stream through a file while producing almost no garbage.
+ * <p>
+ * Line numbers and character offsets include skipped lines. Code point and byte offsets are not
+ * tracked; use a {@link LineReader} if they are required.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineViewReader implements Closeable {
+
+	/**
+	 * Splits the input into lines
+	 */
+	private final LineScanner scanner;
+
+	/**
+	 * if a line matches the skip line predicate, then it is skipped
+	 */
+	private final LinePredicate skipLinePredicate;
+
+	/**
+	 * The view returned for every line
+	 */
+	private final LineView view = new LineView();
+
+	/**
+	 * The line number of the next line
+	 */
+	private long lineNumber = 0;
+
+	/**
+	 * The character offset of the next line
+	 */
+	private long characterOffset = 0;
+
+	/**
+	 * Initializes a new <code>LineViewReader</code> to read from the input
+	 * <code>InputStream</code>
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 */
+	public LineViewReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix) {
+		this(FileReaderUtil.initBufferedReader(inputStream, encoding), toPredicate(skipLinePrefix));
+	}
+
+	/**
+	 * Initializes a new <code>LineViewReader</code> to read from the input file
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public LineViewReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		this(FileReaderUtil.initBufferedReader(inputFile, encoding), toPredicate(skipLinePrefix));
+	}
+
+	public LineViewReader(File inputFile, CharacterEncoding encoding) throws IOException {
+		this(inputFile, encoding, null);
+	}
+
+	/**
+	 * Initializes a new <code>LineViewReader</code> that skips lines matching the input predicate
+	 * 
+	 * @param reader
+	 * @param skipLinePredicate
+	 */
+	private LineViewReader(BufferedReader reader, LinePredicate skipLinePredicate) {
+		this.scanner = new LineScanner(reader);
+		this.skipLinePredicate = skipLinePredicate;
+	}
+
+	/**
+	 * Creates a new <code>LineViewReader</code> to read from the input <code>InputStream</code>,
+	 * skipping lines that match the input predicate
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new reader
+	 */
+	public static LineViewReader create(InputStream inputStream, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) {
+		return new LineViewReader(FileReaderUtil.initBufferedReader(inputStream, encoding), skipLinePredicate);
+	}
+
+	/**
+	 * Creates a new <code>LineViewReader</code> to read from the input file, skipping lines that
+	 * match the input predicate
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new reader
+	 * @throws IOException
+	 */
+	public static LineViewReader create(File inputFile, CharacterEncoding encoding, LinePredicate skipLinePredicate)
+			throws IOException {
+		return new LineViewReader(FileReaderUtil.initBufferedReader(inputFile, encoding), skipLinePredicate);
+	}
+
+	/**
+	 * Creates a new <code>LineViewReader</code> to read only the lines contained in the specified
+	 * chunk of the input file. The line numbers and character offsets of the lines returned are
+	 * relative to the beginning of the file. The file must not be compressed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @param chunk
+	 *            the line-aligned region of the file to read, see {@link FileChunkSplitter}
+	 * @return the new reader
+	 * @throws IOException
+	 */
+	public static LineViewReader create(File inputFile, CharacterEncoding encoding, LinePredicate skipLinePredicate,
+			FileChunk chunk) throws IOException {
+		FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+		try {
+			channel.position(chunk.getStartByteOffset());
+			InputStream chunkStream = new BoundedInputStream(Channels.newInputStream(channel), chunk.getByteLength());
+			LineViewReader reader = new LineViewReader(FileReaderUtil.initBufferedReader(chunkStream, encoding),
+					skipLinePredicate);
+			reader.lineNumber = chunk.getLineNumber();
+			reader.characterOffset = chunk.getCharacterOffset();
+			return reader;
+		} catch (IOException e) {
+			IOUtils.closeQuietly(channel);
+			throw e;
+		} catch (RuntimeException e) {
+			IOUtils.closeQuietly(channel);
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a predicate matching lines that start with the skip line prefix, or null if the
+	 *         prefix is null
+	 */
+	private static LinePredicate toPredicate(String skipLinePrefix) {
+		return (skipLinePrefix == null) ? null : LinePredicates.startsWith(skipLinePrefix);
+	}
+
+	/**
+	 * Advances to the next line
+	 * 
+	 * @return the reusable view, now positioned on the next line, or null if there are no more
+	 *         lines. The view is only valid until the next call to this method.
+	 * @throws IOException
+	 */
+	public LineView nextLine() throws IOException {
+		while (scanner.nextLine()) {
+			long number = lineNumber++;
+			long offset = characterOffset;
+			characterOffset += scanner.getLineLength() + scanner.getLineTerminator().length();
+			view.set(scanner.getBuffer(), scanner.getLineStart(), scanner.getLineEnd(), scanner.getLineTerminator(),
+					number, offset);
+			if (skipLinePredicate == null || !skipLinePredicate.matches(view)) {
+				return view;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the line number of the next line to be read, skipped or not; once the input is
+	 *         exhausted this is the line number of the first line plus the number of lines read
+	 */
+	public long getNextLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Passes each remaining line to the input handler
+	 * 
+	 * @param handler
+	 * @throws IOException
+	 *             if an error occurs while reading or handling a line
+	 */
+	public void readLines(LineViewHandler handler) throws IOException {
+		LineView line;
+		while ((line = nextLine()) != null) {
+			handler.handleLine(line);
+		}
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		scanner.close();
+	}
+
+}
@@ -0,0 +1,186 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A {@link ByteBufferLineReader} that walks a local file as a sequence of memory-mapped segments.
+ * Bytes are read directly from the page cache, avoiding the read() system calls and the copy into a
+ * user-space buffer that stream-based readers pay for. This is most beneficial when large files are
+ * scanned repeatedly. Lines (including exact byte offsets) are identical to those produced by the
+ * {@link ByteChannelLineReader}.
+ * <p>
+ * The file is assumed not to change while it is being read; bytes appended after the reader was
+ * opened are not read.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class MappedLineReader extends ByteBufferLineReader {
+
+	/**
+	 * The default size (in bytes) of each mapped segment
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * The channel for the file being read
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The byte offset at which reading stops; the size of the file when the reader was opened
+	 * unless a {@link FileChunk} was specified
+	 */
+	private final long endOffset;
+
+	/**
+	 * The size (in bytes) of each mapped segment
+	 */
+	private final int segmentSize;
+
+	/**
+	 * The byte offset of the first byte past the end of the currently mapped segment
+	 */
+	private long mappedEnd;
+
+	/**
+	 * Initializes a new <code>MappedLineReader</code> to read from the input file
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param segmentSize
+	 *            the size (in bytes) of each mapped segment. A segment is enlarged if a single
+	 *            line does not fit.
+	 * @throws IOException
+	 */
+	public MappedLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, int segmentSize)
+			throws IOException {
+		super(encoding, skipLinePrefix);
+		if (segmentSize < 2) {
+			throw new IllegalArgumentException("Segment size must be at least 2 but was: " + segmentSize);
+		}
+		this.channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+		this.endOffset = channel.size();
+		this.segmentSize = segmentSize;
+		this.mappedEnd = 0;
+	}
+
+	/**
+	 * Initializes a new <code>MappedLineReader</code> to read only the lines contained in the
+	 * specified chunk of the input file. The line numbers and offsets of the lines returned are
+	 * relative to the beginning of the file.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param segmentSize
+	 *            the size (in bytes) of each mapped segment
+	 * @param chunk
+	 *            the line-aligned region of the file to read, see {@link FileChunkSplitter}
+	 * @throws IOException
+	 */
+	public MappedLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, int segmentSize,
+			FileChunk chunk) throws IOException {
+		super(encoding, skipLinePrefix, chunk);
+		if (segmentSize < 2) {
+			throw new IllegalArgumentException("Segment size must be at least 2 but was: " + segmentSize);
+		}
+		this.channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+		this.endOffset = Math.min(chunk.getEndByteOffset(), channel.size());
+		this.segmentSize = segmentSize;
+		this.mappedEnd = chunk.getStartByteOffset();
+	}
+
+	/**
+	 * Initializes a new <code>MappedLineReader</code> to read from the input file
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public MappedLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		this(inputFile, encoding, skipLinePrefix, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public MappedLineReader(File inputFile, CharacterEncoding encoding) throws IOException {
+		this(inputFile, encoding, null);
+	}
+
+	/**
+	 * Maps the next segment of the file, starting at <code>retainFrom</code>. If the line being
+	 * scanned extends beyond a segment-sized region, the size of the mapping is doubled until the
+	 * mapping extends past the current one.
+	 * 
+	 * @see edu.ucdenver.ccp.common.file.reader.ByteBufferLineReader#fillWindow(long)
+	 */
+	@Override
+	protected boolean fillWindow(long retainFrom) throws IOException {
+		if (mappedEnd >= endOffset) {
+			return false;
+		}
+		long size = segmentSize;
+		while (retainFrom + size <= mappedEnd) {
+			size *= 2;
+		}
+		size = Math.min(size, endOffset - retainFrom);
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Line starting at byte offset %d exceeds the maximum mappable size.",
+					retainFrom));
+		}
+		MappedByteBuffer segment = channel.map(MapMode.READ_ONLY, retainFrom, size);
+		mappedEnd = retainFrom + size;
+		setWindow(segment, retainFrom);
+		return true;
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
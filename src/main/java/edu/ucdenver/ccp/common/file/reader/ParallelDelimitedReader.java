@@ -0,0 +1,369 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import edu.ucdenver.ccp.common.collections.LongColumn;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileArchiveUtil;
+import edu.ucdenver.ccp.common.file.reader.ParallelLineProcessor.LineNumbering;
+
+/**
+ * Parses the records of a single delimited file (e.g. TSV) concurrently. The file is divided into
+ * line-aligned {@link FileChunk}s by the {@link FileChunkSplitter} and each chunk is parsed by its
+ * own {@link DelimitedRecordReader} in a {@link ForkJoinPool}. Chunks are only aligned on line
+ * boundaries; their content is not counted up front.
+ * <p>
+ * Records can be delivered in two ways, see {@link RecordOrder}. With
+ * {@link RecordOrder#UNORDERED}, handlers are called concurrently from the pool threads as soon as a
+ * record is parsed and must therefore be thread-safe; this suits aggregation. With
+ * {@link RecordOrder#ORDERED}, the columns of each chunk are collected by the pool threads and
+ * passed to the handler on the calling thread in file order, so the output is reproducible and the
+ * handler need not be thread-safe. Only a bounded number of chunks are parsed ahead of the chunk
+ * being delivered, which bounds the memory held by collected columns. Ordered records are always
+ * numbered relative to the beginning of the file: each chunk is numbered relative to itself while
+ * it is parsed, and the line counts of the chunks already delivered are added as it is delivered.
+ * Records passed to handlers from the pool threads are numbered as selected by
+ * {@link LineNumbering}.
+ * <p>
+ * Compressed files cannot be divided into chunks and are parsed sequentially on the calling thread.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelDelimitedReader {
+
+	/**
+	 * The order in which records are passed to a {@link DelimitedColumnHandler}
+	 */
+	public enum RecordOrder {
+		/**
+		 * Records are passed to the handler on the calling thread, in file order
+		 */
+		ORDERED,
+		/**
+		 * Records are passed to the handler concurrently from multiple threads, in file order
+		 * within a chunk but in no particular order across chunks. Line numbers are relative to
+		 * the chunk unless {@link LineNumbering#FILE} is requested.
+		 */
+		UNORDERED
+	}
+
+	/**
+	 * The approximate size (in bytes) of the chunks parsed when the records are ordered. Smaller
+	 * chunks limit the number of columns held in memory while waiting to be delivered.
+	 */
+	static final long ORDERED_CHUNK_SIZE = 4 * 1024 * 1024;
+
+	/**
+	 * The number of chunks per thread of the pool that may be parsed ahead of the chunk being
+	 * delivered when the records are ordered
+	 */
+	static final int ORDERED_CHUNKS_AHEAD_PER_THREAD = 2;
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private ParallelDelimitedReader() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Passes each record of the input file to the handler using the common {@link ForkJoinPool}.
+	 * The handler is called concurrently from multiple threads; records within a chunk are handled
+	 * in order, however there is no ordering between records of different chunks. Line numbers are
+	 * relative to the chunk containing the record, see {@link LineNumbering#CHUNK}.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 * @param handler
+	 *            thread-safe callback that processes each record. Each thread uses its own reusable
+	 *            {@link DelimitedRecord}, which is only valid for the duration of the call.
+	 * @throws IOException
+	 *             if an error occurs while reading the file or handling a record
+	 */
+	public static void processRecords(File file, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix, DelimitedRecordHandler handler) throws IOException {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		processRecords(file, encoding, delimiterRegex, skipLinePrefix, LineNumbering.CHUNK,
+				pool.getParallelism() * ParallelLineProcessor.CHUNKS_PER_THREAD, pool, handler);
+	}
+
+	/**
+	 * Passes each record of the input file to the handler. The handler is called concurrently from
+	 * multiple threads; records within a chunk are handled in order, however there is no ordering
+	 * between records of different chunks.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 * @param numbering
+	 *            what the line numbers of the records are relative to
+	 * @param chunkCount
+	 *            the number of chunks into which the file is divided
+	 * @param pool
+	 *            the pool whose threads parse the chunks
+	 * @param handler
+	 *            thread-safe callback that processes each record. Each thread uses its own reusable
+	 *            {@link DelimitedRecord}, which is only valid for the duration of the call.
+	 * @throws IOException
+	 *             if an error occurs while reading the file or handling a record
+	 */
+	public static void processRecords(final File file, final CharacterEncoding encoding,
+			final String delimiterRegex, final String skipLinePrefix, LineNumbering numbering, int chunkCount,
+			ForkJoinPool pool, final DelimitedRecordHandler handler) throws IOException {
+		if (FileArchiveUtil.isZippedFile(file)) {
+			DelimitedRecordReader reader = new DelimitedRecordReader(file, encoding, delimiterRegex, skipLinePrefix);
+			try {
+				reader.readRecords(handler);
+			} finally {
+				reader.close();
+			}
+			return;
+		}
+		List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+		for (final FileChunk chunk : ParallelLineProcessor.split(file, encoding, numbering, chunkCount, pool)) {
+			tasks.add(pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					DelimitedRecordReader reader = new DelimitedRecordReader(initChunkReader(file, encoding,
+							skipLinePrefix, chunk), delimiterRegex);
+					try {
+						reader.readRecords(handler);
+					} finally {
+						reader.close();
+					}
+					return null;
+				}
+			}));
+		}
+		ParallelLineProcessor.getResults(tasks);
+	}
+
+	/**
+	 * Extracts the requested columns from each record of the input file using the common
+	 * {@link ForkJoinPool}. Unordered records are numbered relative to the chunk containing them,
+	 * see {@link LineNumbering#CHUNK}.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 * @param order
+	 *            the order in which the columns are passed to the handler
+	 * @param handler
+	 *            callback that processes the columns of each record; it must be thread-safe if the
+	 *            order is {@link RecordOrder#UNORDERED}
+	 * @param columnIndexes
+	 *            the indexes of the columns to extract, in the order in which they are to be
+	 *            returned. If no indexes are specified, all columns are extracted.
+	 * @throws IOException
+	 *             if an error occurs while reading the file or handling a record
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested column does not exist on a line
+	 */
+	public static void readColumns(File file, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix, RecordOrder order, DelimitedColumnHandler handler, int... columnIndexes)
+			throws IOException {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		int chunkCount = pool.getParallelism() * ParallelLineProcessor.CHUNKS_PER_THREAD;
+		if (order == RecordOrder.ORDERED) {
+			chunkCount = (int) Math.max(chunkCount, Math.min(Integer.MAX_VALUE, file.length() / ORDERED_CHUNK_SIZE));
+		}
+		readColumns(file, encoding, delimiterRegex, skipLinePrefix, order, LineNumbering.CHUNK, chunkCount, pool,
+				handler, columnIndexes);
+	}
+
+	/**
+	 * Extracts the requested columns from each record of the input file
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param delimiterRegex
+	 *            a regular expression matching the field delimiter
+	 * @param skipLinePrefix
+	 *            lines starting with this prefix are skipped
+	 * @param order
+	 *            the order in which the columns are passed to the handler
+	 * @param numbering
+	 *            what the line numbers of unordered records are relative to; ordered records are
+	 *            always numbered relative to the file
+	 * @param chunkCount
+	 *            the number of chunks into which the file is divided
+	 * @param pool
+	 *            the pool whose threads parse the chunks
+	 * @param handler
+	 *            callback that processes the columns of each record; it must be thread-safe if the
+	 *            order is {@link RecordOrder#UNORDERED}
+	 * @param columnIndexes
+	 *            the indexes of the columns to extract, in the order in which they are to be
+	 *            returned. If no indexes are specified, all columns are extracted.
+	 * @throws IOException
+	 *             if an error occurs while reading the file or handling a record
+	 * @throws ArrayIndexOutOfBoundsException
+	 *             if a requested column does not exist on a line
+	 */
+	public static void readColumns(File file, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix, RecordOrder order, LineNumbering numbering, int chunkCount, ForkJoinPool pool,
+			final DelimitedColumnHandler handler, final int... columnIndexes) throws IOException {
+		if (order == RecordOrder.UNORDERED || FileArchiveUtil.isZippedFile(file)) {
+			processRecords(file, encoding, delimiterRegex, skipLinePrefix, numbering, chunkCount, pool,
+					new DelimitedRecordHandler() {
+						@Override
+						public void handleRecord(DelimitedRecord record) throws IOException {
+							handler.handleColumns(record.getLineNumber(), getColumns(record, columnIndexes));
+						}
+					});
+			return;
+		}
+		readOrderedColumns(file, encoding, delimiterRegex, skipLinePrefix, chunkCount, pool, handler, columnIndexes);
+	}
+
+	/**
+	 * Parses chunks concurrently, keeping at most a fixed number of chunks in flight, and delivers
+	 * the columns of each chunk on the calling thread in file order. The chunk-relative line numbers
+	 * of each chunk are offset by the number of lines in the chunks delivered before it.
+	 */
+	private static void readOrderedColumns(final File file, final CharacterEncoding encoding,
+			final String delimiterRegex, final String skipLinePrefix, int chunkCount, ForkJoinPool pool,
+			DelimitedColumnHandler handler, final int... columnIndexes) throws IOException {
+		List<FileChunk> chunks = FileChunkSplitter.splitAtLineBoundaries(file, chunkCount);
+		int maxChunksInFlight = Math.max(1, pool.getParallelism() * ORDERED_CHUNKS_AHEAD_PER_THREAD);
+		LinkedList<ForkJoinTask<ChunkColumns>> tasks = new LinkedList<ForkJoinTask<ChunkColumns>>();
+		int nextChunkIndex = 0;
+		long firstLineNumber = 0;
+		try {
+			while (nextChunkIndex < chunks.size() || !tasks.isEmpty()) {
+				while (nextChunkIndex < chunks.size() && tasks.size() < maxChunksInFlight) {
+					final FileChunk chunk = chunks.get(nextChunkIndex++);
+					tasks.add(pool.submit(new Callable<ChunkColumns>() {
+						@Override
+						public ChunkColumns call() throws IOException {
+							return readChunkColumns(file, encoding, delimiterRegex, skipLinePrefix, chunk,
+									columnIndexes);
+						}
+					}));
+				}
+				ChunkColumns chunkColumns = ParallelLineProcessor.getResult(tasks.getFirst());
+				tasks.removeFirst();
+				for (int i = 0; i < chunkColumns.rows.size(); i++) {
+					handler.handleColumns(firstLineNumber + chunkColumns.lineNumbers.get(i),
+							chunkColumns.rows.get(i));
+				}
+				firstLineNumber += chunkColumns.lineCount;
+			}
+		} finally {
+			for (ForkJoinTask<ChunkColumns> task : tasks) {
+				task.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * @return the requested columns of each record in the input chunk, along with their line numbers
+	 *         relative to the chunk
+	 */
+	private static ChunkColumns readChunkColumns(File file, CharacterEncoding encoding, String delimiterRegex,
+			String skipLinePrefix, FileChunk chunk, int... columnIndexes) throws IOException {
+		ChunkColumns chunkColumns = new ChunkColumns();
+		LineViewReader lineReader = initChunkReader(file, encoding, skipLinePrefix, chunk);
+		DelimitedRecordReader reader = new DelimitedRecordReader(lineReader, delimiterRegex);
+		try {
+			DelimitedRecord record;
+			while ((record = reader.nextRecord()) != null) {
+				chunkColumns.lineNumbers.add(record.getLineNumber());
+				chunkColumns.rows.add(getColumns(record, columnIndexes));
+			}
+			chunkColumns.lineCount = lineReader.getNextLineNumber() - chunk.getLineNumber();
+		} finally {
+			reader.close();
+		}
+		return chunkColumns;
+	}
+
+	/**
+	 * @return a reader over the lines of the input chunk
+	 */
+	private static LineViewReader initChunkReader(File file, CharacterEncoding encoding, String skipLinePrefix,
+			FileChunk chunk) throws IOException {
+		LinePredicate skipLinePredicate = (skipLinePrefix == null) ? null : LinePredicates.startsWith(skipLinePrefix);
+		return LineViewReader.create(file, encoding, skipLinePredicate, chunk);
+	}
+
+	/**
+	 * @return the requested columns of the record, or all of its fields if no columns are requested
+	 */
+	private static String[] getColumns(DelimitedRecord record, int... columnIndexes) {
+		if (columnIndexes == null || columnIndexes.length == 0) {
+			return record.toArray();
+		}
+		return record.getFields(columnIndexes);
+	}
+
+	/**
+	 * The columns extracted from the records of a single chunk, along with their line numbers
+	 * relative to the chunk
+	 */
+	private static class ChunkColumns {
+
+		/**
+		 * The number of lines in the chunk, including skipped lines
+		 */
+		private long lineCount;
+
+		private final LongColumn lineNumbers = new LongColumn();
+
+		private final List<String[]> rows = new ArrayList<String[]>();
+
+	}
+
+}
@@ -0,0 +1,245 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Processes the lines of a single file concurrently. The file is divided into line-aligned
+ * {@link FileChunk}s by the {@link FileChunkSplitter} and each chunk is read by its own
+ * {@link MappedLineReader} in a {@link ForkJoinPool}. Byte offsets are always relative to the
+ * beginning of the file; whether line numbers and character and code point offsets are relative to
+ * the file or to the chunk containing the line is selected by {@link LineNumbering}.
+ * <p>
+ * The {@link LineHandler} is called concurrently from multiple threads and must therefore be
+ * thread-safe. Lines within a chunk are handled in order, however there is no ordering between
+ * lines of different chunks.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelLineProcessor {
+
+	/**
+	 * The number of chunks created per thread of the pool when the chunk count is not specified.
+	 * Using more chunks than threads evens out the load when some chunks are slower to process.
+	 */
+	static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * What the line numbers and the character and code point offsets of the processed lines are
+	 * relative to
+	 */
+	public enum LineNumbering {
+		/**
+		 * Relative to the beginning of the file, exactly as if the file had been read sequentially.
+		 * This requires the content of every chunk to be counted before any line is processed, i.e.
+		 * the file is read twice.
+		 */
+		FILE,
+		/**
+		 * Relative to the beginning of the chunk containing the line; the byte offset still
+		 * identifies the line within the file. The file is read once.
+		 */
+		CHUNK
+	}
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private ParallelLineProcessor() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Processes the lines of the input file using the common {@link ForkJoinPool}. Lines are
+	 * numbered relative to the chunk containing them, see {@link LineNumbering#CHUNK}.
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is not passed to the handler
+	 * @param handler
+	 *            thread-safe callback that processes each line
+	 * @throws IOException
+	 *             if an error occurs while reading the file or processing a line
+	 */
+	public static void processLines(File file, CharacterEncoding encoding, String skipLinePrefix, LineHandler handler)
+			throws IOException {
+		processLines(file, encoding, skipLinePrefix, LineNumbering.CHUNK, handler);
+	}
+
+	/**
+	 * Processes the lines of the input file using the common {@link ForkJoinPool}
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is not passed to the handler
+	 * @param numbering
+	 *            what the line numbers and offsets of the lines are relative to
+	 * @param handler
+	 *            thread-safe callback that processes each line
+	 * @throws IOException
+	 *             if an error occurs while reading the file or processing a line
+	 */
+	public static void processLines(File file, CharacterEncoding encoding, String skipLinePrefix,
+			LineNumbering numbering, LineHandler handler) throws IOException {
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		processLines(file, encoding, skipLinePrefix, numbering, pool.getParallelism() * CHUNKS_PER_THREAD, pool,
+				handler);
+	}
+
+	/**
+	 * Processes the lines of the input file
+	 * 
+	 * @param file
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is not passed to the handler
+	 * @param numbering
+	 *            what the line numbers and offsets of the lines are relative to
+	 * @param chunkCount
+	 *            the number of chunks into which the file is divided
+	 * @param pool
+	 *            the pool whose threads process the chunks
+	 * @param handler
+	 *            thread-safe callback that processes each line
+	 * @throws IOException
+	 *             if an error occurs while reading the file or processing a line
+	 */
+	public static void processLines(final File file, final CharacterEncoding encoding, final String skipLinePrefix,
+			LineNumbering numbering, int chunkCount, ForkJoinPool pool, final LineHandler handler)
+			throws IOException {
+		List<ForkJoinTask<Void>> tasks = new ArrayList<ForkJoinTask<Void>>();
+		for (final FileChunk chunk : split(file, encoding, numbering, chunkCount, pool)) {
+			tasks.add(pool.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					MappedLineReader reader = new MappedLineReader(file, encoding, skipLinePrefix,
+							MappedLineReader.DEFAULT_SEGMENT_SIZE, chunk);
+					try {
+						Line line;
+						while ((line = reader.readLine()) != null) {
+							handler.handleLine(line);
+						}
+					} finally {
+						reader.close();
+					}
+					return null;
+				}
+			}));
+		}
+		getResults(tasks);
+	}
+
+	/**
+	 * Divides the input file into line-aligned chunks, counting their content only if the lines are
+	 * to be numbered relative to the file
+	 * 
+	 * @return the chunks in file order
+	 * @throws IOException
+	 */
+	static List<FileChunk> split(File file, CharacterEncoding encoding, LineNumbering numbering, int chunkCount,
+			ForkJoinPool pool) throws IOException {
+		if (numbering == LineNumbering.FILE) {
+			return FileChunkSplitter.split(file, encoding, chunkCount, pool);
+		}
+		return FileChunkSplitter.splitAtLineBoundaries(file, chunkCount);
+	}
+
+	/**
+	 * Waits for each of the input futures to complete, rethrowing the first failure encountered
+	 * 
+	 * @param futures
+	 * @return the results of the futures, in order
+	 * @throws IOException
+	 *             if a future failed with an IOException, or if interrupted while waiting
+	 */
+	static <T> List<T> getResults(List<? extends Future<T>> futures) throws IOException {
+		List<T> results = new ArrayList<T>(futures.size());
+		try {
+			for (Future<T> future : futures) {
+				results.add(getResult(future));
+			}
+		} finally {
+			for (Future<T> future : futures) {
+				future.cancel(true);
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Waits for the input future to complete, rethrowing its failure if it failed
+	 * 
+	 * @param future
+	 * @return the result of the future
+	 * @throws IOException
+	 *             if the future failed with an IOException, or if interrupted while waiting
+	 */
+	static <T> T getResult(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for chunk processing to complete.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new RuntimeException(cause);
+		}
+	}
+
+}
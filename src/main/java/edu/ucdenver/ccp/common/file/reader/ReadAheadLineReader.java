@@ -0,0 +1,241 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A {@link LineReader} that reads lines from another <code>LineReader</code> on a background thread.
+ * The background thread performs the I/O, decoding and line splitting and places the lines it reads
+ * in batches on a bounded queue, so the thread consuming the lines only processes them. This is
+ * worthwhile when reading blocks for significant periods (e.g. on network file systems) and the
+ * consumer does substantial work per line.
+ * <p>
+ * The lines returned are those returned by the wrapped reader, including their line numbers and
+ * offsets, so offset tracking (see {@link LineReader#setOffsetTracking(OffsetTracking)}) must be
+ * configured on the wrapped reader before it is passed to this reader. Exceptions thrown by the
+ * wrapped reader are rethrown to the consumer once the lines read prior to the exception have been
+ * consumed. Closing this reader stops the background thread and
+ * closes the wrapped reader.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ * @param <T>
+ */
+public class ReadAheadLineReader<T extends Line> extends LineReader<T> {
+
+	/**
+	 * The default number of lines placed on the queue at a time
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 1024;
+
+	/**
+	 * The default maximum number of batches read ahead of the consumer
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+	/**
+	 * Sentinel batch marking the end of the lines (or a failure reading them)
+	 */
+	private static final List<Line> END = Collections.emptyList();
+
+	private final LineReader<T> reader;
+	private final int batchSize;
+	private final BlockingQueue<List<? extends Line>> batches;
+	private final Thread readerThread;
+
+	/**
+	 * Set by the background thread if reading a line fails
+	 */
+	private volatile Throwable readError;
+	private volatile boolean closed = false;
+
+	/**
+	 * The batch currently being consumed, <code>END</code> once all lines have been consumed
+	 */
+	private List<? extends Line> currentBatch;
+	private int position;
+
+	/**
+	 * Initializes a <code>ReadAheadLineReader</code> using the default batch size and queue
+	 * capacity
+	 * 
+	 * @param reader
+	 *            the reader whose lines are read ahead
+	 */
+	public ReadAheadLineReader(LineReader<T> reader) {
+		this(reader, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Initializes a <code>ReadAheadLineReader</code> and starts the background thread reading from
+	 * the input reader
+	 * 
+	 * @param reader
+	 *            the reader whose lines are read ahead; it must not be used by any other thread
+	 * @param batchSize
+	 *            the number of lines placed on the queue at a time
+	 * @param queueCapacity
+	 *            the maximum number of batches read ahead of the consumer
+	 */
+	public ReadAheadLineReader(LineReader<T> reader, int batchSize, int queueCapacity) {
+		super((LinePredicate) null);
+		if (batchSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Batch size and queue capacity must be positive. Batch size: %d, queue capacity: %d", batchSize,
+					queueCapacity));
+		}
+		this.reader = reader;
+		this.batchSize = batchSize;
+		this.batches = new ArrayBlockingQueue<List<? extends Line>>(queueCapacity);
+		this.readerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readAhead();
+			}
+		}, "line-read-ahead-" + reader.getClass().getSimpleName());
+		this.readerThread.setDaemon(true);
+		this.readerThread.start();
+	}
+
+	/**
+	 * Executed by the background thread: reads batches of lines until the wrapped reader is
+	 * exhausted, this reader is closed, or reading fails
+	 */
+	private void readAhead() {
+		List<T> batch = new ArrayList<T>(batchSize);
+		try {
+			try {
+				T line;
+				while (!closed && (line = reader.readLine()) != null) {
+					batch.add(line);
+					if (batch.size() == batchSize) {
+						batches.put(batch);
+						batch = new ArrayList<T>(batchSize);
+					}
+				}
+			} catch (InterruptedException e) {
+				throw e;
+			} catch (Throwable t) {
+				if (closed) {
+					return;
+				}
+				readError = t;
+			}
+			/* the lines read prior to the end of the input (or a failure) */
+			if (!batch.isEmpty()) {
+				batches.put(batch);
+			}
+			batches.put(END);
+		} catch (InterruptedException e) {
+			/* the reader has been closed */
+		}
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected T getNextLine() throws IOException {
+		if (closed) {
+			throw new IOException("Reader closed");
+		}
+		if (currentBatch == END) {
+			return null;
+		}
+		if (currentBatch == null || position == currentBatch.size()) {
+			try {
+				currentBatch = batches.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for read-ahead lines", e);
+			}
+			position = 0;
+			if (currentBatch == END) {
+				rethrowReadError();
+				return null;
+			}
+		}
+		return (T) currentBatch.get(position++);
+	}
+
+	/**
+	 * Rethrows the error encountered by the background thread, if any
+	 * 
+	 * @throws IOException
+	 */
+	private void rethrowReadError() throws IOException {
+		if (readError == null) {
+			return;
+		}
+		if (readError instanceof IOException) {
+			throw (IOException) readError;
+		}
+		if (readError instanceof RuntimeException) {
+			throw (RuntimeException) readError;
+		}
+		throw new IOException("Error while reading ahead from the line reader", readError);
+	}
+
+	/**
+	 * The offsets of the lines returned are computed by the wrapped reader, so the code points of
+	 * each line are not counted again
+	 */
+	@Override
+	protected int getCodePointCount(T line) {
+		return 0;
+	}
+
+	/**
+	 * Stops the background thread, discards any lines that have been read ahead and closes the
+	 * wrapped reader
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		readerThread.interrupt();
+		batches.clear();
+		reader.close();
+	}
+
+}
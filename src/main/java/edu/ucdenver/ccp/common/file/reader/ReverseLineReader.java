@@ -0,0 +1,391 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * A {@link LineReader} that reads the lines of a file in reverse order, starting with the last line.
+ * The file is read backwards in blocks using a {@link FileChannel}, so the cost of reading the end
+ * of a file does not depend on the size of the file. This is useful for inspecting the end of large
+ * log files.
+ * <p>
+ * The byte offset of each line returned (see {@link Line#getByteOffset()}) is the exact offset of
+ * the start of the line from the beginning of the file. Line numbers and character and code point
+ * offsets are relative to the beginning of the file as well, but can only be computed if a
+ * {@link LineIndex} of the file is supplied; otherwise they are reported as -1. As with the other
+ * readers, a final line without a terminator is reported as having a {@link LineTerminator#LF}
+ * terminator.
+ * <p>
+ * Line terminators are detected at the byte level, see {@link ByteBufferLineReader}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReverseLineReader extends LineReader<Line> {
+
+	/**
+	 * The default number of bytes read from the file at a time
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	private final FileChannel channel;
+
+	private final CharacterEncoding encoding;
+
+	private final int blockSize;
+
+	/**
+	 * Bytes of the file read most recently
+	 */
+	private byte[] window = new byte[0];
+
+	/**
+	 * The byte offset of the first byte in the window
+	 */
+	private long windowStart = 0;
+
+	/**
+	 * The byte offset one past the last byte in the window
+	 */
+	private long windowEnd = 0;
+
+	/**
+	 * The byte offset one past the end (including the terminator) of the next line to read, i.e.
+	 * the start of the line most recently read
+	 */
+	private long end;
+
+	/**
+	 * true if the line numbers and character and code point offsets are known
+	 */
+	private final boolean offsetsKnown;
+
+	/**
+	 * The line number of the next line to read
+	 */
+	private long nextLineNumber = -1;
+
+	/**
+	 * The character offset one past the end (including the terminator) of the next line to read
+	 */
+	private long endCharacterOffset = -1;
+
+	/**
+	 * The code point offset one past the end (including the terminator) of the next line to read
+	 */
+	private long endCodePointOffset = -1;
+
+	/**
+	 * Initializes a new <code>ReverseLineReader</code>. Line numbers and character and code point
+	 * offsets are not computed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param blockSize
+	 *            the number of bytes read from the file at a time. The block is enlarged if a
+	 *            single line does not fit.
+	 * @throws IOException
+	 */
+	public ReverseLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, int blockSize)
+			throws IOException {
+		this(inputFile, encoding, skipLinePrefix, null, blockSize);
+	}
+
+	/**
+	 * Initializes a new <code>ReverseLineReader</code>. Line numbers and character and code point
+	 * offsets are not computed.
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @throws IOException
+	 */
+	public ReverseLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		this(inputFile, encoding, skipLinePrefix, null, DEFAULT_BLOCK_SIZE);
+	}
+
+	public ReverseLineReader(File inputFile, CharacterEncoding encoding) throws IOException {
+		this(inputFile, encoding, null);
+	}
+
+	/**
+	 * Initializes a new <code>ReverseLineReader</code> that uses the input index to compute the line
+	 * numbers and character and code point offsets of the lines returned. Only the lines following
+	 * the last indexed line are read forwards to do so.
+	 * 
+	 * @param inputFile
+	 * @param index
+	 *            a current index of the input file
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @throws IOException
+	 */
+	public ReverseLineReader(File inputFile, LineIndex index, String skipLinePrefix) throws IOException {
+		this(inputFile, index.getEncoding(), skipLinePrefix, index, DEFAULT_BLOCK_SIZE);
+	}
+
+	private ReverseLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, LineIndex index,
+			int blockSize) throws IOException {
+		super(skipLinePrefix);
+		if (blockSize < 2) {
+			throw new IllegalArgumentException("Block size must be at least 2 but was: " + blockSize);
+		}
+		if (index != null && !index.isCurrent(inputFile)) {
+			throw new IllegalArgumentException("The line index is not current for file: "
+					+ inputFile.getAbsolutePath());
+		}
+		this.encoding = encoding;
+		this.blockSize = blockSize;
+		this.offsetsKnown = (index != null);
+		this.channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ);
+		this.end = channel.size();
+		if (offsetsKnown && index.getLineCount() > 0) {
+			initializeOffsets(inputFile, index);
+		}
+	}
+
+	/**
+	 * Reads the last line of the file forwards (starting from the last indexed line) to determine
+	 * the offsets one past the end of the file
+	 */
+	private void initializeOffsets(File inputFile, LineIndex index) throws IOException {
+		MappedLineReader forwardReader = index.openReaderAtLine(inputFile, index.getLineCount() - 1);
+		try {
+			Line lastLine = forwardReader.readLine();
+			ensureWindow(end - 1, end);
+			byte lastByte = byteAt(end - 1);
+			int terminatorLength = (lastByte == LF || lastByte == CR) ? lastLine.getLineTerminator().length() : 0;
+			String text = lastLine.getText();
+			nextLineNumber = lastLine.getLineNumber();
+			endCharacterOffset = lastLine.getCharacterOffset() + text.length() + terminatorLength;
+			endCodePointOffset = lastLine.getCodePointOffset() + text.codePointCount(0, text.length())
+					+ terminatorLength;
+		} finally {
+			forwardReader.close();
+		}
+	}
+
+	/**
+	 * Reads lines from the end of the input file until <code>lineCount</code> lines have been read
+	 * or the beginning of the file is reached
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param lineCount
+	 *            the maximum number of lines to return
+	 * @return the last lines of the file, in the order in which they appear in the file
+	 * @throws IOException
+	 */
+	public static List<Line> readLastLines(File inputFile, CharacterEncoding encoding, int lineCount)
+			throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		ReverseLineReader reader = new ReverseLineReader(inputFile, encoding);
+		try {
+			Line line;
+			while (lines.size() < lineCount && (line = reader.readLine()) != null) {
+				lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		Collections.reverse(lines);
+		return lines;
+	}
+
+	/**
+	 * @return the byte offset of the start of the line most recently read; the number of bytes of
+	 *         the file that have not been read
+	 */
+	public long getByteOffset() {
+		return end;
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@Override
+	protected Line getNextLine() throws IOException {
+		while (end > 0) {
+			ensureWindow(Math.max(0, end - 2), end);
+			LineTerminator lineTerminator;
+			int terminatorLength;
+			if (byteAt(end - 1) == LF) {
+				if (end >= 2 && byteAt(end - 2) == CR) {
+					lineTerminator = LineTerminator.CRLF;
+					terminatorLength = 2;
+				} else {
+					lineTerminator = LineTerminator.LF;
+					terminatorLength = 1;
+				}
+			} else if (byteAt(end - 1) == CR) {
+				lineTerminator = LineTerminator.CR;
+				terminatorLength = 1;
+			} else {
+				/* the final line of the file has no terminator */
+				lineTerminator = LineTerminator.LF;
+				terminatorLength = 0;
+			}
+			long textEnd = end - terminatorLength;
+			long start = findLineStart(textEnd);
+			String lineText = decode(start, textEnd);
+			end = start;
+			if (offsetsKnown) {
+				endCharacterOffset -= lineText.length() + terminatorLength;
+				endCodePointOffset -= lineText.codePointCount(0, lineText.length()) + terminatorLength;
+			}
+			long lineNumber = nextLineNumber;
+			if (offsetsKnown) {
+				nextLineNumber--;
+			}
+			if (skipLine(lineText)) {
+				continue;
+			}
+			return new Line(lineText, lineTerminator, endCharacterOffset, endCodePointOffset, lineNumber, start);
+		}
+		return null;
+	}
+
+	/**
+	 * The offsets of the lines returned are computed while reading backwards, so the code points of
+	 * each line are not counted again
+	 */
+	@Override
+	protected int getCodePointCount(Line line) {
+		return 0;
+	}
+
+	/**
+	 * Scans backwards from the input offset for the terminator of the preceding line, reading
+	 * earlier blocks of the file as needed
+	 * 
+	 * @param textEnd
+	 *            the byte offset one past the last byte of the text of the line
+	 * @return the byte offset of the first byte of the line
+	 */
+	private long findLineStart(long textEnd) throws IOException {
+		long position = textEnd - 1;
+		while (true) {
+			while (position >= windowStart) {
+				byte b = window[(int) (position - windowStart)];
+				if (b == LF || b == CR) {
+					return position + 1;
+				}
+				position--;
+			}
+			if (windowStart == 0) {
+				return 0;
+			}
+			/* the line extends before the window; read an earlier block, retaining the line */
+			long size = Math.max(blockSize, 2 * (textEnd - windowStart));
+			ensureWindow(Math.max(0, textEnd - size), textEnd);
+		}
+	}
+
+	/**
+	 * Ensures the window contains the bytes from <code>from</code> (inclusive) to <code>to</code>
+	 * (exclusive). If it does not, a block of at least <code>blockSize</code> bytes ending at
+	 * <code>to</code> is read.
+	 */
+	private void ensureWindow(long from, long to) throws IOException {
+		if (from >= windowStart && to <= windowEnd) {
+			return;
+		}
+		long start = Math.max(0, Math.min(from, to - blockSize));
+		long length = to - start;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException(String.format("Line ending at byte offset %d exceeds the maximum block size.", to));
+		}
+		if (window.length < length) {
+			window = new byte[(int) length];
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(window, 0, (int) length);
+		long position = start;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, position);
+			if (read < 0) {
+				throw new IOException("Unexpected end of file at byte offset: " + position);
+			}
+			position += read;
+		}
+		windowStart = start;
+		windowEnd = to;
+	}
+
+	private byte byteAt(long offset) {
+		return window[(int) (offset - windowStart)];
+	}
+
+	/**
+	 * @return the text of the line occupying the specified bytes. Lines consisting solely of ASCII
+	 *         bytes (or any line if the encoding is ISO-8859-1) are converted without invoking the
+	 *         decoder.
+	 * @throws IOException
+	 *             if the line contains bytes that are not valid in the encoding
+	 */
+	private String decode(long start, long textEnd) throws IOException {
+		int offset = (int) (start - windowStart);
+		int length = (int) (textEnd - start);
+		return encoding.decode(window, offset, length);
+	}
+
+	/**
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+}
@@ -34,13 +34,13 @@ package edu.ucdenver.ccp.common.file.reader;
  */
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.log4j.Logger;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileArchiveUtil;
 
 /**
  * This class is used to iterate over lines obtained from a Stream.
@@ -69,7 +69,9 @@ public class StreamLineIterator extends LineIterator<Line> {
 	}
 
 	/**
-	 * Initializes a <code>StreamLineReader</code> to read from the input <code>File</code>. TODO:
+	 * Initializes a <code>StreamLineReader</code> to read from the input <code>File</code>.
+	 * Compressed files (.gz, .zip, .Z, .bz2) are decompressed on a background thread, see
+	 * {@link FileArchiveUtil#getDecompressedInputStream(File)}. TODO:
 	 * This constructor belongs in the FileLineIterator class and FileLineIterator should be a
 	 * subclass of StreamLineIterator
 	 * 
@@ -79,14 +81,90 @@ public class StreamLineIterator extends LineIterator<Line> {
 	 * @throws IOException
 	 */
 	public StreamLineIterator(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
-		super(new FileInputStream(inputFile), encoding, skipLinePrefix);
+		super(FileArchiveUtil.getDecompressedInputStream(inputFile), encoding, skipLinePrefix);
 		logger.debug(String.format("Iterating through lines for file: %s", inputFile.getAbsolutePath()));
 	}
-	
+
+	/**
+	 * Initializes a <code>StreamLineIterator</code> over the lines returned by the input reader
+	 * 
+	 * @param reader
+	 */
+	private StreamLineIterator(LineReader<Line> reader) {
+		super(reader);
+	}
+
 	public StreamLineIterator(File inputFile, CharacterEncoding encoding) throws IOException {
 		this(inputFile, encoding, null);
 	}
 
+	/**
+	 * Creates a <code>StreamLineIterator</code> over the input <code>InputStream</code>, skipping
+	 * lines that match the input predicate
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new iterator
+	 */
+	public static StreamLineIterator create(InputStream inputStream, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) {
+		return new StreamLineIterator(StreamLineReader.create(inputStream, encoding, skipLinePredicate));
+	}
+
+	/**
+	 * Creates a <code>StreamLineIterator</code> over the input <code>File</code>, skipping lines
+	 * that match the input predicate
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new iterator
+	 * @throws IOException
+	 */
+	public static StreamLineIterator create(File inputFile, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) throws IOException {
+		logger.debug(String.format("Iterating through lines for file: %s", inputFile.getAbsolutePath()));
+		return new StreamLineIterator(StreamLineReader.create(inputFile, encoding, skipLinePredicate));
+	}
+
+	/**
+	 * Creates a <code>StreamLineIterator</code> over the input <code>InputStream</code> whose lines
+	 * are read, decoded and split on a background thread, see {@link ReadAheadLineReader}. The
+	 * thread calling {@link #next()} then only waits if the background thread falls behind.
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, may be null
+	 * @return the new iterator
+	 */
+	public static StreamLineIterator createReadAhead(InputStream inputStream, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) {
+		return new StreamLineIterator(new ReadAheadLineReader<Line>(StreamLineReader.create(inputStream, encoding,
+				skipLinePredicate)));
+	}
+
+	/**
+	 * Creates a <code>StreamLineIterator</code> over the input <code>File</code> whose lines are
+	 * read, decoded and split on a background thread, see {@link ReadAheadLineReader}
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, may be null
+	 * @return the new iterator
+	 * @throws IOException
+	 */
+	public static StreamLineIterator createReadAhead(File inputFile, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) throws IOException {
+		logger.debug(String.format("Iterating through lines for file: %s", inputFile.getAbsolutePath()));
+		return new StreamLineIterator(new ReadAheadLineReader<Line>(StreamLineReader.create(inputFile, encoding,
+				skipLinePredicate)));
+	}
+
 	/**
 	 * Initializes a new <code>StreamLineReader</code> to be used by the
 	 * <code>StreamLineIterator</code>
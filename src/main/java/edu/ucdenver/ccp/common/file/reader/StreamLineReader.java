@@ -40,7 +40,7 @@ import java.io.InputStream;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileReaderUtil;
-import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.io.IoOptions;
 
 /**
  * This class reads lines from an input stream
@@ -51,9 +51,10 @@ import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
 public class StreamLineReader extends LineReader<Line> {
 
 	/**
-	 * A BufferedReader is used to read the lines from the input <code>InputStream</code>
+	 * A {@link LineScanner} is used to split the characters read from the input
+	 * <code>InputStream</code> into lines
 	 */
-	private final BufferedReader reader;
+	private final LineScanner scanner;
 
 	/**
 	 * Used to store the line number
@@ -62,6 +63,23 @@ public class StreamLineReader extends LineReader<Line> {
 
 	private long byteOffset = 0;
 
+	/**
+	 * The number of code points in the most recently returned line
+	 */
+	private int lineCodePointCount;
+
+	/**
+	 * True if the most recently returned line consists solely of ASCII characters (only computed
+	 * when code points are being tracked)
+	 */
+	private boolean lineIsAscii;
+
+	/**
+	 * Reusable view of the current line used to test whether the line should be skipped without
+	 * creating a String
+	 */
+	private final LineView skipCandidate = new LineView();
+
 	/**
 	 * Initializes a new <code>StreamLineReader</code> to read from the input
 	 * <code>InputStream</code>
@@ -74,7 +92,7 @@ public class StreamLineReader extends LineReader<Line> {
 		super(skipLinePrefix);
 		lineNumber = 0;
 		byteOffset = 0;
-		reader = FileReaderUtil.initBufferedReader(inputStream, encoding);
+		scanner = new LineScanner(FileReaderUtil.initBufferedReader(inputStream, encoding));
 	}
 
 	/**
@@ -88,56 +106,186 @@ public class StreamLineReader extends LineReader<Line> {
 		super(skipLinePrefix);
 		lineNumber = 0;
 		byteOffset = 0;
-		reader = FileReaderUtil.initBufferedReader(inputFile, encoding);
+		scanner = new LineScanner(FileReaderUtil.initBufferedReader(inputFile, encoding));
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from the input
+	 * <code>InputStream</code> using the buffer size specified by the input {@link IoOptions}
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param options
+	 */
+	public StreamLineReader(InputStream inputStream, CharacterEncoding encoding, String skipLinePrefix,
+			IoOptions options) {
+		super(skipLinePrefix);
+		scanner = new LineScanner(FileReaderUtil.initBufferedReader(inputStream, encoding, options),
+				options.getBufferSize());
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> to read from the input file using the buffer
+	 * size, buffer type and read-ahead specified by the input {@link IoOptions}, see
+	 * {@link FileReaderUtil#initBufferedReader(File, CharacterEncoding, IoOptions)}
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @param options
+	 * @throws IOException
+	 */
+	public StreamLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, IoOptions options)
+			throws IOException {
+		super(skipLinePrefix);
+		scanner = new LineScanner(FileReaderUtil.initBufferedReader(inputFile, encoding, options),
+				options.getBufferSize());
+	}
+
+	/**
+	 * Initializes a new <code>StreamLineReader</code> that skips lines matching the input predicate
+	 * 
+	 * @param reader
+	 * @param skipLinePredicate
+	 */
+	private StreamLineReader(BufferedReader reader, LinePredicate skipLinePredicate) {
+		super(skipLinePredicate);
+		scanner = new LineScanner(reader);
 	}
 
-	
 	public StreamLineReader(File inputFile, CharacterEncoding encoding) throws IOException {
 		this(inputFile, encoding, null);
 	}
+
+	/**
+	 * Creates a new <code>StreamLineReader</code> to read from the input <code>InputStream</code>,
+	 * skipping lines that match the input predicate
+	 * 
+	 * @param inputStream
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new reader
+	 */
+	public static StreamLineReader create(InputStream inputStream, CharacterEncoding encoding,
+			LinePredicate skipLinePredicate) {
+		return new StreamLineReader(FileReaderUtil.initBufferedReader(inputStream, encoding), skipLinePredicate);
+	}
+
+	/**
+	 * Creates a new <code>StreamLineReader</code> to read from the input file, skipping lines that
+	 * match the input predicate
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePredicate
+	 *            lines matching this predicate are skipped, see {@link LinePredicates}
+	 * @return the new reader
+	 * @throws IOException
+	 */
+	public static StreamLineReader create(File inputFile, CharacterEncoding encoding, LinePredicate skipLinePredicate)
+			throws IOException {
+		return new StreamLineReader(FileReaderUtil.initBufferedReader(inputFile, encoding), skipLinePredicate);
+	}
 	
 	/**
 	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#readLine()
 	 */
 	@Override
 	protected Line getNextLine() throws IOException {
-		LineTerminator lineTerminator = null;
-		StringBuffer buffer = new StringBuffer();
-		int c = -1;
-		boolean eol = false;
-		while (!eol) {
-			switch (c = reader.read()) {
-			case -1:
-			case '\n':
-				eol = true;
-				lineTerminator = LineTerminator.LF;
-				break;
-			case '\r':
-				eol = true;
-				lineTerminator = LineTerminator.CR;
-				reader.mark(1);
-				if ((reader.read()) != '\n')
-					reader.reset();
-				else
-					lineTerminator = LineTerminator.CRLF;
-				break;
-			default:
-				buffer.append((char) c);
-				break;
-			}
+		if (!nextUnskippedLine()) {
+			return null;
+		}
+		String lineText = scanner.getLineText();
+		long lineByteOffset = -1;
+		if (isTrackingCodePoints()) {
+			byteOffset = byteOffset + (lineIsAscii ? lineText.length() : lineText.getBytes().length);
+			lineByteOffset = byteOffset;
 		}
+		return new Line(lineText, scanner.getLineTerminator(), getCharacterOffset(), getCodePointOffset(),
+				lineNumber++, lineByteOffset);
+	}
 
-		if ((c == -1) && (buffer.length() == 0)) {
-			return null;
+	/**
+	 * Copies the text of the next line directly from the scanner's buffer into the batch, without
+	 * creating a {@link Line} or a String
+	 * 
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#readLineInto(LineBatch)
+	 */
+	@Override
+	protected boolean readLineInto(LineBatch batch) throws IOException {
+		if (!nextUnskippedLine()) {
+			return false;
+		}
+		char[] buffer = scanner.getBuffer();
+		int start = scanner.getLineStart();
+		int length = scanner.getLineLength();
+		long lineByteOffset = -1;
+		if (isTrackingCodePoints()) {
+			byteOffset = byteOffset + (lineIsAscii ? length : new String(buffer, start, length).getBytes().length);
+			lineByteOffset = byteOffset;
 		}
-		String lineText = buffer.toString();
-		byteOffset = byteOffset + lineText.getBytes().length;
+		batch.add(buffer, start, length, scanner.getLineTerminator(), lineNumber++, getCharacterOffset(),
+				getCodePointOffset(), lineByteOffset);
+		updateCharacterOffset(length, lineCodePointCount, scanner.getLineTerminator());
+		return true;
+	}
 
-		if (skipLine(lineText)) {
-			lineNumber++;
-			return readLine();
+	/**
+	 * Advances the scanner to the next line that is not skipped, counting any skipped lines in the
+	 * line number and offsets. The code point count of the line and whether it consists solely of
+	 * ASCII characters are recorded.
+	 * 
+	 * @return false if there are no more lines, true otherwise
+	 * @throws IOException
+	 */
+	private boolean nextUnskippedLine() throws IOException {
+		while (scanner.nextLine()) {
+			char[] buffer = scanner.getBuffer();
+			int start = scanner.getLineStart();
+			int length = scanner.getLineLength();
+			boolean ascii = isTrackingCodePoints() && CharacterEncoding.isAscii(buffer, start, length);
+			if (skipLinePredicate != null) {
+				skipCandidate.set(buffer, start, scanner.getLineEnd(), scanner.getLineTerminator(), lineNumber,
+						getCharacterOffset());
+				if (skipLine(skipCandidate)) {
+					if (isTrackingCodePoints()) {
+						byteOffset = byteOffset
+								+ (ascii ? length : new String(buffer, start, length).getBytes().length);
+					}
+					updateCharacterOffset(length, countCodePoints(buffer, start, length, ascii),
+							scanner.getLineTerminator());
+					lineNumber++;
+					continue;
+				}
+			}
+			lineIsAscii = ascii;
+			lineCodePointCount = countCodePoints(buffer, start, length, ascii);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the code point count of the most recently returned line, computed while it was
+	 *         scanned
+	 */
+	@Override
+	protected int getCodePointCount(Line line) {
+		return lineCodePointCount;
+	}
+
+	/**
+	 * @return the number of code points in the specified characters. Lines consisting solely of
+	 *         ASCII characters are not scanned again, nor are any lines if code points are not
+	 *         being tracked.
+	 */
+	private int countCodePoints(char[] buffer, int start, int length, boolean ascii) {
+		if (ascii || !isTrackingCodePoints()) {
+			return length;
 		}
-		return new Line(lineText, lineTerminator, getCharacterOffset(), getCodePointOffset(), lineNumber++, byteOffset);
+		return Character.codePointCount(buffer, start, length);
 	}
 
 	/**
@@ -145,8 +293,8 @@ public class StreamLineReader extends LineReader<Line> {
 	 */
 	@Override
 	public void close() throws IOException {
-		if (reader != null)
-			reader.close();
+		if (scanner != null)
+			scanner.close();
 	}
 
 }
@@ -0,0 +1,95 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * This class is used to iterate over the lines of a file that is being appended to, see
+ * {@link TailLineReader}. {@link #hasNext()} blocks until another line has been appended to the
+ * file, and returns false only once the iterator has been closed (typically from another thread).
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class TailLineIterator extends LineIterator<Line> {
+
+	/**
+	 * Initializes a <code>TailLineIterator</code> that starts at the beginning of the input
+	 * <code>File</code>
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 * @throws IOException
+	 */
+	public TailLineIterator(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		super(inputFile, encoding, skipLinePrefix);
+	}
+
+	/**
+	 * Initializes a <code>TailLineIterator</code> over the lines returned by the input reader
+	 * 
+	 * @param reader
+	 */
+	public TailLineIterator(TailLineReader reader) {
+		super(reader);
+	}
+
+	/**
+	 * @see edu.ucdenver.ccp.common.file.reader.LineIterator#initLineReader(java.lang.Object,
+	 *      edu.ucdenver.ccp.common.file.CharacterEncoding, java.lang.String)
+	 */
+	@Override
+	public LineReader<Line> initLineReader(Object inputFile, CharacterEncoding encoding, String skipLinePrefix)
+			throws IOException {
+		return new TailLineReader((File) inputFile, encoding, skipLinePrefix);
+	}
+
+	/**
+	 * @return the position following the last line returned by {@link #next()}, which can be used to
+	 *         resume iteration with a new {@link TailLineReader}
+	 */
+	public FileChunk getPosition() {
+		if (nextLine != null) {
+			return new FileChunk(nextLine.getByteOffset(), Long.MAX_VALUE, nextLine.getLineNumber(),
+					nextLine.getCharacterOffset(), nextLine.getCodePointOffset());
+		}
+		return ((TailLineReader) reader).getPosition();
+	}
+
+}
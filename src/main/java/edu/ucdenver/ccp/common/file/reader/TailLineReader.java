@@ -0,0 +1,479 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * A {@link LineReader} that follows a file that is being appended to, in the manner of
+ * <code>tail -f</code>. The file is kept open and only bytes appended since the last read are read.
+ * Only complete (terminated) lines are returned; a partially written final line is held back until
+ * its terminator has been written.
+ * <p>
+ * {@link #readLine()} blocks until a line is available (or the reader is closed, in which case it
+ * returns null), while {@link #poll()} and {@link #poll(long, TimeUnit)} return null if no line
+ * becomes available. Waiting is driven by a {@link WatchService} on the directory of the file, with
+ * the file also being checked every poll interval in case the watch service does not report a
+ * change promptly (or at all, e.g. on some network file systems).
+ * <p>
+ * If the file is truncated, reading restarts at its beginning. If the file is rotated (i.e. the path
+ * refers to a different file than the one being read, as detected by the file key of the
+ * underlying file system), the remainder of the old file is read before switching to the new file.
+ * Line numbers and offsets restart at 0 whenever reading restarts at the beginning of a file.
+ * <p>
+ * The position following the last line read can be obtained using {@link #getPosition()} and later
+ * passed to a new reader to resume reading where this reader stopped. If the file has been
+ * replaced in the meantime (i.e. the path now refers to a different file, as detected by its file
+ * key) the new reader starts at the beginning of the new file.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class TailLineReader extends LineReader<Line> {
+
+	private static final Logger logger = Logger.getLogger(TailLineReader.class);
+
+	/**
+	 * The default maximum time (in milliseconds) between checks of the file for new data
+	 */
+	public static final long DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+
+	private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+	private static final byte LF = '\n';
+
+	private static final byte CR = '\r';
+
+	private final Path path;
+
+	private final CharacterEncoding encoding;
+
+	private final long pollIntervalMillis;
+
+	private FileChannel channel;
+
+	/**
+	 * Identifies the file being read (may be null if not supported by the file system)
+	 */
+	private Object fileKey;
+
+	/**
+	 * Created by the reading thread when waiting for new data for the first time, and closed by
+	 * {@link #close()}, which may be invoked from another thread
+	 */
+	private volatile WatchService watchService;
+
+	private volatile boolean closed = false;
+
+	/**
+	 * Bytes read from the file that have not yet been returned as part of a line occupy the indexes
+	 * from <code>bufferStart</code> (inclusive) to <code>bufferEnd</code> (exclusive)
+	 */
+	private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+	private int bufferStart = 0;
+	private int bufferEnd = 0;
+
+	/**
+	 * The index in the buffer from which to continue scanning for a line terminator
+	 */
+	private int scanIndex = 0;
+
+	/**
+	 * The byte offset of the next line, i.e. of <code>buffer[bufferStart]</code>
+	 */
+	private long byteOffset;
+
+	private long lineNumber;
+
+	private long characterOffset;
+
+	private long codePointOffset;
+
+	/**
+	 * Initializes a new <code>TailLineReader</code> that starts reading at the beginning of the
+	 * input file
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @throws IOException
+	 */
+	public TailLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix) throws IOException {
+		this(inputFile, encoding, skipLinePrefix, TailPosition.START, DEFAULT_POLL_INTERVAL_MILLIS);
+	}
+
+	/**
+	 * Initializes a new <code>TailLineReader</code> that starts reading at the input position
+	 * 
+	 * @param inputFile
+	 * @param encoding
+	 * @param skipLinePrefix
+	 *            if a line starts with the skip line prefix, then it is skipped (and not returned
+	 *            by the LineReader)
+	 * @param start
+	 *            the position of the first line to read, typically obtained from
+	 *            {@link #getPosition()} of an earlier reader. If the path now refers to a different
+	 *            file than the one the position was obtained from, or the file is now shorter than
+	 *            the start position (in which case it is assumed to have been truncated), the file
+	 *            is read from the beginning.
+	 * @param pollIntervalMillis
+	 *            the maximum time (in milliseconds) between checks of the file for new data
+	 * @throws IOException
+	 */
+	public TailLineReader(File inputFile, CharacterEncoding encoding, String skipLinePrefix, TailPosition start,
+			long pollIntervalMillis) throws IOException {
+		super(skipLinePrefix);
+		if (pollIntervalMillis < 1) {
+			throw new IllegalArgumentException("Poll interval must be positive but was: " + pollIntervalMillis);
+		}
+		this.path = inputFile.toPath().toAbsolutePath();
+		this.encoding = encoding;
+		this.pollIntervalMillis = pollIntervalMillis;
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		this.fileKey = getFileKey();
+		if (start.getFileKey() != null && fileKey != null && !start.getFileKey().equals(fileKey)) {
+			logger.info("File replaced since the start position was obtained, reading from the beginning: " + path);
+		} else {
+			this.byteOffset = start.getByteOffset();
+			this.lineNumber = start.getLineNumber();
+			this.characterOffset = start.getCharacterOffset();
+			this.codePointOffset = start.getCodePointOffset();
+		}
+	}
+
+	/**
+	 * @return the position following the last line returned, which can be used to resume reading
+	 *         with a new reader
+	 */
+	public TailPosition getPosition() {
+		return new TailPosition(fileKey, byteOffset, lineNumber, characterOffset, codePointOffset);
+	}
+
+	/**
+	 * @return the next line if a complete line is available, null otherwise
+	 * @throws IOException
+	 */
+	public Line poll() throws IOException {
+		return nextAvailableLine();
+	}
+
+	/**
+	 * Waits up to the specified time for a complete line to become available
+	 * 
+	 * @param timeout
+	 * @param unit
+	 * @return the next line, or null if no line became available before the timeout expired
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public Line poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			Line line = nextAvailableLine();
+			if (line != null) {
+				return line;
+			}
+			long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			if (remainingMillis <= 0 || closed) {
+				return null;
+			}
+			awaitChange(remainingMillis);
+		}
+	}
+
+	/**
+	 * Blocks until a complete line is available
+	 * 
+	 * @return the next line, or null if this reader has been closed
+	 * @see edu.ucdenver.ccp.common.file.reader.LineReader#getNextLine()
+	 */
+	@Override
+	protected Line getNextLine() throws IOException {
+		try {
+			while (!closed) {
+				Line line = nextAvailableLine();
+				if (line != null) {
+					return line;
+				}
+				awaitChange(pollIntervalMillis);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a line to be appended to: " + path);
+		} catch (IOException e) {
+			if (!closed) {
+				throw e;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The offsets of the lines returned are computed by this reader, so the code points of each
+	 * line are not counted again
+	 */
+	@Override
+	protected int getCodePointCount(Line line) {
+		return 0;
+	}
+
+	/**
+	 * @return the next complete line that is not skipped, reading any bytes appended to the file
+	 *         as needed, or null if no such line is available
+	 * @throws IOException
+	 */
+	private Line nextAvailableLine() throws IOException {
+		if (closed) {
+			throw new IOException("Reader closed");
+		}
+		while (true) {
+			Line line = extractLine(false);
+			if (line == null) {
+				if (readAppendedBytes()) {
+					continue;
+				}
+				if (channel.size() < byteOffset + (bufferEnd - bufferStart)) {
+					logger.info("File truncated, reading from the beginning: " + path);
+					restart();
+					continue;
+				}
+				if (!isRotated()) {
+					return null;
+				}
+				logger.info("File rotated, reading the new file: " + path);
+				/* the old file has been read completely; its final line may not be terminated */
+				line = extractLine(true);
+				channel.close();
+				channel = FileChannel.open(path, StandardOpenOption.READ);
+				fileKey = getFileKey();
+				restart();
+				if (line == null) {
+					continue;
+				}
+			}
+			if (!skipLine(line.getText())) {
+				return line;
+			}
+		}
+	}
+
+	/**
+	 * Resets the buffer, line number and offsets to the beginning of the file
+	 */
+	private void restart() {
+		bufferStart = 0;
+		bufferEnd = 0;
+		scanIndex = 0;
+		byteOffset = 0;
+		lineNumber = 0;
+		characterOffset = 0;
+		codePointOffset = 0;
+	}
+
+	/**
+	 * Scans the buffered bytes for the next line terminator
+	 * 
+	 * @param endOfFile
+	 *            true if no more bytes will be appended to the buffered bytes, in which case a final
+	 *            unterminated line is returned (with a {@link LineTerminator#LF} terminator)
+	 * @return the next line, or null if the buffer does not contain a complete line
+	 * @throws IOException
+	 *             if the line contains bytes that are not valid in the encoding
+	 */
+	private Line extractLine(boolean endOfFile) throws IOException {
+		int index = scanIndex;
+		while (index < bufferEnd && buffer[index] != LF && buffer[index] != CR) {
+			index++;
+		}
+		LineTerminator lineTerminator;
+		int next;
+		if (index == bufferEnd) {
+			scanIndex = index;
+			if (!endOfFile || index == bufferStart) {
+				return null;
+			}
+			lineTerminator = LineTerminator.LF;
+			next = index;
+		} else if (buffer[index] == LF) {
+			lineTerminator = LineTerminator.LF;
+			next = index + 1;
+		} else if (index + 1 < bufferEnd) {
+			boolean crlf = (buffer[index + 1] == LF);
+			lineTerminator = crlf ? LineTerminator.CRLF : LineTerminator.CR;
+			next = crlf ? index + 2 : index + 1;
+		} else if (endOfFile) {
+			lineTerminator = LineTerminator.CR;
+			next = index + 1;
+		} else {
+			/* a LF may follow the CR once more bytes have been written */
+			scanIndex = index;
+			return null;
+		}
+		String lineText = decode(bufferStart, index);
+		Line line = new Line(lineText, lineTerminator, characterOffset, codePointOffset, lineNumber, byteOffset);
+		byteOffset += next - bufferStart;
+		lineNumber++;
+		characterOffset += lineText.length() + lineTerminator.length();
+		codePointOffset += lineText.codePointCount(0, lineText.length()) + lineTerminator.length();
+		bufferStart = next;
+		scanIndex = next;
+		return line;
+	}
+
+	/**
+	 * Reads bytes appended to the file since the last read into the buffer
+	 * 
+	 * @return true if any bytes were read
+	 * @throws IOException
+	 */
+	private boolean readAppendedBytes() throws IOException {
+		long readPosition = byteOffset + (bufferEnd - bufferStart);
+		if (channel.size() <= readPosition) {
+			return false;
+		}
+		if (bufferStart > 0) {
+			System.arraycopy(buffer, bufferStart, buffer, 0, bufferEnd - bufferStart);
+			bufferEnd -= bufferStart;
+			scanIndex -= bufferStart;
+			bufferStart = 0;
+		}
+		if (bufferEnd == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		int read = channel.read(ByteBuffer.wrap(buffer, bufferEnd, buffer.length - bufferEnd), readPosition);
+		if (read <= 0) {
+			return false;
+		}
+		bufferEnd += read;
+		return true;
+	}
+
+	/**
+	 * @return true if the path now refers to a different file than the one being read
+	 */
+	private boolean isRotated() throws IOException {
+		Object currentFileKey = getFileKey();
+		return fileKey != null && currentFileKey != null && !fileKey.equals(currentFileKey);
+	}
+
+	/**
+	 * @return the file key of the file the path currently refers to, or null if there is no such
+	 *         file or file keys are not supported
+	 */
+	private Object getFileKey() throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Waits until the directory of the file reports a change or the input time (capped at the poll
+	 * interval) has elapsed. Returns immediately if this reader has been closed.
+	 */
+	private void awaitChange(long timeoutMillis) throws IOException, InterruptedException {
+		WatchService service = watchService;
+		try {
+			if (service == null) {
+				service = path.getFileSystem().newWatchService();
+				watchService = service;
+				if (closed) {
+					/* close() may have run before the service was published, so it closes it here */
+					service.close();
+					return;
+				}
+				path.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+						StandardWatchEventKinds.ENTRY_MODIFY);
+			}
+			WatchKey key = service.poll(Math.min(timeoutMillis, pollIntervalMillis), TimeUnit.MILLISECONDS);
+			if (key != null) {
+				key.pollEvents();
+				key.reset();
+			}
+		} catch (ClosedWatchServiceException e) {
+			/* the reader has been closed */
+		}
+	}
+
+	/**
+	 * @return the text of the line occupying the specified bytes of the buffer. Lines consisting
+	 *         solely of ASCII bytes (or any line if the encoding is ISO-8859-1) are converted
+	 *         without invoking the decoder.
+	 * @throws IOException
+	 *             if the line contains bytes that are not valid in the encoding
+	 */
+	private String decode(int start, int end) throws IOException {
+		int length = end - start;
+		return encoding.decode(buffer, start, length);
+	}
+
+	/**
+	 * Closes the file and stops any thread blocked in {@link #readLine()}, which then returns null
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		WatchService service = watchService;
+		if (service != null) {
+			service.close();
+		}
+		channel.close();
+	}
+
+}
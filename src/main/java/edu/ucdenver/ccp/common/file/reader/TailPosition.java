@@ -0,0 +1,145 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * The position in a followed file at which a {@link TailLineReader} stopped, used to resume
+ * reading with a new reader. Along with the byte offset, line number, character offset and code
+ * point offset of the next line, a position records the file key (see
+ * {@link java.nio.file.attribute.BasicFileAttributes#fileKey()}) of the file that was being read,
+ * so that a resuming reader can detect that the path now refers to a different file.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class TailPosition {
+
+	/**
+	 * The beginning of whichever file the path refers to
+	 */
+	public static final TailPosition START = new TailPosition(null, 0, 0, 0, 0);
+
+	/**
+	 * Identifies the file that was being read; null if unknown or not supported by the file system
+	 */
+	private final Object fileKey;
+
+	/**
+	 * The byte offset of the next line
+	 */
+	private final long byteOffset;
+
+	/**
+	 * The line number of the next line
+	 */
+	private final long lineNumber;
+
+	/**
+	 * The number of characters in the file that precede the next line
+	 */
+	private final long characterOffset;
+
+	/**
+	 * The number of code points in the file that precede the next line
+	 */
+	private final long codePointOffset;
+
+	/**
+	 * Initializes a new {@link TailPosition}
+	 * 
+	 * @param fileKey
+	 *            identifies the file that was being read; null if unknown
+	 * @param byteOffset
+	 *            the byte offset of the next line
+	 * @param lineNumber
+	 *            the line number of the next line
+	 * @param characterOffset
+	 *            the number of characters in the file that precede the next line
+	 * @param codePointOffset
+	 *            the number of code points in the file that precede the next line
+	 */
+	public TailPosition(Object fileKey, long byteOffset, long lineNumber, long characterOffset, long codePointOffset) {
+		this.fileKey = fileKey;
+		this.byteOffset = byteOffset;
+		this.lineNumber = lineNumber;
+		this.characterOffset = characterOffset;
+		this.codePointOffset = codePointOffset;
+	}
+
+	/**
+	 * @return identifies the file that was being read; null if unknown or not supported by the
+	 *         file system
+	 */
+	public Object getFileKey() {
+		return fileKey;
+	}
+
+	/**
+	 * @return the byte offset of the next line
+	 */
+	public long getByteOffset() {
+		return byteOffset;
+	}
+
+	/**
+	 * @return the line number of the next line
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return the number of characters in the file that precede the next line
+	 */
+	public long getCharacterOffset() {
+		return characterOffset;
+	}
+
+	/**
+	 * @return the number of code points in the file that precede the next line
+	 */
+	public long getCodePointOffset() {
+		return codePointOffset;
+	}
+
+	/**
+	 * Returns a string representation of this position
+	 */
+	@Override
+	public String toString() {
+		return String.format("(Position byte:%d Line:%d Offset:%d File:%s)", byteOffset, lineNumber, characterOffset,
+				fileKey);
+	}
+
+}
@@ -0,0 +1,616 @@
+package edu.ucdenver.ccp.common.file.writer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream.SyncPolicy;
+
+/**
+ * Writes lines to a file on a background thread. Lines are copied into large character blocks by
+ * the producing thread(s); full blocks are passed through a bounded queue to a background thread
+ * that encodes them into <code>ByteBuffer</code>s and writes all of the blocks that are waiting
+ * with a single gathering write to the output channel. Encoding and writing therefore overlap with
+ * whatever work the producers do to create the lines. At most <code>queueCapacity</code> blocks
+ * are queued at a time: producers that get further ahead of the disk block until the background
+ * thread catches up. Block buffers are recycled once written.
+ * <p>
+ * The write methods may be called from multiple threads; each line is written as a whole. An
+ * error encountered by the background thread (e.g. a character that cannot be encoded) is
+ * rethrown by the next call to a write method, {@link #flush()} or {@link #close()}, and nothing
+ * further is written. Lines are only guaranteed to have been written once {@link #flush()} or
+ * {@link #close()} returns.
+ * 
+ * <pre>
+ * AsyncLineWriter writer = new AsyncLineWriter(file, CharacterEncoding.UTF_8);
+ * try {
+ * 	for (Record record : records) {
+ * 		writer.writeLine(record.toTsv());
+ * 	}
+ * } finally {
+ * 	writer.close();
+ * }
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AsyncLineWriter implements Closeable, Flushable {
+
+	/**
+	 * The default number of characters per block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+	/**
+	 * The default maximum number of blocks queued ahead of the background thread
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+	/**
+	 * The line separator used by {@link java.io.BufferedWriter#newLine()}
+	 */
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	/**
+	 * Sentinel block marking the end of the output
+	 */
+	private static final Block END = new Block(new char[0], 0, null);
+
+	private final GatheringByteChannel channel;
+
+	/**
+	 * The stream publishing the output file in WriteMode.ATOMIC, otherwise null
+	 */
+	private final AtomicFileOutputStream atomicStream;
+	private final CharacterEncoding encoding;
+	private final String lineSeparator;
+	private final int blockSize;
+	private final int queueCapacity;
+	private final boolean directBuffers;
+	private final BlockingQueue<Block> filledBlocks;
+	private final BlockingQueue<char[]> freeBlocks;
+	private final Thread writerThread;
+
+	/**
+	 * Set by the background thread if encoding or writing fails
+	 */
+	private volatile Throwable writeError;
+	private boolean closed = false;
+
+	/**
+	 * The block currently being filled by the producers
+	 */
+	private char[] block;
+	private int blockLength;
+
+	/**
+	 * Initializes a new <code>AsyncLineWriter</code> that overwrites the input file using the
+	 * default block size and queue capacity
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 * @throws IOException
+	 */
+	public AsyncLineWriter(File outputFile, CharacterEncoding encoding) throws IOException {
+		this(outputFile, encoding, WriteMode.OVERWRITE, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_CAPACITY, false);
+	}
+
+	/**
+	 * Initializes a new <code>AsyncLineWriter</code> to write to the input file
+	 * 
+	 * @param outputFile
+	 * @param encoding
+	 * @param writeMode
+	 *            WriteMode.APPEND to append to the output file, WriteMode.OVERWRITE to overwrite
+	 *            the output file, WriteMode.ATOMIC to replace the output file when this writer is
+	 *            closed. With WriteMode.ATOMIC the output file is left untouched if writing fails.
+	 * @param blockSize
+	 *            the number of characters per block
+	 * @param queueCapacity
+	 *            the maximum number of blocks queued ahead of the background thread
+	 * @param directBuffers
+	 *            if true, blocks are encoded into direct <code>ByteBuffer</code>s, avoiding the
+	 *            copy of the bytes through a temporary native buffer when they are written
+	 * @throws IOException
+	 */
+	public AsyncLineWriter(File outputFile, CharacterEncoding encoding, WriteMode writeMode, int blockSize,
+			int queueCapacity, boolean directBuffers) throws IOException {
+		this(writeMode == WriteMode.ATOMIC ? new AtomicFileOutputStream(outputFile, SyncPolicy.SYNC_ON_CLOSE) : null,
+				outputFile, writeMode, encoding, blockSize, queueCapacity, directBuffers);
+	}
+
+	/**
+	 * Initializes a new <code>AsyncLineWriter</code> writing to the input atomic stream, if it is
+	 * not null, or else to the input file
+	 */
+	private AsyncLineWriter(AtomicFileOutputStream atomicStream, File outputFile, WriteMode writeMode,
+			CharacterEncoding encoding, int blockSize, int queueCapacity, boolean directBuffers) throws IOException {
+		this(atomicStream == null ? openChannel(outputFile, writeMode) : atomicStream.getChannel(), atomicStream,
+				encoding, LINE_SEPARATOR, blockSize, queueCapacity, directBuffers);
+	}
+
+	/**
+	 * Initializes a new <code>AsyncLineWriter</code> and starts the background thread writing to
+	 * the input channel. The channel is closed when this writer is closed.
+	 * 
+	 * @param channel
+	 *            the channel to write to
+	 * @param encoding
+	 * @param lineSeparator
+	 *            the characters written after each line
+	 * @param blockSize
+	 *            the number of characters per block
+	 * @param queueCapacity
+	 *            the maximum number of blocks queued ahead of the background thread
+	 * @param directBuffers
+	 *            if true, blocks are encoded into direct <code>ByteBuffer</code>s
+	 */
+	public AsyncLineWriter(GatheringByteChannel channel, CharacterEncoding encoding, String lineSeparator,
+			int blockSize, int queueCapacity, boolean directBuffers) {
+		this(channel, null, encoding, lineSeparator, blockSize, queueCapacity, directBuffers);
+	}
+
+	/**
+	 * Initializes a new <code>AsyncLineWriter</code>
+	 * 
+	 * @param atomicStream
+	 *            the stream providing the channel if the output file is published atomically, in
+	 *            which case it is aborted rather than published if writing fails; otherwise null
+	 */
+	private AsyncLineWriter(GatheringByteChannel channel, AtomicFileOutputStream atomicStream,
+			CharacterEncoding encoding, String lineSeparator, int blockSize, int queueCapacity, boolean directBuffers) {
+		if (blockSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Block size and queue capacity must be positive. Block size: %d, queue capacity: %d", blockSize,
+					queueCapacity));
+		}
+		this.channel = channel;
+		this.atomicStream = atomicStream;
+		this.encoding = encoding;
+		this.lineSeparator = lineSeparator;
+		this.blockSize = blockSize;
+		this.queueCapacity = queueCapacity;
+		this.directBuffers = directBuffers;
+		this.filledBlocks = new ArrayBlockingQueue<Block>(queueCapacity);
+		this.freeBlocks = new ArrayBlockingQueue<char[]>(queueCapacity + 1);
+		this.block = new char[blockSize];
+		this.writerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeBlocks();
+			}
+		}, "async-line-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * @return a channel appending to or overwriting the input file
+	 */
+	private static GatheringByteChannel openChannel(File outputFile, WriteMode writeMode) throws IOException {
+		if (writeMode.append()) {
+			return FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+		return FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+	}
+
+	/**
+	 * Writes the input line followed by the line separator
+	 * 
+	 * @param line
+	 * @throws IOException
+	 *             if this writer has been closed or the background thread has failed
+	 */
+	public synchronized void writeLine(CharSequence line) throws IOException {
+		ensureOpen();
+		append(line);
+		append(lineSeparator);
+	}
+
+	/**
+	 * Writes each of the input lines, each followed by the line separator. The lines are written
+	 * together, i.e. lines written concurrently by other threads do not appear between them.
+	 * 
+	 * @param lines
+	 * @throws IOException
+	 *             if this writer has been closed or the background thread has failed
+	 */
+	public synchronized void writeLines(Iterable<? extends CharSequence> lines) throws IOException {
+		ensureOpen();
+		for (CharSequence line : lines) {
+			append(line);
+			append(lineSeparator);
+		}
+	}
+
+	/**
+	 * Writes the input text as is, i.e. without appending a line separator
+	 * 
+	 * @param text
+	 * @throws IOException
+	 *             if this writer has been closed or the background thread has failed
+	 */
+	public synchronized void write(CharSequence text) throws IOException {
+		ensureOpen();
+		append(text);
+	}
+
+	/**
+	 * Waits until all lines written so far have been written to the output channel
+	 * 
+	 * @throws IOException
+	 *             if this writer has been closed or the background thread has failed
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		ensureOpen();
+		submitBlock();
+		CountDownLatch written = new CountDownLatch(1);
+		put(new Block(null, 0, written));
+		try {
+			written.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for lines to be written.");
+		}
+		ensureNoWriteError();
+	}
+
+	/**
+	 * Writes any remaining lines, stops the background thread and closes the output channel. In
+	 * WriteMode.ATOMIC the output file is published, unless writing failed or closing was
+	 * interrupted, in which case it is discarded.
+	 * 
+	 * @throws IOException
+	 *             if the background thread failed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		boolean completed = false;
+		try {
+			if (writeError == null) {
+				submitBlock();
+			}
+			put(END);
+			writerThread.join();
+			completed = writeError == null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for lines to be written.");
+		} finally {
+			closed = true;
+			if (atomicStream != null && !completed) {
+				atomicStream.abort();
+			} else {
+				channel.close();
+			}
+		}
+		ensureNoWriteError();
+	}
+
+	/**
+	 * @throws IOException
+	 *             if this writer has been closed or the background thread has failed
+	 */
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		ensureNoWriteError();
+	}
+
+	/**
+	 * @throws IOException
+	 *             if the background thread has failed
+	 */
+	private void ensureNoWriteError() throws IOException {
+		Throwable error = writeError;
+		if (error != null) {
+			if (error instanceof IOException) {
+				throw (IOException) error;
+			}
+			throw new IOException("Error while writing lines on the background thread", error);
+		}
+	}
+
+	/**
+	 * Copies the input text into the current block, submitting blocks as they fill up
+	 */
+	private void append(CharSequence text) throws IOException {
+		int length = text.length();
+		int offset = 0;
+		while (offset < length) {
+			if (blockLength == block.length) {
+				submitBlock();
+			}
+			int count = Math.min(length - offset, block.length - blockLength);
+			if (text instanceof String) {
+				((String) text).getChars(offset, offset + count, block, blockLength);
+			} else if (text instanceof StringBuilder) {
+				((StringBuilder) text).getChars(offset, offset + count, block, blockLength);
+			} else {
+				for (int i = 0; i < count; i++) {
+					block[blockLength + i] = text.charAt(offset + i);
+				}
+			}
+			blockLength += count;
+			offset += count;
+		}
+	}
+
+	/**
+	 * Queues the current block (if it is not empty) for the background thread, blocking while the
+	 * queue is full
+	 */
+	private void submitBlock() throws IOException {
+		if (blockLength == 0) {
+			return;
+		}
+		put(new Block(block, blockLength, null));
+		block = freeBlocks.poll();
+		if (block == null) {
+			block = new char[blockSize];
+		}
+		blockLength = 0;
+		ensureNoWriteError();
+	}
+
+	private void put(Block queuedBlock) throws InterruptedIOException {
+		try {
+			filledBlocks.put(queuedBlock);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for queue space.");
+		}
+	}
+
+	/**
+	 * Executed by the background thread: encodes and writes the queued blocks until the end of the
+	 * output is reached. After a failure, blocks are still taken from the queue (and discarded) so
+	 * that producers never wait indefinitely.
+	 */
+	private void writeBlocks() {
+		BlockEncoder blockEncoder = new BlockEncoder();
+		List<Block> batch = new ArrayList<Block>(queueCapacity);
+		try {
+			while (true) {
+				batch.clear();
+				batch.add(filledBlocks.take());
+				filledBlocks.drainTo(batch, queueCapacity - 1);
+				for (Block queuedBlock : batch) {
+					try {
+						if (writeError == null) {
+							if (queuedBlock == END) {
+								blockEncoder.finish();
+								blockEncoder.write();
+							} else if (queuedBlock.written != null) {
+								/* everything queued before a flush request must be written first */
+								blockEncoder.write();
+							} else {
+								blockEncoder.encode(queuedBlock);
+							}
+						}
+					} catch (Throwable t) {
+						writeError = t;
+					}
+					if (queuedBlock == END) {
+						return;
+					}
+					if (queuedBlock.written != null) {
+						queuedBlock.written.countDown();
+					} else {
+						freeBlocks.offer(queuedBlock.chars);
+					}
+				}
+				try {
+					if (writeError == null) {
+						blockEncoder.write();
+					}
+				} catch (Throwable t) {
+					writeError = t;
+				}
+			}
+		} catch (InterruptedException e) {
+			/* not expected; record the failure so that further writes are rejected */
+			writeError = new InterruptedIOException("Background writer thread interrupted.");
+		}
+	}
+
+	/**
+	 * Encodes blocks into byte buffers and writes them with a gathering write. Used only by the
+	 * background thread.
+	 */
+	private class BlockEncoder {
+
+		private final CharsetEncoder encoder = encoding.getEncoder();
+
+		private final ByteBuffer[] buffers = new ByteBuffer[queueCapacity + 1];
+
+		private final int bufferCapacity = (int) Math.ceil((blockSize + 1) * (double) encoder.maxBytesPerChar());
+
+		/**
+		 * The number of buffers filled since the last write
+		 */
+		private int bufferCount = 0;
+
+		/**
+		 * A high surrogate at the end of the previous block, whose low surrogate starts the next
+		 * block
+		 */
+		private char pendingHighSurrogate = 0;
+
+		/**
+		 * Encodes the input block into the next free buffer
+		 */
+		void encode(Block queuedBlock) throws IOException {
+			ByteBuffer buffer = nextBuffer();
+			char[] chars = queuedBlock.chars;
+			int length = queuedBlock.length;
+			int start = 0;
+			if (pendingHighSurrogate != 0) {
+				encode(CharBuffer.wrap(new char[] { pendingHighSurrogate, chars[0] }), buffer);
+				pendingHighSurrogate = 0;
+				start = 1;
+			}
+			/*
+			 * characters below 0x80 are encoded as a single byte of the same value in all supported
+			 * CharacterEncodings (this does not hold for e.g. UTF-16, which would need the encoder)
+			 */
+			int asciiEnd = start;
+			if (buffer.hasArray()) {
+				byte[] bytes = buffer.array();
+				int position = buffer.arrayOffset() + buffer.position();
+				while (asciiEnd < length && chars[asciiEnd] < 0x80) {
+					bytes[position++] = (byte) chars[asciiEnd++];
+				}
+				buffer.position(position - buffer.arrayOffset());
+			} else {
+				while (asciiEnd < length && chars[asciiEnd] < 0x80) {
+					buffer.put((byte) chars[asciiEnd++]);
+				}
+			}
+			if (asciiEnd < length) {
+				CharBuffer remaining = CharBuffer.wrap(chars, asciiEnd, length - asciiEnd);
+				encode(remaining, buffer);
+				if (remaining.hasRemaining()) {
+					pendingHighSurrogate = remaining.get();
+				}
+			}
+		}
+
+		/**
+		 * Encodes the input characters; a trailing high surrogate is left in the input buffer
+		 */
+		private void encode(CharBuffer chars, ByteBuffer buffer) throws IOException {
+			CoderResult result = encoder.encode(chars, buffer, false);
+			if (result.isError()) {
+				result.throwException();
+			}
+		}
+
+		/**
+		 * Ends the encoding, reporting a high surrogate at the end of the output as malformed
+		 */
+		void finish() throws IOException {
+			ByteBuffer buffer = nextBuffer();
+			CharBuffer remaining = (pendingHighSurrogate == 0) ? CharBuffer.allocate(0) : CharBuffer
+					.wrap(new char[] { pendingHighSurrogate });
+			CoderResult result = encoder.encode(remaining, buffer, true);
+			if (result.isError()) {
+				result.throwException();
+			}
+			result = encoder.flush(buffer);
+			if (result.isError()) {
+				result.throwException();
+			}
+		}
+
+		/**
+		 * @return the next free buffer, writing the filled buffers if there are none left
+		 */
+		private ByteBuffer nextBuffer() throws IOException {
+			if (bufferCount == buffers.length) {
+				write();
+			}
+			ByteBuffer buffer = buffers[bufferCount];
+			if (buffer == null) {
+				buffer = directBuffers ? ByteBuffer.allocateDirect(bufferCapacity) : ByteBuffer
+						.allocate(bufferCapacity);
+				buffers[bufferCount] = buffer;
+			}
+			bufferCount++;
+			return buffer;
+		}
+
+		/**
+		 * Writes the filled buffers to the output channel using a gathering write
+		 */
+		void write() throws IOException {
+			long remaining = 0;
+			for (int i = 0; i < bufferCount; i++) {
+				buffers[i].flip();
+				remaining += buffers[i].remaining();
+			}
+			while (remaining > 0) {
+				remaining -= channel.write(buffers, 0, bufferCount);
+			}
+			for (int i = 0; i < bufferCount; i++) {
+				buffers[i].clear();
+			}
+			bufferCount = 0;
+		}
+	}
+
+	/**
+	 * A block of <code>length</code> characters to write, or a flush request if the characters are
+	 * null
+	 */
+	private static class Block {
+		private final char[] chars;
+		private final int length;
+		private final CountDownLatch written;
+
+		public Block(char[] chars, int length, CountDownLatch written) {
+			this.chars = chars;
+			this.length = length;
+			this.written = written;
+		}
+	}
+
+}
@@ -0,0 +1,261 @@
+package edu.ucdenver.ccp.common.file.writer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.io.IoOptions;
+
+/**
+ * Writes records to one of many output files, chosen by a {@link Partitioner} from the key of each
+ * record (e.g. one file per organism, or one of N files by hash of an identifier). Only a bounded
+ * number of files are open at a time: when a record is written to a partition whose file is not
+ * open and the limit has been reached, the least recently used file is closed. A file that is
+ * reopened is appended to, so no output is lost; the first time a partition is opened the file is
+ * opened using the {@link WriteMode} of this writer. This keeps the number of file handles and
+ * the memory used by buffers bounded however many partitions there are.
+ * <p>
+ * The methods of this class are synchronized so that records may be written from multiple
+ * threads. Records written to the same partition appear in the order in which they were written.
+ * 
+ * <pre>
+ * PartitionedFileWriter writer = new PartitionedFileWriter(outputDirectory, CharacterEncoding.UTF_8,
+ * 		Partitioners.byHash(64, &quot;genes-&quot;, &quot;.tsv&quot;), 16);
+ * try {
+ * 	for (Gene gene : genes) {
+ * 		writer.writeLine(gene.getId(), gene.toTsv());
+ * 	}
+ * } finally {
+ * 	writer.close();
+ * }
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class PartitionedFileWriter implements Closeable, Flushable {
+
+	private final File outputDirectory;
+	private final CharacterEncoding encoding;
+	private final Partitioner partitioner;
+	private final WriteMode writeMode;
+	private final int maxOpenWriters;
+	private final IoOptions options;
+
+	/**
+	 * The open writers, in order of least to most recent use
+	 */
+	private final LinkedHashMap<String, BufferedWriter> openWriters;
+
+	/**
+	 * The partitions that have been opened at least once
+	 */
+	private final Set<String> partitions = new LinkedHashSet<String>();
+
+	private boolean closed = false;
+
+	/**
+	 * Initializes a new <code>PartitionedFileWriter</code> that overwrites any existing partition
+	 * files and uses the default {@link IoOptions}
+	 * 
+	 * @param outputDirectory
+	 *            the directory to which the partition files are written
+	 * @param encoding
+	 * @param partitioner
+	 *            assigns each record to a partition based on its key
+	 * @param maxOpenWriters
+	 *            the maximum number of partition files open at a time
+	 */
+	public PartitionedFileWriter(File outputDirectory, CharacterEncoding encoding, Partitioner partitioner,
+			int maxOpenWriters) {
+		this(outputDirectory, encoding, partitioner, WriteMode.OVERWRITE, maxOpenWriters, IoOptions.DEFAULT);
+	}
+
+	/**
+	 * Initializes a new <code>PartitionedFileWriter</code>
+	 * 
+	 * @param outputDirectory
+	 *            the directory to which the partition files are written
+	 * @param encoding
+	 * @param partitioner
+	 *            assigns each record to a partition based on its key
+	 * @param writeMode
+	 *            WriteMode.APPEND to append to existing partition files, WriteMode.OVERWRITE to
+	 *            overwrite them. Partition files that are reopened after having been closed to make
+	 *            room for another partition are always appended to (with WriteMode.ATOMIC, this
+	 *            means only the content written before a file is first closed is published
+	 *            atomically).
+	 * @param maxOpenWriters
+	 *            the maximum number of partition files open at a time
+	 * @param options
+	 *            specifies the buffer size of each open writer
+	 */
+	public PartitionedFileWriter(File outputDirectory, CharacterEncoding encoding, Partitioner partitioner,
+			WriteMode writeMode, int maxOpenWriters, IoOptions options) {
+		if (maxOpenWriters < 1) {
+			throw new IllegalArgumentException("The maximum number of open writers must be positive but was: "
+					+ maxOpenWriters);
+		}
+		this.outputDirectory = outputDirectory;
+		this.encoding = encoding;
+		this.partitioner = partitioner;
+		this.writeMode = writeMode;
+		this.maxOpenWriters = maxOpenWriters;
+		this.options = options;
+		this.openWriters = new LinkedHashMap<String, BufferedWriter>(16, 0.75f, true);
+	}
+
+	/**
+	 * Writes the input line, followed by a line separator, to the partition of the input key
+	 * 
+	 * @param key
+	 *            the key used to choose the partition
+	 * @param line
+	 * @throws IOException
+	 *             if this writer has been closed or an error occurs while writing
+	 */
+	public synchronized void writeLine(String key, CharSequence line) throws IOException {
+		BufferedWriter writer = getWriter(partitioner.getPartition(key));
+		writer.append(line);
+		writer.newLine();
+	}
+
+	/**
+	 * @param partition
+	 * @return the file to which the records of the input partition are written
+	 */
+	public File getPartitionFile(String partition) {
+		return new File(outputDirectory, partition);
+	}
+
+	/**
+	 * @return the files of the partitions that have been written to, in the order in which they
+	 *         were first written
+	 */
+	public synchronized Collection<File> getPartitionFiles() {
+		List<File> files = new ArrayList<File>(partitions.size());
+		for (String partition : partitions) {
+			files.add(getPartitionFile(partition));
+		}
+		return files;
+	}
+
+	/**
+	 * @return the number of partition files that are currently open
+	 */
+	public synchronized int getOpenWriterCount() {
+		return openWriters.size();
+	}
+
+	/**
+	 * @return the open writer for the input partition, opening it (and closing the least recently
+	 *         used writer if necessary) if it is not open
+	 */
+	private BufferedWriter getWriter(String partition) throws IOException {
+		if (closed) {
+			throw new IOException("Writer closed");
+		}
+		BufferedWriter writer = openWriters.get(partition);
+		if (writer != null) {
+			return writer;
+		}
+		if (openWriters.size() == maxOpenWriters) {
+			Iterator<BufferedWriter> leastRecentlyUsed = openWriters.values().iterator();
+			BufferedWriter evicted = leastRecentlyUsed.next();
+			leastRecentlyUsed.remove();
+			evicted.close();
+		}
+		WriteMode mode = partitions.add(partition) ? writeMode : WriteMode.APPEND;
+		writer = FileWriterUtil.initBufferedWriter(getPartitionFile(partition).getAbsoluteFile(), encoding, mode,
+				FileSuffixEnforcement.OFF, options);
+		openWriters.put(partition, writer);
+		return writer;
+	}
+
+	/**
+	 * Flushes each of the open writers
+	 * 
+	 * @see java.io.Flushable#flush()
+	 */
+	@Override
+	public synchronized void flush() throws IOException {
+		for (BufferedWriter writer : openWriters.values()) {
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Closes each of the open writers. All writers are closed even if closing one of them fails;
+	 * the first failure is then rethrown.
+	 * 
+	 * @see java.io.Closeable#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		IOException error = null;
+		for (BufferedWriter writer : openWriters.values()) {
+			try {
+				writer.close();
+			} catch (IOException e) {
+				if (error == null) {
+					error = e;
+				}
+			}
+		}
+		openWriters.clear();
+		if (error != null) {
+			throw error;
+		}
+	}
+
+}
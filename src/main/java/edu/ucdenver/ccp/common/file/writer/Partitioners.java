@@ -0,0 +1,113 @@
+package edu.ucdenver.ccp.common.file.writer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Factory methods for commonly used {@link Partitioner}s
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class Partitioners {
+
+	/**
+	 * Private constructor; this class should not be instantiated
+	 */
+	/* @formatter:off */
+	private Partitioners() {/* do not instantiate */
+	}
+	/* @formatter:on */
+
+	/**
+	 * Returns a partitioner that distributes keys over a fixed number of partitions by the hash
+	 * code of the key. The partitions are named using the prefix, the zero-padded partition index
+	 * and the suffix, e.g. <code>part-00003.tsv</code>.
+	 * 
+	 * @param partitionCount
+	 *            the number of partitions
+	 * @param fileNamePrefix
+	 * @param fileNameSuffix
+	 * @return a partitioner assigning keys to one of <code>partitionCount</code> partitions
+	 */
+	public static Partitioner byHash(final int partitionCount, final String fileNamePrefix,
+			final String fileNameSuffix) {
+		if (partitionCount < 1) {
+			throw new IllegalArgumentException("The partition count must be positive but was: " + partitionCount);
+		}
+		final String[] partitions = new String[partitionCount];
+		int digits = Integer.toString(partitionCount - 1).length();
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = String.format("%s%0" + Math.max(digits, 5) + "d%s", fileNamePrefix, i, fileNameSuffix);
+		}
+		return new Partitioner() {
+			@Override
+			public String getPartition(String key) {
+				/* spreads the bits of the hash code so that similar keys are not clustered */
+				int hash = key.hashCode() * 0x9E3779B9;
+				return partitions[(int) ((hash & 0xffffffffL) % partitionCount)];
+			}
+		};
+	}
+
+	/**
+	 * Returns a partitioner that assigns each key to the partition named after the first
+	 * characters of the key, e.g. <code>GO.tsv</code> for <code>GO:0008150</code> with a prefix
+	 * length of 2. Keys shorter than the prefix length are assigned to the partition named after
+	 * the entire key. Characters that are not letters, digits, '-' or '_' are replaced by '_' so
+	 * that the partition name is a valid file name.
+	 * 
+	 * @param prefixLength
+	 *            the number of characters of the key that name the partition
+	 * @param fileNameSuffix
+	 * @return a partitioner assigning keys to partitions by prefix
+	 */
+	public static Partitioner byPrefix(final int prefixLength, final String fileNameSuffix) {
+		if (prefixLength < 1) {
+			throw new IllegalArgumentException("The prefix length must be positive but was: " + prefixLength);
+		}
+		return new Partitioner() {
+			@Override
+			public String getPartition(String key) {
+				int length = Math.min(prefixLength, key.length());
+				StringBuilder partition = new StringBuilder(length + fileNameSuffix.length());
+				for (int i = 0; i < length; i++) {
+					char c = key.charAt(i);
+					partition.append((Character.isLetterOrDigit(c) || c == '-' || c == '_') ? c : '_');
+				}
+				return partition.append(fileNameSuffix).toString();
+			}
+		};
+	}
+
+}
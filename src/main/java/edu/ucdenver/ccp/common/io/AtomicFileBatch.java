@@ -0,0 +1,182 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream.SyncPolicy;
+
+/**
+ * Publishes a group of files atomically written using {@link AtomicFileOutputStream}s together.
+ * Files written with a batch are not published when their streams are closed; instead
+ * {@link #commit()} flushes all of the closed files to the storage device, renames each to its
+ * target file and then flushes each of the directories involved once. Deferring the flushes until
+ * many files have been closed gives the operating system the chance to write them back in bulk,
+ * so a throughput-oriented job can commit every N files (or every N seconds) and pay for durability
+ * once per batch rather than once per file. A job that crashes before committing leaves the
+ * target files untouched.
+ * 
+ * <pre>
+ * AtomicFileBatch batch = new AtomicFileBatch(SyncPolicy.SYNC_ON_CLOSE);
+ * for (Partition partition : partitions) {
+ * 	BufferedWriter writer = FileWriterUtil.initBufferedWriter(partition.getFile(), CharacterEncoding.UTF_8, batch);
+ * 	try {
+ * 		partition.write(writer);
+ * 	} finally {
+ * 		writer.close();
+ * 	}
+ * }
+ * batch.commit();
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AtomicFileBatch {
+
+	private final SyncPolicy syncPolicy;
+
+	/**
+	 * The streams opened since the last commit that have not been aborted
+	 */
+	private final List<AtomicFileOutputStream> streams = new ArrayList<AtomicFileOutputStream>();
+
+	/**
+	 * @param syncPolicy
+	 *            {@link SyncPolicy#SYNC_ON_CLOSE} to flush the files and their directories to the
+	 *            storage device when the batch is committed, {@link SyncPolicy#NO_SYNC} to only
+	 *            publish them
+	 */
+	public AtomicFileBatch(SyncPolicy syncPolicy) {
+		this.syncPolicy = syncPolicy;
+	}
+
+	/**
+	 * Opens a stream writing to a temporary file that is published as the target file when this
+	 * batch is committed
+	 * 
+	 * @param targetFile
+	 * @return the new stream
+	 * @throws FileNotFoundException
+	 *             if the temporary file cannot be created
+	 */
+	public synchronized AtomicFileOutputStream openOutputStream(File targetFile) throws FileNotFoundException {
+		AtomicFileOutputStream stream = new AtomicFileOutputStream(targetFile, syncPolicy, this);
+		streams.add(stream);
+		return stream;
+	}
+
+	/**
+	 * @return the number of files that will be published by the next commit
+	 */
+	public synchronized int getPendingFileCount() {
+		return streams.size();
+	}
+
+	/**
+	 * Flushes (depending on the sync policy) and publishes each of the files written since the
+	 * last commit
+	 * 
+	 * @throws IllegalStateException
+	 *             if any of the streams opened since the last commit has not been closed
+	 * @throws IOException
+	 *             if a file cannot be flushed or published. Files are only published once all of
+	 *             them have been flushed, so if flushing fails none are published. Files that have
+	 *             not been published when the failure occurs are discarded.
+	 */
+	public synchronized void commit() throws IOException {
+		for (AtomicFileOutputStream stream : streams) {
+			if (!stream.isClosed()) {
+				throw new IllegalStateException("Cannot commit while a file is still being written: "
+						+ stream.getTargetFile().getAbsolutePath());
+			}
+		}
+		List<AtomicFileOutputStream> committing = new ArrayList<AtomicFileOutputStream>(streams);
+		streams.clear();
+		try {
+			if (syncPolicy == SyncPolicy.SYNC_ON_CLOSE) {
+				for (AtomicFileOutputStream stream : committing) {
+					stream.syncTemporaryFile();
+				}
+			}
+		} catch (IOException e) {
+			for (AtomicFileOutputStream stream : committing) {
+				stream.discard();
+			}
+			throw e;
+		}
+		Set<File> directories = new LinkedHashSet<File>();
+		for (int i = 0; i < committing.size(); i++) {
+			AtomicFileOutputStream stream = committing.get(i);
+			try {
+				stream.publish();
+			} catch (IOException e) {
+				for (AtomicFileOutputStream unpublished : committing.subList(i, committing.size())) {
+					unpublished.discard();
+				}
+				throw e;
+			}
+			directories.add(stream.getTargetFile().getParentFile());
+		}
+		if (syncPolicy == SyncPolicy.SYNC_ON_CLOSE) {
+			for (File directory : directories) {
+				AtomicFileOutputStream.syncDirectory(directory);
+			}
+		}
+	}
+
+	/**
+	 * Discards each of the files written since the last commit, closing any that are still open
+	 */
+	public synchronized void abort() {
+		for (AtomicFileOutputStream stream : new ArrayList<AtomicFileOutputStream>(streams)) {
+			stream.abort();
+		}
+		streams.clear();
+	}
+
+	/**
+	 * Called when one of the streams of this batch is aborted
+	 */
+	synchronized void aborted(AtomicFileOutputStream stream) {
+		streams.remove(stream);
+	}
+
+}
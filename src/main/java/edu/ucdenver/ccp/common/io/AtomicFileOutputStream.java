@@ -0,0 +1,372 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An <code>OutputStream</code> that publishes a file atomically: the output is written to a
+ * temporary file in the directory of the target file, which is renamed to the target file when
+ * this stream is closed. Readers of the target file therefore see either the previous version of
+ * the file (or no file) or the complete new version, never a partially written file, and a process
+ * that crashes while writing leaves the target file untouched. The rename replaces any existing
+ * target file.
+ * <p>
+ * With {@link SyncPolicy#SYNC_ON_CLOSE}, the temporary file is flushed to the storage device
+ * before it is renamed and the directory is flushed afterwards, so that the published file also
+ * survives an operating system crash or power failure. Files written with an
+ * {@link AtomicFileBatch} are instead flushed and published together when the batch is committed,
+ * which amortizes the cost of flushing over many files.
+ * <p>
+ * Closing this stream publishes whatever has been written, unless a write to the temporary file
+ * failed, in which case the output is discarded and {@link #close()} throws an exception. To
+ * discard the output for any other reason (e.g. after an error in the code producing it), call
+ * {@link #abort()}. Writers that encode or compress their output before it reaches this stream
+ * should write to {@link #getContentStream()}, so that they can be closed (and fail) before the
+ * file is published; see {@link AtomicFileWriter}.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AtomicFileOutputStream extends OutputStream {
+
+	/**
+	 * Whether files are flushed to the storage device before they are published
+	 */
+	public enum SyncPolicy {
+		/**
+		 * Files are published atomically but not flushed to the storage device; a published file
+		 * may be lost or incomplete after an operating system crash
+		 */
+		NO_SYNC,
+		/**
+		 * Files are flushed to the storage device before they are published, and the directory
+		 * is flushed after they are published
+		 */
+		SYNC_ON_CLOSE
+	}
+
+	/**
+	 * Distinguishes the temporary files of concurrent writers of the same target file
+	 */
+	private static final AtomicLong tempFileCounter = new AtomicLong(System.nanoTime());
+
+	private final File targetFile;
+	private final File tempFile;
+	private final FileOutputStream out;
+	private final SyncPolicy syncPolicy;
+
+	/**
+	 * The batch that publishes the file, or null if it is published when this stream is closed
+	 */
+	private final AtomicFileBatch batch;
+
+	private boolean closed = false;
+
+	/**
+	 * Set when a write to the temporary file fails; the file is then never published
+	 */
+	private volatile boolean failed = false;
+
+	/**
+	 * Initializes a new <code>AtomicFileOutputStream</code> that publishes the target file when it
+	 * is closed
+	 * 
+	 * @param targetFile
+	 * @param syncPolicy
+	 *            whether the file is flushed to the storage device before it is published
+	 * @throws FileNotFoundException
+	 *             if the temporary file cannot be created
+	 */
+	public AtomicFileOutputStream(File targetFile, SyncPolicy syncPolicy) throws FileNotFoundException {
+		this(targetFile, syncPolicy, null);
+	}
+
+	/**
+	 * Initializes a new <code>AtomicFileOutputStream</code>
+	 * 
+	 * @param batch
+	 *            the batch that publishes the file, or null to publish it when this stream is
+	 *            closed
+	 */
+	AtomicFileOutputStream(File targetFile, SyncPolicy syncPolicy, AtomicFileBatch batch)
+			throws FileNotFoundException {
+		this.targetFile = targetFile.getAbsoluteFile();
+		this.tempFile = new File(this.targetFile.getParentFile(), "." + this.targetFile.getName() + ".tmp-"
+				+ Long.toHexString(tempFileCounter.getAndIncrement()));
+		this.out = new FileOutputStream(tempFile);
+		this.syncPolicy = syncPolicy;
+		this.batch = batch;
+	}
+
+	/**
+	 * @return the file that is published when this stream is closed
+	 */
+	public File getTargetFile() {
+		return targetFile;
+	}
+
+	/**
+	 * @return the temporary file to which the output is written until it is published
+	 */
+	public File getTemporaryFile() {
+		return tempFile;
+	}
+
+	/**
+	 * @return a channel writing to the temporary file. Closing the channel closes (and so
+	 *         publishes) this stream.
+	 */
+	public GatheringByteChannel getChannel() {
+		final FileChannel channel = out.getChannel();
+		return new GatheringByteChannel() {
+			@Override
+			public int write(ByteBuffer src) throws IOException {
+				try {
+					return channel.write(src);
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				}
+			}
+
+			@Override
+			public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+				try {
+					return channel.write(srcs, offset, length);
+				} catch (IOException e) {
+					failed = true;
+					throw e;
+				}
+			}
+
+			@Override
+			public long write(ByteBuffer[] srcs) throws IOException {
+				return write(srcs, 0, srcs.length);
+			}
+
+			@Override
+			public boolean isOpen() {
+				return channel.isOpen();
+			}
+
+			@Override
+			public void close() throws IOException {
+				AtomicFileOutputStream.this.close();
+			}
+		};
+	}
+
+	/**
+	 * @return a stream writing to the temporary file whose {@link OutputStream#close()} does not
+	 *         close this stream. A writer layered on it can therefore be closed, flushing any
+	 *         buffered or trailing output, before the file is published by closing this stream (or
+	 *         discarded by aborting it).
+	 */
+	public OutputStream getContentStream() {
+		return new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				AtomicFileOutputStream.this.write(b);
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				AtomicFileOutputStream.this.write(b, off, len);
+			}
+
+			@Override
+			public void flush() throws IOException {
+				AtomicFileOutputStream.this.flush();
+			}
+		};
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		try {
+			out.write(b);
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		try {
+			out.write(b, off, len);
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			failed = true;
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the temporary file and publishes it, or hands it to the batch that publishes it. If
+	 * the file cannot be published, the temporary file is deleted.
+	 * 
+	 * @throws IOException
+	 *             if an earlier write to the temporary file failed, in which case the file is
+	 *             discarded, or if the file cannot be published
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		if (failed) {
+			abort();
+			throw new IOException("File not published because writing to it failed: "
+					+ targetFile.getAbsolutePath());
+		}
+		closed = true;
+		try {
+			if (batch == null && syncPolicy == SyncPolicy.SYNC_ON_CLOSE) {
+				out.getChannel().force(true);
+			}
+			out.close();
+			if (batch == null) {
+				publish();
+			}
+		} catch (IOException e) {
+			discard();
+			if (batch != null) {
+				batch.aborted(this);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes and deletes the temporary file without publishing it
+	 */
+	public void abort() {
+		closed = true;
+		discard();
+		if (batch != null) {
+			batch.aborted(this);
+		}
+	}
+
+	/**
+	 * @return true if this stream has been closed or aborted
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Renames the temporary file to the target file and, depending on the sync policy, flushes the
+	 * directory containing the target file
+	 */
+	void publish() throws IOException {
+		try {
+			Files.move(tempFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			/* not expected within a directory; fall back to a plain rename */
+			Files.move(tempFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		if (batch == null && syncPolicy == SyncPolicy.SYNC_ON_CLOSE) {
+			syncDirectory(targetFile.getParentFile());
+		}
+	}
+
+	/**
+	 * Closes and deletes the temporary file
+	 */
+	void discard() {
+		try {
+			out.close();
+		} catch (IOException e) {
+			/* the file is deleted regardless */
+		}
+		tempFile.delete();
+	}
+
+	/**
+	 * Flushes the temporary file to the storage device
+	 */
+	void syncTemporaryFile() throws IOException {
+		FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Flushes the input directory to the storage device so that renames within it are durable.
+	 * Platforms that do not allow directories to be opened (e.g. Windows) are ignored.
+	 * 
+	 * @param directory
+	 */
+	static void syncDirectory(File directory) {
+		try {
+			FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			/* directories cannot be flushed on this platform */
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * A <code>BufferedWriter</code> for a file that is published atomically by an
+ * {@link AtomicFileOutputStream}. The file is published only if every write to this writer
+ * succeeded and the writer, including any buffered, encoded or compressed output, was closed
+ * without error. If a write failed (e.g. because a character cannot be encoded), {@link #close()}
+ * discards the file and throws an exception, so the usual <code>finally</code> block that closes
+ * the writer never publishes a partial file. Errors that occur outside of this writer, in the code
+ * producing the output, are not seen by the writer; call {@link #abort()} to discard the file in
+ * that case:
+ * 
+ * <pre>
+ * AtomicFileWriter writer = FileWriterUtil.initAtomicBufferedWriter(file, CharacterEncoding.UTF_8);
+ * try {
+ * 	for (Record record : records) {
+ * 		writer.write(record.format());
+ * 		writer.newLine();
+ * 	}
+ * } catch (RuntimeException e) {
+ * 	writer.abort();
+ * 	throw e;
+ * } finally {
+ * 	writer.close();
+ * }
+ * </pre>
+ * 
+ * Closing the writer after it has been aborted has no effect.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AtomicFileWriter extends BufferedWriter {
+
+	private final AtomicFileOutputStream stream;
+
+	/**
+	 * The first error thrown by a write to this writer
+	 */
+	private IOException writeError;
+
+	private boolean closed = false;
+
+	/**
+	 * Initializes a new <code>AtomicFileWriter</code> encoding its output to the input stream
+	 * 
+	 * @param stream
+	 * @param encoding
+	 * @param bufferSize
+	 *            the size of the character and byte buffers
+	 */
+	public AtomicFileWriter(AtomicFileOutputStream stream, CharacterEncoding encoding, int bufferSize) {
+		this(new OutputStreamWriter(new BufferedOutputStream(stream.getContentStream(), bufferSize),
+				encoding.getEncoder()), bufferSize, stream);
+	}
+
+	/**
+	 * Initializes a new <code>AtomicFileWriter</code> writing to the input writer
+	 * 
+	 * @param out
+	 *            a writer whose output ends up in the {@link AtomicFileOutputStream#getContentStream()}
+	 *            of the input stream. It must not write to the stream itself, as closing it would
+	 *            then publish the file before this writer can tell whether closing it succeeded.
+	 * @param bufferSize
+	 * @param stream
+	 */
+	public AtomicFileWriter(Writer out, int bufferSize, AtomicFileOutputStream stream) {
+		super(out, bufferSize);
+		this.stream = stream;
+	}
+
+	/**
+	 * @return the stream that publishes the file
+	 */
+	public AtomicFileOutputStream getStream() {
+		return stream;
+	}
+
+	@Override
+	public void write(int c) throws IOException {
+		try {
+			super.write(c);
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+		try {
+			super.write(cbuf, off, len);
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public void write(String s, int off, int len) throws IOException {
+		try {
+			super.write(s, off, len);
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		try {
+			super.flush();
+		} catch (IOException e) {
+			throw failed(e);
+		}
+	}
+
+	/**
+	 * Records the first write error
+	 * 
+	 * @param e
+	 * @return the input exception
+	 */
+	private IOException failed(IOException e) {
+		if (writeError == null) {
+			writeError = e;
+		}
+		return e;
+	}
+
+	/**
+	 * Closes the writer and publishes the file. If a write to this writer failed, or closing the
+	 * writer fails, the file is discarded instead.
+	 * 
+	 * @throws IOException
+	 *             if the file was discarded or could not be published
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		if (writeError != null) {
+			abort();
+			throw new IOException("File not published because writing to it failed: "
+					+ stream.getTargetFile().getAbsolutePath(), writeError);
+		}
+		closed = true;
+		try {
+			super.close();
+		} catch (IOException e) {
+			stream.abort();
+			throw e;
+		} catch (RuntimeException e) {
+			stream.abort();
+			throw e;
+		}
+		stream.close();
+	}
+
+	/**
+	 * Discards the file without publishing it and releases the resources of this writer
+	 */
+	public void abort() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		stream.abort();
+		try {
+			super.close();
+		} catch (IOException e) {
+			/* the output has already been discarded */
+		} catch (RuntimeException e) {
+			/* the output has already been discarded */
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+/**
+ * A {@link Reader} that decodes the bytes of an <code>InputStream</code> or
+ * <code>ReadableByteChannel</code> using a byte buffer of a configurable size (an
+ * {@link java.io.InputStreamReader} always reads at most 8K bytes at a time). The decoder and
+ * buffers are reused for the life of the reader.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DecodingReader extends Reader {
+
+	private final InputStream inputStream;
+
+	private final ReadableByteChannel channel;
+
+	private final CharsetDecoder decoder;
+
+	/**
+	 * Holds bytes that have been read but not yet decoded (between position and limit)
+	 */
+	private final ByteBuffer bytes;
+
+	/**
+	 * Used to decode a surrogate pair when fewer than two chars are requested
+	 */
+	private final CharBuffer pair = CharBuffer.allocate(2);
+
+	private boolean endOfInput = false;
+
+	private boolean flushed = false;
+
+	private boolean closed = false;
+
+	/**
+	 * Initializes a new <code>DecodingReader</code> that reads from the input stream into a heap
+	 * buffer of the specified size
+	 * 
+	 * @param inputStream
+	 * @param decoder
+	 * @param bufferSize
+	 */
+	public DecodingReader(InputStream inputStream, CharsetDecoder decoder, int bufferSize) {
+		this.inputStream = inputStream;
+		this.channel = null;
+		this.decoder = decoder.reset();
+		this.bytes = ByteBuffer.allocate(bufferSize);
+		bytes.flip();
+		pair.flip();
+	}
+
+	/**
+	 * Initializes a new <code>DecodingReader</code> that reads from the input channel into the
+	 * input buffer, which may be direct
+	 * 
+	 * @param channel
+	 * @param decoder
+	 * @param buffer
+	 */
+	public DecodingReader(ReadableByteChannel channel, CharsetDecoder decoder, ByteBuffer buffer) {
+		this.inputStream = null;
+		this.channel = channel;
+		this.decoder = decoder.reset();
+		this.bytes = buffer;
+		bytes.clear();
+		bytes.flip();
+		pair.flip();
+	}
+
+	/**
+	 * @see java.io.Reader#read(char[], int, int)
+	 */
+	@Override
+	public int read(char[] cbuf, int off, int len) throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (off < 0 || len < 0 || off + len > cbuf.length) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (pair.hasRemaining()) {
+			cbuf[off] = pair.get();
+			return 1;
+		}
+		if (len == 1) {
+			/* the next character may be a surrogate pair, which cannot be decoded into one char */
+			pair.clear();
+			int read = decode(pair);
+			pair.flip();
+			if (read == -1) {
+				return -1;
+			}
+			cbuf[off] = pair.get();
+			return 1;
+		}
+		return decode(CharBuffer.wrap(cbuf, off, len));
+	}
+
+	/**
+	 * Decodes into the input buffer, reading more bytes only if no chars could be decoded from the
+	 * bytes already read
+	 * 
+	 * @return the number of chars decoded, or -1 if the end of the input has been reached
+	 */
+	private int decode(CharBuffer out) throws IOException {
+		int start = out.position();
+		while (!flushed) {
+			CoderResult result = decoder.decode(bytes, out, endOfInput);
+			if (result.isOverflow()) {
+				break;
+			}
+			if (result.isError()) {
+				result.throwException();
+			}
+			if (endOfInput) {
+				if (decoder.flush(out).isOverflow()) {
+					break;
+				}
+				flushed = true;
+			} else if (out.position() > start) {
+				break;
+			} else if (fill() == -1) {
+				endOfInput = true;
+			}
+		}
+		int decoded = out.position() - start;
+		return (decoded == 0 && flushed) ? -1 : decoded;
+	}
+
+	/**
+	 * Reads more bytes into the byte buffer
+	 * 
+	 * @return the number of bytes read or -1 at the end of the input
+	 */
+	private int fill() throws IOException {
+		bytes.compact();
+		try {
+			if (channel != null) {
+				return channel.read(bytes);
+			}
+			int read = inputStream.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+			if (read > 0) {
+				bytes.position(bytes.position() + read);
+			}
+			return read;
+		} finally {
+			bytes.flip();
+		}
+	}
+
+	/**
+	 * @see java.io.Reader#close()
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!closed) {
+			closed = true;
+			if (channel != null) {
+				channel.close();
+			} else {
+				inputStream.close();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,136 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+/**
+ * Options controlling how files are read and written by {@link edu.ucdenver.ccp.common.file.FileReaderUtil},
+ * {@link edu.ucdenver.ccp.common.file.FileWriterUtil} and
+ * {@link edu.ucdenver.ccp.common.file.reader.StreamLineReader}. Instances are immutable; the
+ * <code>with...</code> methods return modified copies, e.g.
+ * 
+ * <pre>
+ * IoOptions options = IoOptions.DEFAULT.withBufferSize(1024 * 1024).withSequentialReadAhead(true);
+ * </pre>
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public final class IoOptions {
+
+	/**
+	 * The default buffer size, the same as the default size of a {@link java.io.BufferedReader}
+	 */
+	public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+	/**
+	 * 8K buffers, heap byte buffers and no read-ahead
+	 */
+	public static final IoOptions DEFAULT = new IoOptions(DEFAULT_BUFFER_SIZE, false, false);
+
+	private final int bufferSize;
+
+	private final boolean directBuffers;
+
+	private final boolean sequentialReadAhead;
+
+	private IoOptions(int bufferSize, boolean directBuffers, boolean sequentialReadAhead) {
+		if (bufferSize < 16) {
+			throw new IllegalArgumentException("Buffer size must be at least 16 but was: " + bufferSize);
+		}
+		this.bufferSize = bufferSize;
+		this.directBuffers = directBuffers;
+		this.sequentialReadAhead = sequentialReadAhead;
+	}
+
+	/**
+	 * @return the size of the character buffers of readers and writers, and of the byte buffers
+	 *         used to read from and write to the underlying file or stream, i.e. the number of
+	 *         bytes requested from the operating system per read or write
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * @return true if uncompressed files are read through a {@link java.nio.channels.FileChannel}
+	 *         into a direct <code>ByteBuffer</code>, avoiding the copy of the bytes through a
+	 *         temporary native buffer. Note that a thread blocked reading from a
+	 *         <code>FileChannel</code> closes the channel if it is interrupted.
+	 */
+	public boolean isDirectBuffers() {
+		return directBuffers;
+	}
+
+	/**
+	 * @return true if uncompressed files are read ahead on a background thread (see
+	 *         {@link ReadAheadInputStream}) in blocks of the buffer size. This takes the place of a
+	 *         sequential access hint (e.g. <code>posix_fadvise</code>), which is not available to
+	 *         Java. Compressed files are always read ahead.
+	 */
+	public boolean isSequentialReadAhead() {
+		return sequentialReadAhead;
+	}
+
+	/**
+	 * @param bufferSize
+	 * @return a copy of these options with the input buffer size, see {@link #getBufferSize()}
+	 */
+	public IoOptions withBufferSize(int bufferSize) {
+		return new IoOptions(bufferSize, directBuffers, sequentialReadAhead);
+	}
+
+	/**
+	 * @param directBuffers
+	 * @return a copy of these options using direct buffers or not, see {@link #isDirectBuffers()}
+	 */
+	public IoOptions withDirectBuffers(boolean directBuffers) {
+		return new IoOptions(bufferSize, directBuffers, sequentialReadAhead);
+	}
+
+	/**
+	 * @param sequentialReadAhead
+	 * @return a copy of these options with read-ahead enabled or disabled, see
+	 *         {@link #isSequentialReadAhead()}
+	 */
+	public IoOptions withSequentialReadAhead(boolean sequentialReadAhead) {
+		return new IoOptions(bufferSize, directBuffers, sequentialReadAhead);
+	}
+
+	@Override
+	public String toString() {
+		return "IoOptions [bufferSize=" + bufferSize + ", directBuffers=" + directBuffers + ", sequentialReadAhead="
+				+ sequentialReadAhead + "]";
+	}
+
+}
@@ -0,0 +1,419 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * An <code>OutputStream</code> that gzip-compresses its output using multiple threads, in the
+ * manner of <code>pigz</code>. The bytes written are divided into fixed-size blocks; each block is
+ * compressed independently on a thread pool into a complete gzip member, and the members are
+ * written to the underlying stream in order. The concatenation of gzip members is itself a valid
+ * gzip stream (RFC 1952) that can be read by <code>gunzip</code> or
+ * {@link java.util.zip.GZIPInputStream}; the cost of compressing blocks independently is a
+ * slightly lower compression ratio than a single-threaded {@link java.util.zip.GZIPOutputStream}.
+ * <p>
+ * With {@link Format#BGZF}, the members follow the BGZF format used by SAMtools and tabix: blocks
+ * of at most 65280 bytes, with the compressed size of each member recorded in its header and an
+ * empty end-of-file member.
+ * <p>
+ * Only a bounded number of blocks are compressed ahead of the block being written, so writers
+ * that get further ahead of the compression threads block until they catch up. Closing this
+ * stream writes any remaining data and closes the underlying stream.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+	/**
+	 * The layout of the gzip members written
+	 */
+	public enum Format {
+		/**
+		 * Plain gzip members of the block size of the stream
+		 */
+		MULTI_MEMBER,
+		/**
+		 * Blocked GNU Zip Format members, as used by SAMtools and tabix. The block size is fixed at
+		 * {@link ParallelGzipOutputStream#BGZF_BLOCK_SIZE}.
+		 */
+		BGZF
+	}
+
+	/**
+	 * The default number of uncompressed bytes per block of a {@link Format#MULTI_MEMBER} stream
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 1024 * 1024;
+
+	/**
+	 * The number of uncompressed bytes per block of a {@link Format#BGZF} stream, chosen (as by
+	 * SAMtools) so that the compressed member never exceeds 64KB
+	 */
+	public static final int BGZF_BLOCK_SIZE = 0xff00;
+
+	/**
+	 * The number of blocks per thread of the pool that may be compressed ahead of the block being
+	 * written
+	 */
+	private static final int BLOCKS_AHEAD_PER_THREAD = 2;
+
+	private static final int GZIP_MAGIC_1 = 0x1f;
+	private static final int GZIP_MAGIC_2 = 0x8b;
+	private static final int CM_DEFLATE = 8;
+	private static final int FLAG_EXTRA = 4;
+	private static final int OS_UNKNOWN = 0xff;
+
+	/**
+	 * The length of a gzip member header with the BGZF extra field
+	 */
+	private static final int BGZF_HEADER_LENGTH = 18;
+
+	/**
+	 * The length of a gzip member header without extra fields
+	 */
+	private static final int HEADER_LENGTH = 10;
+
+	/**
+	 * The length of the CRC-32 and size trailer of a gzip member
+	 */
+	private static final int TRAILER_LENGTH = 8;
+
+	/**
+	 * The empty member that marks the end of a BGZF file
+	 */
+	private static final byte[] BGZF_EOF = new byte[] { 0x1f, (byte) 0x8b, 0x08, 0x04, 0, 0, 0, 0, 0, (byte) 0xff,
+			0x06, 0, 0x42, 0x43, 0x02, 0, 0x1b, 0, 0x03, 0, 0, 0, 0, 0, 0, 0, 0, 0 };
+
+	private final OutputStream out;
+	private final Format format;
+	private final int blockSize;
+	private final int compressionLevel;
+	private final ExecutorService executor;
+	private final int maxBlocksInFlight;
+
+	/**
+	 * The compressed members, in the order in which they are to be written
+	 */
+	private final LinkedList<Future<byte[]>> pendingMembers = new LinkedList<Future<byte[]>>();
+
+	/**
+	 * Block buffers that have been compressed and can be reused
+	 */
+	private final BlockingQueue<byte[]> freeBlocks;
+
+	/**
+	 * Deflaters that are not in use by a compression task
+	 */
+	private final BlockingQueue<Deflater> freeDeflaters;
+
+	private byte[] block;
+	private int blockLength;
+	private boolean memberWritten = false;
+	private boolean closed = false;
+
+	/**
+	 * Initializes a new <code>ParallelGzipOutputStream</code> that writes plain gzip members of the
+	 * default block size using the common {@link ForkJoinPool}
+	 * 
+	 * @param out
+	 */
+	public ParallelGzipOutputStream(OutputStream out) {
+		this(out, Format.MULTI_MEMBER, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION, ForkJoinPool.commonPool(),
+				ForkJoinPool.commonPool().getParallelism());
+	}
+
+	/**
+	 * Initializes a new <code>ParallelGzipOutputStream</code>
+	 * 
+	 * @param out
+	 *            the stream to which the compressed data is written
+	 * @param format
+	 *            the layout of the gzip members written
+	 * @param blockSize
+	 *            the number of uncompressed bytes per block; ignored (and fixed at
+	 *            {@link #BGZF_BLOCK_SIZE}) for the {@link Format#BGZF} format
+	 * @param compressionLevel
+	 *            the deflate compression level (0-9), or {@link Deflater#DEFAULT_COMPRESSION}
+	 * @param executor
+	 *            the executor whose threads compress the blocks
+	 * @param threadCount
+	 *            the number of threads of the executor available to this stream, used to bound the
+	 *            number of blocks compressed ahead of the block being written
+	 */
+	public ParallelGzipOutputStream(OutputStream out, Format format, int blockSize, int compressionLevel,
+			ExecutorService executor, int threadCount) {
+		if (format == Format.BGZF) {
+			blockSize = BGZF_BLOCK_SIZE;
+		}
+		if (blockSize < 1 || threadCount < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Block size and thread count must be positive. Block size: %d, thread count: %d", blockSize,
+					threadCount));
+		}
+		if ((compressionLevel < 0 || compressionLevel > 9) && compressionLevel != Deflater.DEFAULT_COMPRESSION) {
+			throw new IllegalArgumentException("Invalid compression level: " + compressionLevel);
+		}
+		this.out = out;
+		this.format = format;
+		this.blockSize = blockSize;
+		this.compressionLevel = compressionLevel;
+		this.executor = executor;
+		this.maxBlocksInFlight = threadCount * BLOCKS_AHEAD_PER_THREAD;
+		this.freeBlocks = new ArrayBlockingQueue<byte[]>(maxBlocksInFlight + 1);
+		this.freeDeflaters = new ArrayBlockingQueue<Deflater>(maxBlocksInFlight + 1);
+		this.block = new byte[blockSize];
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (blockLength == block.length) {
+			submitBlock();
+		}
+		block[blockLength++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		ensureOpen();
+		while (len > 0) {
+			if (blockLength == block.length) {
+				submitBlock();
+			}
+			int count = Math.min(len, block.length - blockLength);
+			System.arraycopy(b, off, block, blockLength, count);
+			blockLength += count;
+			off += count;
+			len -= count;
+		}
+	}
+
+	/**
+	 * Compresses the data written so far, even if it does not fill a block, waits until all
+	 * compressed data has been written and flushes the underlying stream. Frequent flushing
+	 * reduces both the compression ratio and the parallelism.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		submitBlock();
+		while (!pendingMembers.isEmpty()) {
+			writeNextMember();
+		}
+		out.flush();
+	}
+
+	/**
+	 * Writes any remaining data (and for {@link Format#BGZF}, the end-of-file member) and closes
+	 * the underlying stream. The compression threads are not shut down, as the executor may be
+	 * shared.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		try {
+			submitBlock();
+			while (!pendingMembers.isEmpty()) {
+				writeNextMember();
+			}
+			if (format == Format.BGZF) {
+				out.write(BGZF_EOF);
+			} else if (!memberWritten) {
+				/* an empty gzip stream still consists of one (empty) member */
+				out.write(compress(new byte[0], 0));
+			}
+		} finally {
+			closed = true;
+			for (Future<byte[]> member : pendingMembers) {
+				member.cancel(true);
+			}
+			Deflater deflater;
+			while ((deflater = freeDeflaters.poll()) != null) {
+				deflater.end();
+			}
+			out.close();
+		}
+	}
+
+	private void ensureOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+	}
+
+	/**
+	 * Submits the current block (if it is not empty) for compression, first writing the oldest
+	 * compressed members if the maximum number of blocks are already in flight
+	 */
+	private void submitBlock() throws IOException {
+		if (blockLength == 0) {
+			return;
+		}
+		while (pendingMembers.size() >= maxBlocksInFlight) {
+			writeNextMember();
+		}
+		final byte[] data = block;
+		final int length = blockLength;
+		pendingMembers.add(executor.submit(new Callable<byte[]>() {
+			@Override
+			public byte[] call() {
+				byte[] member = compress(data, length);
+				freeBlocks.offer(data);
+				return member;
+			}
+		}));
+		block = freeBlocks.poll();
+		if (block == null) {
+			block = new byte[blockSize];
+		}
+		blockLength = 0;
+	}
+
+	/**
+	 * Waits for the oldest pending member to be compressed and writes it
+	 */
+	private void writeNextMember() throws IOException {
+		Future<byte[]> member = pendingMembers.removeFirst();
+		try {
+			out.write(member.get());
+			memberWritten = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a block to be compressed.");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Error while compressing a block", cause);
+		}
+	}
+
+	/**
+	 * Compresses the input data into a complete gzip member. Called by the compression threads.
+	 * 
+	 * @return the gzip member
+	 */
+	private byte[] compress(byte[] data, int length) {
+		Deflater deflater = freeDeflaters.poll();
+		if (deflater == null) {
+			deflater = new Deflater(compressionLevel, true);
+		}
+		try {
+			int headerLength = (format == Format.BGZF) ? BGZF_HEADER_LENGTH : HEADER_LENGTH;
+			/* deflate expands incompressible data by at most 5 bytes per 16KB stored block */
+			byte[] member = new byte[headerLength + length + (length / 16384 + 1) * 5 + 64 + TRAILER_LENGTH];
+			deflater.setInput(data, 0, length);
+			deflater.finish();
+			int memberLength = headerLength;
+			while (!deflater.finished()) {
+				if (memberLength == member.length - TRAILER_LENGTH) {
+					byte[] larger = new byte[member.length * 2];
+					System.arraycopy(member, 0, larger, 0, memberLength);
+					member = larger;
+				}
+				memberLength += deflater.deflate(member, memberLength, member.length - TRAILER_LENGTH - memberLength);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			writeHeader(member, memberLength + TRAILER_LENGTH);
+			writeIntLE(member, memberLength, (int) crc.getValue());
+			writeIntLE(member, memberLength + 4, length);
+			memberLength += TRAILER_LENGTH;
+			if (memberLength == member.length) {
+				return member;
+			}
+			byte[] trimmed = new byte[memberLength];
+			System.arraycopy(member, 0, trimmed, 0, memberLength);
+			return trimmed;
+		} finally {
+			deflater.reset();
+			if (!freeDeflaters.offer(deflater)) {
+				deflater.end();
+			}
+		}
+	}
+
+	/**
+	 * Writes the gzip member header at the beginning of the input array
+	 */
+	private void writeHeader(byte[] member, int memberLength) {
+		member[0] = (byte) GZIP_MAGIC_1;
+		member[1] = (byte) GZIP_MAGIC_2;
+		member[2] = (byte) CM_DEFLATE;
+		member[3] = (byte) ((format == Format.BGZF) ? FLAG_EXTRA : 0);
+		/* bytes 4-7: no modification time; byte 8: no extra flags */
+		member[9] = (byte) OS_UNKNOWN;
+		if (format == Format.BGZF) {
+			/* XLEN = 6, then the BC subfield holding the total member size minus 1 */
+			member[10] = 6;
+			member[11] = 0;
+			member[12] = 'B';
+			member[13] = 'C';
+			member[14] = 2;
+			member[15] = 0;
+			member[16] = (byte) (memberLength - 1);
+			member[17] = (byte) ((memberLength - 1) >> 8);
+		}
+	}
+
+	private static void writeIntLE(byte[] bytes, int offset, int value) {
+		bytes[offset] = (byte) value;
+		bytes[offset + 1] = (byte) (value >> 8);
+		bytes[offset + 2] = (byte) (value >> 16);
+		bytes[offset + 3] = (byte) (value >> 24);
+	}
+
+}
@@ -0,0 +1,279 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * An <code>InputStream</code> that reads ahead of its consumer on a background thread. The
+ * background thread reads blocks from the source stream into a bounded queue, so expensive work
+ * performed by the source (e.g. decompression) overlaps with the work done by the thread consuming
+ * this stream (e.g. line parsing). At most <code>queueCapacity</code> blocks are buffered at a
+ * time, which bounds memory use regardless of the size of the source. Block buffers are recycled
+ * once consumed.
+ * <p>
+ * Exceptions thrown by the source are rethrown to the consumer once the blocks read prior to the
+ * exception have been consumed. Closing this stream stops the background thread and closes the
+ * source.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	/**
+	 * The default number of bytes read from the source stream per block
+	 */
+	public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+	/**
+	 * The default maximum number of blocks buffered ahead of the consumer
+	 */
+	public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+	/**
+	 * Sentinel block marking the end of the source stream (or a failure reading it)
+	 */
+	private static final Block END = new Block(new byte[0], 0);
+
+	private final InputStream source;
+	private final int blockSize;
+	private final BlockingQueue<Block> filledBlocks;
+	private final BlockingQueue<byte[]> freeBuffers;
+	private final Thread readerThread;
+
+	/**
+	 * Set by the background thread if reading from the source fails
+	 */
+	private volatile Throwable readError;
+	private volatile boolean closed = false;
+
+	/**
+	 * The block currently being consumed, <code>END</code> once the end of the source has been
+	 * reached
+	 */
+	private Block current;
+	private int position;
+
+	/**
+	 * Initializes a <code>ReadAheadInputStream</code> using the default block size and queue
+	 * capacity
+	 * 
+	 * @param source
+	 */
+	public ReadAheadInputStream(InputStream source) {
+		this(source, DEFAULT_BLOCK_SIZE, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Initializes a <code>ReadAheadInputStream</code> and starts the background thread reading
+	 * from the source stream
+	 * 
+	 * @param source
+	 *            the stream to read from
+	 * @param blockSize
+	 *            the number of bytes read from the source per block
+	 * @param queueCapacity
+	 *            the maximum number of blocks buffered ahead of the consumer
+	 */
+	public ReadAheadInputStream(InputStream source, int blockSize, int queueCapacity) {
+		if (blockSize < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException(String.format(
+					"Block size and queue capacity must be positive. Block size: %d, queue capacity: %d", blockSize,
+					queueCapacity));
+		}
+		this.source = source;
+		this.blockSize = blockSize;
+		this.filledBlocks = new ArrayBlockingQueue<Block>(queueCapacity);
+		this.freeBuffers = new ArrayBlockingQueue<byte[]>(queueCapacity + 1);
+		this.readerThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				readAhead();
+			}
+		}, "read-ahead-" + source.getClass().getSimpleName());
+		this.readerThread.setDaemon(true);
+		this.readerThread.start();
+	}
+
+	/**
+	 * Executed by the background thread: fills blocks from the source until it is exhausted, this
+	 * stream is closed, or reading fails
+	 */
+	private void readAhead() {
+		try {
+			while (!closed) {
+				byte[] buffer = freeBuffers.poll();
+				if (buffer == null) {
+					buffer = new byte[blockSize];
+				}
+				int length = 0;
+				boolean endOfSource = false;
+				try {
+					while (length < buffer.length) {
+						int read = source.read(buffer, length, buffer.length - length);
+						if (read < 0) {
+							endOfSource = true;
+							break;
+						}
+						length += read;
+					}
+				} catch (Throwable t) {
+					if (closed) {
+						return;
+					}
+					readError = t;
+					endOfSource = true;
+				}
+				/* bytes read prior to the end of the source (or a failure) are still delivered */
+				if (length > 0) {
+					filledBlocks.put(new Block(buffer, length));
+				}
+				if (endOfSource) {
+					break;
+				}
+			}
+			filledBlocks.put(END);
+		} catch (InterruptedException e) {
+			/* the stream has been closed */
+		}
+	}
+
+	/**
+	 * Ensures a block with unread bytes is available
+	 * 
+	 * @return false if the end of the source stream has been reached
+	 * @throws IOException
+	 *             if the background thread failed to read from the source
+	 */
+	private boolean nextBlock() throws IOException {
+		if (closed) {
+			throw new IOException("Stream closed");
+		}
+		if (current == END) {
+			return false;
+		}
+		if (current != null && position < current.length) {
+			return true;
+		}
+		if (current != null) {
+			freeBuffers.offer(current.bytes);
+		}
+		try {
+			current = filledBlocks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while waiting for read-ahead data", e);
+		}
+		position = 0;
+		if (current == END) {
+			if (readError != null) {
+				if (readError instanceof IOException) {
+					throw (IOException) readError;
+				}
+				throw new IOException("Error while reading ahead from the source stream", readError);
+			}
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBlock()) {
+			return -1;
+		}
+		return current.bytes[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (off < 0 || len < 0 || len > b.length - off) {
+			throw new IndexOutOfBoundsException();
+		}
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextBlock()) {
+			return -1;
+		}
+		int count = Math.min(len, current.length - position);
+		System.arraycopy(current.bytes, position, b, off, count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * @return the number of unread bytes in the block currently being consumed
+	 */
+	@Override
+	public int available() throws IOException {
+		if (closed || current == null || current == END) {
+			return 0;
+		}
+		return current.length - position;
+	}
+
+	/**
+	 * Stops the background thread, discards any buffered blocks and closes the source stream
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		readerThread.interrupt();
+		filledBlocks.clear();
+		freeBuffers.clear();
+		source.close();
+	}
+
+	/**
+	 * A buffer filled with <code>length</code> bytes read from the source stream
+	 */
+	private static class Block {
+		private final byte[] bytes;
+		private final int length;
+
+		public Block(byte[] bytes, int length) {
+			this.bytes = bytes;
+			this.length = length;
+		}
+	}
+
+}
@@ -38,6 +38,10 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.log4j.BasicConfigurator;
 import org.apache.log4j.Level;
@@ -48,6 +52,8 @@ import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileUtil;
 import edu.ucdenver.ccp.common.file.reader.Line;
 import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
+import edu.ucdenver.ccp.common.file.reader.TailLineReader;
+import edu.ucdenver.ccp.common.file.reader.TailPosition;
 
 /**
  * Monitors active SGE processes. Checks logs for "BUILD FAILURE".
@@ -62,6 +68,17 @@ public class SgeJobMonitor {
 
 	private final long MONITOR_FREQUENCY_IN_MINUTES = 2;
 
+	/**
+	 * Stores the position up to which each log file has been checked, so that each check reads only
+	 * the lines appended since the previous check
+	 */
+	private final Map<File, TailPosition> logPositions = new HashMap<File, TailPosition>();
+
+	/**
+	 * Stores the log files in which "BUILD FAILURE" has been found
+	 */
+	private final Set<File> failedLogFiles = new LinkedHashSet<File>();
+
 	/**
 	 * @param logDirectory
 	 * @param loadScriptDirectory
@@ -113,32 +130,36 @@ public class SgeJobMonitor {
 	 * @throws IOException
 	 */
 	private Collection<File> checkSgeLogs() throws IOException {
-		Collection<File> failureLogs;
-		failureLogs = new ArrayList<File>();
 		for (File logDirectory : logDirectories) {
 			for (File logFile : logDirectory.listFiles()) {
-				StreamLineIterator lineIter = null;
+				if (failedLogFiles.contains(logFile)) {
+					continue;
+				}
+				TailPosition position = logPositions.get(logFile);
+				if (position == null) {
+					position = TailPosition.START;
+				}
+				TailLineReader reader = new TailLineReader(logFile, CharacterEncoding.UTF_8, null, position,
+						TailLineReader.DEFAULT_POLL_INTERVAL_MILLIS);
 				try {
-					lineIter = new StreamLineIterator(logFile, CharacterEncoding.UTF_8); 
-					while (lineIter.hasNext()) {
-						Line line = lineIter.next();
+					Line line;
+					while ((line = reader.poll()) != null) {
 						if (line.getText().contains("BUILD FAILURE")) {
 							logger.error("SGE process failed. See log file: " + logFile.getAbsolutePath());
-							failureLogs.add(logFile);
+							failedLogFiles.add(logFile);
+							break;
 						}
 					}
-				}
-				finally {
-					if (lineIter != null) {
-						lineIter.close();
-					}
+					logPositions.put(logFile, reader.getPosition());
+				} finally {
+					reader.close();
 				}
 			}
 		}
-		if (failureLogs.size() == 0) {
+		if (failedLogFiles.size() == 0) {
 			logger.info("Logs are clean.");
 		}
-		return failureLogs;
+		return new ArrayList<File>(failedLogFiles);
 	}
 
 	/**
@@ -0,0 +1,271 @@
+package edu.ucdenver.ccp.common.string;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits delimited records whose fields may be enclosed in quote characters, as described by RFC
+ * 4180: an enclosed field may contain delimiters, line breaks and quote characters, the latter
+ * escaped by doubling them (e.g. <code>"say ""hi"", then leave"</code>). The enclosing quotes are
+ * removed and escaped quotes are unescaped; field values are not trimmed. Each record is scanned
+ * once, character by character, without regular expressions.
+ * <p>
+ * The tokenizer is lenient where RFC 4180 is strict: a quote character appearing inside an
+ * unenclosed field is kept as a literal character, as are any characters that follow the closing
+ * quote of an enclosed field before the next delimiter.
+ * <p>
+ * <code>CsvTokenizer</code> instances are immutable and may be shared between threads.
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CsvTokenizer {
+
+	/**
+	 * A tokenizer for comma-delimited records with fields enclosed in double quotes
+	 */
+	public static final CsvTokenizer RFC_4180 = new CsvTokenizer(',', '"');
+
+	private final char delimiter;
+
+	private final char quote;
+
+	/**
+	 * @param delimiter
+	 *            the character separating fields
+	 * @param quote
+	 *            the character enclosing fields
+	 */
+	public CsvTokenizer(char delimiter, char quote) {
+		if (delimiter == quote) {
+			throw new IllegalArgumentException("The delimiter and quote characters must differ: " + delimiter);
+		}
+		if (delimiter == '\n' || delimiter == '\r' || quote == '\n' || quote == '\r') {
+			throw new IllegalArgumentException("Line break characters cannot be used as delimiter or quote characters.");
+		}
+		this.delimiter = delimiter;
+		this.quote = quote;
+	}
+
+	/**
+	 * @return the character separating fields
+	 */
+	public char getDelimiter() {
+		return delimiter;
+	}
+
+	/**
+	 * @return the character enclosing fields
+	 */
+	public char getQuote() {
+		return quote;
+	}
+
+	/**
+	 * Splits the input record into its fields
+	 * 
+	 * @param record
+	 *            a complete record, which may contain line breaks inside enclosed fields
+	 * @return the fields of the record
+	 * @throws IllegalArgumentException
+	 *             if the record ends inside an enclosed field
+	 */
+	public String[] split(CharSequence record) {
+		Tokenization tokenization = new Tokenization();
+		tokenization.append(record);
+		if (tokenization.isInsideQuotes()) {
+			throw new IllegalArgumentException("Record ends inside a quoted field: " + record);
+		}
+		return tokenization.finish();
+	}
+
+	/**
+	 * Reads the next record from the input reader. A record is a single line unless a line ends
+	 * inside an enclosed field, in which case the record continues on the next line (line breaks
+	 * inside enclosed fields are returned as a single line feed character).
+	 * 
+	 * @param reader
+	 * @return the fields of the next record, or null if there are no more records
+	 * @throws IOException
+	 *             if an error occurs while reading or if the input ends inside an enclosed field
+	 */
+	public String[] readRecord(BufferedReader reader) throws IOException {
+		String line = reader.readLine();
+		if (line == null) {
+			return null;
+		}
+		Tokenization tokenization = new Tokenization();
+		tokenization.append(line);
+		while (tokenization.isInsideQuotes()) {
+			line = reader.readLine();
+			if (line == null) {
+				throw new IOException("Input ends inside a quoted field.");
+			}
+			tokenization.appendLineBreak();
+			tokenization.append(line);
+		}
+		return tokenization.finish();
+	}
+
+	/**
+	 * The states of the tokenizer
+	 */
+	private enum State {
+		/**
+		 * At the beginning of a field
+		 */
+		FIELD_START,
+		/**
+		 * Inside a field that is not enclosed in quotes
+		 */
+		UNQUOTED,
+		/**
+		 * Inside an enclosed field
+		 */
+		QUOTED,
+		/**
+		 * Following a quote character inside an enclosed field; the quote either closes the field
+		 * or is the first of an escaped pair
+		 */
+		QUOTE_IN_QUOTED,
+		/**
+		 * After the closing quote of an enclosed field
+		 */
+		AFTER_QUOTED
+	}
+
+	/**
+	 * Holds the state of the tokenization of a single record, which may be supplied in several
+	 * parts (e.g. lines)
+	 */
+	private class Tokenization {
+
+		private final List<String> fields = new ArrayList<String>();
+
+		private final StringBuilder field = new StringBuilder();
+
+		private State state = State.FIELD_START;
+
+		boolean isInsideQuotes() {
+			return state == State.QUOTED;
+		}
+
+		void appendLineBreak() {
+			field.append('\n');
+		}
+
+		/**
+		 * Processes the input characters. Runs of ordinary characters are appended to the current
+		 * field in bulk.
+		 */
+		void append(CharSequence text) {
+			int length = text.length();
+			int i = 0;
+			while (i < length) {
+				char c = text.charAt(i);
+				switch (state) {
+				case FIELD_START:
+					if (c == quote) {
+						state = State.QUOTED;
+						i++;
+					} else {
+						/* c is processed as part of an unquoted field in the next iteration */
+						state = State.UNQUOTED;
+					}
+					break;
+				case UNQUOTED:
+				case AFTER_QUOTED:
+					int end = indexOf(text, delimiter, i, length);
+					field.append(text, i, end);
+					if (end < length) {
+						endField();
+						end++;
+					}
+					i = end;
+					break;
+				case QUOTED:
+					int quoteIndex = indexOf(text, quote, i, length);
+					field.append(text, i, quoteIndex);
+					if (quoteIndex < length) {
+						state = State.QUOTE_IN_QUOTED;
+						quoteIndex++;
+					}
+					i = quoteIndex;
+					break;
+				case QUOTE_IN_QUOTED:
+					if (c == quote) {
+						field.append(quote);
+						state = State.QUOTED;
+						i++;
+					} else {
+						state = State.AFTER_QUOTED;
+					}
+					break;
+				}
+			}
+		}
+
+		/**
+		 * @return the fields of the record
+		 */
+		String[] finish() {
+			endField();
+			return fields.toArray(new String[fields.size()]);
+		}
+
+		private void endField() {
+			fields.add(field.toString());
+			field.setLength(0);
+			state = State.FIELD_START;
+		}
+	}
+
+	/**
+	 * @return the index of the first occurrence of the input character at or after the start index,
+	 *         or the end index if there is no such occurrence
+	 */
+	private static int indexOf(CharSequence text, char c, int start, int end) {
+		for (int i = start; i < end; i++) {
+			if (text.charAt(i) == c) {
+				return i;
+			}
+		}
+		return end;
+	}
+
+}
@@ -33,10 +33,8 @@ package edu.ucdenver.ccp.common.string;
  * #L%
  */
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.text.DateFormat;
@@ -54,7 +52,6 @@ import org.apache.commons.io.IOUtils;
 import org.apache.log4j.Logger;
 
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
-import edu.ucdenver.ccp.common.io.StreamUtil;
 
 /**
  * String utilities 
@@ -293,6 +290,31 @@ public class StringUtil {
 		return startsWithRegex(inputStr, regexStr) && endsWithRegex(inputStr, regexStr);
 	}
 
+	/**
+	 * Returns the single literal character matched by the input regular expression, e.g. ',' for
+	 * "," and '|' for "\\|". This allows callers to avoid the regular expression engine when a
+	 * delimiter is a plain character.
+	 * 
+	 * @param regexStr
+	 * @return the single character matched by the input regular expression, or -1 if it does not
+	 *         match exactly one literal character
+	 */
+	public static int getRegexLiteralCharacter(String regexStr) {
+		if (regexStr.length() == 1 && ".$|()[]{}^?*+\\".indexOf(regexStr.charAt(0)) == -1) {
+			return regexStr.charAt(0);
+		}
+		if (regexStr.length() == 2 && regexStr.charAt(0) == '\\') {
+			char escaped = regexStr.charAt(1);
+			if (escaped == 't') {
+				return '\t';
+			}
+			if (!Character.isLetterOrDigit(escaped)) {
+				return escaped;
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * Converts the input InputStream to a String
 	 * 
@@ -316,6 +338,10 @@ public class StringUtil {
 	 * Splits the input string, but ignores any delimiters inside a field. For example, you might be
 	 * splitting a comma-delimited line but have a field indicated by quotation marks that can
 	 * contain a comma. e.g. token 1,token 2,"token, 3 has a comma",token 4
+	 * <p>
+	 * For RFC 4180 style records with single-character delimiters and field enclosures,
+	 * {@link CsvTokenizer} splits in a single pass and also supports escaped enclosures and line
+	 * breaks inside fields.
 	 * 
 	 * @param inputStr
 	 * @param delimiters
@@ -533,8 +559,7 @@ public class StringUtil {
 	 * @throws IOException
 	 */
 	public static String decode(byte[] byteArray, CharacterEncoding encoding) throws IOException {
-		InputStreamReader isr = new InputStreamReader(new ByteArrayInputStream(byteArray), encoding.getDecoder());
-		return StreamUtil.toString(isr);
+		return encoding.decode(byteArray, 0, byteArray.length);
 	}
 	
 	/**
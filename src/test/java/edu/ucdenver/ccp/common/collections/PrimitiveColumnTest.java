@@ -0,0 +1,97 @@
+package edu.ucdenver.ccp.common.collections;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link IntColumn}, {@link LongColumn} and {@link DoubleColumn} classes
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class PrimitiveColumnTest {
+
+	@Test
+	public void testIntColumnGrows() {
+		IntColumn column = new IntColumn(0);
+		assertTrue(column.isEmpty());
+		int[] expected = new int[1000];
+		for (int i = 0; i < expected.length; i++) {
+			expected[i] = i * 7 - 300;
+			column.add(expected[i]);
+		}
+		assertEquals(1000, column.size());
+		assertEquals(-300, column.get(0));
+		assertEquals(expected[999], column.get(999));
+		column.trimToSize();
+		assertArrayEquals(expected, column.toArray());
+	}
+
+	@Test
+	public void testLongColumn() {
+		LongColumn column = new LongColumn();
+		column.add(Long.MAX_VALUE);
+		column.add(Long.MIN_VALUE);
+		assertArrayEquals(new long[] { Long.MAX_VALUE, Long.MIN_VALUE }, column.toArray());
+	}
+
+	@Test
+	public void testDoubleColumn() {
+		DoubleColumn column = new DoubleColumn(1);
+		column.add(1.5);
+		column.add(-0.25);
+		column.add(Double.NaN);
+		assertEquals(3, column.size());
+		assertEquals(-0.25, column.get(1), 0.0);
+		assertTrue(Double.isNaN(column.get(2)));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testGetBeyondSize() {
+		IntColumn column = new IntColumn(10);
+		column.add(1);
+		column.get(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNegativeCapacity() {
+		new LongColumn(-1);
+	}
+
+}
@@ -0,0 +1,150 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.UnmappableCharacterException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link CharacterEncoding} decoding and encoding methods
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class CharacterEncodingTest {
+
+	@Test
+	public void testCharsetIsCached() {
+		for (CharacterEncoding encoding : CharacterEncoding.values()) {
+			assertEquals(Charset.forName(encoding.getCharacterSetName()), encoding.getCharset());
+			assertSame(encoding.getCharset(), encoding.getCharset());
+			assertNotSame("each call returns a new decoder", encoding.getDecoder(), encoding.getDecoder());
+		}
+	}
+
+	@Test
+	public void testDecode() throws Exception {
+		byte[] bytes = "xx abc \u00e9\ud835\udc9c xx".getBytes("UTF-8");
+		assertEquals("abc", CharacterEncoding.UTF_8.decode(bytes, 3, 3));
+		assertEquals("abc \u00e9\ud835\udc9c", CharacterEncoding.UTF_8.decode(bytes, 3, bytes.length - 6));
+		assertEquals("abc", CharacterEncoding.US_ASCII.decode(bytes, 3, 3));
+		assertEquals("\u00c3\u00a9", CharacterEncoding.ISO_8859_1.decode(bytes, 7, 2));
+		assertEquals("", CharacterEncoding.UTF_8.decode(bytes, 0, 0));
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void testDecodeMalformedUtf8() throws Exception {
+		CharacterEncoding.UTF_8.decode(new byte[] { 'a', (byte) 0xc3 }, 0, 2);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void testDecodeNonAsciiAsAscii() throws Exception {
+		CharacterEncoding.US_ASCII.decode(new byte[] { 'a', (byte) 0xe9 }, 0, 2);
+	}
+
+	@Test
+	public void testEncode() throws Exception {
+		assertArrayEquals("abc".getBytes("US-ASCII"), CharacterEncoding.US_ASCII.encode("abc"));
+		assertArrayEquals("a\u00e9".getBytes("ISO-8859-1"), CharacterEncoding.ISO_8859_1.encode("a\u00e9"));
+		assertArrayEquals("a\u00e9\ud835\udc9c".getBytes("UTF-8"), CharacterEncoding.UTF_8.encode("a\u00e9\ud835\udc9c"));
+		assertArrayEquals(new byte[0], CharacterEncoding.UTF_8.encode(""));
+	}
+
+	@Test
+	public void testReleaseThreadCoders() throws Exception {
+		byte[] bytes = "\u00e9".getBytes("UTF-8");
+		assertEquals("\u00e9", CharacterEncoding.UTF_8.decode(bytes, 0, bytes.length));
+		CharacterEncoding.releaseThreadCoders();
+		assertEquals("\u00e9", CharacterEncoding.UTF_8.decode(bytes, 0, bytes.length));
+		assertArrayEquals(bytes, CharacterEncoding.UTF_8.encode("\u00e9"));
+	}
+
+	@Test(expected = UnmappableCharacterException.class)
+	public void testEncodeUnmappable() throws Exception {
+		CharacterEncoding.US_ASCII.encode("a\u00e9");
+	}
+
+	@Test
+	public void testIsAscii() {
+		assertTrue(CharacterEncoding.isAscii(new byte[] { 'a', (byte) 0xe9, 'b' }, 2, 1));
+		assertFalse(CharacterEncoding.isAscii(new byte[] { 'a', (byte) 0xe9, 'b' }, 0, 3));
+		assertTrue(CharacterEncoding.isAscii("ab\u007f".toCharArray(), 0, 3));
+		assertFalse(CharacterEncoding.isAscii("a\u0080".toCharArray(), 0, 2));
+	}
+
+	@Test
+	public void testDecodeFromMultipleThreads() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+			for (int t = 0; t < 8; t++) {
+				final String text = "thread " + t + " \u00e9\u4e2d\ud835\udc9c";
+				results.add(executor.submit(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws Exception {
+						byte[] bytes = text.getBytes("UTF-8");
+						for (int i = 0; i < 1000; i++) {
+							if (!text.equals(CharacterEncoding.UTF_8.decode(bytes, 0, bytes.length))) {
+								return false;
+							}
+						}
+						return true;
+					}
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
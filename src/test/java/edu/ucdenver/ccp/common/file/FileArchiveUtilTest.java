@@ -37,11 +37,17 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+import org.apache.tools.bzip2.CBZip2OutputStream;
 import org.junit.Test;
 
 import HTTPClient.UncompressInputStreamWrapper;
@@ -50,6 +56,7 @@ import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.FileArchiveUtil.IncludeBaseDirectoryInPackage;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
 import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.file.reader.StreamLineIterator;
 import edu.ucdenver.ccp.common.io.ClassPathUtil;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
 
@@ -271,4 +278,62 @@ public class FileArchiveUtilTest extends DefaultTestCase {
 				String.format("Lines in unzipped file should match lines put into original file prior to gzipping."),
 				expectedLines, lines);
 	}
+
+	@Test
+	public void testReadLinesFromGzipFile() throws Exception {
+		File gzFile = copyResourceToFile(SAMPLE_GZIPPED_FILE_NAME);
+		assertEquals(String.format("Lines read directly from the .gz file should be decompressed."),
+				expectedLinesInFile, FileReaderUtil.loadLinesFromFile(gzFile, CharacterEncoding.US_ASCII));
+	}
+
+	@Test
+	public void testReadLinesFromUnixCompressFile() throws Exception {
+		File zFile = copyResourceToFile(SAMPLE_UNIX_COMPRESS_FILE_NAME);
+		assertEquals(String.format("Lines read directly from the .Z file should be decompressed."),
+				expectedLinesInFile, FileReaderUtil.loadLinesFromFile(zFile, CharacterEncoding.US_ASCII));
+	}
+
+	@Test
+	public void testReadLinesFromBZip2File() throws Exception {
+		File bz2File = folder.newFile("sample.txt.bz2");
+		OutputStream fileStream = new FileOutputStream(bz2File);
+		fileStream.write('B');
+		fileStream.write('Z');
+		CBZip2OutputStream bz2Stream = new CBZip2OutputStream(fileStream);
+		bz2Stream.write("This is line 1.\nThis is line 2.\n".getBytes(CharacterEncoding.US_ASCII.getCharacterSetName()));
+		bz2Stream.close();
+		assertEquals(String.format("Lines read directly from the .bz2 file should be decompressed."),
+				expectedLinesInFile, FileReaderUtil.loadLinesFromFile(bz2File, CharacterEncoding.US_ASCII));
+	}
+
+	@Test
+	public void testReadLinesFromZipFile() throws Exception {
+		File zipFile = folder.newFile("sample.zip");
+		ZipOutputStream zipStream = new ZipOutputStream(new FileOutputStream(zipFile));
+		zipStream.putNextEntry(new ZipEntry("sample.txt"));
+		zipStream.write("This is line 1.\r\nThis is line 2.".getBytes(CharacterEncoding.US_ASCII.getCharacterSetName()));
+		zipStream.closeEntry();
+		zipStream.close();
+		List<String> lines = new ArrayList<String>();
+		for (StreamLineIterator lineIter = new StreamLineIterator(zipFile, CharacterEncoding.US_ASCII); lineIter
+				.hasNext();) {
+			lines.add(lineIter.next().getText());
+		}
+		assertEquals(String.format("Lines read directly from the .zip file should come from its first entry."),
+				expectedLinesInFile, lines);
+	}
+
+	@Test
+	public void testReadLinesFromLargeGzipFile() throws Exception {
+		File textFile = folder.newFile("large.txt");
+		List<String> expectedLines = new ArrayList<String>();
+		for (int i = 0; i < 100000; i++) {
+			expectedLines.add("line number " + i);
+		}
+		FileWriterUtil.printLines(expectedLines, textFile, CharacterEncoding.US_ASCII, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF);
+		File gzFile = FileArchiveUtil.gzipFile(textFile);
+		assertEquals(String.format("All lines of a multi-block .gz file should be read in order."), expectedLines,
+				FileReaderUtil.loadLinesFromFile(gzFile, CharacterEncoding.US_ASCII));
+	}
 }
@@ -224,6 +224,25 @@ public class FileLoaderUtilTest extends DefaultTestCase {
 				FileReaderUtil.loadColumnFromDelimitedFile(fiveColumnFile, CharacterEncoding.US_ASCII,RegExPatterns.TAB, null, 2));
 	}
 
+	@Test
+	public void testLoadPrimitiveColumns() throws Exception {
+		assertArrayEquals(new int[] { 13, 23, 33, 43, 53, 63 }, FileReaderUtil.loadIntColumnFromDelimitedFile(
+				fiveColumnFile, CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 2).toArray());
+		assertArrayEquals(new long[] { 15, 25, 35, 45, 55, 65 }, FileReaderUtil.loadLongColumnFromDelimitedFile(
+				fiveColumnFile, CharacterEncoding.US_ASCII, RegExPatterns.TAB, null, 4).toArray());
+		assertArrayEquals(new double[] { 11, 21, 31, 41, 51, 61 }, FileReaderUtil.loadDoubleColumnFromDelimitedFile(
+				oneColumnFile, CharacterEncoding.US_ASCII, null, null, 0).toArray(), 0.0);
+		assertArrayEquals(new int[] { 12, 22, 32, 52, 62 }, FileReaderUtil.loadIntColumnFromDelimitedFile(
+				fiveColumnFileWithCommentOnLineFour, CharacterEncoding.US_ASCII, RegExPatterns.TAB, COMMENT_INDICATOR, 1)
+				.toArray());
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testLoadPrimitiveColumnWithMissingDataOnLineThree() throws Exception {
+		FileReaderUtil.loadIntColumnFromDelimitedFile(fiveColumnFileWithErrorOnLineThree, CharacterEncoding.US_ASCII,
+				RegExPatterns.TAB, null, 4);
+	}
+
 	@Test
 	public void testLoadThirdColumnFromFiveColumnFileWithMissingDataOnLineThree() throws Exception {
 		List<String> expectedColumn = CollectionsUtil.createList("13", "23", "33", "43", "53", "63");
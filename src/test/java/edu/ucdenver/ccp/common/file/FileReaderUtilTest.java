@@ -0,0 +1,73 @@
+package edu.ucdenver.ccp.common.file;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.string.CsvTokenizer;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class FileReaderUtilTest extends DefaultTestCase {
+
+	@Test
+	public void testGetColumnsFromLine_KeepsFieldEnclosures() {
+		assertArrayEquals(new String[] { "\"token, 2\"", "token 1" },
+				FileReaderUtil.getColumnsFromLine("token 1,\"token, 2\",token 3", ",", "\"", 1, 0));
+		assertArrayEquals(new String[] { "a", "'b|c'" }, FileReaderUtil.getColumnsFromLine("a|'b|c'", "\\|", "'"));
+		assertArrayEquals(new String[] { "a", "\"b" }, FileReaderUtil.getColumnsFromLine("a,\"b", ",", "\""));
+	}
+
+	@Test
+	public void testGetColumnsFromRfc4180Line() {
+		assertArrayEquals(new String[] { "token, 2", "token 1" },
+				FileReaderUtil.getColumnsFromRfc4180Line("token 1,\"token, 2\",token 3", CsvTokenizer.RFC_4180, 1, 0));
+		assertArrayEquals(new String[] { "a", "b|'c'" },
+				FileReaderUtil.getColumnsFromRfc4180Line("a|'b|''c'''", new CsvTokenizer('|', '\'')));
+		assertArrayEquals(new String[] { "a", " \"b" },
+				FileReaderUtil.getColumnsFromRfc4180Line("a, \"b", CsvTokenizer.RFC_4180));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetColumnsFromRfc4180Line_UnterminatedEnclosure() {
+		FileReaderUtil.getColumnsFromRfc4180Line("a,\"b", CsvTokenizer.RFC_4180);
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testGetColumnsFromRfc4180Line_InvalidColumnIndex() {
+		FileReaderUtil.getColumnsFromRfc4180Line("a,b", CsvTokenizer.RFC_4180, 2);
+	}
+
+}
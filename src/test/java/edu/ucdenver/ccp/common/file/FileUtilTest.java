@@ -33,13 +33,18 @@ package edu.ucdenver.ccp.common.file;
  * #L%
  */
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.MalformedInputException;
 import java.util.ArrayList;
@@ -48,8 +53,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import org.apache.commons.io.FileUtils;
+import org.junit.Assume;
 import org.junit.Test;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
@@ -296,6 +304,62 @@ public class FileUtilTest extends DefaultTestCase {
 				toFile, CharacterEncoding.US_ASCII, lines, null, LineOrder.AS_IN_FILE, ColumnOrder.AS_IN_FILE));
 	}
 
+	@Test
+	public void testCopyLargeFileToFile() throws Exception {
+		byte[] content = new byte[5 * 1024 * 1024 + 17];
+		new Random(42).nextBytes(content);
+		File fromFile = folder.newFile("fromFile.bin");
+		FileUtils.writeByteArrayToFile(fromFile, content);
+		File toFile = new File(folder.newFolder("toDir"), "toFile.bin");
+		FileUtils.writeByteArrayToFile(toFile, new byte[content.length * 2]);
+
+		FileUtil.copy(fromFile, toFile);
+		assertArrayEquals("existing (larger) target file should be replaced by the copy", content,
+				FileUtils.readFileToByteArray(toFile));
+	}
+
+	@Test
+	public void testCopyFileStreamsFromCurrentPosition() throws Exception {
+		File fromFile = folder.newFile("fromFile.ascii");
+		FileUtils.writeByteArrayToFile(fromFile, "0123456789".getBytes("US-ASCII"));
+		File toFile = folder.newFile("toFile.ascii");
+
+		FileInputStream fis = new FileInputStream(fromFile);
+		try {
+			assertEquals(4, fis.skip(4));
+			FileUtil.copy(fis, new FileOutputStream(toFile));
+			assertEquals("source stream should be positioned at the end of the file", -1, fis.read());
+		} finally {
+			fis.close();
+		}
+		assertEquals("456789", FileUtils.readFileToString(toFile, "US-ASCII"));
+	}
+
+	@Test
+	public void testCopyNonFileStreams() throws Exception {
+		byte[] content = "line1\nline2\n".getBytes("US-ASCII");
+		File toFile = folder.newFile("toFile.ascii");
+		FileUtil.copy(new ByteArrayInputStream(content), toFile);
+		assertArrayEquals(content, FileUtils.readFileToByteArray(toFile));
+
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		FileUtil.copy(toFile, baos);
+		assertArrayEquals(content, baos.toByteArray());
+	}
+
+	@Test
+	public void testCopyFileReportingZeroSize() throws Exception {
+		/* procfs files report a size of 0 but have content */
+		File fromFile = new File("/proc/version");
+		Assume.assumeTrue(fromFile.isFile() && fromFile.length() == 0);
+		byte[] expected = FileUtils.readFileToByteArray(fromFile);
+		assertTrue(expected.length > 0);
+		File toFile = folder.newFile("version.txt");
+
+		FileUtil.copy(fromFile, toFile);
+		assertArrayEquals(expected, FileUtils.readFileToByteArray(toFile));
+	}
+
 	@Test
 	public void testCopyDirectory() throws IOException {
 		File fromDirectory = folder.newFolder("from");
@@ -41,10 +41,14 @@ import java.nio.charset.UnmappableCharacterException;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 
 import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.io.IoOptions;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
 
 public class FileWriterUtilTest extends DefaultTestCase {
@@ -94,7 +98,22 @@ public class FileWriterUtilTest extends DefaultTestCase {
 		assertEquals(String.format("Lines read from the output file should equal the lines written to it."),
 				lines, linesWritten);
 	}
-	
+
+	@Test
+	public void testBufferedWriterCreationWithIoOptions() throws Exception {
+		CharacterEncoding encoding = CharacterEncoding.UTF_8;
+		StringBuilder expected = new StringBuilder();
+		BufferedWriter writer = FileWriterUtil.initBufferedWriter(outputFile, encoding, WriteMode.OVERWRITE,
+				FileSuffixEnforcement.OFF, IoOptions.DEFAULT.withBufferSize(64));
+		for (int i = 0; i < 1000; i++) {
+			String line = "line " + i + " \u00df";
+			writer.write(line);
+			writer.newLine();
+			expected.append(line).append(System.getProperty("line.separator"));
+		}
+		writer.close();
+		assertEquals(expected.toString(), FileUtils.readFileToString(outputFile, "UTF-8"));
+	}
 	
 	@Test(expected=UnmappableCharacterException.class)
 	public void testBufferedWriter_throwsExceptionIfEncodingConflict() throws Exception {
@@ -0,0 +1,221 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.List;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.collections.CollectionsUtil;
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.SampleUtf8File;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.io.ClassPathUtil;
+import edu.ucdenver.ccp.common.string.StringConstants;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ByteChannelLineReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ByteChannelLineReaderTest extends DefaultTestCase {
+
+	/**
+	 * Checks the lines of the sample UTF-8 file using a range of buffer sizes so that lines and
+	 * CRLF terminators straddle buffer boundaries
+	 */
+	@Test
+	public void testSampleUtf8File() throws IOException {
+		byte[] fileBytes = loadSampleFileBytes();
+		for (int bufferSize : new int[] { 2, 3, 7, 16, 1024 }) {
+			ByteChannelLineReader reader = new ByteChannelLineReader(Channels.newChannel(new ByteArrayInputStream(
+					fileBytes)), SampleUtf8File.ENCODING, null, bufferSize);
+			for (SampleUtf8File expectedLine : SampleUtf8File.values()) {
+				Line line = reader.readLine();
+				assertEquals(expectedLine.ordinal(), line.getLineNumber());
+				assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+				assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+				assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+				String expectedText = new String(fileBytes, (int) line.getByteOffset(), line.getText().getBytes(
+						"UTF-8").length, "UTF-8");
+				assertEquals("byte offset should point at the start of the line", expectedText, line.getText());
+			}
+			assertNull(reader.readLine());
+			reader.close();
+		}
+	}
+
+	/**
+	 * Checks that the returned lines match those returned by the {@link StreamLineReader}
+	 */
+	@Test
+	public void testLinesMatchStreamLineReader() throws IOException {
+		byte[] fileBytes = loadSampleFileBytes();
+		StreamLineReader streamReader = new StreamLineReader(new ByteArrayInputStream(fileBytes),
+				SampleUtf8File.ENCODING, null);
+		ByteChannelLineReader byteReader = new ByteChannelLineReader(new ByteArrayInputStream(fileBytes),
+				SampleUtf8File.ENCODING, null);
+		Line expectedLine;
+		while ((expectedLine = streamReader.readLine()) != null) {
+			Line line = byteReader.readLine();
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expectedLine.getLineNumber(), line.getLineNumber());
+		}
+		assertNull(byteReader.readLine());
+		streamReader.close();
+		byteReader.close();
+	}
+
+	/**
+	 * Checks byte offsets when lines are skipped and the file contains a 2-byte UTF-8 character
+	 */
+	@Test
+	public void testByteOffsetsWhenSkippingLines() throws IOException {
+		List<String> lines = CollectionsUtil.createList(StringConstants.POUND_SIGN + "line1", "line2",
+				StringConstants.POUND_SIGN + "line3\r", "line\u00df\r", "line5");
+		File file = folder.newFile("sample.utf8");
+		FileWriterUtil.printLines(lines, file, CharacterEncoding.UTF_8);
+		ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8,
+				StringConstants.POUND_SIGN);
+		Line line = reader.readLine();
+		assertEquals("line2", line.getText());
+		assertEquals(1, line.getLineNumber());
+		assertEquals(7, line.getByteOffset());
+		assertEquals(7, line.getCharacterOffset());
+		line = reader.readLine();
+		assertEquals("line\u00df", line.getText());
+		assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+		assertEquals(3, line.getLineNumber());
+		assertEquals(21, line.getByteOffset());
+		assertEquals(21, line.getCharacterOffset());
+		line = reader.readLine();
+		assertEquals("line5", line.getText());
+		assertEquals(4, line.getLineNumber());
+		assertEquals(29, line.getByteOffset());
+		assertEquals(28, line.getCharacterOffset());
+		assertNull(reader.readLine());
+		assertEquals(35, reader.getByteOffset());
+		reader.close();
+	}
+
+	/**
+	 * Checks that a final line lacking a terminator is returned
+	 */
+	@Test
+	public void testFinalLineWithoutTerminator() throws IOException {
+		ByteChannelLineReader reader = new ByteChannelLineReader(new ByteArrayInputStream("a\rb".getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		Line line = reader.readLine();
+		assertEquals("a", line.getText());
+		assertEquals(LineTerminator.CR, line.getLineTerminator());
+		line = reader.readLine();
+		assertEquals("b", line.getText());
+		assertEquals(2, line.getByteOffset());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	private static byte[] loadSampleFileBytes() throws IOException {
+		InputStream sampleFileStream = ClassPathUtil.getResourceStreamFromClasspath(SampleUtf8File.class,
+				SampleUtf8File.FILE_NAME);
+		try {
+			return IOUtils.toByteArray(sampleFileStream);
+		} finally {
+			sampleFileStream.close();
+		}
+	}
+
+	@Test
+	public void testCodePointOffsetsWithSupplementaryCharacters() throws IOException {
+		String input = "ab\n\ud835\udc9c\u00df\r\nc\n";
+		ByteChannelLineReader reader = new ByteChannelLineReader(new ByteArrayInputStream(input.getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		Line line = reader.readLine();
+		assertEquals(0, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals(3, line.getCharacterOffset());
+		assertEquals(3, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals("the surrogate pair counts as two characters", 8, line.getCharacterOffset());
+		assertEquals("the surrogate pair counts as one code point", 7, line.getCodePointOffset());
+		reader.close();
+	}
+
+	@Test
+	public void testCharacterOffsetsOnlyTracking() throws IOException {
+		String input = "ab\n\ud835\udc9c\u00df\r\nc\n";
+		ByteChannelLineReader reader = new ByteChannelLineReader(new ByteArrayInputStream(input.getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		reader.setOffsetTracking(LineReader.OffsetTracking.CHARACTER_OFFSETS_ONLY);
+		Line line = reader.readLine();
+		assertEquals(0, line.getCharacterOffset());
+		assertEquals(-1, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals(3, line.getCharacterOffset());
+		line = reader.readLine();
+		assertEquals("c", line.getText());
+		assertEquals(8, line.getCharacterOffset());
+		assertEquals(-1, line.getCodePointOffset());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNonBlockingChannelRejected() throws IOException {
+		Pipe pipe = Pipe.open();
+		try {
+			pipe.source().configureBlocking(false);
+			new ByteChannelLineReader(pipe.source(), CharacterEncoding.UTF_8, null,
+					ByteChannelLineReader.DEFAULT_BUFFER_SIZE);
+		} finally {
+			pipe.source().close();
+			pipe.sink().close();
+		}
+	}
+
+}
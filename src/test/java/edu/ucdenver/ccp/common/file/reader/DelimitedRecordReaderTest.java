@@ -0,0 +1,203 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Tests the {@link DelimitedRecordReader} and {@link DelimitedRecord}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DelimitedRecordReaderTest {
+
+	private static DelimitedRecordReader createReader(String input, String delimiterRegex, String skipLinePrefix)
+			throws IOException {
+		return new DelimitedRecordReader(new ByteArrayInputStream(input.getBytes("UTF-8")), CharacterEncoding.UTF_8,
+				delimiterRegex, skipLinePrefix);
+	}
+
+	@Test
+	public void testFieldsMatchStringSplit() throws IOException {
+		String[] lines = new String[] { "a\tb\tc", "", "\t", "a\t\tb\t\t", "\tleading", "single", "\u00e9\t\ud835\udc9c" };
+		String[] delimiters = new String[] { "\t", "\\t", "\\t+", "\\s*\\t\\s*", "(?=b)" };
+		for (String delimiter : delimiters) {
+			StringBuilder input = new StringBuilder();
+			for (String line : lines) {
+				input.append(line).append("\n");
+			}
+			DelimitedRecordReader reader = createReader(input.toString(), delimiter, null);
+			for (String line : lines) {
+				DelimitedRecord record = reader.nextRecord();
+				String[] expected = line.split(delimiter, -1);
+				assertArrayEquals(delimiter + " " + line, expected, record.toArray());
+				assertEquals(expected.length, record.getFieldCount());
+			}
+			assertNull(reader.nextRecord());
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testLazyFieldAccess() throws IOException {
+		DelimitedRecordReader reader = createReader("#comment\nid1\tgene\t-42\t12345678901\t2.5\t\t007\n", "\t", "#");
+		DelimitedRecord record = reader.nextRecord();
+		assertEquals(1, record.getLineNumber());
+		assertTrue(record.fieldEquals(1, "gene"));
+		assertFalse(record.fieldEquals(1, "genes"));
+		assertEquals(-42, record.getFieldAsInt(2));
+		assertEquals(12345678901L, record.getFieldAsLong(3));
+		assertEquals(2.5, record.getFieldAsDouble(4), 0.0);
+		assertEquals(0, record.getFieldLength(5));
+		assertEquals(7, record.getFieldAsInt(6));
+		assertEquals("id1", new String(record.getLine().getBuffer(), record.getFieldStart(0), record.getFieldLength(0)));
+		assertEquals(7, record.getFieldCount());
+		assertFalse(record.hasField(7));
+		assertFalse(record.hasField(-1));
+		assertNull(reader.nextRecord());
+		reader.close();
+	}
+
+	@Test
+	public void testNumberParsingErrors() throws IOException {
+		DelimitedRecordReader reader = createReader("12a,,-,2147483648,99999999999999999999\n", ",", null);
+		DelimitedRecord record = reader.nextRecord();
+		for (int i = 0; i < 4; i++) {
+			try {
+				record.getFieldAsInt(i);
+				fail("field " + i + " is not a valid int");
+			} catch (NumberFormatException e) {
+				/* expected */
+			}
+		}
+		assertEquals(2147483648L, record.getFieldAsLong(3));
+		try {
+			record.getFieldAsLong(4);
+			fail("field 4 is not a valid long");
+		} catch (NumberFormatException e) {
+			/* expected */
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testColumnProjection() throws IOException {
+		DelimitedRecordReader reader = createReader("a|b|c|d\ne|f|g|h\n", "\\|", null);
+		reader.setColumns(3, 1);
+		assertArrayEquals(new String[] { "d", "b" }, reader.nextRecord().toArray());
+		reader.setColumns();
+		assertArrayEquals(new String[] { "e", "f", "g", "h" }, reader.nextRecord().toArray());
+		reader.close();
+	}
+
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testMissingColumn() throws IOException {
+		DelimitedRecordReader reader = createReader("a,b\n", ",", null);
+		reader.setColumns(0, 2);
+		reader.nextRecord().toArray();
+	}
+
+	@Test
+	public void testReadRecords() throws IOException {
+		DelimitedRecordReader reader = createReader("1,x\n2,y\n3,z", ",", null);
+		final List<String> values = new ArrayList<String>();
+		final long[] sum = new long[1];
+		reader.readRecords(new DelimitedRecordHandler() {
+			@Override
+			public void handleRecord(DelimitedRecord record) throws IOException {
+				sum[0] += record.getFieldAsLong(0);
+				values.add(record.getField(1));
+			}
+		});
+		reader.close();
+		assertEquals(6, sum[0]);
+		assertEquals(3, values.size());
+		assertEquals("z", values.get(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDelimiterRequired() throws IOException {
+		createReader("a", null, null);
+	}
+
+	@Test
+	public void testDoubleParsingMatchesJdk() throws IOException {
+		Random random = new Random(17);
+		List<String> values = new ArrayList<String>();
+		for (String value : new String[] { "0", "-0", "+1", "1.", ".5", "0.1", "0.3", "123456789012345",
+				"1234567890123456", "9007199254740993", "1.000000000000001", "1e10", "-2.5E-3", "NaN", "Infinity",
+				"0x1p3", "1d", " 1" }) {
+			values.add(value);
+		}
+		for (int i = 0; i < 2000; i++) {
+			String digits = Long.toString(Math.abs(random.nextLong()) % 1000000000000000L);
+			int point = random.nextInt(digits.length() + 1);
+			values.add((random.nextBoolean() ? "-" : "") + digits.substring(0, point) + "." + digits.substring(point));
+		}
+		StringBuilder input = new StringBuilder();
+		for (String value : values) {
+			input.append("x,").append(value).append("\n");
+		}
+		DelimitedRecordReader reader = createReader(input.toString(), ",", null);
+		for (String value : values) {
+			DelimitedRecord record = reader.nextRecord();
+			assertEquals(value, Double.doubleToLongBits(Double.parseDouble(value)),
+					Double.doubleToLongBits(record.getFieldAsDouble(1)));
+		}
+		reader.close();
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testInvalidDouble() throws IOException {
+		DelimitedRecordReader reader = createReader("1.2.3\n", ",", null);
+		reader.nextRecord().getFieldAsDouble(0);
+	}
+
+}
@@ -0,0 +1,129 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link FileChunkSplitter}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class FileChunkSplitterTest extends DefaultTestCase {
+
+	/**
+	 * Checks that chunks are contiguous, cover the whole file and that each one starts with the
+	 * line number and offsets reported by a sequential reader
+	 */
+	@Test
+	public void testChunksAlignWithLines() throws IOException {
+		File file = folder.newFile("mixed.utf8");
+		StringBuilder sb = new StringBuilder();
+		String[] terminators = new String[] { "\n", "\r\n", "\r" };
+		for (int i = 0; i < 200; i++) {
+			sb.append("line ").append(i).append((i % 7 == 0) ? " \u00df\ud835\udc9c" : "").append(
+					terminators[i % terminators.length]);
+		}
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+
+		for (int chunkCount : new int[] { 1, 2, 7, 64, 10000 }) {
+			List<FileChunk> chunks = FileChunkSplitter.split(file, CharacterEncoding.UTF_8, chunkCount);
+			assertTrue(chunks.size() <= chunkCount);
+			assertEquals(0, chunks.get(0).getStartByteOffset());
+			assertEquals(file.length(), chunks.get(chunks.size() - 1).getEndByteOffset());
+			ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8);
+			Line line = reader.readLine();
+			FileChunk previous = null;
+			for (FileChunk chunk : chunks) {
+				if (previous != null) {
+					assertEquals(previous.getEndByteOffset(), chunk.getStartByteOffset());
+				}
+				while (line.getByteOffset() < chunk.getStartByteOffset()) {
+					line = reader.readLine();
+				}
+				assertEquals("chunk must start at a line: " + chunk, line.getByteOffset(), chunk.getStartByteOffset());
+				assertEquals(line.getLineNumber(), chunk.getLineNumber());
+				assertEquals(line.getCharacterOffset(), chunk.getCharacterOffset());
+				assertEquals(line.getCodePointOffset(), chunk.getCodePointOffset());
+				previous = chunk;
+			}
+			reader.close();
+		}
+	}
+
+	/**
+	 * Checks that splitting without counting produces the same boundaries as splitting with
+	 * counting, and that the chunks are numbered relative to themselves
+	 */
+	@Test
+	public void testSplitAtLineBoundaries() throws IOException {
+		File file = folder.newFile("lines.utf8");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			sb.append("line ").append(i).append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+
+		List<FileChunk> countedChunks = FileChunkSplitter.split(file, CharacterEncoding.UTF_8, 9);
+		List<FileChunk> chunks = FileChunkSplitter.splitAtLineBoundaries(file, 9);
+		assertEquals(countedChunks.size(), chunks.size());
+		for (int i = 0; i < chunks.size(); i++) {
+			assertEquals(countedChunks.get(i).getStartByteOffset(), chunks.get(i).getStartByteOffset());
+			assertEquals(countedChunks.get(i).getEndByteOffset(), chunks.get(i).getEndByteOffset());
+			assertEquals(0, chunks.get(i).getLineNumber());
+			assertEquals(0, chunks.get(i).getCharacterOffset());
+			assertEquals(0, chunks.get(i).getCodePointOffset());
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		List<FileChunk> chunks = FileChunkSplitter.split(folder.newFile("empty.utf8"), CharacterEncoding.UTF_8, 4);
+		assertEquals(1, chunks.size());
+		assertEquals(0, chunks.get(0).getByteLength());
+	}
+
+}
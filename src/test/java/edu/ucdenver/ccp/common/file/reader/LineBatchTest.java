@@ -0,0 +1,151 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * Tests the {@link LineBatch} and {@link LineReader#readLines(LineBatch, int)}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineBatchTest {
+
+	private static byte[] createSampleBytes(int lineCount) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			sb.append((i % 10 == 0) ? "#comment " : "line ").append(i).append((i % 3 == 0) ? "\u00e9\ud835\udc9c" : "")
+					.append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		return sb.toString().getBytes("UTF-8");
+	}
+
+	/**
+	 * Reads the lines of the batch reader in batches and checks that they match the lines returned
+	 * one at a time by the expected reader
+	 */
+	private static void assertBatchesMatchLines(LineReader<Line> expectedReader, LineReader<Line> batchReader,
+			int batchSize, int expectedLineCount) throws IOException {
+		LineBatch batch = new LineBatch(2, 8);
+		int lineCount = 0;
+		while (batchReader.readLines(batch, batchSize) > 0) {
+			assertTrue(batch.size() <= batchSize);
+			for (int i = 0; i < batch.size(); i++) {
+				Line expectedLine = expectedReader.readLine();
+				assertEquals(expectedLine.getText(), batch.getText(i));
+				assertEquals(expectedLine.getLineNumber(), batch.getLineNumber(i));
+				assertEquals(expectedLine.getLineTerminator(), batch.getLineTerminator(i));
+				assertEquals(expectedLine.getCharacterOffset(), batch.getCharacterOffset(i));
+				assertEquals(expectedLine.getCodePointOffset(), batch.getCodePointOffset(i));
+				assertEquals(expectedLine.getByteOffset(), batch.getByteOffset(i));
+				lineCount++;
+			}
+		}
+		assertEquals(null, expectedReader.readLine());
+		assertEquals(expectedLineCount, lineCount);
+	}
+
+	@Test
+	public void testStreamLineReaderBatches() throws IOException {
+		byte[] bytes = createSampleBytes(1000);
+		assertBatchesMatchLines(
+				new StreamLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8, "#"),
+				new StreamLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8, "#"), 7, 900);
+	}
+
+	@Test
+	public void testByteChannelLineReaderBatches() throws IOException {
+		byte[] bytes = createSampleBytes(1000);
+		assertBatchesMatchLines(new ByteChannelLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8,
+				"#"), new ByteChannelLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8, "#"), 64,
+				900);
+	}
+
+	@Test
+	public void testMixedLineAndBatchReads() throws IOException {
+		byte[] bytes = "a\nbb\r\nccc\rdddd".getBytes("UTF-8");
+		StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8,
+				null);
+		assertEquals("a", reader.readLine().getText());
+		LineBatch batch = reader.readLines(2);
+		assertEquals(2, batch.size());
+		assertEquals("bb", batch.getText(0));
+		assertEquals(2, batch.getCharacterOffset(0));
+		assertEquals(LineTerminator.CR, batch.getLineTerminator(1));
+		Line line = reader.readLine();
+		assertEquals("dddd", line.getText());
+		assertEquals(10, line.getCharacterOffset());
+		assertEquals(3, line.getLineNumber());
+		assertEquals(0, reader.readLines(batch, 10));
+		assertTrue(batch.isEmpty());
+		reader.close();
+	}
+
+	@Test
+	public void testLineAndLineViewAccess() throws IOException {
+		byte[] bytes = "first\nsecond\n".getBytes("UTF-8");
+		StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8,
+				null);
+		LineBatch batch = reader.readLines(10);
+		assertEquals(2, batch.size());
+		Line line = batch.getLine(1);
+		assertEquals("second", line.getText());
+		assertEquals(6, line.getCharacterOffset());
+		LineView view = batch.getLineView(1);
+		assertEquals("second", view.toString());
+		assertEquals(1, view.getLineNumber());
+		assertSame(view, batch.getLineView(0, view));
+		assertEquals(0, view.getLineNumber());
+		assertEquals('s', batch.getBuffer()[batch.getStart(1)]);
+		assertEquals(6, batch.getLength(1));
+		reader.close();
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfBounds() {
+		new LineBatch().getText(0);
+	}
+
+}
@@ -0,0 +1,145 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link LineIndex}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineIndexTest extends DefaultTestCase {
+
+	private File dataFile;
+
+	private List<Line> expectedLines;
+
+	@Before
+	public void setUp() throws IOException {
+		dataFile = folder.newFile("data.utf8");
+		StringBuilder sb = new StringBuilder();
+		String[] terminators = new String[] { "\n", "\r\n", "\r" };
+		for (int i = 0; i < 500; i++) {
+			sb.append("line ").append(i).append((i % 5 == 0) ? " \u00df\ud835\udc9c" : "")
+					.append(terminators[i % terminators.length]);
+		}
+		sb.append("last line without terminator");
+		FileUtils.writeStringToFile(dataFile, sb.toString(), "UTF-8");
+		expectedLines = new ArrayList<Line>();
+		ByteChannelLineReader reader = new ByteChannelLineReader(dataFile, CharacterEncoding.UTF_8);
+		Line line;
+		while ((line = reader.readLine()) != null) {
+			expectedLines.add(line);
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testSeekToEveryLine() throws IOException {
+		LineIndex index = LineIndex.build(dataFile, CharacterEncoding.UTF_8, 16);
+		assertEquals(expectedLines.size(), index.getLineCount());
+		for (Line expectedLine : expectedLines) {
+			List<Line> lines = index.getLines(dataFile, expectedLine.getLineNumber(), 1);
+			assertEquals(1, lines.size());
+			assertLineEquals(expectedLine, lines.get(0));
+		}
+	}
+
+	@Test
+	public void testSeekToByteOffset() throws IOException {
+		LineIndex index = LineIndex.build(dataFile, CharacterEncoding.UTF_8, 7);
+		Line target = expectedLines.get(123);
+		MappedLineReader reader = index.openReaderAtByteOffset(dataFile, target.getByteOffset());
+		assertLineEquals(target, reader.readLine());
+		reader.close();
+		reader = index.openReaderAtByteOffset(dataFile, target.getByteOffset() + 1);
+		assertLineEquals(expectedLines.get(124), reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testGetLinesRange() throws IOException {
+		LineIndex index = LineIndex.build(dataFile, CharacterEncoding.UTF_8, 32);
+		List<Line> lines = index.getLines(dataFile, 495, 10);
+		assertEquals(6, lines.size());
+		assertEquals("last line without terminator", lines.get(5).getText());
+	}
+
+	@Test
+	public void testSidecarPersistence() throws IOException {
+		File sidecar = LineIndex.getSidecarFile(dataFile);
+		assertFalse(sidecar.exists());
+		LineIndex built = LineIndex.loadOrBuild(dataFile, CharacterEncoding.UTF_8, 10);
+		assertTrue(sidecar.exists());
+		LineIndex loaded = LineIndex.load(sidecar);
+		assertTrue(loaded.isCurrent(dataFile));
+		assertEquals(built.getLineCount(), loaded.getLineCount());
+		assertEquals(built.getInterval(), loaded.getInterval());
+		assertEquals(CharacterEncoding.UTF_8, loaded.getEncoding());
+		assertLineEquals(expectedLines.get(333), loaded.getLines(dataFile, 333, 1).get(0));
+
+		FileUtils.writeStringToFile(dataFile, "a\nb\n", "UTF-8");
+		assertFalse(loaded.isCurrent(dataFile));
+		assertEquals(2, LineIndex.loadOrBuild(dataFile, CharacterEncoding.UTF_8, 10).getLineCount());
+		assertEquals(2, LineIndex.load(sidecar).getLineCount());
+		/* the sidecar is replaced via a temporary file that does not remain */
+		assertEquals(2, folder.getRoot().list().length);
+	}
+
+	private static void assertLineEquals(Line expected, Line line) {
+		assertEquals(expected.getText(), line.getText());
+		assertEquals(expected.getLineNumber(), line.getLineNumber());
+		assertEquals(expected.getByteOffset(), line.getByteOffset());
+		assertEquals(expected.getCharacterOffset(), line.getCharacterOffset());
+		assertEquals(expected.getCodePointOffset(), line.getCodePointOffset());
+		assertEquals(expected.getLineTerminator(), line.getLineTerminator());
+	}
+
+}
@@ -0,0 +1,81 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link LinePredicate}s created by {@link LinePredicates}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LinePredicatesTest {
+
+	@Test
+	public void testStartsWithMatchesTrimmedStartsWith() {
+		LinePredicate predicate = LinePredicates.startsWith("# ");
+		for (String line : new String[] { "# a", "  # a", "#a", "# ", "\t#  ", "", "a # b", "#" }) {
+			assertTrue(line, line.trim().startsWith("# ") == predicate.matches(line));
+		}
+	}
+
+	@Test
+	public void testStartsWithAnyPrefix() {
+		LinePredicate predicate = LinePredicates.startsWith("#", "//");
+		assertTrue(predicate.matches("#x"));
+		assertTrue(predicate.matches(" // x"));
+		assertFalse(predicate.matches("/ x"));
+		assertFalse(predicate.matches("x#"));
+	}
+
+	@Test
+	public void testLookingAt() {
+		LinePredicate predicate = LinePredicates.lookingAt(Pattern.compile("\\s*(#|track\\s)"));
+		assertTrue(predicate.matches("track name=x"));
+		assertTrue(predicate.matches(" #"));
+		assertFalse(predicate.matches("chr1\ttrack"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testStartsWithRequiresPrefix() {
+		LinePredicates.startsWith();
+	}
+
+}
@@ -0,0 +1,113 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+
+/**
+ * Tests the {@link LineScanner}, paying particular attention to lines and terminators that straddle
+ * the boundary of the scanning window
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineScannerTest {
+
+	@Test
+	public void testMixedTerminators() throws IOException {
+		LineScanner scanner = new LineScanner(new StringReader("line1\nline2\r\nline3\rline4"));
+		assertLine(scanner, "line1", LineTerminator.LF);
+		assertLine(scanner, "line2", LineTerminator.CRLF);
+		assertLine(scanner, "line3", LineTerminator.CR);
+		assertLine(scanner, "line4", LineTerminator.LF);
+		assertFalse(scanner.nextLine());
+	}
+
+	@Test
+	public void testEmptyLinesAndTrailingTerminator() throws IOException {
+		LineScanner scanner = new LineScanner(new StringReader("\n\r\n\rabc\n"));
+		assertLine(scanner, "", LineTerminator.LF);
+		assertLine(scanner, "", LineTerminator.CRLF);
+		assertLine(scanner, "", LineTerminator.CR);
+		assertLine(scanner, "abc", LineTerminator.LF);
+		assertFalse(scanner.nextLine());
+	}
+
+	@Test
+	public void testEmptyInput() throws IOException {
+		assertFalse(new LineScanner(new StringReader("")).nextLine());
+	}
+
+	@Test
+	public void testCrlfSplitAcrossWindows() throws IOException {
+		/* with a 4-char window the CR of the first line is the last char of the first window */
+		LineScanner scanner = new LineScanner(new StringReader("abc\r\ndef\rg\r"), 4);
+		assertLine(scanner, "abc", LineTerminator.CRLF);
+		assertLine(scanner, "def", LineTerminator.CR);
+		assertLine(scanner, "g", LineTerminator.CR);
+		assertFalse(scanner.nextLine());
+	}
+
+	@Test
+	public void testLineLongerThanWindow() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			sb.append(i % 10);
+		}
+		String longLine = sb.toString();
+		LineScanner scanner = new LineScanner(new StringReader("a\n" + longLine + "\r\nb"), 8);
+		assertLine(scanner, "a", LineTerminator.LF);
+		assertLine(scanner, longLine, LineTerminator.CRLF);
+		assertLine(scanner, "b", LineTerminator.LF);
+		assertFalse(scanner.nextLine());
+	}
+
+	private static void assertLine(LineScanner scanner, String expectedText, LineTerminator expectedTerminator)
+			throws IOException {
+		assertTrue(scanner.nextLine());
+		assertEquals(expectedText, scanner.getLineText());
+		assertEquals(expectedText.length(), scanner.getLineLength());
+		assertEquals(expectedTerminator, scanner.getLineTerminator());
+	}
+
+}
@@ -0,0 +1,191 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileArchiveUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link LineStreams}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineStreamsTest extends DefaultTestCase {
+
+	private static final int LINE_COUNT = 20000;
+
+	private File createSampleFile() throws IOException {
+		File file = folder.newFile("sample.utf8");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < LINE_COUNT; i++) {
+			sb.append("line ").append(i).append((i % 7 == 0) ? "\u00e9\ud835\udc9c" : "")
+					.append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+		return file;
+	}
+
+	/**
+	 * Checks that the lines of the stream are identical (in order, text and offsets) to the lines
+	 * read sequentially by a {@link ByteChannelLineReader}
+	 */
+	private void assertLinesMatchSequentialReader(File file, List<Line> lines) throws IOException {
+		ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8);
+		int index = 0;
+		Line expectedLine;
+		while ((expectedLine = reader.readLine()) != null) {
+			Line line = lines.get(index++);
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineNumber(), line.getLineNumber());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+			assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+			assertEquals(expectedLine.getByteOffset(), line.getByteOffset());
+		}
+		reader.close();
+		assertEquals(index, lines.size());
+	}
+
+	@Test
+	public void testSequentialStream() throws IOException {
+		File file = createSampleFile();
+		try (Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+			assertLinesMatchSequentialReader(file, lines.collect(Collectors.<Line> toList()));
+		}
+	}
+
+	@Test
+	public void testParallelStreamWithoutIndex() throws IOException {
+		File file = createSampleFile();
+		try (Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+			assertLinesMatchSequentialReader(file, lines.parallel().collect(Collectors.<Line> toList()));
+		}
+	}
+
+	@Test
+	public void testParallelStreamWithIndex() throws IOException {
+		File file = createSampleFile();
+		LineIndex.loadOrBuild(file, CharacterEncoding.UTF_8, 64);
+		try (Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+			assertLinesMatchSequentialReader(file, lines.parallel().collect(Collectors.<Line> toList()));
+		}
+	}
+
+	@Test
+	public void testIndexedStreamIsSized() throws IOException {
+		File file = createSampleFile();
+		LineIndex index = LineIndex.build(file, CharacterEncoding.UTF_8, 64);
+		try (Stream<Line> lines = LineStreams.lines(file, index)) {
+			Spliterator<Line> spliterator = lines.spliterator();
+			assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+			assertEquals(LINE_COUNT, spliterator.getExactSizeIfKnown());
+			Spliterator<Line> prefix = spliterator.trySplit();
+			assertEquals(LINE_COUNT, prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+		}
+		try (Stream<Line> lines = LineStreams.lines(file, index)) {
+			assertEquals(LINE_COUNT, lines.parallel().count());
+		}
+	}
+
+	@Test
+	public void testUnindexedStreamIsNotSized() throws IOException {
+		File file = createSampleFile();
+		try (Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+			assertFalse(lines.spliterator().hasCharacteristics(Spliterator.SIZED));
+		}
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File file = folder.newFile("empty.txt");
+		try (Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8)) {
+			assertEquals(0, lines.parallel().count());
+		}
+	}
+
+	@Test
+	public void testCompressedFile() throws IOException {
+		File file = createSampleFile();
+		File gzFile = FileArchiveUtil.gzipFile(file);
+		try (Stream<Line> lines = LineStreams.lines(gzFile, CharacterEncoding.UTF_8)) {
+			assertEquals(LINE_COUNT, lines.parallel().count());
+		}
+	}
+
+	@Test
+	public void testCloseAfterPartialTraversal() throws IOException {
+		File file = createSampleFile();
+		Stream<Line> lines = LineStreams.lines(file, CharacterEncoding.UTF_8);
+		Iterator<Line> lineIter = lines.iterator();
+		assertEquals("line 0\u00e9\ud835\udc9c", lineIter.next().getText());
+		lines.close();
+		assertTrue("the file should not be held open", file.delete());
+	}
+
+	@Test
+	public void testInputStream() throws IOException {
+		byte[] bytes = "a\nb\r\nc".getBytes("UTF-8");
+		try (Stream<Line> lines = LineStreams.lines(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8)) {
+			List<Line> lineList = lines.collect(Collectors.<Line> toList());
+			assertEquals(3, lineList.size());
+			assertEquals("c", lineList.get(2).getText());
+			assertEquals(5, lineList.get(2).getCharacterOffset());
+		}
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testLines_MissingFile() throws IOException {
+		LineStreams.lines(new File(folder.getRoot(), "missing.txt"), CharacterEncoding.UTF_8);
+	}
+
+}
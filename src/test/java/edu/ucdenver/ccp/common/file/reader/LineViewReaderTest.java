@@ -0,0 +1,126 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link LineViewReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class LineViewReaderTest extends DefaultTestCase {
+
+	/**
+	 * Checks that the views match the lines returned by a {@link ByteChannelLineReader}
+	 */
+	@Test
+	public void testViewsMatchLines() throws IOException {
+		File file = folder.newFile("sample.utf8");
+		FileUtils.writeStringToFile(file, "#header\nline\u00df1\r\n  # indented comment\r\n\nline3\rline4", "UTF-8");
+		LineViewReader viewReader = new LineViewReader(file, CharacterEncoding.UTF_8, "#");
+		ByteChannelLineReader lineReader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8, "#");
+		LineView firstView = null;
+		Line line;
+		while ((line = lineReader.readLine()) != null) {
+			LineView view = viewReader.nextLine();
+			if (firstView == null) {
+				firstView = view;
+			}
+			assertSame("the same view should be reused for every line", firstView, view);
+			assertEquals(line.getText(), view.toString());
+			assertEquals(line.getLineNumber(), view.getLineNumber());
+			assertEquals(line.getCharacterOffset(), view.getCharacterOffset());
+			assertEquals(line.getLineTerminator(), view.getLineTerminator());
+		}
+		assertNull(viewReader.nextLine());
+		viewReader.close();
+		lineReader.close();
+	}
+
+	@Test
+	public void testCharSequenceMethods() throws IOException {
+		LineViewReader reader = new LineViewReader(new ByteArrayInputStream("abc\tdef\n".getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		LineView view = reader.nextLine();
+		assertEquals(7, view.length());
+		assertEquals('\t', view.charAt(3));
+		assertEquals("def", view.subSequence(4, 7).toString());
+		assertEquals(LineTerminator.LF, view.getLineTerminator());
+		assertEquals("abc", new String(view.getBuffer(), view.getStart(), 3));
+		assertNull(reader.nextLine());
+		reader.close();
+	}
+
+	@Test
+	public void testReadLinesWithHandler() throws IOException {
+		LineViewReader reader = new LineViewReader(new ByteArrayInputStream("a\n#b\nc\n".getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, "#");
+		final List<String> lines = new ArrayList<String>();
+		reader.readLines(new LineViewHandler() {
+			@Override
+			public void handleLine(LineView line) {
+				lines.add(line.toString());
+			}
+		});
+		reader.close();
+		assertEquals(2, lines.size());
+		assertEquals("a", lines.get(0));
+		assertEquals("c", lines.get(1));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testCharAtOutOfBounds() throws IOException {
+		LineViewReader reader = new LineViewReader(new ByteArrayInputStream("ab\ncd".getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		reader.nextLine().charAt(2);
+	}
+
+}
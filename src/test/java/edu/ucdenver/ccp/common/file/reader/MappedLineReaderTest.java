@@ -0,0 +1,116 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.SampleUtf8File;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link MappedLineReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class MappedLineReaderTest extends DefaultTestCase {
+
+	/**
+	 * Checks that lines read from a range of segment sizes match the lines read by the
+	 * {@link StreamLineReader} and the {@link ByteChannelLineReader}
+	 */
+	@Test
+	public void testLinesMatchOtherReaders() throws IOException {
+		File sampleFile = copyClasspathResourceToTemporaryFile(SampleUtf8File.class, SampleUtf8File.FILE_NAME);
+		for (int segmentSize : new int[] { 2, 5, 16, MappedLineReader.DEFAULT_SEGMENT_SIZE }) {
+			StreamLineReader streamReader = new StreamLineReader(sampleFile, SampleUtf8File.ENCODING);
+			ByteChannelLineReader channelReader = new ByteChannelLineReader(sampleFile, SampleUtf8File.ENCODING);
+			MappedLineReader mappedReader = new MappedLineReader(sampleFile, SampleUtf8File.ENCODING, null,
+					segmentSize);
+			Line expectedLine;
+			while ((expectedLine = streamReader.readLine()) != null) {
+				Line channelLine = channelReader.readLine();
+				Line line = mappedReader.readLine();
+				assertEquals(expectedLine.getText(), line.getText());
+				assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+				assertEquals(expectedLine.getLineNumber(), line.getLineNumber());
+				assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+				assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+				assertEquals(channelLine.getByteOffset(), line.getByteOffset());
+			}
+			assertNull(mappedReader.readLine());
+			streamReader.close();
+			channelReader.close();
+			mappedReader.close();
+		}
+	}
+
+	@Test
+	public void testIterator() throws IOException {
+		File file = folder.newFile("crlf.utf8");
+		FileUtils.writeStringToFile(file, "a\r\nbb\r\r\n", "UTF-8");
+		MappedLineIterator iter = new MappedLineIterator(file, CharacterEncoding.UTF_8);
+		Line line = iter.next();
+		assertEquals("a", line.getText());
+		assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+		line = iter.next();
+		assertEquals("bb", line.getText());
+		assertEquals(LineTerminator.CR, line.getLineTerminator());
+		assertEquals(3, line.getByteOffset());
+		line = iter.next();
+		assertEquals("", line.getText());
+		assertEquals(LineTerminator.CRLF, line.getLineTerminator());
+		assertEquals(6, line.getByteOffset());
+		assertFalse(iter.hasNext());
+		iter.close();
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		MappedLineReader reader = new MappedLineReader(folder.newFile("empty.utf8"), CharacterEncoding.UTF_8);
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+}
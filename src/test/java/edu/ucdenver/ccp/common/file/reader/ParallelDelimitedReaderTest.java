@@ -0,0 +1,225 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.reader.ParallelDelimitedReader.RecordOrder;
+import edu.ucdenver.ccp.common.file.reader.ParallelLineProcessor.LineNumbering;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ParallelDelimitedReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelDelimitedReaderTest extends DefaultTestCase {
+
+	private static final int LINE_COUNT = 2000;
+
+	private File createSampleFile() throws IOException {
+		File file = folder.newFile("sample.tsv");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < LINE_COUNT; i++) {
+			if (i % 10 == 0) {
+				sb.append("#comment ").append(i).append("\n");
+			} else {
+				sb.append("gene").append(i).append("\t").append(i).append("\tname\u00e9").append(i)
+						.append((i % 2 == 0) ? "\r\n" : "\n");
+			}
+		}
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+		return file;
+	}
+
+	/**
+	 * Checks that the ordered columns are identical to those loaded sequentially, in the same order
+	 * and with line numbers relative to the file although the chunks are not counted up front
+	 */
+	@Test
+	public void testOrderedColumnsMatchSequentialLoad() throws IOException {
+		File file = createSampleFile();
+		List<String[]> expectedColumns = FileReaderUtil.loadColumnsFromDelimitedFile(file, CharacterEncoding.UTF_8,
+				"\t", "#", 2, 0);
+
+		final List<String[]> columns = new ArrayList<String[]>();
+		final List<Long> lineNumbers = new ArrayList<Long>();
+		ForkJoinPool pool = new ForkJoinPool(3);
+		try {
+			ParallelDelimitedReader.readColumns(file, CharacterEncoding.UTF_8, "\t", "#", RecordOrder.ORDERED,
+					LineNumbering.CHUNK, 17, pool, new DelimitedColumnHandler() {
+						@Override
+						public void handleColumns(long lineNumber, String[] row) {
+							lineNumbers.add(lineNumber);
+							columns.add(row);
+						}
+					}, 2, 0);
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(expectedColumns.size(), columns.size());
+		for (int i = 0; i < columns.size(); i++) {
+			assertArrayEquals(expectedColumns.get(i), columns.get(i));
+			long lineNumber = lineNumbers.get(i);
+			assertEquals("name\u00e9" + lineNumber, columns.get(i)[0]);
+		}
+	}
+
+	/**
+	 * Checks that unordered columns are all delivered with the correct line numbers when numbering
+	 * relative to the file is requested
+	 */
+	@Test
+	public void testUnorderedColumns() throws IOException {
+		File file = createSampleFile();
+		final Map<Long, String[]> columns = new ConcurrentHashMap<Long, String[]>();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelDelimitedReader.readColumns(file, CharacterEncoding.UTF_8, "\t", "#", RecordOrder.UNORDERED,
+					LineNumbering.FILE, 11, pool, new DelimitedColumnHandler() {
+						@Override
+						public void handleColumns(long lineNumber, String[] row) {
+							columns.put(lineNumber, row);
+						}
+					});
+		} finally {
+			pool.shutdown();
+		}
+		assertEquals(LINE_COUNT - LINE_COUNT / 10, columns.size());
+		for (Map.Entry<Long, String[]> entry : columns.entrySet()) {
+			long lineNumber = entry.getKey();
+			assertArrayEquals(new String[] { "gene" + lineNumber, "" + lineNumber, "name\u00e9" + lineNumber },
+					entry.getValue());
+		}
+	}
+
+	/**
+	 * Checks that records can be aggregated without extracting columns
+	 */
+	@Test
+	public void testProcessRecords() throws IOException {
+		File file = createSampleFile();
+		final AtomicLong total = new AtomicLong();
+		ParallelDelimitedReader.processRecords(file, CharacterEncoding.UTF_8, "\t", "#",
+				new DelimitedRecordHandler() {
+					@Override
+					public void handleRecord(DelimitedRecord record) {
+						total.addAndGet(record.getFieldAsLong(1));
+					}
+				});
+		long expectedTotal = 0;
+		for (int i = 0; i < LINE_COUNT; i++) {
+			if (i % 10 != 0) {
+				expectedTotal += i;
+			}
+		}
+		assertEquals(expectedTotal, total.get());
+	}
+
+	/**
+	 * Checks that compressed files are parsed sequentially
+	 */
+	@Test
+	public void testCompressedFile() throws IOException {
+		File file = folder.newFile("sample.tsv.gz");
+		OutputStream gzipStream = new GZIPOutputStream(new FileOutputStream(file));
+		try {
+			gzipStream.write("a\t1\nb\t2\nc\t3\n".getBytes("UTF-8"));
+		} finally {
+			gzipStream.close();
+		}
+		final List<String> columns = new ArrayList<String>();
+		FileReaderUtil.loadColumnsFromDelimitedFileInParallel(file, CharacterEncoding.UTF_8, "\t", null,
+				RecordOrder.ORDERED, new DelimitedColumnHandler() {
+					@Override
+					public void handleColumns(long lineNumber, String[] row) {
+						columns.add(lineNumber + row[0]);
+					}
+				}, 0);
+		assertEquals(Arrays.asList("0a", "1b", "2c"), columns);
+	}
+
+	/**
+	 * Checks that an exception thrown by the handler is propagated to the caller
+	 */
+	@Test(expected = ArrayIndexOutOfBoundsException.class)
+	public void testMissingColumn() throws IOException {
+		File file = createSampleFile();
+		FileReaderUtil.loadColumnsFromDelimitedFileInParallel(file, CharacterEncoding.UTF_8, "\t", "#",
+				RecordOrder.ORDERED, new DelimitedColumnHandler() {
+					@Override
+					public void handleColumns(long lineNumber, String[] row) {
+						/* not reached */
+					}
+				}, 3);
+	}
+
+	/**
+	 * Checks that an empty file produces no records
+	 */
+	@Test
+	public void testEmptyFile() throws IOException {
+		File file = folder.newFile("empty.tsv");
+		final List<String[]> columns = new ArrayList<String[]>();
+		FileReaderUtil.loadColumnsFromDelimitedFileInParallel(file, CharacterEncoding.UTF_8, "\t", "#",
+				RecordOrder.ORDERED, new DelimitedColumnHandler() {
+					@Override
+					public void handleColumns(long lineNumber, String[] row) {
+						columns.add(row);
+					}
+				});
+		assertEquals(0, columns.size());
+	}
+
+}
@@ -0,0 +1,145 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.ParallelLineProcessor.LineNumbering;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ParallelLineProcessor}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelLineProcessorTest extends DefaultTestCase {
+
+	private File createSampleFile() throws IOException {
+		File file = folder.newFile("sample.utf8");
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			sb.append((i % 10 == 0) ? "#comment " : "line ").append(i).append((i % 3 == 0) ? "\u00e9\u20ac" : "")
+					.append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+		return file;
+	}
+
+	/**
+	 * Checks that the lines handled in parallel are identical to those read sequentially
+	 */
+	@Test
+	public void testLinesMatchSequentialReader() throws IOException {
+		File file = createSampleFile();
+
+		final Map<Long, Line> parallelLines = new ConcurrentHashMap<Long, Line>();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelLineProcessor.processLines(file, CharacterEncoding.UTF_8, "#", LineNumbering.FILE, 13, pool,
+					new LineHandler() {
+						@Override
+						public void handleLine(Line line) {
+							parallelLines.put(line.getLineNumber(), line);
+						}
+					});
+		} finally {
+			pool.shutdown();
+		}
+
+		ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8, "#");
+		int lineCount = 0;
+		Line expectedLine;
+		while ((expectedLine = reader.readLine()) != null) {
+			Line line = parallelLines.get(expectedLine.getLineNumber());
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+			assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+			assertEquals(expectedLine.getByteOffset(), line.getByteOffset());
+			lineCount++;
+		}
+		reader.close();
+		assertEquals(900, lineCount);
+		assertEquals(lineCount, parallelLines.size());
+	}
+
+	/**
+	 * Checks that lines numbered relative to their chunk have the same text and byte offsets as
+	 * those read sequentially
+	 */
+	@Test
+	public void testChunkNumbering() throws IOException {
+		File file = createSampleFile();
+		final Map<Long, Line> parallelLines = new ConcurrentHashMap<Long, Line>();
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			ParallelLineProcessor.processLines(file, CharacterEncoding.UTF_8, "#", LineNumbering.CHUNK, 13, pool,
+					new LineHandler() {
+						@Override
+						public void handleLine(Line line) {
+							parallelLines.put(line.getByteOffset(), line);
+						}
+					});
+		} finally {
+			pool.shutdown();
+		}
+
+		ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8, "#");
+		int lineCount = 0;
+		Line expectedLine;
+		while ((expectedLine = reader.readLine()) != null) {
+			Line line = parallelLines.get(expectedLine.getByteOffset());
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertTrue(line.getLineNumber() <= expectedLine.getLineNumber());
+			lineCount++;
+		}
+		reader.close();
+		assertEquals(900, lineCount);
+		assertEquals(lineCount, parallelLines.size());
+	}
+
+}
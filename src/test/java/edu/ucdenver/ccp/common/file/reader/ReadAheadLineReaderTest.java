@@ -0,0 +1,172 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ReadAheadLineReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReadAheadLineReaderTest extends DefaultTestCase {
+
+	private static byte[] createSampleBytes(int lineCount) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			sb.append((i % 10 == 0) ? "#comment " : "line ").append(i).append((i % 3 == 0) ? "\u00e9\ud835\udc9c" : "")
+					.append((i % 2 == 0) ? "\r\n" : "\n");
+		}
+		return sb.toString().getBytes("UTF-8");
+	}
+
+	@Test
+	public void testLinesMatchWrappedReader() throws IOException {
+		byte[] bytes = createSampleBytes(5000);
+		StreamLineReader expectedReader = new StreamLineReader(new ByteArrayInputStream(bytes),
+				CharacterEncoding.UTF_8, "#");
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(new StreamLineReader(
+				new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8, "#"), 7, 3);
+		int lineCount = 0;
+		Line expectedLine;
+		while ((expectedLine = expectedReader.readLine()) != null) {
+			Line line = reader.readLine();
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineNumber(), line.getLineNumber());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+			assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+			assertEquals(expectedLine.getByteOffset(), line.getByteOffset());
+			lineCount++;
+		}
+		assertNull(reader.readLine());
+		assertNull(reader.readLine());
+		assertEquals(4500, lineCount);
+		expectedReader.close();
+		reader.close();
+	}
+
+	@Test
+	public void testErrorIsRethrownAfterPrecedingLines() throws IOException {
+		LineReader<Line> failingReader = new LineReader<Line>((LinePredicate) null) {
+			private int lineNumber = 0;
+
+			@Override
+			protected Line getNextLine() throws IOException {
+				if (lineNumber == 10) {
+					throw new IOException("simulated failure");
+				}
+				return new Line("line", LineTerminator.LF, 0, 0, lineNumber++, 0);
+			}
+
+			@Override
+			public void close() {
+				/* nothing to close */
+			}
+		};
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(failingReader, 3, 2);
+		for (int i = 0; i < 10; i++) {
+			assertEquals(i, reader.readLine().getLineNumber());
+		}
+		try {
+			reader.readLine();
+			fail("The failure of the wrapped reader should have been rethrown");
+		} catch (IOException e) {
+			assertEquals("simulated failure", e.getMessage());
+		}
+		reader.close();
+	}
+
+	@Test
+	public void testCloseBeforeEnd() throws IOException {
+		final boolean[] closed = new boolean[1];
+		LineReader<Line> endlessReader = new LineReader<Line>((LinePredicate) null) {
+			private int lineNumber = 0;
+
+			@Override
+			protected Line getNextLine() {
+				return new Line("line", LineTerminator.LF, 0, 0, lineNumber++, 0);
+			}
+
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		ReadAheadLineReader<Line> reader = new ReadAheadLineReader<Line>(endlessReader, 4, 2);
+		assertEquals(0, reader.readLine().getLineNumber());
+		reader.close();
+		assertEquals("Closing the reader should close the wrapped reader", true, closed[0]);
+		try {
+			reader.readLine();
+			fail("Reading from a closed reader should fail");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+	@Test
+	public void testReadAheadStreamLineIterator() throws IOException {
+		File file = folder.newFile("sample.utf8");
+		FileUtils.writeByteArrayToFile(file, createSampleBytes(3000));
+		StreamLineIterator expectedIter = StreamLineIterator.create(file, CharacterEncoding.UTF_8,
+				LinePredicates.startsWith("#"));
+		StreamLineIterator lineIter = StreamLineIterator.createReadAhead(file, CharacterEncoding.UTF_8,
+				LinePredicates.startsWith("#"));
+		while (expectedIter.hasNext()) {
+			Line expectedLine = expectedIter.next();
+			Line line = lineIter.next();
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+		}
+		assertEquals(false, lineIter.hasNext());
+		expectedIter.close();
+		lineIter.close();
+	}
+
+}
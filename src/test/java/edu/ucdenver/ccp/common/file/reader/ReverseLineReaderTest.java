@@ -0,0 +1,165 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ReverseLineReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ReverseLineReaderTest extends DefaultTestCase {
+
+	private static final String[] TERMINATORS = new String[] { "\n", "\r\n", "\r" };
+
+	private File createSampleFile(String name, int lineCount, String finalText) throws IOException {
+		File file = folder.newFile(name);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < lineCount; i++) {
+			sb.append((i % 10 == 0) ? "#comment " : "line ").append(i).append((i % 3 == 0) ? "\u00e9\ud835\udc9c" : "");
+			if (i % 17 == 0) {
+				/* a long line */
+				for (int j = 0; j < 50; j++) {
+					sb.append("abcdefghij");
+				}
+			}
+			sb.append(TERMINATORS[i % 3]);
+			if (i % 13 == 0) {
+				/* an empty line */
+				sb.append("\n");
+			}
+		}
+		sb.append(finalText);
+		FileUtils.writeStringToFile(file, sb.toString(), "UTF-8");
+		return file;
+	}
+
+	private static List<Line> readForwards(File file, String skipLinePrefix) throws IOException {
+		List<Line> lines = new ArrayList<Line>();
+		ByteChannelLineReader reader = new ByteChannelLineReader(file, CharacterEncoding.UTF_8, skipLinePrefix);
+		Line line;
+		while ((line = reader.readLine()) != null) {
+			lines.add(line);
+		}
+		reader.close();
+		return lines;
+	}
+
+	private static void assertReverseOrder(List<Line> expectedLines, ReverseLineReader reader, boolean offsetsKnown)
+			throws IOException {
+		for (int i = expectedLines.size() - 1; i >= 0; i--) {
+			Line expectedLine = expectedLines.get(i);
+			Line line = reader.readLine();
+			assertEquals(expectedLine.getText(), line.getText());
+			assertEquals(expectedLine.getLineTerminator(), line.getLineTerminator());
+			assertEquals(expectedLine.getByteOffset(), line.getByteOffset());
+			if (offsetsKnown) {
+				assertEquals(expectedLine.getLineNumber(), line.getLineNumber());
+				assertEquals(expectedLine.getCharacterOffset(), line.getCharacterOffset());
+				assertEquals(expectedLine.getCodePointOffset(), line.getCodePointOffset());
+			} else {
+				assertEquals(-1, line.getLineNumber());
+				assertEquals(-1, line.getCharacterOffset());
+			}
+		}
+		assertNull(reader.readLine());
+		assertEquals(0, reader.getByteOffset());
+		reader.close();
+	}
+
+	@Test
+	public void testReverseOrderWithoutIndex() throws IOException {
+		for (String finalText : new String[] { "", "unterminated", "\r\n" }) {
+			File file = createSampleFile("sample" + finalText.length() + ".utf8", 300, finalText);
+			List<Line> expectedLines = readForwards(file, null);
+			for (int blockSize : new int[] { 2, 3, 7, 64, 1024 * 1024 }) {
+				assertReverseOrder(expectedLines, new ReverseLineReader(file, CharacterEncoding.UTF_8, null,
+						blockSize), false);
+			}
+		}
+	}
+
+	@Test
+	public void testReverseOrderWithIndex() throws IOException {
+		for (String finalText : new String[] { "", "unterminated", "\r\n" }) {
+			File file = createSampleFile("sample" + finalText.length() + ".utf8", 300, finalText);
+			LineIndex index = LineIndex.build(file, CharacterEncoding.UTF_8, 16);
+			assertReverseOrder(readForwards(file, null), new ReverseLineReader(file, index, null), true);
+		}
+	}
+
+	@Test
+	public void testSkipLinePrefix() throws IOException {
+		File file = createSampleFile("sample.utf8", 100, "");
+		LineIndex index = LineIndex.build(file, CharacterEncoding.UTF_8, 16);
+		assertReverseOrder(readForwards(file, "#"), new ReverseLineReader(file, index, "#"), true);
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		File file = folder.newFile("empty.txt");
+		ReverseLineReader reader = new ReverseLineReader(file, CharacterEncoding.UTF_8);
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testReadLastLines() throws IOException {
+		File file = createSampleFile("sample.utf8", 100, "BUILD FAILURE\n");
+		List<Line> expectedLines = readForwards(file, null);
+		List<Line> lastLines = ReverseLineReader.readLastLines(file, CharacterEncoding.UTF_8, 3);
+		assertEquals(3, lastLines.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(expectedLines.get(expectedLines.size() - 3 + i).getText(), lastLines.get(i).getText());
+		}
+		assertEquals("BUILD FAILURE", lastLines.get(2).getText());
+		assertEquals(expectedLines.size(), ReverseLineReader.readLastLines(file, CharacterEncoding.UTF_8, 100000)
+				.size());
+	}
+
+}
@@ -36,8 +36,10 @@ package edu.ucdenver.ccp.common.file.reader;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Before;
@@ -47,6 +49,7 @@ import edu.ucdenver.ccp.common.collections.CollectionsUtil;
 import edu.ucdenver.ccp.common.file.CharacterEncoding;
 import edu.ucdenver.ccp.common.file.FileWriterUtil;
 import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.io.IoOptions;
 import edu.ucdenver.ccp.common.string.StringConstants;
 import edu.ucdenver.ccp.common.test.DefaultTestCase;
 
@@ -130,6 +133,69 @@ public class StreamLineReaderTest extends DefaultTestCase {
 		assertEquals("Terminator on third line returned should be LF", LineTerminator.LF, line.getLineTerminator());
 	}
 
+	/**
+	 * Tests that character offsets include the characters of skipped lines
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testCharacterOffsetsWhenSkippingLines() throws IOException {
+		File sampleFile = populateSampleFile();
+		StreamLineReader flr = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
+		Line line = flr.readLine();
+		assertEquals("#line1\n precedes this line", 7, line.getCharacterOffset());
+		line = flr.readLine();
+		assertEquals("line2\n#line3\r\n also precede this line", 21, line.getCharacterOffset());
+		assertEquals(21, line.getCodePointOffset());
+		line = flr.readLine();
+		assertEquals(28, line.getCharacterOffset());
+		flr.close();
+	}
+
+	/**
+	 * Tests that a long run of skipped lines is handled (skipping was once recursive and could
+	 * overflow the stack)
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testLongRunOfSkippedLines() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		int skippedLineCount = 200000;
+		for (int i = 0; i < skippedLineCount; i++) {
+			sb.append("## header\n");
+		}
+		sb.append("data");
+		StreamLineReader flr = new StreamLineReader(new ByteArrayInputStream(sb.toString().getBytes("UTF-8")),
+				ENCODING, SKIP_LINE_PREFIX);
+		Line line = flr.readLine();
+		assertEquals("data", line.getText());
+		assertEquals(skippedLineCount, line.getLineNumber());
+		assertEquals(skippedLineCount * 10, line.getCharacterOffset());
+		assertNull(flr.readLine());
+		flr.close();
+	}
+
+	/**
+	 * Tests skipping lines using a predicate that matches several prefixes
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	public void testSkipLinePredicate() throws IOException {
+		String input = "#comment\n// comment\ndata1\n  ; comment\ndata2";
+		StreamLineReader flr = StreamLineReader.create(new ByteArrayInputStream(input.getBytes("UTF-8")), ENCODING,
+				LinePredicates.startsWith("#", "//", ";"));
+		Line line = flr.readLine();
+		assertEquals("data1", line.getText());
+		assertEquals(2, line.getLineNumber());
+		line = flr.readLine();
+		assertEquals("data2", line.getText());
+		assertEquals(4, line.getLineNumber());
+		assertNull(flr.readLine());
+		flr.close();
+	}
+
 	public void testByteOffset() throws IOException {
 		File sampleFile = populateSampleFile();
 		StreamLineReader flr = new StreamLineReader(sampleFile, ENCODING, SKIP_LINE_PREFIX);
@@ -155,4 +221,71 @@ public class StreamLineReaderTest extends DefaultTestCase {
 		return file;
 	}
 
+	@Test
+	public void testCodePointOffsetsWithSupplementaryCharacters() throws IOException {
+		String input = "ab\n\ud835\udc9c\u00df\r\nc\n";
+		StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(input.getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		Line line = reader.readLine();
+		assertEquals(0, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals(3, line.getCharacterOffset());
+		assertEquals(3, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals("the surrogate pair counts as two characters", 8, line.getCharacterOffset());
+		assertEquals("the surrogate pair counts as one code point", 7, line.getCodePointOffset());
+		reader.close();
+	}
+
+	@Test
+	public void testCharacterOffsetsOnlyTracking() throws IOException {
+		String input = "ab\n\ud835\udc9c\u00df\r\nc\n";
+		StreamLineReader reader = new StreamLineReader(new ByteArrayInputStream(input.getBytes("UTF-8")),
+				CharacterEncoding.UTF_8, null);
+		reader.setOffsetTracking(LineReader.OffsetTracking.CHARACTER_OFFSETS_ONLY);
+		Line line = reader.readLine();
+		assertEquals(0, line.getCharacterOffset());
+		assertEquals(-1, line.getCodePointOffset());
+		line = reader.readLine();
+		assertEquals(3, line.getCharacterOffset());
+		line = reader.readLine();
+		assertEquals("c", line.getText());
+		assertEquals(8, line.getCharacterOffset());
+		assertEquals(-1, line.getCodePointOffset());
+		assertNull(reader.readLine());
+		reader.close();
+	}
+
+	@Test
+	public void testIoOptions() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			sb.append("line ").append(i).append(i % 7 == 0 ? " \u00df\ud835\udc9c" : "").append(i % 2 == 0 ? "\n" : "\r\n");
+		}
+		File file = folder.newFile("options.utf8");
+		FileWriterUtil.printLines(CollectionsUtil.createList(sb.toString()), file, CharacterEncoding.UTF_8);
+		List<Line> expectedLines = new ArrayList<Line>();
+		StreamLineReader reader = new StreamLineReader(file, CharacterEncoding.UTF_8);
+		Line line;
+		while ((line = reader.readLine()) != null) {
+			expectedLines.add(line);
+		}
+		reader.close();
+		IoOptions[] optionsToTest = new IoOptions[] { IoOptions.DEFAULT, IoOptions.DEFAULT.withBufferSize(16),
+				IoOptions.DEFAULT.withBufferSize(1024 * 1024), IoOptions.DEFAULT.withDirectBuffers(true),
+				IoOptions.DEFAULT.withDirectBuffers(true).withBufferSize(100),
+				IoOptions.DEFAULT.withSequentialReadAhead(true).withBufferSize(1000) };
+		for (IoOptions options : optionsToTest) {
+			reader = new StreamLineReader(file, CharacterEncoding.UTF_8, null, options);
+			for (Line expectedLine : expectedLines) {
+				line = reader.readLine();
+				assertEquals(options.toString(), expectedLine.getText(), line.getText());
+				assertEquals(options.toString(), expectedLine.getByteOffset(), line.getByteOffset());
+				assertEquals(options.toString(), expectedLine.getCodePointOffset(), line.getCodePointOffset());
+			}
+			assertNull(reader.readLine());
+			reader.close();
+		}
+	}
+
 }
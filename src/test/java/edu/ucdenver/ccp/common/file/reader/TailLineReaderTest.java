@@ -0,0 +1,248 @@
+package edu.ucdenver.ccp.common.file.reader;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.reader.Line.LineTerminator;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link TailLineReader} and {@link TailLineIterator}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class TailLineReaderTest extends DefaultTestCase {
+
+	private static void append(File file, String text) throws IOException {
+		FileOutputStream fos = new FileOutputStream(file, true);
+		try {
+			fos.write(text.getBytes("UTF-8"));
+		} finally {
+			fos.close();
+		}
+	}
+
+	private static void assertLine(String expectedText, LineTerminator expectedTerminator, long expectedLineNumber,
+			long expectedByteOffset, Line line) {
+		assertEquals(expectedText, line.getText());
+		assertEquals(expectedTerminator, line.getLineTerminator());
+		assertEquals(expectedLineNumber, line.getLineNumber());
+		assertEquals(expectedByteOffset, line.getByteOffset());
+	}
+
+	@Test
+	public void testOnlyCompleteLinesAreReturned() throws IOException {
+		File file = folder.newFile("growing.log");
+		append(file, "first\npart");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null);
+		assertLine("first", LineTerminator.LF, 0, 0, reader.poll());
+		assertNull(reader.poll());
+		append(file, "ial \u00e9\r");
+		/* the CR may be followed by a LF, so the line is not yet complete */
+		assertNull(reader.poll());
+		append(file, "\n#skipped?\r");
+		Line line = reader.poll();
+		assertLine("partial \u00e9", LineTerminator.CRLF, 1, 6, line);
+		assertEquals(6, line.getCharacterOffset());
+		assertEquals(6, line.getCodePointOffset());
+		append(file, "next\n");
+		assertLine("#skipped?", LineTerminator.CR, 2, 18, reader.poll());
+		Line next = reader.poll();
+		assertLine("next", LineTerminator.LF, 3, 28, next);
+		assertEquals(27, next.getCharacterOffset());
+		assertNull(reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testSkipLinePrefix() throws IOException {
+		File file = folder.newFile("skip.log");
+		append(file, "#header\ndata\n");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, "#");
+		assertLine("data", LineTerminator.LF, 1, 8, reader.poll());
+		append(file, "#comment\nmore\n");
+		assertLine("more", LineTerminator.LF, 3, 22, reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testResumeFromPosition() throws IOException {
+		File file = folder.newFile("resume.log");
+		append(file, "one\ntwo\nthr");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null);
+		assertEquals("one", reader.poll().getText());
+		assertEquals("two", reader.poll().getText());
+		assertNull(reader.poll());
+		TailPosition position = reader.getPosition();
+		reader.close();
+		assertEquals(8, position.getByteOffset());
+		assertEquals(2, position.getLineNumber());
+
+		append(file, "ee\nfour\n");
+		reader = new TailLineReader(file, CharacterEncoding.UTF_8, null, position, 10);
+		assertLine("three", LineTerminator.LF, 2, 8, reader.poll());
+		assertLine("four", LineTerminator.LF, 3, 14, reader.poll());
+		assertNull(reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testResumeAfterFileReplaced() throws IOException {
+		File file = folder.newFile("replaced.log");
+		append(file, "old\n");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null);
+		assertEquals("old", reader.poll().getText());
+		TailPosition position = reader.getPosition();
+		reader.close();
+		Assume.assumeNotNull(position.getFileKey());
+
+		/* a new, longer file at the same path is read from its beginning */
+		File replacement = new File(folder.getRoot(), "replacement.log");
+		append(replacement, "new first\nnew second\n");
+		Files.move(replacement.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		reader = new TailLineReader(file, CharacterEncoding.UTF_8, null, position, 10);
+		assertLine("new first", LineTerminator.LF, 0, 0, reader.poll());
+		assertLine("new second", LineTerminator.LF, 1, 10, reader.poll());
+		assertNull(reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testTruncation() throws IOException {
+		File file = folder.newFile("truncated.log");
+		append(file, "a long first line\nsecond\n");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null);
+		assertEquals("a long first line", reader.poll().getText());
+		assertEquals("second", reader.poll().getText());
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		raf.setLength(0);
+		raf.close();
+		append(file, "new\n");
+		assertLine("new", LineTerminator.LF, 0, 0, reader.poll());
+		assertNull(reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testRotation() throws IOException {
+		File file = folder.newFile("rotated.log");
+		append(file, "old 1\n");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null);
+		assertEquals("old 1", reader.poll().getText());
+		append(file, "old 2\nold 3");
+		assertTrue(file.renameTo(new File(folder.getRoot(), "rotated.log.1")));
+		append(file, "new 1\n");
+		assertLine("old 2", LineTerminator.LF, 1, 6, reader.poll());
+		/* the unterminated final line of the rotated file is returned before switching files */
+		assertLine("old 3", LineTerminator.LF, 2, 12, reader.poll());
+		assertLine("new 1", LineTerminator.LF, 0, 0, reader.poll());
+		assertNull(reader.poll());
+		reader.close();
+	}
+
+	@Test
+	public void testPollWithTimeout() throws Exception {
+		final File file = folder.newFile("timeout.log");
+		TailLineReader reader = new TailLineReader(file, CharacterEncoding.UTF_8, null, TailPosition.START, 20);
+		assertNull(reader.poll(50, TimeUnit.MILLISECONDS));
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(100);
+					append(file, "appended\n");
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		assertEquals("appended", reader.poll(10, TimeUnit.SECONDS).getText());
+		writer.join();
+		reader.close();
+	}
+
+	@Test
+	public void testIteratorBlocksUntilClosed() throws Exception {
+		final File file = folder.newFile("follow.log");
+		append(file, "line 0\n");
+		final TailLineIterator lineIter = new TailLineIterator(file, CharacterEncoding.UTF_8, null);
+		Thread writer = new Thread() {
+			@Override
+			public void run() {
+				try {
+					for (int i = 1; i < 5; i++) {
+						Thread.sleep(20);
+						append(file, "line " + i + "\n");
+					}
+					Thread.sleep(100);
+					lineIter.close();
+				} catch (Exception e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		List<String> lines = new ArrayList<String>();
+		while (lineIter.hasNext()) {
+			lines.add(lineIter.next().getText());
+		}
+		writer.join();
+		assertEquals(5, lines.size());
+		for (int i = 0; i < 5; i++) {
+			assertEquals("line " + i, lines.get(i));
+		}
+		assertFalse(lineIter.hasNext());
+	}
+
+}
@@ -0,0 +1,211 @@
+package edu.ucdenver.ccp.common.file.writer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.UnmappableCharacterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link AsyncLineWriter}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AsyncLineWriterTest extends DefaultTestCase {
+
+	private static final String LS = System.getProperty("line.separator");
+
+	@Test
+	public void testWriteLines() throws IOException {
+		File file = folder.newFile("lines.utf8");
+		AsyncLineWriter writer = FileWriterUtil.initAsyncLineWriter(file, CharacterEncoding.UTF_8,
+				WriteMode.OVERWRITE, FileSuffixEnforcement.ON);
+		writer.writeLine("line 1");
+		writer.writeLine(new StringBuilder("line 2 \u00e9"));
+		writer.writeLines(Arrays.asList("line 3", "line 4"));
+		writer.close();
+		assertEquals(Arrays.asList("line 1", "line 2 \u00e9", "line 3", "line 4"),
+				FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+	}
+
+	/**
+	 * Checks the output using blocks much smaller than the lines, so that lines and surrogate pairs
+	 * are split across blocks, and a queue small enough that the producer has to wait
+	 */
+	@Test
+	public void testSmallBlocks() throws IOException {
+		StringBuilder expected = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			expected.append("line ").append(i).append(" \u00e9\u20ac").append(Character.toChars(0x1F600 + i % 10))
+					.append("\n");
+		}
+		for (boolean directBuffers : new boolean[] { false, true }) {
+			for (int blockSize : new int[] { 1, 2, 7, 64 }) {
+				File file = new File(folder.getRoot(), "small-blocks-" + blockSize + directBuffers + ".utf8");
+				AsyncLineWriter writer = new AsyncLineWriter(file, CharacterEncoding.UTF_8, WriteMode.OVERWRITE,
+						blockSize, 2, directBuffers);
+				for (int i = 0; i < 500; i++) {
+					writer.write("line " + i + " \u00e9\u20ac" + new String(Character.toChars(0x1F600 + i % 10))
+							+ "\n");
+				}
+				writer.close();
+				assertEquals(expected.toString(), FileUtils.readFileToString(file, "UTF-8"));
+			}
+		}
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		File file = folder.newFile("flush.utf8");
+		AsyncLineWriter writer = new AsyncLineWriter(file, CharacterEncoding.UTF_8);
+		writer.writeLine("line 1");
+		writer.flush();
+		assertEquals("line 1" + LS, FileUtils.readFileToString(file, "UTF-8"));
+		writer.writeLine("line 2");
+		writer.close();
+		assertEquals("line 1" + LS + "line 2" + LS, FileUtils.readFileToString(file, "UTF-8"));
+	}
+
+	@Test
+	public void testAppend() throws IOException {
+		File file = folder.newFile("append.utf8");
+		FileUtils.writeStringToFile(file, "existing" + LS, "UTF-8");
+		AsyncLineWriter writer = FileWriterUtil.initAsyncLineWriter(file, CharacterEncoding.UTF_8,
+				WriteMode.APPEND, FileSuffixEnforcement.OFF);
+		writer.writeLine("appended");
+		writer.close();
+		assertEquals(Arrays.asList("existing", "appended"),
+				FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+	}
+
+	/**
+	 * Checks that lines written concurrently are each written whole
+	 */
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		File file = folder.newFile("concurrent.utf8");
+		final AsyncLineWriter writer = new AsyncLineWriter(file, CharacterEncoding.UTF_8, WriteMode.OVERWRITE, 16,
+				2, false);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int t = 0; t < 4; t++) {
+			final int producer = t;
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws IOException {
+					for (int i = 0; i < 250; i++) {
+						writer.writeLine("producer " + producer + " line " + i);
+					}
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		writer.close();
+		List<String> lines = FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8);
+		assertEquals(1000, lines.size());
+		for (String line : lines) {
+			assertTrue(line, line.matches("producer \\d line \\d+"));
+		}
+	}
+
+	/**
+	 * Checks that an encoding failure on the background thread is reported to the producer
+	 */
+	@Test
+	public void testUnmappableCharacter() throws IOException {
+		File file = folder.newFile("unmappable.ascii");
+		AsyncLineWriter writer = new AsyncLineWriter(file, CharacterEncoding.US_ASCII);
+		writer.writeLine("ascii");
+		writer.writeLine("not ascii: \u00e9");
+		try {
+			writer.flush();
+			fail("Expected the unmappable character to be reported");
+		} catch (UnmappableCharacterException e) {
+			/* expected */
+		}
+		try {
+			writer.writeLine("more");
+			fail("Expected the failure to be reported again");
+		} catch (UnmappableCharacterException e) {
+			/* expected */
+		}
+		try {
+			writer.close();
+			fail("Expected the failure to be reported on close");
+		} catch (UnmappableCharacterException e) {
+			/* expected */
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		AsyncLineWriter writer = new AsyncLineWriter(folder.newFile("closed.utf8"), CharacterEncoding.UTF_8);
+		writer.close();
+		writer.close();
+		writer.writeLine("line");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSuffixEnforcement() throws IOException {
+		FileWriterUtil.initAsyncLineWriter(folder.newFile("wrong.suffix"), CharacterEncoding.UTF_8,
+				WriteMode.OVERWRITE, FileSuffixEnforcement.ON);
+	}
+
+}
@@ -0,0 +1,164 @@
+package edu.ucdenver.ccp.common.file.writer;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.io.IoOptions;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link PartitionedFileWriter} and {@link Partitioners}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class PartitionedFileWriterTest extends DefaultTestCase {
+
+	/**
+	 * Checks that records are routed by prefix and that evicted partitions are appended to when
+	 * they are reopened
+	 */
+	@Test
+	public void testPrefixPartitionsWithEviction() throws IOException {
+		File outputDirectory = folder.newFolder("prefix");
+		PartitionedFileWriter writer = new PartitionedFileWriter(outputDirectory, CharacterEncoding.UTF_8,
+				Partitioners.byPrefix(2, ".tsv"), 2);
+		Map<String, List<String>> expectedLines = new HashMap<String, List<String>>();
+		String[] prefixes = new String[] { "GO", "CL", "PR", "CH", "SO" };
+		for (int i = 0; i < 100; i++) {
+			String key = prefixes[(i * 7) % prefixes.length] + ":" + i;
+			String line = key + "\tvalue " + i;
+			writer.writeLine(key, line);
+			assertTrue(writer.getOpenWriterCount() <= 2);
+			String partition = key.substring(0, 2) + ".tsv";
+			if (!expectedLines.containsKey(partition)) {
+				expectedLines.put(partition, new ArrayList<String>());
+			}
+			expectedLines.get(partition).add(line);
+		}
+		writer.close();
+		assertEquals(prefixes.length, writer.getPartitionFiles().size());
+		for (Map.Entry<String, List<String>> entry : expectedLines.entrySet()) {
+			assertEquals(entry.getValue(), FileReaderUtil.loadLinesFromFile(new File(outputDirectory, entry.getKey()),
+					CharacterEncoding.UTF_8));
+		}
+	}
+
+	/**
+	 * Checks that existing files are overwritten the first time a partition is opened
+	 */
+	@Test
+	public void testOverwrite() throws IOException {
+		File outputDirectory = folder.newFolder("overwrite");
+		FileUtils.writeStringToFile(new File(outputDirectory, "ab.txt"), "old content\n", "UTF-8");
+		PartitionedFileWriter writer = new PartitionedFileWriter(outputDirectory, CharacterEncoding.UTF_8,
+				Partitioners.byPrefix(2, ".txt"), 1);
+		writer.writeLine("ab1", "new 1");
+		writer.writeLine("cd1", "other");
+		writer.writeLine("ab2", "new 2");
+		writer.close();
+		assertEquals(Arrays.asList("new 1", "new 2"),
+				FileReaderUtil.loadLinesFromFile(new File(outputDirectory, "ab.txt"), CharacterEncoding.UTF_8));
+	}
+
+	@Test
+	public void testAppend() throws IOException {
+		File outputDirectory = folder.newFolder("append");
+		FileUtils.writeStringToFile(new File(outputDirectory, "ab.txt"), "old content\n", "UTF-8");
+		PartitionedFileWriter writer = new PartitionedFileWriter(outputDirectory, CharacterEncoding.UTF_8,
+				Partitioners.byPrefix(2, ".txt"), WriteMode.APPEND, 4, IoOptions.DEFAULT);
+		writer.writeLine("ab1", "new 1");
+		writer.close();
+		assertEquals(Arrays.asList("old content", "new 1"),
+				FileReaderUtil.loadLinesFromFile(new File(outputDirectory, "ab.txt"), CharacterEncoding.UTF_8));
+	}
+
+	@Test
+	public void testHashPartitions() throws IOException {
+		File outputDirectory = folder.newFolder("hash");
+		Partitioner partitioner = Partitioners.byHash(8, "part-", ".tsv");
+		assertEquals(partitioner.getPartition("gene 1"), partitioner.getPartition("gene 1"));
+		PartitionedFileWriter writer = new PartitionedFileWriter(outputDirectory, CharacterEncoding.UTF_8,
+				partitioner, 3);
+		for (int i = 0; i < 1000; i++) {
+			writer.writeLine("gene " + i, "gene " + i);
+		}
+		writer.close();
+		assertEquals(8, writer.getPartitionFiles().size());
+		Set<String> allLines = new HashSet<String>();
+		for (File file : writer.getPartitionFiles()) {
+			assertTrue(file.getName(), file.getName().matches("part-0000[0-7]\\.tsv"));
+			for (String line : FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8)) {
+				assertEquals(file.getName(), partitioner.getPartition(line));
+				allLines.add(line);
+			}
+		}
+		assertEquals(1000, allLines.size());
+	}
+
+	@Test
+	public void testPrefixPartitionNames() {
+		Partitioner partitioner = Partitioners.byPrefix(3, ".txt");
+		assertEquals("GO_.txt", partitioner.getPartition("GO:0008150"));
+		assertEquals("a.txt", partitioner.getPartition("a"));
+		assertEquals("___.txt", partitioner.getPartition("../abc"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		PartitionedFileWriter writer = new PartitionedFileWriter(folder.newFolder("closed"), CharacterEncoding.UTF_8,
+				Partitioners.byHash(2, "p", ".txt"), 1);
+		writer.close();
+		writer.writeLine("key", "line");
+	}
+
+}
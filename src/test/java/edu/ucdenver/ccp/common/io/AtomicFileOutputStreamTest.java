@@ -0,0 +1,254 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.FileSuffixEnforcement;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.file.writer.AsyncLineWriter;
+import edu.ucdenver.ccp.common.io.AtomicFileOutputStream.SyncPolicy;
+import edu.ucdenver.ccp.common.string.StringUtil;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link AtomicFileOutputStream} and {@link AtomicFileBatch}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class AtomicFileOutputStreamTest extends DefaultTestCase {
+
+	@Test
+	public void testPublishOnClose() throws IOException {
+		File file = new File(folder.getRoot(), "published.txt");
+		FileUtils.writeStringToFile(file, "previous", "UTF-8");
+		for (SyncPolicy syncPolicy : SyncPolicy.values()) {
+			AtomicFileOutputStream stream = new AtomicFileOutputStream(file, syncPolicy);
+			stream.write("new content ".getBytes("UTF-8"));
+			stream.write(syncPolicy.name().getBytes("UTF-8"));
+			assertTrue(stream.getTemporaryFile().exists());
+			assertEquals(file.getParentFile().getAbsoluteFile(), stream.getTemporaryFile().getParentFile());
+			assertEquals("previous", FileUtils.readFileToString(file, "UTF-8"));
+			stream.close();
+			assertFalse(stream.getTemporaryFile().exists());
+			assertEquals("new content " + syncPolicy.name(), FileUtils.readFileToString(file, "UTF-8"));
+			FileUtils.writeStringToFile(file, "previous", "UTF-8");
+		}
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testAbort() throws IOException {
+		File file = new File(folder.getRoot(), "aborted.txt");
+		AtomicFileOutputStream stream = new AtomicFileOutputStream(file, SyncPolicy.SYNC_ON_CLOSE);
+		stream.write(1);
+		stream.abort();
+		stream.close();
+		assertFalse(file.exists());
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		File directory = folder.newFolder("batch");
+		File file1 = new File(directory, "file1.txt");
+		File file2 = new File(directory, "file2.txt");
+		File file3 = new File(directory, "file3.txt");
+		AtomicFileBatch batch = new AtomicFileBatch(SyncPolicy.SYNC_ON_CLOSE);
+		BufferedWriter writer = FileWriterUtil.initBufferedWriter(file1, CharacterEncoding.UTF_8, batch);
+		writer.write("one");
+		writer.close();
+		writer = FileWriterUtil.initBufferedWriter(file2, CharacterEncoding.UTF_8, batch);
+		writer.write("two");
+		writer.close();
+		AtomicFileOutputStream aborted = batch.openOutputStream(file3);
+		aborted.write(3);
+		aborted.abort();
+		assertFalse(file1.exists());
+		assertFalse(file2.exists());
+		assertEquals(2, batch.getPendingFileCount());
+
+		batch.commit();
+		assertEquals("one", FileUtils.readFileToString(file1, "UTF-8"));
+		assertEquals("two", FileUtils.readFileToString(file2, "UTF-8"));
+		assertFalse(file3.exists());
+		assertEquals(2, directory.list().length);
+		assertEquals(0, batch.getPendingFileCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testCommitWithOpenStream() throws IOException {
+		AtomicFileBatch batch = new AtomicFileBatch(SyncPolicy.NO_SYNC);
+		batch.openOutputStream(new File(folder.getRoot(), "open.txt"));
+		batch.commit();
+	}
+
+	@Test
+	public void testBatchAbort() throws IOException {
+		AtomicFileBatch batch = new AtomicFileBatch(SyncPolicy.NO_SYNC);
+		batch.openOutputStream(new File(folder.getRoot(), "open.txt")).write(1);
+		AtomicFileOutputStream closed = batch.openOutputStream(new File(folder.getRoot(), "closed.txt"));
+		closed.close();
+		batch.abort();
+		batch.commit();
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testAtomicWriteMode() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt");
+		FileWriterUtil.printLines(Arrays.asList("line 1", "line 2"), file, CharacterEncoding.UTF_8,
+				WriteMode.ATOMIC, FileSuffixEnforcement.OFF);
+		assertEquals(Arrays.asList("line 1", "line 2"), FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+
+		AsyncLineWriter writer = FileWriterUtil.initAsyncLineWriter(file, CharacterEncoding.UTF_8, WriteMode.ATOMIC,
+				FileSuffixEnforcement.OFF);
+		writer.writeLine("line 3");
+		writer.flush();
+		assertEquals(Arrays.asList("line 1", "line 2"), FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+		writer.close();
+		assertEquals(Arrays.asList("line 3"), FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+
+	@Test
+	public void testWriterNotPublishedAfterEncodingError() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt");
+		FileUtils.writeStringToFile(file, "previous", "UTF-8");
+		/* the unmappable character is buffered and fails when the writer is closed */
+		BufferedWriter writer = FileWriterUtil.initBufferedWriter(file, CharacterEncoding.US_ASCII, WriteMode.ATOMIC,
+				FileSuffixEnforcement.OFF);
+		assertTrue(writer instanceof AtomicFileWriter);
+		writeAndClose(writer, "abcdefgh\n", "caf\u00e9");
+		assertEquals("previous", FileUtils.readFileToString(file, "UTF-8"));
+		assertEquals(1, folder.getRoot().list().length);
+
+		/* the unmappable character fails when it is written */
+		writer = FileWriterUtil.initAtomicBufferedWriter(file, CharacterEncoding.US_ASCII);
+		writeAndClose(writer, "abcdefgh\n", StringUtil.createRepeatingString("caf\u00e9", IoOptions.DEFAULT_BUFFER_SIZE));
+		assertEquals("previous", FileUtils.readFileToString(file, "UTF-8"));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testGzipWriterNotPublishedAfterEncodingError() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt.gz");
+		BufferedWriter writer = FileWriterUtil.initParallelGzipBufferedWriter(file, CharacterEncoding.US_ASCII,
+				WriteMode.ATOMIC, ParallelGzipOutputStream.Format.MULTI_MEMBER);
+		writeAndClose(writer, "abcdefgh\n", "caf\u00e9");
+		assertEquals(0, folder.getRoot().list().length);
+
+		writer = FileWriterUtil.initParallelGzipBufferedWriter(file, CharacterEncoding.US_ASCII, WriteMode.ATOMIC,
+				ParallelGzipOutputStream.Format.MULTI_MEMBER);
+		writer.write("abcdefgh\n");
+		writer.close();
+		assertEquals(Arrays.asList("abcdefgh"), FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.US_ASCII));
+		assertEquals(1, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testAbortWriter() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt");
+		AtomicFileWriter writer = FileWriterUtil.initAtomicBufferedWriter(file, CharacterEncoding.UTF_8);
+		writer.write("abcdefgh");
+		writer.flush();
+		writer.abort();
+		writer.close();
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testBatchWriterNotPublishedAfterEncodingError() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt");
+		AtomicFileBatch batch = new AtomicFileBatch(SyncPolicy.NO_SYNC);
+		writeAndClose(FileWriterUtil.initBufferedWriter(file, CharacterEncoding.US_ASCII, batch), "caf\u00e9");
+		assertEquals(0, batch.getPendingFileCount());
+		batch.commit();
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	@Test
+	public void testAsyncWriterNotPublishedAfterEncodingError() throws IOException {
+		File file = new File(folder.getRoot(), "lines.txt");
+		AsyncLineWriter writer = FileWriterUtil.initAsyncLineWriter(file, CharacterEncoding.US_ASCII, WriteMode.ATOMIC,
+				FileSuffixEnforcement.OFF);
+		writer.write("abcdefgh");
+		writer.flush();
+		writer.write("caf\u00e9");
+		try {
+			writer.close();
+			fail("close() should fail after an encoding error");
+		} catch (IOException e) {
+			/* expected */
+		}
+		assertEquals(0, folder.getRoot().list().length);
+	}
+
+	/**
+	 * Writes the input strings using the usual try/finally idiom, expecting an exception to be
+	 * thrown
+	 */
+	private static void writeAndClose(Writer writer, String... strings) {
+		try {
+			try {
+				for (String string : strings) {
+					writer.write(string);
+				}
+			} finally {
+				writer.close();
+			}
+			fail("Writing should fail for unmappable characters");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+}
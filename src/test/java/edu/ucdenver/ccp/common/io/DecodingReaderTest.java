@@ -0,0 +1,119 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.MalformedInputException;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+
+/**
+ * Tests the {@link DecodingReader}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class DecodingReaderTest {
+
+	private static String createContent() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			sb.append("line ").append(i).append(" \u00e9\ud835\udc9c\u4e2d\n");
+		}
+		return sb.toString();
+	}
+
+	private static String readFully(Reader reader, int chunkSize) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		char[] buffer = new char[chunkSize];
+		int read;
+		while ((read = reader.read(buffer, 0, chunkSize)) != -1) {
+			sb.append(buffer, 0, read);
+		}
+		reader.close();
+		return sb.toString();
+	}
+
+	@Test
+	public void testDecodesStreamWithVariousBufferSizes() throws Exception {
+		String content = createContent();
+		byte[] bytes = content.getBytes("UTF-8");
+		for (int bufferSize : new int[] { 16, 17, 1000, 1024 * 1024 }) {
+			for (int chunkSize : new int[] { 1, 2, 3, 8192 }) {
+				DecodingReader reader = new DecodingReader(new ByteArrayInputStream(bytes),
+						CharacterEncoding.UTF_8.getDecoder(), bufferSize);
+				assertEquals(content, readFully(reader, chunkSize));
+			}
+		}
+	}
+
+	@Test
+	public void testDecodesChannelIntoDirectBuffer() throws Exception {
+		String content = createContent();
+		byte[] bytes = content.getBytes("UTF-8");
+		DecodingReader reader = new DecodingReader(Channels.newChannel(new ByteArrayInputStream(bytes)),
+				CharacterEncoding.UTF_8.getDecoder(), ByteBuffer.allocateDirect(100));
+		assertEquals(content, readFully(reader, 7));
+	}
+
+	@Test
+	public void testEmptyInput() throws Exception {
+		DecodingReader reader = new DecodingReader(new ByteArrayInputStream(new byte[0]),
+				CharacterEncoding.UTF_8.getDecoder(), 16);
+		assertEquals(-1, reader.read());
+		assertEquals(-1, reader.read());
+		reader.close();
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void testTruncatedSequenceAtEndOfInput() throws Exception {
+		byte[] bytes = new byte[] { 'a', 'b', (byte) 0xc3 };
+		readFully(new DecodingReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8.getDecoder(), 16), 10);
+	}
+
+	@Test(expected = MalformedInputException.class)
+	public void testMalformedInput() throws Exception {
+		byte[] bytes = new byte[] { 'a', (byte) 0xff, 'b' };
+		readFully(new DecodingReader(new ByteArrayInputStream(bytes), CharacterEncoding.UTF_8.getDecoder(), 16), 10);
+	}
+
+}
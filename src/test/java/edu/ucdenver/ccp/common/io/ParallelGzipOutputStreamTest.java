@@ -0,0 +1,203 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.file.CharacterEncoding;
+import edu.ucdenver.ccp.common.file.FileArchiveUtil;
+import edu.ucdenver.ccp.common.file.FileReaderUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil;
+import edu.ucdenver.ccp.common.file.FileWriterUtil.WriteMode;
+import edu.ucdenver.ccp.common.io.ParallelGzipOutputStream.Format;
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+/**
+ * Tests the {@link ParallelGzipOutputStream}
+ * 
+ * @author Center for Computational Pharmacology, UC Denver; ccpsupport@ucdenver.edu
+ * 
+ */
+public class ParallelGzipOutputStreamTest extends DefaultTestCase {
+
+	private static byte[] createSampleData(int length) {
+		byte[] data = new byte[length];
+		Random random = new Random(42);
+		for (int i = 0; i < length; i++) {
+			/* a mix of compressible text and incompressible noise */
+			data[i] = (i / 5000 % 2 == 0) ? (byte) ('a' + i % 26) : (byte) random.nextInt();
+		}
+		return data;
+	}
+
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		return IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(compressed)));
+	}
+
+	@Test
+	public void testMultiMemberRoundTrip() throws IOException {
+		byte[] data = createSampleData(100000);
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(compressed, Format.MULTI_MEMBER, 4096,
+					Deflater.BEST_SPEED, executor, 3);
+			gzipStream.write(data, 0, 12345);
+			gzipStream.write(data[12345]);
+			gzipStream.write(data, 12346, data.length - 12346);
+			gzipStream.close();
+			assertArrayEquals(data, gunzip(compressed.toByteArray()));
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Checks that each BGZF member records its size, fits in 64KB and that the stream ends with the
+	 * empty end-of-file member
+	 */
+	@Test
+	public void testBgzf() throws IOException {
+		byte[] data = createSampleData(300000);
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(compressed, Format.BGZF, 0,
+					Deflater.DEFAULT_COMPRESSION, executor, 2);
+			gzipStream.write(data);
+			gzipStream.close();
+		} finally {
+			executor.shutdown();
+		}
+		byte[] bytes = compressed.toByteArray();
+		assertArrayEquals(data, gunzip(bytes));
+
+		List<Integer> memberSizes = new ArrayList<Integer>();
+		int offset = 0;
+		while (offset < bytes.length) {
+			assertEquals(0x1f, bytes[offset] & 0xff);
+			assertEquals(0x8b, bytes[offset + 1] & 0xff);
+			assertEquals(4, bytes[offset + 3]);
+			assertEquals('B', bytes[offset + 12]);
+			assertEquals('C', bytes[offset + 13]);
+			int memberSize = (bytes[offset + 16] & 0xff) + ((bytes[offset + 17] & 0xff) << 8) + 1;
+			assertTrue(memberSize <= 65536);
+			memberSizes.add(memberSize);
+			offset += memberSize;
+		}
+		assertEquals(bytes.length, offset);
+		/* 300000 bytes in blocks of 65280 bytes, plus the end-of-file member */
+		assertEquals(6, memberSizes.size());
+		assertEquals(28, (int) memberSizes.get(memberSizes.size() - 1));
+	}
+
+	@Test
+	public void testEmptyStream() throws IOException {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			for (Format format : Format.values()) {
+				ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+				new ParallelGzipOutputStream(compressed, format, 1024, Deflater.DEFAULT_COMPRESSION, executor, 1)
+						.close();
+				assertEquals(0, gunzip(compressed.toByteArray()).length);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testFlush() throws IOException {
+		ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+		ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(compressed);
+		gzipStream.write("first".getBytes("UTF-8"));
+		gzipStream.flush();
+		assertEquals("first", new String(gunzip(compressed.toByteArray()), "UTF-8"));
+		gzipStream.write(" second".getBytes("UTF-8"));
+		gzipStream.close();
+		assertEquals("first second", new String(gunzip(compressed.toByteArray()), "UTF-8"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteAfterClose() throws IOException {
+		ParallelGzipOutputStream gzipStream = new ParallelGzipOutputStream(new ByteArrayOutputStream());
+		gzipStream.close();
+		gzipStream.write(1);
+	}
+
+	@Test
+	public void testParallelGzipBufferedWriter() throws IOException {
+		File file = new File(folder.getRoot(), "lines.utf8.gz");
+		BufferedWriter writer = FileWriterUtil.initParallelGzipBufferedWriter(file, CharacterEncoding.UTF_8,
+				WriteMode.OVERWRITE, Format.MULTI_MEMBER);
+		writer.write("line 1\nline 2\n");
+		writer.close();
+		writer = FileWriterUtil.initParallelGzipBufferedWriter(file, CharacterEncoding.UTF_8, WriteMode.APPEND,
+				Format.BGZF);
+		writer.write("line 3\n");
+		writer.close();
+		assertEquals(Arrays.asList("line 1", "line 2", "line 3"),
+				FileReaderUtil.loadLinesFromFile(file, CharacterEncoding.UTF_8));
+	}
+
+	@Test
+	public void testGzipFile() throws IOException {
+		File file = folder.newFile("sample.txt");
+		byte[] data = createSampleData(3 * ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE + 17);
+		FileUtils.writeByteArrayToFile(file, data);
+		File gzippedFile = FileArchiveUtil.gzipFile(file);
+		assertArrayEquals(data, gunzip(FileUtils.readFileToByteArray(gzippedFile)));
+	}
+
+}
@@ -0,0 +1,156 @@
+package edu.ucdenver.ccp.common.io;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.junit.Test;
+
+public class ReadAheadInputStreamTest {
+
+	private static byte[] createContent(int length) {
+		byte[] content = new byte[length];
+		for (int i = 0; i < length; i++) {
+			content[i] = (byte) (i * 31);
+		}
+		return content;
+	}
+
+	private static byte[] readFully(InputStream is, int chunkSize) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] buffer = new byte[chunkSize];
+		int read;
+		while ((read = is.read(buffer)) != -1) {
+			baos.write(buffer, 0, read);
+		}
+		return baos.toByteArray();
+	}
+
+	@Test
+	public void testReadsAllContentAcrossBlocks() throws Exception {
+		byte[] content = createContent(100003);
+		ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(content), 1000, 3);
+		assertArrayEquals(content, readFully(is, 777));
+		assertEquals(-1, is.read());
+		is.close();
+	}
+
+	@Test
+	public void testSingleByteReads() throws Exception {
+		byte[] content = createContent(2500);
+		ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(content), 1024, 2);
+		for (int i = 0; i < content.length; i++) {
+			assertEquals(content[i] & 0xff, is.read());
+		}
+		assertEquals(-1, is.read());
+		is.close();
+	}
+
+	@Test
+	public void testEmptySource() throws Exception {
+		ReadAheadInputStream is = new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]));
+		assertEquals(-1, is.read(new byte[10], 0, 10));
+		is.close();
+	}
+
+	@Test
+	public void testSourceErrorIsRethrownAfterBufferedContent() throws Exception {
+		final byte[] content = createContent(3500);
+		InputStream failingSource = new InputStream() {
+			private int position = 0;
+
+			@Override
+			public int read() throws IOException {
+				if (position == content.length) {
+					throw new IOException("simulated failure");
+				}
+				return content[position++] & 0xff;
+			}
+		};
+		ReadAheadInputStream is = new ReadAheadInputStream(failingSource, 1000, 2);
+		byte[] buffer = new byte[1000];
+		int total = 0;
+		try {
+			int read;
+			while ((read = is.read(buffer)) != -1) {
+				total += read;
+			}
+			fail("The source failure should have been rethrown");
+		} catch (IOException e) {
+			assertEquals("simulated failure", e.getMessage());
+		}
+		assertEquals("All content read before the failure should be returned", content.length, total);
+		is.close();
+	}
+
+	@Test
+	public void testCloseBeforeEndClosesSource() throws Exception {
+		final boolean[] closed = new boolean[1];
+		InputStream endlessSource = new InputStream() {
+			@Override
+			public int read() {
+				return 'x';
+			}
+
+			@Override
+			public void close() {
+				closed[0] = true;
+			}
+		};
+		ReadAheadInputStream is = new ReadAheadInputStream(endlessSource, 64, 2);
+		assertEquals('x', is.read());
+		is.close();
+		assertTrue("Closing the stream should close the source", closed[0]);
+		try {
+			is.read();
+			fail("Reading from a closed stream should fail");
+		} catch (IOException e) {
+			/* expected */
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidBlockSize() {
+		new ReadAheadInputStream(new ByteArrayInputStream(new byte[0]), 0, 1);
+	}
+
+}
@@ -0,0 +1,116 @@
+package edu.ucdenver.ccp.common.string;
+
+/*
+ * #%L
+ * Colorado Computational Pharmacology's common module
+ * %%
+ * Copyright (C) 2012 - 2014 Regents of the University of Colorado
+ * %%
+ * Redistribution and use in source and binary forms, with or without modification,
+ * are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice, this
+ *    list of conditions and the following disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * 3. Neither the name of the Regents of the University of Colorado nor the names of its contributors
+ *    may be used to endorse or promote products derived from this software without
+ *    specific prior written permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED.
+ * IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT,
+ * INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING,
+ * BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE,
+ * DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE
+ * OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED
+ * OF THE POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Test;
+
+import edu.ucdenver.ccp.common.test.DefaultTestCase;
+
+public class CsvTokenizerTest extends DefaultTestCase {
+
+	@Test
+	public void testSplit_UnquotedFields() {
+		assertArrayEquals(new String[] { "a", "b", "c" }, CsvTokenizer.RFC_4180.split("a,b,c"));
+		assertArrayEquals(new String[] { "", "b", "" }, CsvTokenizer.RFC_4180.split(",b,"));
+		assertArrayEquals(new String[] { "" }, CsvTokenizer.RFC_4180.split(""));
+		assertArrayEquals(new String[] { " a ", " b" }, CsvTokenizer.RFC_4180.split(" a , b"));
+	}
+
+	@Test
+	public void testSplit_QuotedFields() {
+		assertArrayEquals(new String[] { "token 1", "token, 2", "token 3" },
+				CsvTokenizer.RFC_4180.split("token 1,\"token, 2\",token 3"));
+		assertArrayEquals(new String[] { "", "x" }, CsvTokenizer.RFC_4180.split("\"\",\"x\""));
+		assertArrayEquals(new String[] { "a,b,c" }, CsvTokenizer.RFC_4180.split("\"a,b,c\""));
+	}
+
+	@Test
+	public void testSplit_EscapedQuotes() {
+		assertArrayEquals(new String[] { "say \"hi\", then leave", "2" },
+				CsvTokenizer.RFC_4180.split("\"say \"\"hi\"\", then leave\",2"));
+		assertArrayEquals(new String[] { "\"" }, CsvTokenizer.RFC_4180.split("\"\"\"\""));
+	}
+
+	@Test
+	public void testSplit_EmbeddedLineBreak() {
+		assertArrayEquals(new String[] { "1", "line one\r\nline two", "3" },
+				CsvTokenizer.RFC_4180.split("1,\"line one\r\nline two\",3"));
+	}
+
+	@Test
+	public void testSplit_LenientQuotes() {
+		assertArrayEquals(new String[] { "a\"b", "c" }, CsvTokenizer.RFC_4180.split("a\"b,c"));
+		assertArrayEquals(new String[] { "ab c", "d" }, CsvTokenizer.RFC_4180.split("\"ab\" c,d"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSplit_UnterminatedQuote() {
+		CsvTokenizer.RFC_4180.split("a,\"b,c");
+	}
+
+	@Test
+	public void testSplit_OtherCharacters() {
+		CsvTokenizer tokenizer = new CsvTokenizer('\t', '*');
+		assertArrayEquals(new String[] { "a", "b\tc", "0*" }, tokenizer.split("a\t*b\tc*\t*0***"));
+		assertArrayEquals(new String[] { "102", "3" }, new CsvTokenizer('0', '"').split("\"102\"03"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSameDelimiterAndQuote() {
+		new CsvTokenizer(',', ',');
+	}
+
+	@Test
+	public void testReadRecord() throws IOException {
+		String input = "id,text\n1,\"first\nsecond, \"\"third\"\"\"\n2,plain\n";
+		BufferedReader reader = new BufferedReader(new StringReader(input));
+		assertArrayEquals(new String[] { "id", "text" }, CsvTokenizer.RFC_4180.readRecord(reader));
+		assertArrayEquals(new String[] { "1", "first\nsecond, \"third\"" }, CsvTokenizer.RFC_4180.readRecord(reader));
+		assertArrayEquals(new String[] { "2", "plain" }, CsvTokenizer.RFC_4180.readRecord(reader));
+		assertNull(CsvTokenizer.RFC_4180.readRecord(reader));
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadRecord_UnterminatedQuote() throws IOException {
+		CsvTokenizer.RFC_4180.readRecord(new BufferedReader(new StringReader("1,\"never\nclosed")));
+	}
+
+}
@@ -710,4 +710,17 @@ public class StringUtilTest extends DefaultTestCase {
 	public void containsAstralCharsTrue() {
 		assertTrue(StringUtil.containsAstralChars(String.valueOf(Character.toChars(0x10000))));
 	}
+
+	@Test
+	public void testGetRegexLiteralCharacter() {
+		assertEquals('\t', StringUtil.getRegexLiteralCharacter("\t"));
+		assertEquals('\t', StringUtil.getRegexLiteralCharacter("\\t"));
+		assertEquals(',', StringUtil.getRegexLiteralCharacter(","));
+		assertEquals('|', StringUtil.getRegexLiteralCharacter("\\|"));
+		assertEquals('.', StringUtil.getRegexLiteralCharacter("\\."));
+		assertEquals(-1, StringUtil.getRegexLiteralCharacter("|"));
+		assertEquals(-1, StringUtil.getRegexLiteralCharacter("\\s"));
+		assertEquals(-1, StringUtil.getRegexLiteralCharacter(", *"));
+	}
+
 }